@@ -0,0 +1,125 @@
+/**
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Project
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA.
+ */
+package org.exist.storage.cache;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.IZ_Result;
+
+/**
+ * Stress tests for concurrent access to {@link LRUCache}, as
+ * used by readers which share a lock on a BTree file.
+ */
+public class LRUCacheStressTest {
+
+    @JCStressTest
+    @Outcome(id = "2, true", expect = Expect.ACCEPTABLE, desc = "Cache is consistent")
+    @Outcome(expect = Expect.FORBIDDEN, desc = "Cache is inconsistent")
+    @State
+    public static class ConcurrentAddWithEviction {
+        final LRUCache<TestCacheable> cache = new LRUCache<>("test", 2, 0.0, 1.0, Cache.CacheType.DATA);
+
+        @Actor
+        public void actor1() {
+            cache.add(new TestCacheable(1));
+            cache.add(new TestCacheable(2));
+            cache.get(1);
+        }
+
+        @Actor
+        public void actor2() {
+            cache.add(new TestCacheable(3));
+            cache.add(new TestCacheable(4));
+            cache.get(3);
+        }
+
+        @Arbiter
+        public void arbiter(final IZ_Result r) {
+            r.r1 = cache.getUsedBuffers();
+            int found = 0;
+            for (long key = 1; key <= 4; key++) {
+                if (cache.get(key) != null) {
+                    found++;
+                }
+            }
+            r.r2 = found == r.r1;
+        }
+    }
+
+    static class TestCacheable implements Cacheable {
+        private final long key;
+        private int referenceCount = 0;
+        private int timestamp = 0;
+
+        TestCacheable(final long key) {
+            this.key = key;
+        }
+
+        @Override
+        public long getKey() {
+            return key;
+        }
+
+        @Override
+        public int getReferenceCount() {
+            return referenceCount;
+        }
+
+        @Override
+        public int incReferenceCount() {
+            return ++referenceCount;
+        }
+
+        @Override
+        public int decReferenceCount() {
+            return --referenceCount;
+        }
+
+        @Override
+        public void setReferenceCount(final int count) {
+            this.referenceCount = count;
+        }
+
+        @Override
+        public void setTimestamp(final int timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        @Override
+        public int getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public boolean sync(final boolean syncJournal) {
+            return false;
+        }
+
+        @Override
+        public boolean allowUnload() {
+            return true;
+        }
+
+        @Override
+        public boolean isDirty() {
+            return false;
+        }
+    }
+}
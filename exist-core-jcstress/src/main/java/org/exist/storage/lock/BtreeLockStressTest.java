@@ -0,0 +1,106 @@
+/**
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001 The eXist-db Project
+ * info@exist-db.org
+ * http://www.exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation
+ * Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA.
+ */
+package org.exist.storage.lock;
+
+import org.exist.util.LockException;
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.II_Result;
+import org.openjdk.jcstress.infra.results.Z_Result;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Stress tests for the shared/exclusive locks on BTree files
+ * provided by {@link LockManager}.
+ */
+public class BtreeLockStressTest {
+
+    private static final String BTREE_FILE_NAME = "btree.dbx";
+
+    @JCStressTest
+    @Outcome(id = "0, 0", expect = Expect.ACCEPTABLE, desc = "Reader before Writer")
+    @Outcome(id = "1, 1", expect = Expect.ACCEPTABLE, desc = "Reader after Writer")
+    @Outcome(id = "1, 0", expect = Expect.FORBIDDEN, desc = "Reader saw a partial write")
+    @Outcome(id = "0, 1", expect = Expect.FORBIDDEN, desc = "Reader saw a partial write")
+    @State
+    public static class WriterExcludesReader {
+        final LockManager lockManager = new LockManager(1);
+        int x;
+        int y;
+
+        @Actor
+        public void writer() {
+            try (final ManagedLock<ReentrantReadWriteLock> btreeLock = lockManager.acquireBtreeWriteLock(BTREE_FILE_NAME)) {
+                x = 1;
+                y = 1;
+            } catch (final LockException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Actor
+        public void reader(final II_Result r) {
+            try (final ManagedLock<ReentrantReadWriteLock> btreeLock = lockManager.acquireBtreeReadLock(BTREE_FILE_NAME)) {
+                r.r1 = y;
+                r.r2 = x;
+            } catch (final LockException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "true", expect = Expect.ACCEPTABLE, desc = "Readers share the lock")
+    @Outcome(id = "false", expect = Expect.FORBIDDEN, desc = "A reader was excluded by another reader")
+    @State
+    public static class ReadersShareLock {
+        final LockManager lockManager = new LockManager(1);
+        final ReentrantReadWriteLock btreeLock = lockManager.getBTreeLock(BTREE_FILE_NAME);
+        boolean reader1Acquired;
+        boolean reader2Acquired;
+
+        @Actor
+        public void reader1() {
+            try (final ManagedLock<ReentrantReadWriteLock> lock = lockManager.acquireBtreeReadLock(BTREE_FILE_NAME)) {
+                // whilst we hold a read lock, another reader must never be blocked
+                reader1Acquired = btreeLock.readLock().tryLock();
+                if (reader1Acquired) {
+                    btreeLock.readLock().unlock();
+                }
+            } catch (final LockException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Actor
+        public void reader2() {
+            reader2Acquired = btreeLock.readLock().tryLock();
+            if (reader2Acquired) {
+                btreeLock.readLock().unlock();
+            }
+        }
+
+        @Arbiter
+        public void arbiter(final Z_Result r) {
+            r.r1 = reader1Acquired && reader2Acquired;
+        }
+    }
+}
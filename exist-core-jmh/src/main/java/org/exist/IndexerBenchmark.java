@@ -0,0 +1,103 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist;
+
+import org.exist.collections.Collection;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.lock.Lock.LockMode;
+import org.exist.storage.txn.Txn;
+import org.exist.test.BrokerState;
+import org.exist.test.CorpusDatabase;
+import org.exist.test.CorpusState;
+import org.exist.util.LockException;
+import org.exist.xmldb.XmldbURI;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput of storing documents, i.e. of parsing them
+ * with the {@link Indexer} and writing their nodes and index entries,
+ * each document in its own transaction.
+ *
+ * The documents have as many items as those of the corpus and are stored
+ * into a collection of their own, next to the corpus, which is emptied
+ * after every iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class IndexerBenchmark {
+
+    private static final XmldbURI COLLECTION_URI = XmldbURI.ROOT_COLLECTION_URI.append("jmh-indexer");
+
+    @State(Scope.Benchmark)
+    public static class DocumentState {
+        private final AtomicInteger stored = new AtomicInteger();
+        private CorpusDatabase corpus;
+        private String xml;
+
+        @Setup(Level.Trial)
+        public void setup(final CorpusState corpusState) {
+            corpus = corpusState.corpus;
+            xml = CorpusDatabase.generateOrder(new Random(7), 0, corpusState.items);
+        }
+
+        @Setup(Level.Iteration)
+        public void createCollection() throws EXistException, PermissionDeniedException, IOException, SAXException {
+            final BrokerPool pool = corpus.getBrokerPool();
+            try (final DBBroker broker = corpus.getBroker();
+                    final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+                final Collection collection = broker.getOrCreateCollection(transaction, COLLECTION_URI);
+                broker.saveCollection(transaction, collection);
+                transaction.commit();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void removeCollection() throws EXistException, PermissionDeniedException, IOException, SAXException {
+            final BrokerPool pool = corpus.getBrokerPool();
+            try (final DBBroker broker = corpus.getBroker();
+                    final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+                try (final Collection collection = broker.openCollection(COLLECTION_URI, LockMode.WRITE_LOCK)) {
+                    if (collection != null) {
+                        broker.removeCollection(transaction, collection);
+                    }
+                }
+                transaction.commit();
+            }
+        }
+    }
+
+    @Benchmark
+    public void store(final CorpusState corpusState, final DocumentState documentState, final BrokerState brokerState)
+            throws EXistException, PermissionDeniedException, LockException, SAXException, IOException {
+        final XmldbURI name = XmldbURI.create("stored-" + documentState.stored.incrementAndGet() + ".xml");
+        final DBBroker broker = brokerState.broker;
+        try (final Txn transaction = corpusState.corpus.getBrokerPool().getTransactionManager().beginTransaction();
+                final Collection collection = broker.openCollection(COLLECTION_URI, LockMode.WRITE_LOCK)) {
+            CorpusDatabase.store(broker, transaction, collection, name, documentState.xml);
+            transaction.commit();
+        }
+    }
+}
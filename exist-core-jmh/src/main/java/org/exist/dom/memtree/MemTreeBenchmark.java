@@ -0,0 +1,111 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.dom.memtree;
+
+import org.exist.EXistException;
+import org.exist.dom.QName;
+import org.exist.numbering.NodeId;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.DatabaseConfigurationException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Builds a large in-memory report document, as produced by queries
+ * which construct big temporary trees, and computes the node ids
+ * of all of its nodes.
+ *
+ * Run with {@code -prof gc} to compare the allocation rate and
+ * GC time of different {@link DocumentImpl} representations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class MemTreeBenchmark {
+
+    private static final QName REPORT = new QName("report", "");
+    private static final QName ROW = new QName("row", "");
+    private static final QName ID = new QName("id", "");
+    private static final QName STATUS = new QName("status", "");
+    private static final QName VALUE = new QName("value", "");
+
+    @State(Scope.Benchmark)
+    public static class MemTreeState {
+
+        @Param({"500000"})
+        private int rows;
+
+        private ExistEmbeddedServer server;
+        private DocumentImpl document;
+
+        @Setup(Level.Trial)
+        public void setup() throws DatabaseConfigurationException, EXistException, IOException {
+            // node ids are created by the node id factory of the database
+            server = new ExistEmbeddedServer(true, true);
+            server.startDb();
+            document = buildReport(rows);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            server.stopDb(true);
+        }
+    }
+
+    private static DocumentImpl buildReport(final int rows) {
+        final MemTreeBuilder builder = new MemTreeBuilder();
+        builder.startDocument();
+        builder.startElement(REPORT, null);
+        for (int i = 0; i < rows; i++) {
+            builder.startElement(ROW, null);
+            builder.addAttribute(ID, Integer.toString(i));
+            builder.addAttribute(STATUS, (i & 1) == 0 ? "open" : "closed");
+            builder.startElement(VALUE, null);
+            builder.characters(Integer.toString(i * 31));
+            builder.endElement();
+            builder.endElement();
+        }
+        builder.endElement();
+        builder.endDocument();
+        return builder.getDocument();
+    }
+
+    @Benchmark
+    public DocumentImpl build(final MemTreeState state) {
+        return buildReport(state.rows);
+    }
+
+    @Benchmark
+    public void nodeIds(final MemTreeState state, final Blackhole blackhole) {
+        final DocumentImpl document = state.document;
+        for (int i = 0; i < document.getSize(); i++) {
+            final NodeId nodeId = document.getNodeId(i);
+            blackhole.consume(nodeId);
+        }
+    }
+
+    @Benchmark
+    public void attributeValues(final MemTreeState state, final Blackhole blackhole) {
+        final DocumentImpl document = state.document;
+        for (int i = 0; i < document.nextAttr; i++) {
+            blackhole.consume(document.getAttributeValue(i));
+        }
+    }
+}
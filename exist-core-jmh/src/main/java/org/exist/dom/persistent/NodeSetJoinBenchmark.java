@@ -0,0 +1,84 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.dom.persistent;
+
+import org.exist.EXistException;
+import org.exist.dom.QName;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.DBBroker;
+import org.exist.storage.ElementValue;
+import org.exist.test.CorpusDatabase;
+import org.exist.test.CorpusState;
+import org.exist.util.LockException;
+import org.exist.xquery.Expression;
+import org.exist.xquery.XPathException;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the structural joins of {@link NewArrayNodeSet}, which evaluate
+ * the steps of path expressions over the node sets of the structural index.
+ *
+ * {@code parentChild} corresponds to {@code //items/item},
+ * {@code ancestorDescendant} to {@code //order//price} and
+ * {@code ancestorsOfDescendants} to {@code //order[.//price]}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class NodeSetJoinBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class NodeSetState {
+        private NewArrayNodeSet orders;
+        private NewArrayNodeSet itemLists;
+        private NewArrayNodeSet items;
+        private NewArrayNodeSet prices;
+
+        @Setup(Level.Trial)
+        public void setup(final CorpusState corpusState) throws EXistException, PermissionDeniedException, LockException, XPathException {
+            try (final DBBroker broker = corpusState.corpus.getBroker()) {
+                final DocumentSet docs = corpusState.corpus.getDocuments(broker);
+                orders = findElements(broker, docs, CorpusDatabase.ORDER);
+                itemLists = findElements(broker, docs, CorpusDatabase.ITEMS);
+                items = findElements(broker, docs, CorpusDatabase.ITEM);
+                prices = findElements(broker, docs, CorpusDatabase.PRICE);
+            }
+        }
+
+        private static NewArrayNodeSet findElements(final DBBroker broker, final DocumentSet docs, final QName qname) throws XPathException {
+            final NewArrayNodeSet nodes = new NewArrayNodeSet();
+            nodes.addAll(broker.getStructuralIndex().findElementsByTagName(ElementValue.ELEMENT, docs, qname, null));
+            return nodes;
+        }
+    }
+
+    @Benchmark
+    public NodeSet parentChild(final NodeSetState state) {
+        return state.items.selectParentChild(state.itemLists, NodeSet.DESCENDANT, Expression.NO_CONTEXT_ID);
+    }
+
+    @Benchmark
+    public NodeSet ancestorDescendant(final NodeSetState state) {
+        return state.prices.selectAncestorDescendant(state.orders, NodeSet.DESCENDANT, false, Expression.NO_CONTEXT_ID, true);
+    }
+
+    @Benchmark
+    public NodeSet ancestorsOfDescendants(final NodeSetState state) {
+        return state.prices.selectAncestorDescendant(state.orders, NodeSet.ANCESTOR, false, Expression.NO_CONTEXT_ID, true);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.dom.persistent;
+
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.collections.IndexInfo;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.lock.Lock.LockMode;
+import org.exist.storage.serializers.Serializer;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.DatabaseConfigurationException;
+import org.exist.util.LockException;
+import org.exist.xmldb.XmldbURI;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Measures the throughput of the {@link SymbolTable} when shared by many threads,
+ * both for raw symbol lookups and for serializing a stored document, which
+ * resolves the name of every element and attribute through the symbol table.
+ *
+ * Run with different thread counts to see how it scales, e.g.
+ * {@code java -jar exist-core-jmh-benchmarks.jar SymbolTableBenchmark -t 1,2,4,8,16}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class SymbolTableBenchmark {
+
+    private static final XmldbURI COLLECTION_URI = XmldbURI.ROOT_COLLECTION_URI.append("symbol-table-benchmark");
+    private static final XmldbURI DOC_URI = COLLECTION_URI.append("doc.xml");
+
+    private static final int NAMES = 64;
+
+    @State(Scope.Benchmark)
+    public static class DatabaseState {
+
+        @Param({"2000"})
+        private int elements;
+
+        private ExistEmbeddedServer server;
+        private BrokerPool pool;
+        private short[] nameIds;
+
+        @Setup(Level.Trial)
+        public void startDb() throws DatabaseConfigurationException, EXistException, IOException, PermissionDeniedException, SAXException, LockException {
+            server = new ExistEmbeddedServer(true, true);
+            server.startDb();
+            pool = server.getBrokerPool();
+
+            final StringBuilder xml = new StringBuilder("<root>");
+            for (int i = 0; i < elements; i++) {
+                final int name = i % NAMES;
+                xml.append("<elem-").append(name).append(" attr-").append(name).append("=\"").append(i).append("\">")
+                        .append("text ").append(i)
+                        .append("</elem-").append(name).append('>');
+            }
+            xml.append("</root>");
+
+            try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+                 final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+                final Collection collection = broker.getOrCreateCollection(transaction, COLLECTION_URI);
+                broker.saveCollection(transaction, collection);
+                final IndexInfo info = collection.validateXMLResource(transaction, broker, DOC_URI.lastSegment(), xml.toString());
+                collection.store(transaction, broker, info, xml.toString());
+                transaction.commit();
+            }
+
+            final SymbolTable symbols = pool.getSymbols();
+            nameIds = new short[NAMES];
+            for (int i = 0; i < NAMES; i++) {
+                nameIds[i] = symbols.getSymbol("elem-" + i);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stopDb() {
+            server.stopDb(true);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BrokerState {
+        private DBBroker broker;
+
+        @Setup(Level.Trial)
+        public void getBroker(final DatabaseState databaseState) throws EXistException {
+            broker = databaseState.pool.get(Optional.of(databaseState.pool.getSecurityManager().getSystemSubject()));
+        }
+
+        @TearDown(Level.Trial)
+        public void releaseBroker() {
+            broker.close();
+        }
+    }
+
+    @Benchmark
+    public void lookupSymbols(final DatabaseState databaseState, final Blackhole blackhole) {
+        final SymbolTable symbols = databaseState.pool.getSymbols();
+        for (final short id : databaseState.nameIds) {
+            final String name = symbols.getName(id);
+            blackhole.consume(symbols.getSymbol(name));
+        }
+    }
+
+    @Benchmark
+    public String serializeDocument(final BrokerState brokerState) throws PermissionDeniedException, SAXException {
+        final DBBroker broker = brokerState.broker;
+        try (final LockedDocument lockedDoc = broker.getXMLResource(DOC_URI, LockMode.READ_LOCK)) {
+            final Serializer serializer = broker.getSerializer();
+            serializer.reset();
+            return serializer.serialize(lockedDoc.getDocument());
+        }
+    }
+}
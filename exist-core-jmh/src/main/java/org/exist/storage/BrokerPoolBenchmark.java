@@ -0,0 +1,80 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.EXistException;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.DatabaseConfigurationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Measures the throughput of leasing and releasing brokers.
+ *
+ * Run with different thread counts to see how the pool scales, e.g.
+ * {@code java -jar exist-core-jmh-benchmarks.jar BrokerPoolBenchmark -t 1,2,4,8,16,32,64}.
+ * With more threads than brokers, threads will have to wait for a broker.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class BrokerPoolBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class DatabaseState {
+
+        @Param({"20"})
+        private int maxBrokers;
+
+        private ExistEmbeddedServer server;
+        private BrokerPool pool;
+
+        @Setup(Level.Trial)
+        public void startDb() throws DatabaseConfigurationException, EXistException, IOException {
+            final Properties properties = new Properties();
+            properties.put(BrokerPool.PROPERTY_MAX_CONNECTIONS, maxBrokers);
+
+            server = new ExistEmbeddedServer(properties, true, true);
+            server.startDb();
+            pool = server.getBrokerPool();
+        }
+
+        @TearDown(Level.Trial)
+        public void stopDb() {
+            server.stopDb(true);
+        }
+    }
+
+    @Benchmark
+    public void getAndRelease(final DatabaseState databaseState) throws EXistException {
+        try (final DBBroker broker = databaseState.pool.getBroker()) {
+            // nothing to do, we only measure the lease
+        }
+    }
+
+    @Benchmark
+    public void getAndReleaseNested(final DatabaseState databaseState) throws EXistException {
+        try (final DBBroker broker = databaseState.pool.getBroker()) {
+            try (final DBBroker nested = databaseState.pool.getBroker()) {
+                // nothing to do, we only measure the lease
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.EXistException;
+import org.exist.dom.persistent.DocumentSet;
+import org.exist.dom.persistent.NodeSet;
+import org.exist.security.PermissionDeniedException;
+import org.exist.test.BrokerState;
+import org.exist.test.CorpusDatabase;
+import org.exist.test.CorpusState;
+import org.exist.util.LockException;
+import org.exist.xquery.Constants.Comparison;
+import org.exist.xquery.TerminatedException;
+import org.exist.xquery.XQueryContext;
+import org.exist.xquery.XQueryWatchDog;
+import org.exist.xquery.value.DoubleValue;
+import org.exist.xquery.value.StringValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the throughput of lookups in the {@link NativeValueIndex},
+ * i.e. of the general comparisons in predicates like {@code //order[.//city = 'Oslo']}.
+ *
+ * {@code equals} finds the cities equal to a string, {@code greaterThan} the
+ * prices above a value, which selects about one percent of all prices.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class NativeValueIndexBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class IndexState {
+        private DocumentSet docs;
+        private XQueryWatchDog watchDog;
+
+        @Setup(Level.Trial)
+        public void setup(final CorpusState corpusState) throws EXistException, PermissionDeniedException, LockException {
+            try (final DBBroker broker = corpusState.corpus.getBroker()) {
+                docs = corpusState.corpus.getDocuments(broker);
+                watchDog = new XQueryWatchDog(new XQueryContext(corpusState.corpus.getBrokerPool()));
+            }
+        }
+    }
+
+    @Benchmark
+    public int equals(final IndexState indexState, final BrokerState brokerState) throws TerminatedException {
+        final String city = CorpusDatabase.CITIES[ThreadLocalRandom.current().nextInt(CorpusDatabase.CITIES.length)];
+        final NodeSet result = brokerState.broker.getValueIndex().find(indexState.watchDog, Comparison.EQ, indexState.docs,
+                null, NodeSet.ANCESTOR, CorpusDatabase.CITY, new StringValue(city));
+        return result.getLength();
+    }
+
+    @Benchmark
+    public int greaterThan(final IndexState indexState, final BrokerState brokerState) throws TerminatedException {
+        final NodeSet result = brokerState.broker.getValueIndex().find(indexState.watchDog, Comparison.GT, indexState.docs,
+                null, NodeSet.ANCESTOR, CorpusDatabase.PRICE, new DoubleValue(990.0));
+        return result.getLength();
+    }
+}
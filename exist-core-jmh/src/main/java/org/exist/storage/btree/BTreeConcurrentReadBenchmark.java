@@ -0,0 +1,116 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import org.exist.EXistException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.index.BTreeStore;
+import org.exist.storage.lock.LockManager;
+import org.exist.storage.lock.ManagedLock;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.DatabaseConfigurationException;
+import org.exist.util.FileUtils;
+import org.exist.util.LockException;
+import org.exist.xquery.TerminatedException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Measures the throughput of concurrent read-only lookups on a {@link BTree}
+ * whilst holding the shared BTree READ_LOCK.
+ *
+ * Run with different thread counts to see how lookups scale, e.g.
+ * {@code java -jar exist-core-jmh-benchmarks.jar BTreeConcurrentReadBenchmark -t 1,2,4,8,16,32}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class BTreeConcurrentReadBenchmark {
+
+    private static final byte BTREE_BENCHMARK_FILE_ID = 0x7F;
+    private static final short BTREE_BENCHMARK_FILE_VERSION = Short.MIN_VALUE;
+
+    @State(Scope.Benchmark)
+    public static class BTreeState {
+
+        @Param({"100000"})
+        private int keys;
+
+        private ExistEmbeddedServer server;
+        private Path directory;
+        private BTree btree;
+        private LockManager lockManager;
+
+        @Setup(Level.Trial)
+        public void setup() throws DatabaseConfigurationException, EXistException, IOException, DBException, LockException {
+            server = new ExistEmbeddedServer(true, true);
+            server.startDb();
+            final BrokerPool pool = server.getBrokerPool();
+            lockManager = pool.getLockManager();
+
+            // a BTreeStore, as the lock of a plain BTree has no name
+            directory = Files.createTempDirectory("BTreeConcurrentReadBenchmark");
+            btree = new BTreeStore(pool, BTREE_BENCHMARK_FILE_ID, BTREE_BENCHMARK_FILE_VERSION, false, directory.resolve("benchmark.dbx"), pool.getCacheManager());
+
+            try (final ManagedLock<ReentrantReadWriteLock> btreeLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
+                for (int i = 0; i < keys; i++) {
+                    btree.addValue(key(i), i);
+                }
+                btree.flush();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws DBException {
+            btree.close();
+            FileUtils.deleteQuietly(directory);
+            server.stopDb(true);
+        }
+    }
+
+    private static Value key(final int i) {
+        return new Value("key-" + i);
+    }
+
+    @Benchmark
+    public long findValue(final BTreeState state) throws LockException, IOException, BTreeException {
+        final Value key = key(ThreadLocalRandom.current().nextInt(state.keys));
+        try (final ManagedLock<ReentrantReadWriteLock> btreeLock = state.lockManager.acquireBtreeReadLock(state.btree.getLockName())) {
+            return state.btree.findValue(key);
+        }
+    }
+
+    @Benchmark
+    public long rangeScan(final BTreeState state) throws LockException, IOException, BTreeException, TerminatedException {
+        final int from = ThreadLocalRandom.current().nextInt(state.keys);
+        final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, new Value("key-" + from));
+        final long[] count = new long[1];
+        try (final ManagedLock<ReentrantReadWriteLock> btreeLock = state.lockManager.acquireBtreeReadLock(state.btree.getLockName())) {
+            state.btree.query(query, (value, pointer) -> {
+                count[0]++;
+                return true;
+            });
+        }
+        return count[0];
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.dom;
+
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.collections.IndexInfo;
+import org.exist.dom.persistent.LockedDocument;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.lock.Lock.LockMode;
+import org.exist.storage.serializers.Serializer;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.DatabaseConfigurationException;
+import org.exist.util.LockException;
+import org.exist.xmldb.XmldbURI;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Compares the throughput of serializing a text-heavy document from
+ * {@link DOMFile} with and without LZ4 compression of overflow values.
+ *
+ * With {@code cache=cold} the database is restarted before every invocation,
+ * so all pages are read from disk; with {@code cache=warm} they are served
+ * from the page caches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+public class DOMCompressionBenchmark {
+
+    private static final XmldbURI COLLECTION_URI = XmldbURI.ROOT_COLLECTION_URI.append("dom-compression-benchmark");
+    private static final XmldbURI DOCUMENT_NAME = XmldbURI.create("text.xml");
+
+    private static final String[] WORDS = {
+            "und", "der", "die", "das", "Herz", "Seele", "Frühling", "Morgen", "gleich", "ganz",
+            "wunderbare", "Heiterkeit", "eingenommen", "genieße", "allein", "Gegend", "geschaffen"
+    };
+
+    @State(Scope.Benchmark)
+    public static class DOMState {
+
+        @Param({"none", DOMFile.COMPRESSION_LZ4})
+        private String compression;
+
+        @Param({"cold", "warm"})
+        private String cache;
+
+        @Param({"500"})
+        private int paragraphs;
+
+        private ExistEmbeddedServer server;
+
+        @Setup(Level.Trial)
+        public void setup() throws DatabaseConfigurationException, EXistException, IOException, PermissionDeniedException, SAXException, LockException {
+            final Properties properties = new Properties();
+            properties.put(BrokerPool.PROPERTY_DOM_OVERFLOW_COMPRESSION, compression);
+            server = new ExistEmbeddedServer(properties, true, true);
+            server.startDb();
+
+            final String xml = createDocument(paragraphs);
+            final BrokerPool pool = server.getBrokerPool();
+            try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+                    final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+                final Collection collection = broker.getOrCreateCollection(transaction, COLLECTION_URI);
+                broker.saveCollection(transaction, collection);
+                final IndexInfo info = collection.validateXMLResource(transaction, broker, DOCUMENT_NAME, xml);
+                collection.store(transaction, broker, info, xml);
+                transaction.commit();
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void clearCaches() throws DatabaseConfigurationException, EXistException, IOException {
+            if ("cold".equals(cache)) {
+                server.restart();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            server.stopDb(true);
+        }
+    }
+
+    private static String createDocument(final int paragraphs) {
+        final Random random = new Random(42);
+        final StringBuilder builder = new StringBuilder("<TEI><text><body>");
+        for (int i = 0; i < paragraphs; i++) {
+            builder.append("<p n=\"").append(i).append("\">");
+            // long enough to be written to overflow pages
+            for (int j = 0; j < 1500; j++) {
+                builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            builder.append("</p>");
+        }
+        return builder.append("</body></text></TEI>").toString();
+    }
+
+    @Benchmark
+    public int serialize(final DOMState state) throws EXistException, PermissionDeniedException, LockException, SAXException, IOException {
+        final BrokerPool pool = state.server.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+                final Collection collection = broker.openCollection(COLLECTION_URI, LockMode.READ_LOCK);
+                final LockedDocument lockedDocument = collection.getDocumentWithLock(broker, DOCUMENT_NAME, LockMode.READ_LOCK)) {
+            final Serializer serializer = broker.getSerializer();
+            serializer.reset();
+            try (final StringWriter writer = new StringWriter()) {
+                serializer.serialize(lockedDocument.getDocument(), writer);
+                return writer.getBuffer().length();
+            }
+        }
+    }
+}
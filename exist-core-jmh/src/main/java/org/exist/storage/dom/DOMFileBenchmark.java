@@ -0,0 +1,81 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.dom;
+
+import org.exist.EXistException;
+import org.exist.dom.persistent.DocumentSet;
+import org.exist.dom.persistent.IStoredNode;
+import org.exist.dom.persistent.NodeProxy;
+import org.exist.dom.persistent.NodeSet;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.DBBroker;
+import org.exist.storage.ElementValue;
+import org.exist.test.BrokerState;
+import org.exist.test.CorpusDatabase;
+import org.exist.test.CorpusState;
+import org.exist.util.LockException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the throughput of retrieving single nodes from {@link DOMFile},
+ * as done when a query result is turned from node proxies into nodes.
+ *
+ * {@code byNodeId} looks the node up by its node id, {@code byProxy}
+ * uses the storage address known from the structural index, if any.
+ * The corpus is not modified, so the documents are not locked.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DOMFileBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class NodesState {
+        private NodeProxy[] items;
+
+        @Setup(Level.Trial)
+        public void setup(final CorpusState corpusState) throws EXistException, PermissionDeniedException, LockException {
+            try (final DBBroker broker = corpusState.corpus.getBroker()) {
+                final DocumentSet docs = corpusState.corpus.getDocuments(broker);
+                final NodeSet nodes = broker.getStructuralIndex().findElementsByTagName(ElementValue.ELEMENT, docs, CorpusDatabase.ITEM, null);
+                items = new NodeProxy[nodes.getLength()];
+                int i = 0;
+                for (final NodeProxy node : nodes) {
+                    items[i++] = node;
+                }
+            }
+        }
+
+        private NodeProxy next() {
+            return items[ThreadLocalRandom.current().nextInt(items.length)];
+        }
+    }
+
+    @Benchmark
+    public IStoredNode byNodeId(final NodesState nodesState, final BrokerState brokerState) {
+        final NodeProxy node = nodesState.next();
+        return brokerState.broker.objectWith(node.getOwnerDocument(), node.getNodeId());
+    }
+
+    @Benchmark
+    public IStoredNode byProxy(final NodesState nodesState, final BrokerState brokerState) {
+        return brokerState.broker.objectWith(nodesState.next());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.journal;
+
+import org.exist.EXistException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.txn.TransactionException;
+import org.exist.storage.txn.TransactionManager;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.DatabaseConfigurationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Measures the throughput of transaction commits with and without
+ * group commit of the journal.
+ *
+ * Run with different thread counts to see how commits/sec scale, e.g.
+ * {@code java -jar exist-core-jmh-benchmarks.jar GroupCommitBenchmark -t 1,2,4,8,16,32,64}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class GroupCommitBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class DatabaseState {
+
+        @Param({"false", "true"})
+        private boolean groupCommit;
+
+        @Param({"0", "1"})
+        private int groupCommitMaxDelay;
+
+        private ExistEmbeddedServer server;
+        private TransactionManager transactionManager;
+
+        @Setup(Level.Trial)
+        public void startDb() throws DatabaseConfigurationException, EXistException, IOException {
+            final Properties properties = new Properties();
+            properties.put(Journal.PROPERTY_RECOVERY_SYNC_ON_COMMIT, true);
+            properties.put(BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT, groupCommit);
+            properties.put(Journal.PROPERTY_RECOVERY_GROUP_COMMIT_MAX_DELAY, groupCommitMaxDelay);
+
+            server = new ExistEmbeddedServer(properties, true, true);
+            server.startDb();
+            transactionManager = server.getBrokerPool().getTransactionManager();
+        }
+
+        @TearDown(Level.Trial)
+        public void stopDb() {
+            server.stopDb(true);
+        }
+    }
+
+    /**
+     * A broker held by a benchmark thread, as a transaction has to be
+     * committed by the thread's broker. It is leased per iteration, as
+     * the benchmark thread may change between iterations.
+     */
+    @State(Scope.Thread)
+    public static class BrokerState {
+
+        private DBBroker broker;
+
+        @Setup(Level.Iteration)
+        public void setup(final DatabaseState databaseState) throws EXistException {
+            final BrokerPool pool = databaseState.server.getBrokerPool();
+            broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            broker.close();
+        }
+    }
+
+    @Benchmark
+    public void commit(final DatabaseState databaseState, final BrokerState brokerState) throws TransactionException {
+        try (final Txn transaction = databaseState.transactionManager.beginTransaction()) {
+            transaction.commit();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.recovery;
+
+import org.exist.storage.journal.AbstractLoggable;
+import org.exist.storage.journal.LogException;
+import org.exist.storage.journal.Loggable;
+import org.exist.storage.txn.TxnCommit;
+import org.exist.storage.txn.TxnStart;
+import org.exist.util.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time to redo a journal serially, as {@link RecoveryManager} does
+ * with {@code replay-threads="1"}, with the time to redo it through a
+ * {@link PartitionedReplay}.
+ *
+ * The journal is synthetic: it spreads page writes over {@code files} storage
+ * files, grouped into transactions of {@link #ENTRIES_PER_TRANSACTION} entries.
+ * Redoing an entry reads its page from the file, changes it and writes it back,
+ * so the parallelism that is available depends on the number of files.
+ * The journal is generated from a fixed seed, so every run replays the same entries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PartitionedReplayBenchmark {
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int PAGES_PER_FILE = 256;
+    private static final int ENTRIES_PER_TRANSACTION = 16;
+    private static final long SEED = 42;
+
+    /**
+     * The type of the synthetic entries. It is not registered with
+     * {@link org.exist.storage.journal.LogEntryTypes}, as the entries are
+     * never read from a journal file.
+     */
+    private static final byte LOG_WRITE_PAGE = 0x7F;
+
+    @State(Scope.Benchmark)
+    public static class JournalState {
+
+        @Param({"1", "4", "16"})
+        private int files;
+
+        @Param({"1", "2", "4", "8"})
+        private int replayThreads;
+
+        @Param({"100000"})
+        private int entries;
+
+        private Path directory;
+        private FileChannel[] channels;
+        private List<Loggable> journal;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("partitioned-replay-benchmark");
+            channels = new FileChannel[files];
+            for (int i = 0; i < files; i++) {
+                channels[i] = FileChannel.open(directory.resolve("file-" + i + ".dbx"),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channels[i].write(ByteBuffer.allocate(PAGE_SIZE * PAGES_PER_FILE), 0);
+            }
+
+            final Random random = new Random(SEED);
+            journal = new ArrayList<>(entries + 2 * (entries / ENTRIES_PER_TRANSACTION + 1));
+            long transactionId = 0;
+            for (int i = 0; i < entries; i++) {
+                if (i % ENTRIES_PER_TRANSACTION == 0) {
+                    if (i > 0) {
+                        journal.add(new TxnCommit(transactionId));
+                    }
+                    journal.add(new TxnStart(++transactionId));
+                }
+                final int fileId = random.nextInt(files);
+                journal.add(new WritePageLoggable(transactionId, channels[fileId], fileId, random.nextInt(PAGES_PER_FILE)));
+            }
+            journal.add(new TxnCommit(transactionId));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            for (final FileChannel channel : channels) {
+                channel.close();
+            }
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+
+    @Benchmark
+    public void redo(final JournalState journalState) throws LogException {
+        if (journalState.replayThreads == 1) {
+            for (final Loggable loggable : journalState.journal) {
+                loggable.redo();
+            }
+            return;
+        }
+
+        try (final PartitionedReplay replay = new PartitionedReplay("jmh", journalState.replayThreads)) {
+            for (final Loggable loggable : journalState.journal) {
+                replay.submit(loggable, Loggable::redo);
+            }
+            replay.await();
+        }
+    }
+
+    /**
+     * A synthetic journal entry which increments a counter
+     * at the start of a page of a storage file.
+     */
+    private static class WritePageLoggable extends AbstractLoggable {
+        private final FileChannel channel;
+        private final int fileId;
+        private final int page;
+
+        WritePageLoggable(final long transactionId, final FileChannel channel, final int fileId, final int page) {
+            super(LOG_WRITE_PAGE, transactionId);
+            this.channel = channel;
+            this.fileId = fileId;
+            this.page = page;
+        }
+
+        @Override
+        public int getStorageFileId() {
+            return fileId;
+        }
+
+        @Override
+        public void redo() throws LogException {
+            final ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+            final long position = (long) page * PAGE_SIZE;
+            try {
+                channel.read(buffer, position);
+                buffer.putLong(0, buffer.getLong(0) + 1);
+                buffer.rewind();
+                channel.write(buffer, position);
+            } catch (final IOException e) {
+                throw new LogException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void write(final ByteBuffer out) {
+            out.putInt(fileId);
+            out.putInt(page);
+        }
+
+        @Override
+        public void read(final ByteBuffer in) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getLogSize() {
+            return 8;
+        }
+
+        @Override
+        public String dump() {
+            return getClass().getName() + " - write page " + page + " of file " + fileId;
+        }
+    }
+}
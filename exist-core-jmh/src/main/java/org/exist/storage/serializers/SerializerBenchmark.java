@@ -0,0 +1,58 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.serializers;
+
+import org.exist.collections.Collection;
+import org.exist.dom.persistent.LockedDocument;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.lock.Lock.LockMode;
+import org.exist.test.BrokerState;
+import org.exist.test.CorpusDatabase;
+import org.exist.test.CorpusState;
+import org.exist.util.LockException;
+import org.openjdk.jmh.annotations.*;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the throughput of the {@link Serializer}, serializing
+ * randomly chosen documents of the corpus to a string, as done when
+ * a document is retrieved through any of the APIs.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class SerializerBenchmark {
+
+    @Benchmark
+    public int serialize(final CorpusState corpusState, final BrokerState brokerState) throws PermissionDeniedException, LockException, SAXException, IOException {
+        final int n = ThreadLocalRandom.current().nextInt(corpusState.documents);
+        try (final Collection collection = brokerState.broker.openCollection(CorpusDatabase.COLLECTION_URI, LockMode.READ_LOCK);
+                final LockedDocument lockedDocument = collection.getDocumentWithLock(brokerState.broker, CorpusDatabase.documentName(n), LockMode.READ_LOCK)) {
+            final Serializer serializer = brokerState.broker.getSerializer();
+            serializer.reset();
+            try (final StringWriter writer = new StringWriter()) {
+                serializer.serialize(lockedDocument.getDocument(), writer);
+                return writer.getBuffer().length();
+            }
+        }
+    }
+}
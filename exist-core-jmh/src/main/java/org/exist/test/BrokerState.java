@@ -0,0 +1,48 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.test;
+
+import org.exist.EXistException;
+import org.exist.storage.DBBroker;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A broker held by a benchmark thread for an iteration, so that
+ * leasing the broker is not part of the measurement.
+ *
+ * JMH runs the helper methods of a thread scoped state on the thread
+ * which measures the iteration, so the broker is released by the thread
+ * which leased it.
+ */
+@State(Scope.Thread)
+public class BrokerState {
+
+    public DBBroker broker;
+
+    @Setup(Level.Iteration)
+    public void setup(final CorpusState corpusState) throws EXistException {
+        broker = corpusState.corpus.getBroker();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        broker.close();
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.test;
+
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.collections.CollectionConfigurationException;
+import org.exist.collections.IndexInfo;
+import org.exist.dom.QName;
+import org.exist.dom.persistent.DefaultDocumentSet;
+import org.exist.dom.persistent.DocumentSet;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.lock.Lock.LockMode;
+import org.exist.storage.txn.Txn;
+import org.exist.util.DatabaseConfigurationException;
+import org.exist.util.LockException;
+import org.exist.xmldb.XmldbURI;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * An embedded database on temporary storage, holding a generated corpus
+ * of order documents, for the benchmarks of the storage and query paths.
+ *
+ * The corpus is generated from a fixed seed, so that every run of a benchmark
+ * works on the same data. Its size is given by the number of documents and
+ * the number of items per document, which benchmarks expose as parameters.
+ *
+ * The collection is configured with value indexes on {@link #PRICE} (xs:double)
+ * and {@link #CITY} (xs:string).
+ */
+public final class CorpusDatabase {
+
+    public static final XmldbURI COLLECTION_URI = XmldbURI.ROOT_COLLECTION_URI.append("jmh-corpus");
+
+    public static final QName ORDER = new QName("order", "");
+    public static final QName CUSTOMER = new QName("customer", "");
+    public static final QName CITY = new QName("city", "");
+    public static final QName ITEMS = new QName("items", "");
+    public static final QName ITEM = new QName("item", "");
+    public static final QName PRICE = new QName("price", "");
+
+    public static final String[] CITIES = {
+            "Berlin", "Lisboa", "London", "Madrid", "Oslo", "Paris", "Praha", "Roma", "Wien", "Zürich"
+    };
+
+    private static final String[] WORDS = {
+            "fast", "delivery", "gift", "wrap", "please", "call", "before", "the", "door", "ring",
+            "second", "floor", "leave", "with", "neighbour", "fragile", "handle", "care"
+    };
+
+    private static final String COLLECTION_CONFIG =
+            "<collection xmlns=\"http://exist-db.org/collection-config/1.0\">" +
+            "    <index>" +
+            "        <create qname=\"price\" type=\"xs:double\"/>" +
+            "        <create qname=\"city\" type=\"xs:string\"/>" +
+            "    </index>" +
+            "</collection>";
+
+    private static final long SEED = 42;
+    private static final int DOCUMENTS_PER_TRANSACTION = 100;
+
+    private final int documents;
+    private final int items;
+    private ExistEmbeddedServer server;
+
+    /**
+     * @param documents the number of documents of the corpus
+     * @param items the number of items per document
+     */
+    public CorpusDatabase(final int documents, final int items) {
+        this.documents = documents;
+        this.items = items;
+    }
+
+    /**
+     * Starts the database and stores the corpus.
+     *
+     * @throws DatabaseConfigurationException if the database cannot be configured
+     * @throws EXistException if the database cannot be started
+     * @throws IOException if the corpus cannot be stored
+     */
+    public void start() throws DatabaseConfigurationException, EXistException, IOException {
+        server = new ExistEmbeddedServer(true, true);
+        server.startDb();
+
+        final BrokerPool pool = server.getBrokerPool();
+        final Random random = new Random(SEED);
+        try (final DBBroker broker = getBroker()) {
+            try (final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+                final Collection collection = broker.getOrCreateCollection(transaction, COLLECTION_URI);
+                broker.saveCollection(transaction, collection);
+                pool.getConfigurationManager().addConfiguration(transaction, broker, collection, COLLECTION_CONFIG);
+                transaction.commit();
+            }
+
+            for (int i = 0; i < documents; i += DOCUMENTS_PER_TRANSACTION) {
+                try (final Txn transaction = pool.getTransactionManager().beginTransaction();
+                     final Collection collection = broker.openCollection(COLLECTION_URI, LockMode.WRITE_LOCK)) {
+                    for (int j = i; j < Math.min(documents, i + DOCUMENTS_PER_TRANSACTION); j++) {
+                        store(broker, transaction, collection, documentName(j), generateOrder(random, j, items));
+                    }
+                    transaction.commit();
+                }
+            }
+        } catch (final PermissionDeniedException | LockException | SAXException | CollectionConfigurationException e) {
+            throw new EXistException("Unable to store the corpus: " + e.getMessage(), e);
+        }
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stopDb(true);
+            server = null;
+        }
+    }
+
+    /**
+     * Restarts the database, e.g. to measure with cold caches.
+     *
+     * @throws DatabaseConfigurationException if the database cannot be configured
+     * @throws EXistException if the database cannot be restarted
+     * @throws IOException if the database cannot be restarted
+     */
+    public void restart() throws DatabaseConfigurationException, EXistException, IOException {
+        server.restart();
+    }
+
+    public BrokerPool getBrokerPool() {
+        return server.getBrokerPool();
+    }
+
+    /**
+     * @return a broker of the system subject, which must be closed by the caller
+     *
+     * @throws EXistException if no broker is available
+     */
+    public DBBroker getBroker() throws EXistException {
+        final BrokerPool pool = server.getBrokerPool();
+        return pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+    }
+
+    /**
+     * @param broker the broker
+     *
+     * @return the documents of the corpus
+     *
+     * @throws PermissionDeniedException if the documents cannot be read
+     * @throws LockException if the collection cannot be locked
+     */
+    public DocumentSet getDocuments(final DBBroker broker) throws PermissionDeniedException, LockException {
+        try (final Collection collection = broker.openCollection(COLLECTION_URI, LockMode.READ_LOCK)) {
+            return collection.allDocs(broker, new DefaultDocumentSet(), true);
+        }
+    }
+
+    public int getDocumentCount() {
+        return documents;
+    }
+
+    public int getItemCount() {
+        return items;
+    }
+
+    public static XmldbURI documentName(final int n) {
+        return XmldbURI.create("order-" + n + ".xml");
+    }
+
+    /**
+     * Stores a document into a collection, which must be write locked by the caller.
+     *
+     * @param broker the broker
+     * @param transaction the transaction
+     * @param collection the collection
+     * @param name the name of the document
+     * @param xml the content of the document
+     *
+     * @throws EXistException if the document cannot be stored
+     * @throws PermissionDeniedException if the document cannot be stored
+     * @throws LockException if the document cannot be locked
+     * @throws SAXException if the document cannot be parsed
+     * @throws IOException if the document cannot be stored
+     */
+    public static void store(final DBBroker broker, final Txn transaction, final Collection collection, final XmldbURI name, final String xml)
+            throws EXistException, PermissionDeniedException, LockException, SAXException, IOException {
+        final IndexInfo info = collection.validateXMLResource(transaction, broker, name, xml);
+        collection.store(transaction, broker, info, xml);
+    }
+
+    /**
+     * Generates an order document.
+     *
+     * @param random the source of the values
+     * @param n the number of the order
+     * @param items the number of items of the order
+     *
+     * @return the document
+     */
+    public static String generateOrder(final Random random, final int n, final int items) {
+        final StringBuilder builder = new StringBuilder(256 + items * 160);
+        builder.append("<order id=\"o-").append(n).append("\" date=\"2019-")
+                .append(String.format("%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28))).append("\">");
+        builder.append("<customer id=\"c-").append(random.nextInt(1000)).append("\">")
+                .append("<name>Customer ").append(random.nextInt(1000)).append("</name>")
+                .append("<address><street>").append(1 + random.nextInt(200)).append(" Main Street</street>")
+                .append("<city>").append(CITIES[random.nextInt(CITIES.length)]).append("</city></address>")
+                .append("</customer>");
+        builder.append("<items>");
+        for (int i = 0; i < items; i++) {
+            builder.append("<item sku=\"sku-").append(random.nextInt(10000)).append("\">")
+                    .append("<description>");
+            for (int j = 0; j < 8; j++) {
+                builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            builder.append("</description>")
+                    .append("<quantity>").append(1 + random.nextInt(10)).append("</quantity>")
+                    .append("<price>").append(random.nextInt(100000) / 100.0).append("</price>")
+                    .append("</item>");
+        }
+        builder.append("</items>");
+        builder.append("<note>");
+        for (int j = 0; j < 12; j++) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        builder.append("</note>");
+        return builder.append("</order>").toString();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.test;
+
+import org.exist.EXistException;
+import org.exist.util.DatabaseConfigurationException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+
+/**
+ * The generated corpus shared by all threads of a benchmark,
+ * see {@link CorpusDatabase}.
+ *
+ * The size of the corpus can be changed on the command line, e.g.
+ * {@code -p documents=10000 -p items=5}.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+    @Param({"1000"})
+    public int documents;
+
+    @Param({"20"})
+    public int items;
+
+    public CorpusDatabase corpus;
+
+    @Setup(Level.Trial)
+    public void setup() throws DatabaseConfigurationException, EXistException, IOException {
+        corpus = new CorpusDatabase(documents, items);
+        corpus.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        corpus.stop();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.util;
+
+import org.exist.EXistException;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.serializer.DOMStreamer;
+import org.exist.util.serializer.SAXSerializer;
+import org.exist.util.serializer.SerializerPool;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Measures the throughput of parsing and serializing small documents
+ * with readers and serializers borrowed from the pools, i.e. the path
+ * taken by every document which is stored or serialized.
+ *
+ * Run with different thread counts to see how the pools scale, e.g.
+ * {@code java -jar exist-core-jmh-benchmarks.jar ParseSerializeBenchmark -t 1,2,4,8,16,32}.
+ * The pool statistics are available through the ObjectPools MXBean.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class ParseSerializeBenchmark {
+
+    private static final String DOCUMENT =
+            "<order xmlns='http://example.com/order' id='4711'>" +
+                "<customer><name>Jane Doe</name><email>jane@example.com</email></customer>" +
+                "<item sku='A-1' quantity='2'>Widget</item>" +
+                "<item sku='B-2' quantity='1'>Gadget</item>" +
+                "<!-- express --><total currency='EUR'>42.00</total>" +
+            "</order>";
+
+    private static final DefaultHandler HANDLER = new DefaultHandler();
+
+    @State(Scope.Benchmark)
+    public static class DatabaseState {
+        private ExistEmbeddedServer server;
+        private XMLReaderPool parserPool;
+        private byte[] content;
+        private Document document;
+
+        @Setup(Level.Trial)
+        public void setup() throws DatabaseConfigurationException, EXistException, IOException, ParserConfigurationException, SAXException {
+            server = new ExistEmbeddedServer(true, true);
+            server.startDb();
+            parserPool = server.getBrokerPool().getParserPool();
+            content = DOCUMENT.getBytes(UTF_8);
+
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(content));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            server.stopDb(true);
+        }
+    }
+
+    @Benchmark
+    public void parse(final DatabaseState state) throws IOException, SAXException {
+        final XMLReader reader = state.parserPool.borrowXMLReader();
+        try {
+            reader.setContentHandler(HANDLER);
+            reader.setErrorHandler(HANDLER);
+            reader.parse(new InputSource(new ByteArrayInputStream(state.content)));
+        } finally {
+            state.parserPool.returnXMLReader(reader);
+        }
+    }
+
+    @Benchmark
+    public String serialize(final DatabaseState state) throws SAXException {
+        final SerializerPool serializerPool = SerializerPool.getInstance();
+        final SAXSerializer serializer = (SAXSerializer) serializerPool.borrowObject(SAXSerializer.class);
+        final DOMStreamer streamer = (DOMStreamer) serializerPool.borrowObject(DOMStreamer.class);
+        try {
+            final StringWriter writer = new StringWriter(512);
+            serializer.setOutput(writer, new Properties());
+            streamer.setContentHandler(serializer);
+            streamer.setLexicalHandler(serializer);
+            streamer.serialize(state.document);
+            return writer.toString();
+        } finally {
+            serializerPool.returnObject(streamer);
+            serializerPool.returnObject(serializer);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.DBBroker;
+import org.exist.test.BrokerState;
+import org.exist.test.CorpusDatabase;
+import org.exist.test.CorpusState;
+import org.exist.xquery.value.Sequence;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the throughput of compiling, and of executing compiled,
+ * typical path and FLWOR queries against the corpus.
+ *
+ * <ul>
+ *     <li>{@code path}: a path with a structural predicate</li>
+ *     <li>{@code index}: a path with a general comparison served by the value index</li>
+ *     <li>{@code flwor}: a FLWOR expression with let, where and order by, constructing elements</li>
+ *     <li>{@code groupBy}: a FLWOR expression grouping the orders by city</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+public class XQueryBenchmark {
+
+    private static final String CORPUS = "collection('" + CorpusDatabase.COLLECTION_URI + "')";
+
+    private static final Map<String, String> QUERIES = new HashMap<>();
+    static {
+        QUERIES.put("path",
+                "count(" + CORPUS + "//order[items/item/quantity = 10]/customer/name)");
+        QUERIES.put("index",
+                "count(" + CORPUS + "//order[customer/address/city = 'Oslo']/@id)");
+        QUERIES.put("flwor",
+                "for $order in " + CORPUS + "//order\n" +
+                "let $total := sum($order/items/item/(quantity * price))\n" +
+                "where $total > 50000\n" +
+                "order by $total descending\n" +
+                "return <order id='{$order/@id}' total='{$total}'/>");
+        QUERIES.put("groupBy",
+                "for $order in " + CORPUS + "//order\n" +
+                "group by $city := $order/customer/address/city\n" +
+                "return <city name='{$city}' orders='{count($order)}'/>");
+    }
+
+    @State(Scope.Thread)
+    public static class QueryState {
+
+        @Param({"path", "index", "flwor", "groupBy"})
+        private String query;
+
+        private XQuery xquery;
+        private CompiledXQuery compiled;
+
+        @Setup(Level.Trial)
+        public void setup(final CorpusState corpusState) throws EXistException, XPathException, PermissionDeniedException {
+            xquery = corpusState.corpus.getBrokerPool().getXQueryService();
+            try (final DBBroker broker = corpusState.corpus.getBroker()) {
+                compiled = xquery.compile(broker, new XQueryContext(corpusState.corpus.getBrokerPool()), QUERIES.get(query));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            compiled.getContext().runCleanupTasks();
+        }
+    }
+
+    @Benchmark
+    public CompiledXQuery compile(final CorpusState corpusState, final BrokerState brokerState, final QueryState queryState) throws XPathException, PermissionDeniedException {
+        final XQueryContext context = new XQueryContext(corpusState.corpus.getBrokerPool());
+        try {
+            return queryState.xquery.compile(brokerState.broker, context, QUERIES.get(queryState.query));
+        } finally {
+            context.runCleanupTasks();
+        }
+    }
+
+    @Benchmark
+    public int execute(final BrokerState brokerState, final QueryState queryState) throws XPathException, PermissionDeniedException {
+        final Sequence result = queryState.xquery.execute(brokerState.broker, queryState.compiled, null);
+        return result.getItemCount();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.value;
+
+import org.exist.xquery.RangeSequence;
+import org.exist.xquery.XPathException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for xs:integer arithmetic, as used by
+ * loop counters, positional predicates and fn:sum.
+ */
+@State(Scope.Thread)
+public class IntegerValueBenchmark {
+
+    @Param({"1000000"})
+    private int size;
+
+    private RangeSequence range;
+    private IntegerValue one;
+    private IntegerValue large;
+
+    @Setup
+    public void setup() {
+        this.range = new RangeSequence(new IntegerValue(1), new IntegerValue(size));
+        this.one = new IntegerValue(1);
+        this.large = new IntegerValue(Long.MAX_VALUE / 2);
+    }
+
+    @Benchmark
+    public ComputableValue sumRange() throws XPathException {
+        final SequenceIterator it = range.iterate();
+        ComputableValue sum = IntegerValue.ZERO;
+        while (it.hasNext()) {
+            sum = sum.plus((ComputableValue) it.nextItem());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public ComputableValue multiplyWithOverflow() throws XPathException {
+        ComputableValue product = one;
+        for (int i = 0; i < 100; i++) {
+            product = product.mult(large);
+        }
+        return product;
+    }
+
+    @Benchmark
+    public void compareRange(final Blackhole blackhole) {
+        final IntegerValue pivot = new IntegerValue(size / 2);
+        final SequenceIterator it = range.iterate();
+        while (it.hasNext()) {
+            blackhole.consume(((IntegerValue) it.nextItem()).compareTo(pivot));
+        }
+    }
+
+    @Benchmark
+    public void modRange(final Blackhole blackhole) throws XPathException {
+        final IntegerValue divisor = new IntegerValue(7);
+        final SequenceIterator it = range.iterate();
+        while (it.hasNext()) {
+            blackhole.consume(((IntegerValue) it.nextItem()).mod(divisor));
+        }
+    }
+}
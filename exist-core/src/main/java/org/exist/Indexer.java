@@ -185,7 +185,7 @@ public class Indexer implements ContentHandler, LexicalHandler, ErrorHandler {
 
     public void setValidating(final boolean validate) {
         this.validate = validate;
-        if (!validate) {
+        if (!validate && !broker.isIndexingDeferred(document)) {
             this.indexListener = broker.getIndexController()
                 .getStreamListener(document, ReindexMode.STORE);
         }
@@ -84,6 +84,10 @@ public class ExportMain {
             .build();
 
     /* export parameters */
+    private static final Argument<Integer> threadsArg = integerArgument("-t", "--threads")
+            .description("the number of threads used to serialize documents during the export (use with --export|-x)")
+            .defaultValue(1)
+            .build();
     private static final Argument<File> configArg = fileArgument("-c", "--config")
             .description("the database configuration (conf.xml) file to use for launching the db.")
             .build();
@@ -93,6 +97,10 @@ public class ExportMain {
             .build();
 
     protected static BrokerPool startDB(final Optional<Path> configFile) {
+        return startDB(configFile, 5);
+    }
+
+    protected static BrokerPool startDB(final Optional<Path> configFile, final int maxBrokers) {
         try {
             final Configuration config;
 
@@ -102,7 +110,7 @@ public class ExportMain {
                 config = new Configuration();
             }
             config.setProperty(BrokerPool.PROPERTY_EXPORT_ONLY, Boolean.TRUE);
-            BrokerPool.configure(1, 5, config);
+            BrokerPool.configure(1, maxBrokers, config);
             return (BrokerPool.getInstance());
         } catch (final DatabaseConfigurationException | EXistException e) {
             System.err.println("ERROR: Failed to open database: " + e.getMessage());
@@ -116,7 +124,7 @@ public class ExportMain {
         try {
             final ParsedArguments arguments = CommandLineParser
                     .withArguments(noCheckArg, checkDocsArg, directAccessArg, exportArg, incrementalArg, zipArg)
-                    .andArguments(configArg, outputDirArg)
+                    .andArguments(configArg, outputDirArg, threadsArg)
                     .andArguments(helpArg, verboseArg)
                     .parse(args);
 
@@ -137,11 +145,13 @@ public class ExportMain {
         final boolean export = getBool(arguments, exportArg);
         final boolean incremental = getBool(arguments, incrementalArg);
         final boolean zip = getBool(arguments, zipArg);
+        final int threads = Math.max(1, arguments.get(threadsArg));
 
         final Optional<Path> dbConfig = getOpt(arguments, configArg).map(File::toPath);
         final Path exportTarget = arguments.get(outputDirArg).toPath();
 
-        final BrokerPool pool = startDB(dbConfig);
+        // each export thread leases its own broker
+        final BrokerPool pool = startDB(dbConfig, Math.max(5, threads + 2));
 
         if (pool == null) {
             System.exit(SystemExitCodes.CATCH_ALL_GENERAL_ERROR_EXIT_CODE);
@@ -173,6 +183,7 @@ public class ExportMain {
                     System.exit(SystemExitCodes.INVALID_ARGUMENT_EXIT_CODE);
                 }
                 final SystemExport sysexport = new SystemExport(broker, transaction, new Callback(verbose), null, direct);
+                sysexport.setThreads(threads);
                 sysexport.export(exportTarget.toAbsolutePath().toString(), incremental, zip, errors);
             }
 
@@ -0,0 +1,141 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.backup;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress and throughput of the current or last run of
+ * a {@link SystemExport}. Every export keeps its own statistics,
+ * so that concurrent exports do not mix their counts.
+ *
+ * The statistics of the most recently started export of a database
+ * instance are exposed via JMX by {@link org.exist.management.impl.ExportReport}.
+ */
+@ThreadSafe
+public class ExportStatistics {
+
+    private final LongAdder collections = new LongAdder();
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder skippedDocuments = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    private volatile boolean running = false;
+    private volatile long startTime = 0;
+    private volatile long endTime = 0;
+    private volatile int threads = 1;
+    private volatile String currentCollection = null;
+
+    void start(final int threads) {
+        collections.reset();
+        documents.reset();
+        skippedDocuments.reset();
+        bytes.reset();
+        this.threads = threads;
+        this.currentCollection = null;
+        this.endTime = 0;
+        this.startTime = System.currentTimeMillis();
+        this.running = true;
+    }
+
+    void end() {
+        this.endTime = System.currentTimeMillis();
+        this.running = false;
+        this.currentCollection = null;
+    }
+
+    void startCollection(final String uri) {
+        collections.increment();
+        this.currentCollection = uri;
+    }
+
+    void documentWritten(final long size) {
+        documents.increment();
+        bytes.add(size);
+    }
+
+    void documentSkipped() {
+        skippedDocuments.increment();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the start time of the current or last export in milliseconds, or 0 if no export has run.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return the end time of the last export in milliseconds, or 0 if an export is running or none has run.
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public String getCurrentCollection() {
+        return currentCollection;
+    }
+
+    public long getCollections() {
+        return collections.sum();
+    }
+
+    public long getDocuments() {
+        return documents.sum();
+    }
+
+    /**
+     * @return the number of documents which were unchanged since the previous backup of an incremental export.
+     */
+    public long getSkippedDocuments() {
+        return skippedDocuments.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getElapsedTime() {
+        if (startTime == 0) {
+            return 0;
+        }
+        return (running ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    public double getDocumentsPerSecond() {
+        final long elapsed = getElapsedTime();
+        return elapsed == 0 ? 0 : getDocuments() * 1000.0 / elapsed;
+    }
+
+    public double getBytesPerSecond() {
+        final long elapsed = getElapsedTime();
+        return elapsed == 0 ? 0 : getBytes() * 1000.0 / elapsed;
+    }
+}
@@ -20,6 +20,7 @@
 package org.exist.backup;
 
 import com.evolvedbinary.j8fu.function.FunctionE;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.Namespaces;
@@ -33,6 +34,7 @@ import org.exist.numbering.NodeId;
 import org.exist.security.ACLPermission;
 import org.exist.security.Permission;
 import org.exist.security.PermissionDeniedException;
+import org.exist.security.Subject;
 import org.exist.security.internal.AccountImpl;
 import org.exist.stax.ExtendedXMLStreamReader;
 import org.exist.storage.DBBroker;
@@ -48,7 +50,9 @@ import org.exist.storage.serializers.EXistOutputKeys;
 import org.exist.storage.txn.Txn;
 import org.exist.util.FileUtils;
 import org.exist.util.LockException;
+import org.exist.util.NamedThreadFactory;
 import org.exist.util.UTF8;
+import org.exist.util.io.FastByteArrayOutputStream;
 import org.exist.util.serializer.AttrList;
 import org.exist.util.serializer.Receiver;
 import org.exist.util.serializer.SAXSerializer;
@@ -67,6 +71,7 @@ import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.NamespaceSupport;
 
+import javax.annotation.Nullable;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.OutputKeys;
@@ -76,6 +81,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -106,6 +115,12 @@ public class SystemExport {
 
     private static final int currVersion = 1;
 
+    /**
+     * Documents whose stored size exceeds this are not buffered in memory by
+     * the worker threads of a parallel export, but streamed directly into the backup.
+     */
+    private static final long MAX_BUFFERED_DOCUMENT_SIZE = 8 * 1024 * 1024;
+
     private final SimpleDateFormat creationDateFormat = new SimpleDateFormat(DataBackup.DATE_FORMAT_PICTURE);
 
     private int collectionCount = -1;
@@ -120,6 +135,10 @@ public class SystemExport {
     private ProcessMonitor.Monitor monitor = null;
     private BackupHandler bh = null;
     private ChainOfReceiversFactory chainFactory;
+    private List<String> filterClasses = null;
+    private int threads = 1;
+    private ExecutorService executor = null;
+    private final ExportStatistics statistics = new ExportStatistics();
 
     public SystemExport(final DBBroker broker, final Txn transaction, final StatusCallback callback, final ProcessMonitor.Monitor monitor,
             final boolean direct, final ChainOfReceiversFactory chainFactory) {
@@ -149,9 +168,42 @@ public class SystemExport {
         final List<String> list = (List<String>) broker.getConfiguration().getProperty(CONFIG_FILTERS);
         if (list != null) {
             chainFactory = new ChainOfReceiversFactory(list);
+            filterClasses = list;
         }
     }
 
+    /**
+     * Set the number of threads used to serialize documents.
+     *
+     * With more than one thread, the documents of a collection are serialized
+     * concurrently by a pool of workers, each using its own broker, while
+     * the calling thread writes them into the backup in collection order.
+     * At most two documents per thread are held in memory at once; documents
+     * larger than {@link #MAX_BUFFERED_DOCUMENT_SIZE} are streamed directly by
+     * the calling thread.
+     *
+     * Each worker leases a broker from the pool for the duration
+     * of a document, so the number of threads should be well below the
+     * maximum number of brokers.
+     *
+     * @param threads the number of worker threads, 1 (the default) exports sequentially.
+     */
+    public void setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Get the progress and throughput of the current or last export of this instance.
+     *
+     * @return the statistics of this export
+     */
+    public ExportStatistics getStatistics() {
+        return statistics;
+    }
+
     public Path export(final String targetDir, final boolean incremental, final boolean zip, final List<ErrorReport> errorList) {
         return (export(targetDir, incremental, -1, zip, errorList));
     }
@@ -226,6 +278,16 @@ public class SystemExport {
                 fWriter = FileSystemWriter::new;
             }
 
+            statistics.start(threads);
+            broker.getBrokerPool().setExportStatistics(statistics);
+            if (threads > 1) {
+                if (chainFactory != null && filterClasses == null) {
+                    LOG.warn("Serialization filters cannot be shared between threads, exporting with a single thread");
+                } else {
+                    executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory(broker.getBrokerPool(), "system-export"));
+                }
+            }
+
             try (final BackupWriter output = fWriter.apply(backupFile)) {
                 output.setProperties(properties);
 
@@ -238,6 +300,12 @@ public class SystemExport {
                 broker.getCollectionsFailsafe(transaction, cb);
 
                 exportOrphans(output, cb.getDocs(), errorList);
+            } finally {
+                if (executor != null) {
+                    executor.shutdownNow();
+                    executor = null;
+                }
+                statistics.end();
             }
 
             return backupFile;
@@ -378,6 +446,7 @@ public class SystemExport {
 //        if( !current.getURI().equalsInternal( XmldbURI.ROOT_COLLECTION_URI ) ) {
         output.newCollection(Backup.encode(URIUtils.urlDecodeUtf8(current.getURI())));
 //        }
+        statistics.startCollection(current.getURI().toString());
 
         try {
             final Writer contents = output.newContents();
@@ -414,19 +483,40 @@ public class SystemExport {
             final int docsCount = current.getDocumentCountNoLock(broker);
             int count = 0;
 
-            for (final Iterator<DocumentImpl> i = current.iteratorNoLock(broker); i.hasNext(); count++) {
-                final DocumentImpl doc = i.next();
+            final Deque<PendingDocument> pending = new ArrayDeque<>();
+            try {
+                for (final Iterator<DocumentImpl> i = current.iteratorNoLock(broker); i.hasNext(); count++) {
+                    final DocumentImpl doc = i.next();
 
-                if (isDamaged(doc, errorList)) {
-                    reportError("Skipping damaged document " + doc.getFileURI(), null);
-                    continue;
+                    if (isDamaged(doc, errorList)) {
+                        reportError("Skipping damaged document " + doc.getFileURI(), null);
+                        continue;
+                    }
+
+                    if (doc.getFileURI().equalsInternal(CONTENTS_URI) || doc.getFileURI().equalsInternal(LOST_URI)) {
+                        continue; // skip __contents__.xml documents
+                    }
+
+                    if (executor == null) {
+                        exportDocument(bh, output, date, prevBackup, serializer, docsCount, count, doc);
+                    } else {
+                        if (pending.size() >= threads * 2) {
+                            writePendingDocument(bh, output, serializer, docsCount, pending.poll());
+                        }
+                        pending.add(submitDocument(date, prevBackup, count, doc));
+                    }
+                    docs.add(doc, false);
                 }
 
-                if (doc.getFileURI().equalsInternal(CONTENTS_URI) || doc.getFileURI().equalsInternal(LOST_URI)) {
-                    continue; // skip __contents__.xml documents
+                while (!pending.isEmpty()) {
+                    writePendingDocument(bh, output, serializer, docsCount, pending.poll());
+                }
+            } finally {
+                for (final PendingDocument remaining : pending) {
+                    if (remaining.content != null) {
+                        remaining.content.cancel(true);
+                    }
                 }
-                exportDocument(bh, output, date, prevBackup, serializer, docsCount, count, doc);
-                docs.add(doc, false);
             }
 
             for (final Iterator<XmldbURI> i = current.collectionIteratorNoLock(broker); i.hasNext(); ) {
@@ -483,44 +573,144 @@ public class SystemExport {
         if ((monitor != null) && !monitor.proceed()) {
             throw (new TerminatedException("system export terminated by db"));
         }
-        final boolean needsBackup = (prevBackup == null) || (date.getTime() < doc.getMetadata().getLastModified());
+        final boolean needsBackup = needsBackup(date, prevBackup, doc);
 
         if (needsBackup) {
             // Note: do not auto-close the output stream or the zip will be closed!
             try {
-                final OutputStream os = output.newEntry(Backup.encode(URIUtils.urlDecodeUtf8(doc.getFileURI())));
-                if (doc.getResourceType() == DocumentImpl.BINARY_FILE) {
-                    broker.readBinaryResource((BinaryDocument) doc, os);
-                } else {
-                    final Writer writer = new BufferedWriter(new OutputStreamWriter(os, UTF_8));
-                    try {
-
-                        // write resource to contentSerializer
-                        final SAXSerializer contentSerializer = (SAXSerializer) SerializerPool.getInstance().borrowObject(SAXSerializer.class);
-                        contentSerializer.setOutput(writer, defaultOutputProperties);
-
-                        final Receiver receiver;
-                        if (chainFactory != null) {
-                            chainFactory.getLast().setNextInChain(contentSerializer);
-                            receiver = chainFactory.getFirst();
-                        } else {
-                            receiver = contentSerializer;
-                        }
-
-                        writeXML(doc, receiver);
-                        SerializerPool.getInstance().returnObject(contentSerializer);
-                    } finally {
-                        writer.flush();
-                    }
-                }
+                final CountingOutputStream os = new CountingOutputStream(output.newEntry(Backup.encode(URIUtils.urlDecodeUtf8(doc.getFileURI()))));
+                writeDocument(broker, doc, os, chainFactory);
+                statistics.documentWritten(os.getByteCount());
             } catch (final Exception e) {
                 reportError("A write error occurred while exporting document: '" + doc.getFileURI() + "'. Continuing with next document.", e);
                 return;
             } finally {
                 output.closeEntry();
             }
+        } else {
+            statistics.documentSkipped();
+        }
+
+        writeResourceDescriptor(bh, serializer, doc, needsBackup);
+    }
+
+    private static boolean needsBackup(final Date date, final BackupDescriptor prevBackup, final DocumentImpl doc) {
+        return (prevBackup == null) || (date.getTime() < doc.getMetadata().getLastModified());
+    }
+
+    /**
+     * Submit a document to the worker threads of a parallel export.
+     *
+     * Documents which are unchanged since the previous backup, or too large to
+     * be buffered in memory, are not submitted but handled by
+     * {@link #writePendingDocument(BackupHandler, BackupWriter, SAXSerializer, int, PendingDocument)}
+     * in the calling thread.
+     */
+    private PendingDocument submitDocument(final Date date, final BackupDescriptor prevBackup, final int count, final DocumentImpl doc) {
+        final boolean needsBackup = needsBackup(date, prevBackup, doc);
+        final long contentLength = doc.getContentLength();
+        if (!needsBackup || contentLength > MAX_BUFFERED_DOCUMENT_SIZE) {
+            return new PendingDocument(doc, count, needsBackup, null);
         }
 
+        final Subject subject = broker.getCurrentSubject();
+        final Future<FastByteArrayOutputStream> content = executor.submit(() -> {
+            try (final DBBroker workerBroker = broker.getBrokerPool().get(Optional.of(subject))) {
+                final FastByteArrayOutputStream os = new FastByteArrayOutputStream((int) Math.max(contentLength, 1024));
+                writeDocument(workerBroker, doc, os, filterClasses == null ? null : new ChainOfReceiversFactory(filterClasses));
+                return os;
+            }
+        });
+        return new PendingDocument(doc, count, true, content);
+    }
+
+    /**
+     * Write a document of a parallel export into the backup, waiting
+     * for a worker thread to finish serializing it if needed.
+     */
+    private void writePendingDocument(final BackupHandler bh, final BackupWriter output, final SAXSerializer serializer, final int docsCount, final PendingDocument pending) throws IOException, SAXException, TerminatedException {
+        final DocumentImpl doc = pending.doc;
+        if (pending.needsBackup && pending.content == null) {
+            exportDocument(bh, output, null, null, serializer, docsCount, pending.count, doc);
+            return;
+        }
+
+        if (callback != null) {
+            callback.startDocument(doc.getFileURI().toString(), pending.count, docsCount);
+        }
+
+        if ((monitor != null) && !monitor.proceed()) {
+            throw (new TerminatedException("system export terminated by db"));
+        }
+
+        if (pending.needsBackup) {
+            final FastByteArrayOutputStream content;
+            try {
+                content = pending.content.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TerminatedException("system export interrupted");
+            } catch (final ExecutionException e) {
+                reportError("A write error occurred while exporting document: '" + doc.getFileURI() + "'. Continuing with next document.", e.getCause());
+                return;
+            }
+
+            // Note: do not auto-close the output stream or the zip will be closed!
+            try {
+                content.writeTo(output.newEntry(Backup.encode(URIUtils.urlDecodeUtf8(doc.getFileURI()))));
+                statistics.documentWritten(content.size());
+            } catch (final IOException e) {
+                reportError("A write error occurred while exporting document: '" + doc.getFileURI() + "'. Continuing with next document.", e);
+                return;
+            } finally {
+                output.closeEntry();
+            }
+        } else {
+            statistics.documentSkipped();
+        }
+
+        writeResourceDescriptor(bh, serializer, doc, pending.needsBackup);
+    }
+
+    /**
+     * Serialize the content of a document.
+     *
+     * @param broker the broker to read the document with
+     * @param doc the document
+     * @param os the output stream, which is flushed but not closed
+     * @param chainFactory serialization filters to apply to XML documents, or null
+     */
+    private void writeDocument(final DBBroker broker, final DocumentImpl doc, final OutputStream os, final ChainOfReceiversFactory chainFactory) throws IOException {
+        if (doc.getResourceType() == DocumentImpl.BINARY_FILE) {
+            broker.readBinaryResource((BinaryDocument) doc, os);
+        } else {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(os, UTF_8));
+            try {
+
+                // write resource to contentSerializer
+                final SAXSerializer contentSerializer = (SAXSerializer) SerializerPool.getInstance().borrowObject(SAXSerializer.class);
+                contentSerializer.setOutput(writer, defaultOutputProperties);
+
+                final Receiver receiver;
+                if (chainFactory != null) {
+                    chainFactory.getLast().setNextInChain(contentSerializer);
+                    receiver = chainFactory.getFirst();
+                } else {
+                    receiver = contentSerializer;
+                }
+
+                writeXML(broker, doc, receiver);
+                SerializerPool.getInstance().returnObject(contentSerializer);
+            } finally {
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * Write the &lt;resource&gt; entry of a document into __contents__.xml.
+     */
+    private void writeResourceDescriptor(final BackupHandler bh, final SAXSerializer serializer, final DocumentImpl doc, final boolean needsBackup) throws SAXException {
         final Permission perms = doc.getPermissions();
 
         // store permissions
@@ -599,10 +789,11 @@ public class SystemExport {
     /**
      * Serialize a document to XML, based on {@link XMLStreamReader}.
      *
+     * @param broker   the broker to read the document with
      * @param doc      the document to serialize
      * @param receiver the output handler
      */
-    private void writeXML(final DocumentImpl doc, final Receiver receiver) {
+    private void writeXML(final DBBroker broker, final DocumentImpl doc, final Receiver receiver) {
         try {
             char[] ch;
             int nsdecls;
@@ -859,6 +1050,24 @@ public class SystemExport {
     }
 
 
+    /**
+     * A document of a parallel export, waiting to be written into the backup.
+     */
+    private static class PendingDocument {
+        private final DocumentImpl doc;
+        private final int count;
+        private final boolean needsBackup;
+        @Nullable private final Future<FastByteArrayOutputStream> content;
+
+        private PendingDocument(final DocumentImpl doc, final int count, final boolean needsBackup, @Nullable final Future<FastByteArrayOutputStream> content) {
+            this.doc = doc;
+            this.count = count;
+            this.needsBackup = needsBackup;
+            this.content = content;
+        }
+    }
+
+
     private class CheckDeletedHandler extends DefaultHandler {
         private final Collection collection;
         private final SAXSerializer serializer;
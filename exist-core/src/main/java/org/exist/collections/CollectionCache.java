@@ -55,6 +55,8 @@ public class CollectionCache implements BrokerPoolService {
     public static final int DEFAULT_CACHE_SIZE_BYTES = 64 * 1024 * 1024;   // 64 MB
     public static final String CACHE_SIZE_ATTRIBUTE = "collectionCache";
     public static final String PROPERTY_CACHE_SIZE_BYTES = "db-connection.collection-cache-mem";
+    public static final String LAZY_DOCUMENTS_ATTRIBUTE = "collectionLazyDocuments";
+    public static final String PROPERTY_LAZY_DOCUMENTS = "db-connection.collection-lazy-documents";
 
     private int maxCacheSize = -1;
     private Cache<String, Collection> cache;
@@ -0,0 +1,439 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.collections;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.EXistException;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.storage.DBBroker;
+
+import javax.annotation.Nullable;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * The document entries of a Collection which was loaded with lazy
+ * document entries, see {@link CollectionCache#PROPERTY_LAZY_DOCUMENTS}.
+ *
+ * Documents are read from collections.dbx by id, or a page at a time
+ * when iterating, so that a Collection never has to materialize all of
+ * its documents at once. As the entries in collections.dbx are keyed by
+ * document id, the names and ids of the documents are read once, when a
+ * document is first looked up by name, and are then held by the Collection.
+ *
+ * Documents which were added to the Collection after it was loaded are
+ * held until the Collection is evicted, just like every document of an
+ * eagerly loaded Collection. Documents which were read from collections.dbx
+ * are only weakly referenced: the same instance is returned for as long
+ * as it is in use, after that it is read again when needed.
+ *
+ * Removed documents are remembered by their id, so that their entries are
+ * skipped until they have been removed from collections.dbx.
+ *
+ * A DocumentSet which is built from the Collection still holds each of
+ * its documents for as long as the DocumentSet is in use.
+ */
+final class LazyDocuments {
+
+    private static final Logger LOG = LogManager.getLogger(LazyDocuments.class);
+
+    /**
+     * The number of document entries read from collections.dbx at a time when iterating.
+     */
+    static final int PAGE_SIZE = 64;
+
+    private final MutableCollection collection;
+
+    private final LinkedHashMap<String, DocumentImpl> added = new LinkedHashMap<>();
+    private final Int2ObjectMap<DocumentImpl> addedById = new Int2ObjectOpenHashMap<>();
+    private final IntSet removed = new IntOpenHashSet();
+
+    private final Map<String, DocumentReference> loadedByName = new HashMap<>();
+    private final Int2ObjectMap<DocumentReference> loadedById = new Int2ObjectOpenHashMap<>();
+    private final ReferenceQueue<DocumentImpl> collected = new ReferenceQueue<>();
+
+    /**
+     * The ids of the documents in collections.dbx by name, null until a document is first looked up by name.
+     */
+    @Nullable private Object2IntMap<String> stored = null;
+
+    private int count = -1;
+    private long modCount = 0;
+
+    LazyDocuments(final MutableCollection collection) {
+        this.collection = collection;
+    }
+
+    /**
+     * Get a document by name.
+     *
+     * @param broker the database broker
+     * @param name the name of the document, i.e. the last segment of its URI
+     *
+     * @return the document, or null if there is no such document
+     */
+    @Nullable DocumentImpl get(final DBBroker broker, final String name) {
+        synchronized (this) {
+            final DocumentImpl doc = added.get(name);
+            if (doc != null) {
+                return doc;
+            }
+
+            final DocumentImpl loaded = dereference(loadedByName.get(name));
+            if (loaded != null) {
+                return loaded;
+            }
+        }
+
+        final int docId = storedId(broker, name);
+        if (docId == DocumentImpl.UNKNOWN_DOCUMENT_ID || isSuperseded(docId)) {
+            return null;
+        }
+
+        final DocumentImpl[] found = new DocumentImpl[1];
+        broker.getCollectionResource(internalAccess(doc -> found[0] = doc), docId);
+        return found[0] == null ? null : resolve(found[0]);
+    }
+
+    /**
+     * Get the id of the document entry with the given name in collections.dbx.
+     *
+     * Documents which are added later are held in {@link #added}, so the names
+     * and ids which were read once never need to be read again.
+     *
+     * @return the id of the document, or {@link DocumentImpl#UNKNOWN_DOCUMENT_ID} if there is no such entry
+     */
+    private int storedId(final DBBroker broker, final String name) {
+        synchronized (this) {
+            if (stored != null) {
+                return stored.getInt(name);
+            }
+        }
+
+        final Object2IntMap<String> names = new Object2IntOpenHashMap<>();
+        names.defaultReturnValue(DocumentImpl.UNKNOWN_DOCUMENT_ID);
+        broker.getCollectionResourceNames(collection.getId(), names::put);
+
+        synchronized (this) {
+            if (stored == null) {
+                stored = names;
+            }
+            return stored.getInt(name);
+        }
+    }
+
+    /**
+     * Get the number of documents.
+     *
+     * Only the keys of the document entries are read from collections.dbx,
+     * the result is kept until a document is added or removed.
+     *
+     * @param broker the database broker
+     *
+     * @return the number of documents
+     */
+    int size(final DBBroker broker) {
+        final long expectedModCount;
+        synchronized (this) {
+            if (count >= 0) {
+                return count;
+            }
+            expectedModCount = modCount;
+        }
+
+        final int[] docIds = broker.getCollectionResourceIds(collection.getId());
+
+        synchronized (this) {
+            int size = added.size();
+            for (final int docId : docIds) {
+                if (!isSuperseded(docId)) {
+                    size++;
+                }
+            }
+
+            if (modCount == expectedModCount) {
+                count = size;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Add a document, or replace the document of the same name.
+     *
+     * @param doc the document
+     */
+    synchronized void add(final DocumentImpl doc) {
+        final String name = doc.getFileURI().lastSegmentString();
+        final DocumentImpl previous = added.put(name, doc);
+        if (previous != null && previous.getDocId() != doc.getDocId()) {
+            addedById.remove(previous.getDocId());
+        }
+        addedById.put(doc.getDocId(), doc);
+        removed.remove(doc.getDocId());
+        forget(name, doc.getDocId());
+        modified();
+    }
+
+    /**
+     * Remove a document.
+     *
+     * @param doc the document
+     */
+    synchronized void remove(final DocumentImpl doc) {
+        final String name = doc.getFileURI().lastSegmentString();
+        final DocumentImpl previous = added.remove(name);
+        if (previous != null) {
+            addedById.remove(previous.getDocId());
+        }
+        removed.add(doc.getDocId());
+        forget(name, doc.getDocId());
+        modified();
+    }
+
+    /**
+     * Get an iterator over the documents.
+     *
+     * The documents read from collections.dbx are returned first, in the order
+     * of their keys, a page at a time; followed by the documents which have been
+     * added since the Collection was loaded and are not yet read from collections.dbx.
+     *
+     * @param broker the database broker, which is used whilst iterating
+     *
+     * @return an iterator over the documents
+     */
+    Iterator<DocumentImpl> iterator(final DBBroker broker) {
+        final List<DocumentImpl> addedDocuments;
+        synchronized (this) {
+            addedDocuments = new ArrayList<>(added.values());
+        }
+        return new PagedIterator(broker, addedDocuments);
+    }
+
+    /**
+     * Get the documents which are currently in memory.
+     *
+     * @return the documents which are held or still in use
+     */
+    synchronized List<DocumentImpl> getLoaded() {
+        final List<DocumentImpl> loaded = new ArrayList<>(added.values());
+        for (final DocumentReference reference : loadedByName.values()) {
+            final DocumentImpl doc = reference.get();
+            if (doc != null) {
+                loaded.add(doc);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Get the number of documents which are held by the Collection.
+     *
+     * Documents which were read from collections.dbx are not held, and so
+     * do not contribute to the weight of the Collection in the {@link CollectionCache}.
+     *
+     * @return the number of documents which were added since the Collection was loaded
+     */
+    synchronized int getHeldCount() {
+        return added.size();
+    }
+
+    /**
+     * Get the number of documents which are currently in memory.
+     *
+     * @return the number of documents which are held or still in use
+     */
+    synchronized int getLoadedCount() {
+        purge();
+        return added.size() + loadedByName.size();
+    }
+
+    /**
+     * Returns true if the entry of the document in collections.dbx is
+     * outdated, because the document was removed, or has been replaced
+     * by a document which was added.
+     */
+    private synchronized boolean isSuperseded(final int docId) {
+        return removed.contains(docId) || addedById.containsKey(docId);
+    }
+
+    /**
+     * Get the instance of a document which was read from collections.dbx.
+     *
+     * @return the instance of the document which is in use, or null if the document is superseded
+     */
+    private synchronized @Nullable DocumentImpl resolve(final DocumentImpl doc) {
+        final int docId = doc.getDocId();
+        final String name = doc.getFileURI().lastSegmentString();
+        if (isSuperseded(docId) || added.containsKey(name)) {
+            return null;
+        }
+
+        final DocumentImpl loaded = dereference(loadedById.get(docId));
+        if (loaded != null) {
+            return loaded;
+        }
+
+        purge();
+        final DocumentReference reference = new DocumentReference(doc, name, collected);
+        loadedByName.put(name, reference);
+        loadedById.put(docId, reference);
+        return doc;
+    }
+
+    private @Nullable DocumentImpl dereference(@Nullable final DocumentReference reference) {
+        return reference == null ? null : reference.get();
+    }
+
+    private void forget(final String name, final int docId) {
+        final DocumentReference byName = loadedByName.remove(name);
+        if (byName != null) {
+            loadedById.remove(byName.docId);
+        }
+        final DocumentReference byId = loadedById.remove(docId);
+        if (byId != null) {
+            loadedByName.remove(byId.name);
+        }
+    }
+
+    private void modified() {
+        modCount++;
+        count = -1;
+    }
+
+    /**
+     * Removes the references to documents which are no longer in use.
+     */
+    private void purge() {
+        DocumentReference reference;
+        while ((reference = (DocumentReference) collected.poll()) != null) {
+            if (loadedByName.get(reference.name) == reference) {
+                loadedByName.remove(reference.name);
+            }
+            if (loadedById.get(reference.docId) == reference) {
+                loadedById.remove(reference.docId);
+            }
+        }
+    }
+
+    private Collection.InternalAccess internalAccess(final Consumer<DocumentImpl> consumer) {
+        return new Collection.InternalAccess() {
+            @Override
+            public void addDocument(final DocumentImpl doc) throws EXistException {
+                doc.setCollection(collection);
+
+                if (doc.getDocId() == DocumentImpl.UNKNOWN_DOCUMENT_ID) {
+                    LOG.error("Document must have ID. [" + doc + "]");
+                    throw new EXistException("Document must have ID.");
+                }
+
+                consumer.accept(doc);
+            }
+
+            @Override
+            public int getId() {
+                return collection.getId();
+            }
+        };
+    }
+
+    private static final class DocumentReference extends WeakReference<DocumentImpl> {
+        private final String name;
+        private final int docId;
+
+        private DocumentReference(final DocumentImpl doc, final String name, final ReferenceQueue<DocumentImpl> queue) {
+            super(doc, queue);
+            this.name = name;
+            this.docId = doc.getDocId();
+        }
+    }
+
+    /**
+     * Reads the document entries from collections.dbx a page at a time.
+     */
+    private final class PagedIterator implements Iterator<DocumentImpl> {
+        private final DBBroker broker;
+        private final Iterator<DocumentImpl> addedDocuments;
+        private final Deque<DocumentImpl> page = new ArrayDeque<>(PAGE_SIZE);
+        @Nullable private DocumentImpl last = null;
+        private boolean exhausted = false;
+        @Nullable private DocumentImpl next = null;
+
+        private PagedIterator(final DBBroker broker, final List<DocumentImpl> addedDocuments) {
+            this.broker = broker;
+            this.addedDocuments = addedDocuments.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (page.isEmpty() && !exhausted) {
+                    readPage();
+                }
+
+                if (!page.isEmpty()) {
+                    next = resolve(page.poll());
+                } else if (addedDocuments.hasNext()) {
+                    next = addedDocuments.next();
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public DocumentImpl next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final DocumentImpl doc = next;
+            next = null;
+            return doc;
+        }
+
+        private void readPage() {
+            broker.getCollectionResources(internalAccess(page::add), last, PAGE_SIZE);
+            if (page.size() < PAGE_SIZE) {
+                exhausted = true;
+            }
+            if (!page.isEmpty()) {
+                last = page.peekLast();
+            }
+        }
+    }
+}
@@ -85,6 +85,7 @@ public class MutableCollection implements Collection {
 
     private final int collectionId;
     private XmldbURI path;
+    private final BrokerPool brokerPool;
     private final LockManager lockManager;
 
     /*
@@ -94,8 +95,16 @@ public class MutableCollection implements Collection {
      * This ordering ensures that adding new Documents does not affect the existing order of Documents,
      * in this manner locks acquired when iterating are always acquired and released in the same order
      * which gives us deadlock avoidance for Document iteration.
+     *
+     * Null if the Collection was loaded with lazy document entries, see {@link #lazyDocuments}.
+     */
+    @GuardedBy("LockManager") @Nullable private final LinkedHashMap<String, DocumentImpl> documents;
+
+    /*
+     * The document entries of a Collection which was loaded with lazy document entries,
+     * these are read from collections.dbx as they are needed. Null otherwise.
      */
-    @GuardedBy("LockManager") private final LinkedHashMap<String, DocumentImpl> documents;
+    @Nullable private final LazyDocuments lazyDocuments;
 
     /*
      * LinkedHashSet is used to ensure a consistent iteration order of sub-Collections.
@@ -120,7 +129,7 @@ public class MutableCollection implements Collection {
      * @param path The path of the Collection
      */
     public MutableCollection(final DBBroker broker, final int collectionId, final XmldbURI path) {
-        this(broker, collectionId, path, null, -1, null, null);
+        this(broker, collectionId, path, null, -1, null, new LinkedHashMap<>());
     }
 
     /**
@@ -135,7 +144,7 @@ public class MutableCollection implements Collection {
     public MutableCollection(final DBBroker broker, final int collectionId,
             @EnsureLocked(mode=LockMode.READ_LOCK, type=LockType.COLLECTION) final XmldbURI path,
             @Nullable final Permission permissions, final long created) {
-        this(broker, collectionId, path, permissions, created, null, null);
+        this(broker, collectionId, path, permissions, created, null, new LinkedHashMap<>());
     }
 
     /**
@@ -147,7 +156,7 @@ public class MutableCollection implements Collection {
      * @param permissions The permissions of the collection, or null for the default
      * @param created The created time of the collection, or -1 for now
      * @param subCollections the sub-collections
-     * @param documents the documents in the collection
+     * @param documents the documents in the collection, or null if they should be read as they are needed
      */
     private MutableCollection(final DBBroker broker, final int collectionId,
             @EnsureLocked(mode=LockMode.READ_LOCK, type=LockType.COLLECTION) final XmldbURI path,
@@ -158,10 +167,12 @@ public class MutableCollection implements Collection {
         this.collectionId = collectionId;
         this.permissions = permissions != null ? permissions : PermissionFactory.getDefaultCollectionPermission(broker.getBrokerPool().getSecurityManager());
         this.created = created > 0 ? created : System.currentTimeMillis();
-        this.lockManager = broker.getBrokerPool().getLockManager();
+        this.brokerPool = broker.getBrokerPool();
+        this.lockManager = brokerPool.getLockManager();
         this.collectionMetadata = new CollectionMetadata(this);
         this.subCollections = subCollections != null ? subCollections : new LinkedHashSet<>();
-        this.documents = documents != null ? documents : new LinkedHashMap<>();
+        this.documents = documents;
+        this.lazyDocuments = documents == null ? new LazyDocuments(this) : null;
     }
 
     /**
@@ -197,10 +208,11 @@ public class MutableCollection implements Collection {
         this.path = path;
 
         if (updateChildren) {
-            for (final Map.Entry<String, DocumentImpl> docEntry : documents.entrySet()) {
-                final XmldbURI docUri = path.append(docEntry.getKey());
+            // NOTE: lazy document entries which are not in memory are read with the new path
+            final Iterable<DocumentImpl> docs = documents != null ? documents.values() : lazyDocuments.getLoaded();
+            for (final DocumentImpl doc : docs) {
+                final XmldbURI docUri = path.append(doc.getFileURI().lastSegmentString());
                 try (final ManagedDocumentLock documentLock = lockManager.acquireDocumentWriteLock(docUri)) {
-                    final DocumentImpl doc = docEntry.getValue();
                     doc.setCollection(this);  // this will invalidate the cached `uri` in DocumentImpl
                 } catch (final LockException e) {
                     LOG.error(e.getMessage(), e);
@@ -233,6 +245,20 @@ public class MutableCollection implements Collection {
         return new ArrayList<>(documents.values()).iterator();
     }
 
+    /**
+     * Get an iterator over the documents of this Collection.
+     *
+     * If the Collection was loaded with lazy document entries, the
+     * iterator reads them from collections.dbx a page at a time.
+     *
+     * @param broker The database broker
+     *
+     * @return an iterator over the documents
+     */
+    private Iterator<DocumentImpl> documentIterator(final DBBroker broker) {
+        return documents != null ? stableDocumentIterator(documents) : lazyDocuments.iterator(broker);
+    }
+
     private static Iterator<String> stableDocumentNameIterator(final LinkedHashMap<String, DocumentImpl> documents) {
         return new ArrayList<>(documents.keySet()).iterator();
     }
@@ -249,7 +275,7 @@ public class MutableCollection implements Collection {
             }
 
             subCollectionIterator = stableIterator(subCollections);
-            documentIterator = stableDocumentIterator(documents);
+            documentIterator = documentIterator(broker);
         }
 
         while(subCollectionIterator.hasNext()) {
@@ -299,7 +325,7 @@ public class MutableCollection implements Collection {
 
         final CollectionEntry entry;
         try(final ManagedCollectionLock collectionLock = lockManager.acquireCollectionReadLock(path)) {
-            final DocumentImpl doc = documents.get(name);
+            final DocumentImpl doc = getDocumentEntry(broker, name);
 
             try(final ManagedDocumentLock docLock = lockManager.acquireDocumentReadLock(doc.getURI())) {
 
@@ -367,7 +393,7 @@ public class MutableCollection implements Collection {
                 // NOTE: early release of Collection lock inline with Asymmetrical Locking scheme
                 collectionLock.close();
 
-                documents.put(doc.getFileURI().lastSegmentString(), doc);
+                putDocumentEntry(doc);
             }
         }
     }
@@ -380,7 +406,7 @@ public class MutableCollection implements Collection {
                 throw new PermissionDeniedException("Permission denied to remove document from collection: " + path);
             }
 
-            documents.remove(doc.getFileURI().lastSegmentString());
+            removeDocumentEntry(doc);
         }
     }
 
@@ -518,7 +544,7 @@ public class MutableCollection implements Collection {
             if(!getPermissionsNoLock().validate(broker.getCurrentSubject(), Permission.READ)) {
                 throw new PermissionDeniedException("Permission denied to read collection: " + path);
             }
-            documentIterator = stableDocumentIterator(documents);
+            documentIterator = documentIterator(broker);
             docs.addCollection(this);
         }
         addDocumentsToSet(broker, documentIterator, docs);
@@ -528,7 +554,7 @@ public class MutableCollection implements Collection {
 
     @Override
     public DocumentSet getDocumentsNoLock(final DBBroker broker, final MutableDocumentSet docs) {
-        final Iterator<DocumentImpl> documentIterator = stableDocumentIterator(documents);
+        final Iterator<DocumentImpl> documentIterator = documentIterator(broker);
         docs.addCollection(this);
         addDocumentsToSet(broker, documentIterator, docs);
         return docs;
@@ -542,7 +568,7 @@ public class MutableCollection implements Collection {
             if(!getPermissionsNoLock().validate(broker.getCurrentSubject(), Permission.READ)) {
                 throw new PermissionDeniedException("Permission denied to read collection: " + path);
             }
-            documentIterator = stableDocumentIterator(documents);
+            documentIterator = documentIterator(broker);
             docs.addCollection(this);
         }
         addDocumentsToSet(broker, documentIterator, docs, lockMap, lockType);
@@ -622,7 +648,7 @@ public class MutableCollection implements Collection {
     @Override
     public int getMemorySize() {
         try(final ManagedCollectionLock collectionLock = lockManager.acquireCollectionReadLock(path)) {
-            return SHALLOW_SIZE + (documents.size() * DOCUMENT_SIZE);
+            return getMemorySizeNoLock();
         } catch(final LockException e) {
             LOG.error(e);
             return -1;
@@ -631,7 +657,9 @@ public class MutableCollection implements Collection {
 
     @Override
     public int getMemorySizeNoLock() {
-        return SHALLOW_SIZE + (documents.size() * DOCUMENT_SIZE);
+        // NOTE: lazy document entries which were read from collections.dbx are not held by the Collection
+        final int documentCount = documents != null ? documents.size() : lazyDocuments.getHeldCount();
+        return SHALLOW_SIZE + documentCount * DOCUMENT_SIZE;
     }
 
     @Override
@@ -655,7 +683,7 @@ public class MutableCollection implements Collection {
                 throw new PermissionDeniedException("Permission denied to read collection: " + path);
             }
 
-            return documents.isEmpty() && subCollections.isEmpty();
+            return subCollections.isEmpty() && countDocumentEntries(broker) == 0;
         } catch(final LockException e) {
             LOG.error(e.getMessage(), e);
             return false;
@@ -667,7 +695,7 @@ public class MutableCollection implements Collection {
         try(final ManagedCollectionLock collectionLock = lockManager.acquireCollectionReadLock(path)) {
 
             try(final ManagedDocumentLock docLock = lockManager.acquireDocumentReadLock(getURI().append(name.lastSegment()))) {
-                final DocumentImpl doc = documents.get(name.lastSegmentString());
+                final DocumentImpl doc = getDocumentEntry(broker, name.lastSegmentString());
 
                 // NOTE: early release of Collection lock inline with Asymmetrical Locking scheme
                 collectionLock.close();
@@ -720,7 +748,7 @@ public class MutableCollection implements Collection {
             }
 
 
-            final DocumentImpl doc = documents.get(name.lastSegmentString());
+            final DocumentImpl doc = getDocumentEntry(broker, name.lastSegmentString());
 
             // NOTE: early release of Collection lock inline with Asymmetrical Locking scheme
             collectionLock.close();
@@ -741,7 +769,7 @@ public class MutableCollection implements Collection {
 
     @Override
     public DocumentImpl getDocumentNoLock(final DBBroker broker, final String rawPath) throws PermissionDeniedException {
-        final DocumentImpl doc = documents.get(rawPath);
+        final DocumentImpl doc = getDocumentEntry(broker, rawPath);
         if(doc != null) {
             if(!doc.getPermissions().validate(broker.getCurrentSubject(), Permission.READ)) {
                 throw new PermissionDeniedException("Permission denied to read document: " + rawPath);
@@ -757,7 +785,7 @@ public class MutableCollection implements Collection {
                 throw new PermissionDeniedException("Permission denied to read collection: " + path);
             }
 
-            return documents.size();
+            return countDocumentEntries(broker);
         } catch(final LockException e) {
             LOG.warn(e.getMessage(), e);
             return -1;
@@ -769,7 +797,7 @@ public class MutableCollection implements Collection {
         if(!getPermissionsNoLock().validate(broker.getCurrentSubject(), Permission.READ)) {
             throw new PermissionDeniedException("Permission denied to read collection: " + path);
         }
-        return documents.size();
+        return countDocumentEntries(broker);
     }
 
     @Override
@@ -823,11 +851,11 @@ public class MutableCollection implements Collection {
                 throw new PermissionDeniedException("Permission denied to read collection: " + path);
             }
 
-            return documents.containsKey(name.lastSegmentString());
+            return getDocumentEntry(broker, name.lastSegmentString()) != null;
         } catch(final LockException e) {
             LOG.warn(e.getMessage(), e);
             //TODO : ouch ! Should we return at any price ? Without even logging ? -pb
-            return documents.containsKey(name.lastSegmentString());
+            return getDocumentEntry(broker, name.lastSegmentString()) != null;
         }
     }
 
@@ -934,6 +962,12 @@ public class MutableCollection implements Collection {
 
             final long created = istream.readLong();
 
+            final boolean lazyDocuments = broker.getConfiguration().getProperty(CollectionCache.PROPERTY_LAZY_DOCUMENTS, false);
+            if (lazyDocuments) {
+                // the document entries are read from collections.dbx as they are needed
+                return new MutableCollection(broker, collectionId, path, permission, created, subCollections, null);
+            }
+
             final LinkedHashMap<String, DocumentImpl> documents = new LinkedHashMap<>();
 
             final MutableCollection collection =
@@ -962,6 +996,51 @@ public class MutableCollection implements Collection {
 //        }
     }
 
+    /**
+     * Get a document of this Collection by name.
+     *
+     * If the Collection was loaded with lazy document entries
+     * (see {@link CollectionCache#PROPERTY_LAZY_DOCUMENTS}), only
+     * the entry of the document is read from collections.dbx.
+     *
+     * @param broker The database broker
+     * @param name The name of the document, i.e. the last segment of its URI
+     *
+     * @return the document, or null if there is no such document
+     */
+    private @Nullable DocumentImpl getDocumentEntry(final DBBroker broker, final String name) {
+        return documents != null ? documents.get(name) : lazyDocuments.get(broker, name);
+    }
+
+    private void putDocumentEntry(final DocumentImpl doc) {
+        if (documents != null) {
+            documents.put(doc.getFileURI().lastSegmentString(), doc);
+        } else {
+            lazyDocuments.add(doc);
+        }
+    }
+
+    private void removeDocumentEntry(final DocumentImpl doc) {
+        if (documents != null) {
+            documents.remove(doc.getFileURI().lastSegmentString());
+        } else {
+            lazyDocuments.remove(doc);
+        }
+    }
+
+    private int countDocumentEntries(final DBBroker broker) {
+        return documents != null ? documents.size() : lazyDocuments.size(broker);
+    }
+
+    /**
+     * Get the number of documents of this Collection which are in memory.
+     *
+     * @return the number of documents in memory
+     */
+    int getLoadedDocumentCount() {
+        return documents != null ? documents.size() : lazyDocuments.getLoadedCount();
+    }
+
     @Override
     public void removeCollection(final DBBroker broker, final XmldbURI name)
             throws LockException, PermissionDeniedException {
@@ -1001,7 +1080,7 @@ public class MutableCollection implements Collection {
 
             try(final ManagedDocumentLock docUpdateLock = lockManager.acquireDocumentWriteLock(path.append(name.lastSegment()))) {
 
-                final DocumentImpl doc = documents.get(name.lastSegmentString());
+                final DocumentImpl doc = getDocumentEntry(broker, name.lastSegmentString());
 
                 if (doc == null) {
                     // NOTE: early release of Collection lock inline with Asymmetrical Locking scheme
@@ -1027,7 +1106,7 @@ public class MutableCollection implements Collection {
                     trigger.beforeDeleteDocument(broker, transaction, doc);
 
                     broker.removeXMLResource(transaction, doc);
-                    documents.remove(name.lastSegmentString());
+                    removeDocumentEntry(doc);
 
                     trigger.afterDeleteDocument(broker, transaction, getURI().append(name));
 
@@ -1095,7 +1174,7 @@ public class MutableCollection implements Collection {
                         } catch (final IOException ex) {
                             throw new PermissionDeniedException("Cannot delete file: " + doc.getURI().toString() + ": " + ex.getMessage(), ex);
                         }
-                        documents.remove(doc.getFileURI().lastSegmentString());
+                        removeDocumentEntry(doc);
                     } finally {
                         indexController.endIndexDocument(transaction, listener);
                     }
@@ -1418,7 +1497,7 @@ public class MutableCollection implements Collection {
                 // acquire the WRITE_LOCK on the Document, this lock is released in storeXMLInternal via IndexInfo
                 documentWriteLock = lockManager.acquireDocumentWriteLock(getURI().append(name.lastSegment()));
 
-                oldDoc = documents.get(name.lastSegmentString());
+                oldDoc = getDocumentEntry(broker, name.lastSegmentString());
                 checkPermissionsForAddDocument(broker, oldDoc);
 
                 // NOTE: the new `document` object actually gets discarded in favour of the `oldDoc` below if there is an oldDoc and it is XML (so we can use -1 as the docId because it will never be used)
@@ -1468,7 +1547,7 @@ public class MutableCollection implements Collection {
                     if (oldDoc.getResourceType() == DocumentImpl.BINARY_FILE) {
                         //TODO : use a more elaborated method ? No triggers...
                         broker.removeBinaryResource(transaction, (BinaryDocument) oldDoc);
-                        documents.remove(oldDoc.getFileURI().lastSegmentString());
+                        removeDocumentEntry(oldDoc);
 
                         addDocument(transaction, broker, document);
                     } else {
@@ -1476,6 +1555,8 @@ public class MutableCollection implements Collection {
                         broker.removeXMLResource(transaction, oldDoc, false);
                         oldDoc.copyOf(broker, document, oldDoc);
                         indexer.setDocumentObject(oldDoc);
+                        // hold the replaced document, its entry is only written again once it is stored
+                        putDocumentEntry(oldDoc);
                         //old has become new at this point
                         document = oldDoc;
                     }
@@ -1866,22 +1947,43 @@ public class MutableCollection implements Collection {
         buf.append("[");
 
         try {
-            final Iterator<String> documentNameIterator;
-            try (final ManagedCollectionLock collectionLock = lockManager.acquireCollectionReadLock(path)) {
-                documentNameIterator = documents.keySet().iterator();
-            }
+            if (documents != null) {
+                final Iterator<String> documentNameIterator;
+                try (final ManagedCollectionLock collectionLock = lockManager.acquireCollectionReadLock(path)) {
+                    documentNameIterator = documents.keySet().iterator();
+                }
+                appendNames(buf, documentNameIterator);
+            } else {
+                try (final DBBroker broker = brokerPool.getBroker();
+                     final ManagedCollectionLock collectionLock = lockManager.acquireCollectionReadLock(path)) {
+                    final Iterator<DocumentImpl> documentIterator = documentIterator(broker);
+                    appendNames(buf, new Iterator<String>() {
+                        @Override
+                        public boolean hasNext() {
+                            return documentIterator.hasNext();
+                        }
 
-            while (documentNameIterator.hasNext()) {
-                buf.append(documentNameIterator.next());
-                if (documentNameIterator.hasNext()) {
-                    buf.append(", ");
+                        @Override
+                        public String next() {
+                            return documentIterator.next().getFileURI().lastSegmentString();
+                        }
+                    });
                 }
             }
-        } catch(final LockException e) {
+        } catch(final EXistException | LockException e) {
             LOG.error(e);
             throw new IllegalStateException(e);
         }
         buf.append("]");
         return buf.toString();
     }
+
+    private static void appendNames(final StringBuilder buf, final Iterator<String> documentNameIterator) {
+        while (documentNameIterator.hasNext()) {
+            buf.append(documentNameIterator.next());
+            if (documentNameIterator.hasNext()) {
+                buf.append(", ");
+            }
+        }
+    }
 }
@@ -0,0 +1,425 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.exist.collections.triggers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.jcip.annotations.ThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.EXistException;
+import org.exist.dom.QName;
+import org.exist.security.Subject;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.BrokerPoolService;
+import org.exist.storage.DBBroker;
+import org.exist.storage.txn.TransactionException;
+import org.exist.storage.txn.Txn;
+import org.exist.util.NamedThreadFactory;
+import org.exist.xmldb.XmldbURI;
+
+import javax.annotation.Nullable;
+
+/**
+ * Delivers the events of triggers which run in asynchronous mode,
+ * after the transaction which caused them has been committed.
+ *
+ * Each trigger has its own bounded queue. The events of a queue are delivered
+ * in the order in which they were committed, in batches of a configurable size,
+ * by at most one worker at a time. All queues share a fixed pool of workers.
+ * A batch is delivered within a single transaction, as the user who caused its events.
+ *
+ * Room for an event is reserved with {@link TriggerQueue#tryReserve()} before the
+ * operation which causes it is performed; when the queue is full the reservation fails
+ * and the trigger rejects the operation. Queuing the event on commit thereby never blocks,
+ * as the committing thread may still hold locks which the trigger needs.
+ *
+ * Events are only kept in memory. The workers keep delivering while the database
+ * is shutting down, and the events which are still queued when the dispatcher is
+ * stopped are delivered by the stopping thread. Events are lost if the database
+ * is killed or crashes.
+ */
+@ThreadSafe
+public class AsyncTriggerDispatcher implements BrokerPoolService {
+
+    private static final Logger LOG = LogManager.getLogger(AsyncTriggerDispatcher.class);
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * The id of the queue whose events the current thread is delivering.
+     */
+    private static final ThreadLocal<String> DELIVERING = new ThreadLocal<>();
+
+    @FunctionalInterface
+    public interface BatchHandler {
+        void deliver(DBBroker broker, Txn transaction, List<Event> events) throws TriggerException;
+    }
+
+    private final ConcurrentMap<String, TriggerQueue> queues = new ConcurrentHashMap<>();
+    private BrokerPool brokerPool;
+    private ExecutorService executor;
+    private volatile boolean stopping = false;
+
+    @Override
+    public void prepare(final BrokerPool brokerPool) {
+        this.brokerPool = brokerPool;
+        this.executor = Executors.newFixedThreadPool(THREADS, new NamedThreadFactory(brokerPool, "async-trigger"));
+    }
+
+    /**
+     * Get the queue of a trigger, creating it if necessary.
+     *
+     * @param id the id of the trigger
+     * @param capacity the maximum number of queued events
+     * @param batchSize the maximum number of events per batch
+     * @param handler delivers the events, if the queue has to be created
+     *
+     * @return the queue
+     */
+    public TriggerQueue getQueue(final String id, final int capacity, final int batchSize, final BatchHandler handler) {
+        return queues.computeIfAbsent(id, key -> new TriggerQueue(key, capacity, batchSize, handler));
+    }
+
+    public Collection<TriggerQueue> getQueues() {
+        return queues.values();
+    }
+
+    public int getThreads() {
+        return THREADS;
+    }
+
+    /**
+     * Determines whether the current thread is delivering the events of a queue,
+     * i.e. whether an event has been caused by the trigger itself.
+     *
+     * @param id the id of the queue
+     *
+     * @return true if the current thread is delivering events of the queue
+     */
+    public static boolean isDelivering(final String id) {
+        return id.equals(DELIVERING.get());
+    }
+
+    /**
+     * Delivers the remaining events on the stopping thread. It holds all brokers of the
+     * database, so the workers can no longer obtain one and just give up.
+     *
+     * @param systemBroker the system broker
+     */
+    @Override
+    public void stop(final DBBroker systemBroker) {
+        stopping = true;
+        executor.shutdown();
+        for (final TriggerQueue queue : queues.values()) {
+            queue.drainOnStop();
+        }
+        for (final TriggerQueue queue : queues.values()) {
+            final int pending = queue.getQueueDepth();
+            if (pending > 0) {
+                LOG.warn("{} events of trigger {} have not been delivered", pending, queue.getId());
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdownNow();
+        queues.clear();
+    }
+
+    /**
+     * An event of a trigger, waiting to be delivered.
+     */
+    public static final class Event {
+        private final QName function;
+        private final XmldbURI src;
+        @Nullable private final XmldbURI dst;
+        private final Subject subject;
+        private long queuedAt;
+
+        public Event(final QName function, final XmldbURI src, @Nullable final XmldbURI dst, final Subject subject) {
+            this.function = function;
+            this.src = src;
+            this.dst = dst;
+            this.subject = subject;
+        }
+
+        public QName getFunction() {
+            return function;
+        }
+
+        public XmldbURI getSrc() {
+            return src;
+        }
+
+        public @Nullable XmldbURI getDst() {
+            return dst;
+        }
+
+        public Subject getSubject() {
+            return subject;
+        }
+    }
+
+    /**
+     * The queue of a single trigger.
+     */
+    public final class TriggerQueue {
+        private final String id;
+        private final int capacity;
+        private final int batchSize;
+        private final BatchHandler handler;
+        private final Semaphore permits;
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final ReentrantLock drainLock = new ReentrantLock();
+
+        private final LongAdder queued = new LongAdder();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalLatency = new LongAdder();
+        private final AtomicLong maxLatency = new AtomicLong();
+
+        private TriggerQueue(final String id, final int capacity, final int batchSize, final BatchHandler handler) {
+            this.id = id;
+            this.capacity = capacity;
+            this.batchSize = batchSize;
+            this.handler = handler;
+            this.permits = new Semaphore(capacity);
+        }
+
+        /**
+         * Reserves room for an event, without waiting.
+         *
+         * @return true if room has been reserved, false if the queue is full
+         */
+        public boolean tryReserve() {
+            if (permits.tryAcquire()) {
+                return true;
+            }
+            rejected.increment();
+            return false;
+        }
+
+        /**
+         * Releases room which has been reserved for an event which will not be queued.
+         */
+        public void release() {
+            permits.release();
+        }
+
+        /**
+         * Queue an event for delivery, for which room has been reserved by {@link #tryReserve()}.
+         *
+         * @param event the event
+         */
+        public void offer(final Event event) {
+            event.queuedAt = System.nanoTime();
+            events.add(event);
+            queued.increment();
+            schedule();
+        }
+
+        private void schedule() {
+            if (!stopping && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (final RejectedExecutionException e) {
+                    // shutting down
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!stopping && deliverNext()) {
+                    // deliver until the queue is empty
+                }
+            } finally {
+                scheduled.set(false);
+            }
+
+            // events may have been queued after the last poll
+            if (!events.isEmpty()) {
+                schedule();
+            }
+        }
+
+        /**
+         * Delivers the next batch of events from a worker.
+         *
+         * @return false if there were no events, or no broker could be obtained
+         */
+        private boolean deliverNext() {
+            final Event first = events.peek();
+            if (first == null) {
+                return false;
+            }
+            try (final DBBroker broker = brokerPool.get(Optional.of(first.subject))) {
+                drainLock.lock();
+                try {
+                    // the event may have been delivered by the stopping thread in the meantime
+                    final List<Event> batch = nextBatch(first.subject.getId());
+                    if (!batch.isEmpty()) {
+                        deliver(broker, batch);
+                    }
+                } finally {
+                    drainLock.unlock();
+                }
+                return true;
+            } catch (final EXistException e) {
+                LOG.error("Unable to deliver the events of trigger {}: {}", id, e.getMessage(), e);
+                return false;
+            }
+        }
+
+        /**
+         * Delivers all queued events from the thread which stops the dispatcher.
+         */
+        private void drainOnStop() {
+            drainLock.lock();
+            try {
+                if (!events.isEmpty()) {
+                    LOG.info("Delivering {} remaining events of trigger {}", events.size(), id);
+                }
+                Event first;
+                while ((first = events.peek()) != null) {
+                    try (final DBBroker broker = brokerPool.get(Optional.of(first.subject))) {
+                        deliver(broker, nextBatch(first.subject.getId()));
+                    } catch (final EXistException e) {
+                        LOG.error("Unable to deliver the events of trigger {}: {}", id, e.getMessage(), e);
+                        return;
+                    }
+                }
+            } finally {
+                drainLock.unlock();
+            }
+        }
+
+        /**
+         * Takes the next events which were caused by the given user.
+         * Only ever called whilst holding the drain lock.
+         */
+        private List<Event> nextBatch(final int userId) {
+            final List<Event> batch = new ArrayList<>();
+            Event event;
+            while (batch.size() < batchSize && (event = events.peek()) != null && event.subject.getId() == userId) {
+                batch.add(events.poll());
+            }
+            return batch;
+        }
+
+        private void deliver(final DBBroker broker, final List<Event> batch) {
+            try (final Txn transaction = brokerPool.getTransactionManager().beginTransaction()) {
+                DELIVERING.set(id);
+                handler.deliver(broker, transaction, batch);
+                transaction.commit();
+                delivered.add(batch.size());
+            } catch (final TriggerException | TransactionException | RuntimeException e) {
+                failed.add(batch.size());
+                LOG.error("Failed to deliver {} events to trigger {}: {}", batch.size(), id, e.getMessage(), e);
+            } finally {
+                DELIVERING.remove();
+                batches.increment();
+                final long now = System.nanoTime();
+                for (final Event event : batch) {
+                    final long latency = now - event.queuedAt;
+                    totalLatency.add(latency);
+                    maxLatency.accumulateAndGet(latency, Math::max);
+                }
+                permits.release(batch.size());
+            }
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public int getQueueDepth() {
+            return events.size();
+        }
+
+        public long getQueued() {
+            return queued.sum();
+        }
+
+        public long getDelivered() {
+            return delivered.sum();
+        }
+
+        public long getFailed() {
+            return failed.sum();
+        }
+
+        public long getBatches() {
+            return batches.sum();
+        }
+
+        /**
+         * @return the number of events which were rejected as the queue was full
+         */
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        /**
+         * @return the average time between commit and delivery of an event in milliseconds
+         */
+        public long getAverageLatency() {
+            final long count = delivered.sum() + failed.sum();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatency.sum() / count);
+        }
+
+        /**
+         * @return the longest time between commit and delivery of an event in milliseconds
+         */
+        public long getMaxLatency() {
+            return TimeUnit.NANOSECONDS.toMillis(maxLatency.get());
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.exist.collections.triggers;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -42,11 +43,15 @@ import org.exist.source.StringSource;
 import org.exist.storage.DBBroker;
 import org.exist.storage.ProcessMonitor;
 import org.exist.storage.txn.Txn;
+import org.exist.storage.txn.TxnListener;
 import org.exist.xmldb.XmldbURI;
 import org.exist.xquery.*;
 import org.exist.xquery.value.AnyURIValue;
+import org.exist.xquery.value.FunctionReference;
 import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.SequenceType;
 import org.exist.xquery.value.StringValue;
+import org.exist.xquery.value.ValueSequence;
 
 /**
  * A trigger that executes a user XQuery statement when invoked.
@@ -64,6 +69,18 @@ import org.exist.xquery.value.StringValue;
  * <code>xxx:event</code> : the kind of triggered event
  * xxx is the namespace prefix within the XQuery, can be set by the variable "bindingPrefix"
  * 
+ * If the parameter "async" is "true", the after-* functions of the trigger module are not
+ * called by the storing thread, but are queued when the transaction commits and are called
+ * later by a worker of the {@link AsyncTriggerDispatcher}, in batches of up to "async-batch-size"
+ * events (default 100) from a queue which holds up to "async-queue-size" events (default 10000).
+ * Each batch is delivered within one transaction. If all parameters of a function are declared
+ * to accept more than one item, e.g. <code>$uri as xs:anyURI*</code>, it is called once with the
+ * URIs of all events of a batch, otherwise once per event. The before-* functions are always
+ * called synchronously; they reserve room in the queue, and reject the operation when it is full.
+ * As queued events are only kept in memory and are lost if the database is killed or crashes,
+ * the parameter "async-accept-loss" must be set to "true" as well, otherwise the trigger
+ * can not be configured.
+ * 
  * @author <a href="mailto:pierrick.brihaye@free.fr">Pierrick Brihaye</a>
  * @author <a href="mailto:adam.retter@devon.gov.uk">Adam Retter</a>
  * @author <a href="mailto:gazdovsky@gmail.com">Evgeny Gazdovsky</a>
@@ -78,6 +95,13 @@ public class XQueryTrigger extends SAXTrigger implements DocumentTrigger, Collec
 	private final static String EVENT_TYPE_FINISH = "finish";
 	
 	private final static String DEFAULT_BINDING_PREFIX = "local:";
+
+	private final static String ASYNC_PARAM = "async";
+	private final static String ASYNC_BATCH_SIZE_PARAM = "async-batch-size";
+	private final static String ASYNC_QUEUE_SIZE_PARAM = "async-queue-size";
+	private final static String ASYNC_ACCEPT_LOSS_PARAM = "async-accept-loss";
+	private final static int DEFAULT_ASYNC_BATCH_SIZE = 100;
+	private final static int DEFAULT_ASYNC_QUEUE_SIZE = 10000;
 	
 	public final static String [] EVENTS = {
 		"CREATE-DOCUMENT", //0
@@ -132,6 +156,14 @@ public class XQueryTrigger extends SAXTrigger implements DocumentTrigger, Collec
 	private String bindingPrefix = null;
 	private XQuery service;
 
+	private boolean async = false;
+	private int asyncBatchSize = DEFAULT_ASYNC_BATCH_SIZE;
+	private int asyncQueueSize = DEFAULT_ASYNC_QUEUE_SIZE;
+	private boolean asyncAcceptLoss = false;
+
+	/** Room reserved in the queue by the before-* functions, for the events of the after-* functions */
+	private int reservedEvents = 0;
+
     public final static String PREPARE_EXCEPTION_MESSAGE = "Error during trigger prepare";
 	
 	/**
@@ -182,6 +214,20 @@ public class XQueryTrigger extends SAXTrigger implements DocumentTrigger, Collec
 					strQuery = (String) paramValue;
  				}
 
+ 				//asynchronous delivery of the after-* events
+ 				else if(ASYNC_PARAM.equals(paramName)) {
+ 					async = "true".equals(paramValue) || "yes".equals(paramValue);
+ 				}
+ 				else if(ASYNC_BATCH_SIZE_PARAM.equals(paramName)) {
+ 					asyncBatchSize = parsePositiveInt(paramName, (String) paramValue, DEFAULT_ASYNC_BATCH_SIZE);
+ 				}
+ 				else if(ASYNC_QUEUE_SIZE_PARAM.equals(paramName)) {
+ 					asyncQueueSize = parsePositiveInt(paramName, (String) paramValue, DEFAULT_ASYNC_QUEUE_SIZE);
+ 				}
+ 				else if(ASYNC_ACCEPT_LOSS_PARAM.equals(paramName)) {
+ 					asyncAcceptLoss = "true".equals(paramValue) || "yes".equals(paramValue);
+ 				}
+
  				//make any other parameters available as external variables for the query
  				else {
                     //TODO could be enhanced to setup a sequence etc
@@ -189,6 +235,11 @@ public class XQueryTrigger extends SAXTrigger implements DocumentTrigger, Collec
  				}
  			}
  			
+ 			if(async && !asyncAcceptLoss) {
+ 				throw new TriggerException("The events of an asynchronous trigger are lost if the database is killed or crashes, " +
+ 						"set the parameter '" + ASYNC_ACCEPT_LOSS_PARAM + "' to 'true' to accept this");
+ 			}
+
  			//set a default binding prefix if none was specified
  			if(this.bindingPrefix == null)
  			{
@@ -208,6 +259,19 @@ public class XQueryTrigger extends SAXTrigger implements DocumentTrigger, Collec
  		LOG.error("XQuery Trigger for: '" + parent.getURI() + "' is missing its XQuery parameter");
 	}
 	
+	private int parsePositiveInt(final String paramName, final String paramValue, final int defaultValue) {
+		try {
+			final int value = Integer.parseInt(paramValue.trim());
+			if (value > 0) {
+				return value;
+			}
+		} catch (final NumberFormatException e) {
+			// reported below
+		}
+		LOG.warn("Invalid value '" + paramValue + "' for parameter " + paramName + " of XQuery Trigger for: '" + collection.getURI() + "', using " + defaultValue);
+		return defaultValue;
+	}
+
 	/**
 	 * Get's a Source for the Trigger's XQuery
 	 * 
@@ -435,6 +499,19 @@ public class XQueryTrigger extends SAXTrigger implements DocumentTrigger, Collec
     }
 	
 	private void execute(boolean isBefore, DBBroker broker, Txn transaction, QName functionName, XmldbURI src, XmldbURI dst) throws TriggerException {
+		if (async) {
+			if (AsyncTriggerDispatcher.isDelivering(getQueueId())) {
+				// the event was caused by the trigger itself
+				return;
+			}
+			if (isBefore) {
+				reserve(broker, transaction);
+			} else {
+				enqueue(broker, transaction, functionName, src, dst);
+				return;
+			}
+		}
+
 		final CompiledXQuery compiledQuery = getScript(isBefore, broker, transaction, src);
 		
 		if (compiledQuery == null) {return;}
@@ -500,6 +577,186 @@ public class XQueryTrigger extends SAXTrigger implements DocumentTrigger, Collec
         	{LOG.debug("Trigger fired 'before'");}
 	}
 
+	/**
+	 * Identifies the queue of the trigger, which is shared by all
+	 * instances with the same collection and query.
+	 */
+	private String getQueueId() {
+		return collection.getURI() + " " + (urlQuery != null ? urlQuery : "query#" + Integer.toHexString(strQuery.hashCode()));
+	}
+
+	private AsyncTriggerDispatcher.TriggerQueue getQueue(final DBBroker broker) {
+		return broker.getBrokerPool().getAsyncTriggerDispatcher()
+				.getQueue(getQueueId(), asyncQueueSize, asyncBatchSize, this::deliver);
+	}
+
+	/**
+	 * Reserves room in the queue for the event of the after-* function, before the
+	 * operation is performed, so that a full queue rejects the operation rather than
+	 * blocking the commit.
+	 */
+	private void reserve(final DBBroker broker, final Txn transaction) throws TriggerException {
+		final AsyncTriggerDispatcher.TriggerQueue queue = getQueue(broker);
+		if (!queue.tryReserve()) {
+			throw new TriggerException("The queue of the asynchronous trigger " + getQueueId() + " is full, " +
+					queue.getCapacity() + " events are waiting to be delivered");
+		}
+		reservedEvents++;
+		if (transaction != null) {
+			// the operation may fail without calling the after-* function
+			transaction.registerListener(new TxnListener() {
+				@Override
+				public void commit() {
+					releaseReserved(queue);
+				}
+
+				@Override
+				public void abort() {
+					releaseReserved(queue);
+				}
+			});
+		}
+	}
+
+	private void releaseReserved(final AsyncTriggerDispatcher.TriggerQueue queue) {
+		for (; reservedEvents > 0; reservedEvents--) {
+			queue.release();
+		}
+	}
+
+	/**
+	 * Queues the event for asynchronous delivery, once the transaction has been committed.
+	 */
+	private void enqueue(final DBBroker broker, final Txn transaction, final QName functionName, final XmldbURI src, final XmldbURI dst) throws TriggerException {
+		final AsyncTriggerDispatcher.TriggerQueue queue = getQueue(broker);
+		if (reservedEvents > 0) {
+			reservedEvents--;
+		} else if (!queue.tryReserve()) {
+			throw new TriggerException("The queue of the asynchronous trigger " + getQueueId() + " is full, " +
+					"the " + functionName + " event for " + src + " has been dropped");
+		}
+
+		final AsyncTriggerDispatcher.Event event = new AsyncTriggerDispatcher.Event(functionName, src, dst, broker.getCurrentSubject());
+		if (transaction == null) {
+			queue.offer(event);
+			return;
+		}
+		transaction.registerListener(new TxnListener() {
+			@Override
+			public void commit() {
+				queue.offer(event);
+			}
+
+			@Override
+			public void abort() {
+				// the event never happened
+				queue.release();
+			}
+		});
+	}
+
+	/**
+	 * Calls the after-* functions of the trigger for a batch of queued events.
+	 */
+	private void deliver(final DBBroker broker, final Txn transaction, final List<AsyncTriggerDispatcher.Event> events) throws TriggerException {
+		final Source query = getQuerySource(broker);
+		if (query == null) {
+			return;
+		}
+
+		final XQueryContext context = new XQueryContext(broker.getBrokerPool());
+		if (query instanceof DBSource) {
+			context.setModuleLoadPath(XmldbURI.EMBEDDED_SERVER_URI_PREFIX + ((DBSource)query).getDocumentPath().removeLastSegment().toString());
+		}
+
+		final CompiledXQuery compiledQuery;
+		try {
+			compiledQuery = service.compile(broker, context, query);
+			for (Object o : userDefinedVariables.keySet()) {
+				final String varName = (String) o;
+				context.declareVariable(bindingPrefix + varName, new StringValue(userDefinedVariables.getProperty(varName)));
+			}
+			compiledQuery.reset();
+			context.getWatchDog().reset();
+			context.prepareForExecution();
+		} catch(final XPathException | IOException | PermissionDeniedException e) {
+			throw new TriggerException(PREPARE_EXCEPTION_MESSAGE, e);
+		}
+
+		final ProcessMonitor pm = broker.getBrokerPool().getProcessMonitor();
+		context.getProfiler().traceQueryStart();
+		pm.queryStarted(context.getWatchDog());
+		try {
+			final Sequence contextSequence;
+			final ContextItemDeclaration cid = context.getContextItemDeclartion();
+			if (cid != null) {
+				contextSequence = cid.eval(null);
+			} else {
+				contextSequence = NodeSet.EMPTY_SET;
+			}
+
+			// consecutive events for the same function are passed on together
+			int from = 0;
+			while (from < events.size()) {
+				final AsyncTriggerDispatcher.Event first = events.get(from);
+				final boolean hasDst = first.getDst() != null;
+				int to = from + 1;
+				while (to < events.size() && events.get(to).getFunction().equals(first.getFunction())
+						&& (events.get(to).getDst() != null) == hasDst) {
+					to++;
+				}
+
+				final UserDefinedFunction function = context.resolveFunction(first.getFunction(), hasDst ? 2 : 1);
+				if (function != null) {
+					final FunctionReference ref = new FunctionReference(new FunctionCall(context, function));
+					ref.analyze(new AnalyzeContextInfo());
+					final List<AsyncTriggerDispatcher.Event> group = events.subList(from, to);
+					if (acceptsSequences(function)) {
+						ref.evalFunction(contextSequence, null, getArguments(group));
+					} else {
+						for (final AsyncTriggerDispatcher.Event event : group) {
+							ref.evalFunction(contextSequence, null, getArguments(Collections.singletonList(event)));
+						}
+					}
+				}
+				from = to;
+			}
+		} catch(final XPathException e) {
+			throw new TriggerException(e.getMessage(), e);
+		} finally {
+			context.getProfiler().traceQueryEnd(context);
+			pm.queryCompleted(context.getWatchDog());
+			compiledQuery.reset();
+			context.reset();
+		}
+		LOG.debug("Trigger fired 'after' for {} events", events.size());
+	}
+
+	private static boolean acceptsSequences(final UserDefinedFunction function) {
+		for (final SequenceType argumentType : function.getSignature().getArgumentTypes()) {
+			if (argumentType.getCardinality().atMostOne()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Arguments in the same order as for the synchronous after-* calls, i.e. (new-uri, uri) or (uri).
+	 */
+	private static Sequence[] getArguments(final List<AsyncTriggerDispatcher.Event> events) {
+		final boolean hasDst = events.get(0).getDst() != null;
+		final ValueSequence src = new ValueSequence(events.size());
+		final ValueSequence dst = hasDst ? new ValueSequence(events.size()) : null;
+		for (final AsyncTriggerDispatcher.Event event : events) {
+			src.add(new AnyURIValue(event.getSrc()));
+			if (hasDst) {
+				dst.add(new AnyURIValue(event.getDst()));
+			}
+		}
+		return hasDst ? new Sequence[] { dst, src } : new Sequence[] { src };
+	}
+
 //	public void startDocument() throws SAXException
 //	{
 //		originalOutputHandler = getOutputHandler();
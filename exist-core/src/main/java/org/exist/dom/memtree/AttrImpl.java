@@ -47,7 +47,7 @@ public class AttrImpl extends NodeImpl implements Attr {
 
     @Override
     public NodeId getNodeId() {
-        return document.attrNodeId[nodeNumber];
+        return document.getAttributeNodeId(nodeNumber);
     }
 
     @Override
@@ -91,12 +91,12 @@ public class AttrImpl extends NodeImpl implements Attr {
 
     @Override
     public String getValue() {
-        return document.attrValue[nodeNumber];
+        return document.getAttributeValue(nodeNumber);
     }
 
     @Override
     public void setValue(final String value) throws DOMException {
-        document.attrValue[nodeNumber] = value;
+        document.setAttributeValue(nodeNumber, value);
     }
 
     @Override
@@ -113,7 +113,7 @@ public class AttrImpl extends NodeImpl implements Attr {
 
     @Override
     public String getStringValue() throws DOMException {
-        return document.attrValue[nodeNumber];
+        return document.getAttributeValue(nodeNumber);
     }
 
     @Override
@@ -197,7 +197,7 @@ public class AttrImpl extends NodeImpl implements Attr {
         if(obj instanceof AttrImpl) {
             final AttrImpl other = ((AttrImpl)obj);
             return other.getQName().equals(getQName())
-                    && other.document.attrValue[nodeNumber].equals(document.attrValue[nodeNumber]);
+                    && other.document.getAttributeValue(nodeNumber).equals(document.getAttributeValue(nodeNumber));
         }
 
         return false;
@@ -309,7 +309,7 @@ public class DOMIndexer {
                 final QName qn = doc.attrName[attr];
                 final AttrImpl attrib = (AttrImpl) NodePool.getInstance().borrowNode(Node.ATTRIBUTE_NODE);
                 attrib.setNodeName(qn, broker.getBrokerPool().getSymbols());
-                attrib.setValue(doc.attrValue[attr]);
+                attrib.setValue(doc.getAttributeValue(attr));
                 attrib.setOwnerDocument(targetDoc);
                 elem.appendChildInternal(prevNode, attrib);
                 setPrevious(attrib);
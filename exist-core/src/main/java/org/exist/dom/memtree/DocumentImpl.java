@@ -61,7 +61,9 @@ import org.w3c.dom.Text;
 import org.xml.sax.SAXException;
 
 import javax.xml.XMLConstants;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.exist.dom.QName.Validity.ILLEGAL_FORMAT;
@@ -97,7 +99,12 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
     // pointer into the namePool
     protected QName[] nodeName;
 
-    protected NodeId[] nodeId;
+    // position of a node among the attributes and children of its parent, and the
+    // parent's node number. Computed on demand, node ids are derived from them.
+    protected int[] nodeIdOrdinal = null;
+    protected int[] nodeIdParent = null;
+    // node ids which have been asked for, and those of their ancestors
+    protected NodeId[] nodeIds = null;
 
     //alphanumeric content
     protected int[] alpha;
@@ -108,9 +115,12 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
     // attributes
     protected QName[] attrName;
     protected int[] attrType;
-    protected NodeId[] attrNodeId;
     protected int[] attrParent;
-    protected String[] attrValue;
+    // attribute values are packed into attrChars
+    protected int[] attrValueStart;
+    protected int[] attrValueLen;
+    protected char[] attrChars = null;
+    protected int nextAttrChar = 0;
     protected int nextAttr = 0;
 
     // namespaces
@@ -174,15 +184,14 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         next = new int[NODE_SIZE];
         Arrays.fill(next, -1);
         nodeName = new QName[NODE_SIZE];
-        nodeId = new NodeId[NODE_SIZE];
         alpha = new int[NODE_SIZE];
         alphaLen = new int[NODE_SIZE];
         Arrays.fill(alphaLen, -1);
         attrName = new QName[ATTR_SIZE];
         attrParent = new int[ATTR_SIZE];
-        attrValue = new String[ATTR_SIZE];
+        attrValueStart = new int[ATTR_SIZE];
+        attrValueLen = new int[ATTR_SIZE];
         attrType = new int[ATTR_SIZE];
-        attrNodeId = new NodeId[NODE_SIZE];
         treeLevel[0] = 0;
         nodeKind[0] = Node.DOCUMENT_NODE;
         document = this;
@@ -192,6 +201,10 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         size = 0;
         nextChar = 0;
         nextAttr = 0;
+        nextAttrChar = 0;
+        nodeIdOrdinal = null;
+        nodeIdParent = null;
+        nodeIds = null;
         nextReferenceIdx = 0;
         references = null;
     }
@@ -332,7 +345,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
             final QName prevQn = attrName[attrN];
             if(prevQn.equals(qname)) {
                 if(replaceAttribute) {
-                    attrValue[attrN] = value;
+                    setAttributeValue(attrN, value);
                     attrType[attrN] = type;
                     return attrN;
                 } else {
@@ -347,7 +360,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         final QName attrQname = new QName(qname.getLocalPart(), qname.getNamespaceURI(), qname.getPrefix(), ElementValue.ATTRIBUTE);
         attrParent[nextAttr] = nodeNum;
         attrName[nextAttr] = namePool.getSharedName(attrQname);
-        attrValue[nextAttr] = value;
+        setAttributeValue(nextAttr, value);
         attrType[nextAttr] = type;
         if(alpha[nodeNum] < 0) {
             alpha[nodeNum] = nextAttr;
@@ -355,6 +368,47 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         return (nextAttr++);
     }
 
+    /**
+     * Returns the value of an attribute.
+     *
+     * @param attrNum the attribute number
+     * @return the value of the attribute, or null if it has none
+     */
+    public String getAttributeValue(final int attrNum) {
+        final int len = attrValueLen[attrNum];
+        return len < 0 ? null : new String(attrChars, attrValueStart[attrNum], len);
+    }
+
+    /**
+     * Sets the value of an attribute. The value is appended to the
+     * attribute character buffer, any previous value is left unused.
+     *
+     * @param attrNum the attribute number
+     * @param value the new value of the attribute
+     */
+    public void setAttributeValue(final int attrNum, final String value) {
+        if(value == null) {
+            attrValueLen[attrNum] = -1;
+            return;
+        }
+        final int len = value.length();
+        if(attrChars == null) {
+            attrChars = new char[len > CHAR_BUF_SIZE ? len : CHAR_BUF_SIZE];
+        } else if((nextAttrChar + len) >= attrChars.length) {
+            int newLen = (attrChars.length * 3) / 2;
+            if(newLen < (nextAttrChar + len)) {
+                newLen = nextAttrChar + len;
+            }
+            final char[] nc = new char[newLen];
+            System.arraycopy(attrChars, 0, nc, 0, nextAttrChar);
+            attrChars = nc;
+        }
+        value.getChars(0, len, attrChars, nextAttrChar);
+        attrValueStart[attrNum] = nextAttrChar;
+        attrValueLen[attrNum] = len;
+        nextAttrChar += len;
+    }
+
     public int addNamespace(final int nodeNum, final QName qname) {
         if(nodeKind == null) {
             init();
@@ -413,10 +467,6 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         System.arraycopy(nodeName, 0, newNodeName, 0, size);
         nodeName = newNodeName;
 
-        final NodeId[] newNodeId = new NodeId[newSize];
-        System.arraycopy(nodeId, 0, newNodeId, 0, size);
-        nodeId = newNodeId;
-
         final int[] newAlpha = new int[newSize];
         System.arraycopy(alpha, 0, newAlpha, 0, size);
         alpha = newAlpha;
@@ -439,17 +489,17 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         System.arraycopy(attrParent, 0, newAttrParent, 0, size);
         attrParent = newAttrParent;
 
-        final String[] newAttrValue = new String[newSize];
-        System.arraycopy(attrValue, 0, newAttrValue, 0, size);
-        attrValue = newAttrValue;
+        final int[] newAttrValueStart = new int[newSize];
+        System.arraycopy(attrValueStart, 0, newAttrValueStart, 0, size);
+        attrValueStart = newAttrValueStart;
+
+        final int[] newAttrValueLen = new int[newSize];
+        System.arraycopy(attrValueLen, 0, newAttrValueLen, 0, size);
+        attrValueLen = newAttrValueLen;
 
         final int[] newAttrType = new int[newSize];
         System.arraycopy(attrType, 0, newAttrType, 0, size);
         attrType = newAttrType;
-
-        final NodeId[] newNodeId = new NodeId[newSize];
-        System.arraycopy(attrNodeId, 0, newNodeId, 0, size);
-        attrNodeId = newNodeId;
     }
 
     private void growReferences() {
@@ -724,7 +774,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         if(-1 < attr) {
             while((attr < document.nextAttr) && (document.attrParent[attr] == nodeNumber)) {
                 if((document.attrType[attr] == AttrImpl.ATTR_ID_TYPE) &&
-                    id.equals(document.attrValue[attr])) {
+                    id.equals(document.getAttributeValue(attr))) {
                     return true;
                 }
                 ++attr;
@@ -738,7 +788,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         if(-1 < attr) {
             while((attr < document.nextAttr) && (document.attrParent[attr] == nodeNumber)) {
                 if((document.attrType[attr] == AttrImpl.ATTR_IDREF_TYPE) &&
-                    id.equals(document.attrValue[attr])) {
+                    id.equals(document.getAttributeValue(attr))) {
                     return new AttrImpl(this, attr);
                 }
                 ++attr;
@@ -1065,7 +1115,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
                 if(-1 < attr) {
                     while((attr < document.nextAttr) && (document.attrParent[attr] == nr)) {
                         final QName attrQName = document.attrName[attr];
-                        receiver.attribute(attrQName, attrValue[attr]);
+                        receiver.attribute(attrQName, getAttributeValue(attr));
                         ++attr;
                     }
                 }
@@ -1087,7 +1137,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
                 break;
             case Node.ATTRIBUTE_NODE:
                 final QName attrQName = document.attrName[nr];
-                receiver.attribute(attrQName, attrValue[nr]);
+                receiver.attribute(attrQName, getAttributeValue(nr));
                 break;
             case Node.COMMENT_NODE:
                 receiver.comment(document.characters, document.alpha[nr], document.alphaLen[nr]);
@@ -1143,81 +1193,129 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
     }
 
     public DocumentImpl expandRefs(final NodeImpl rootNode) throws DOMException {
+        if(nextReferenceIdx == 0) {
+            return this;
+        }
+        final MemTreeBuilder builder = new MemTreeBuilder(context);
+        final DocumentBuilderReceiver receiver = new DocumentBuilderReceiver(builder);
         try {
-            if(nextReferenceIdx == 0) {
-                computeNodeIds();
-                return this;
-            }
-            final MemTreeBuilder builder = new MemTreeBuilder(context);
-            final DocumentBuilderReceiver receiver = new DocumentBuilderReceiver(builder);
-            try {
-                builder.startDocument();
-                NodeImpl node = (rootNode == null) ? (NodeImpl) getFirstChild() : rootNode;
-                while(node != null) {
-                    copyTo(node, receiver, true);
-                    node = (NodeImpl) node.getNextSibling();
-                }
-                receiver.endDocument();
-            } catch(final SAXException e) {
-                throw new DOMException(DOMException.INVALID_STATE_ERR, e.getMessage());
+            builder.startDocument();
+            NodeImpl node = (rootNode == null) ? (NodeImpl) getFirstChild() : rootNode;
+            while(node != null) {
+                copyTo(node, receiver, true);
+                node = (NodeImpl) node.getNextSibling();
             }
-            final DocumentImpl newDoc = builder.getDocument();
-            newDoc.computeNodeIds();
-            return newDoc;
-        } catch(final EXistException e) {
+            receiver.endDocument();
+        } catch(final SAXException e) {
             throw new DOMException(DOMException.INVALID_STATE_ERR, e.getMessage());
         }
+        return builder.getDocument();
     }
 
     public NodeImpl getNodeById(final NodeId id) {
         expand();
-        for(int i = 0; i < size; i++) {
-            if(id.equals(nodeId[i])) {
-                return getNode(i);
+        final NodeId documentNodeId = getDatabase().getNodeFactory().documentNodeId();
+        final Deque<NodeId> path = new ArrayDeque<>();
+        for(NodeId ancestor = id; ancestor != null && !ancestor.equals(documentNodeId); ancestor = ancestor.getParentId()) {
+            path.push(ancestor);
+        }
+        // descend from the document node, only comparing the ids of the children on the path
+        int nodeNum = 0;
+        for(final NodeId step : path) {
+            int child = getFirstChildFor(nodeNum);
+            while(child > 0 && !step.equals(getNodeId(child))) {
+                child = getNextSiblingFor(child);
+            }
+            if(child <= 0) {
+                return null;
             }
+            nodeNum = child;
         }
-        return null;
+        return getNode(nodeNum);
     }
 
-    private void computeNodeIds() throws EXistException {
-        if(nodeId[0] != null) {
-            return;
-        }
+    /**
+     * Returns the node id of a node. Node ids are derived from the position
+     * of the node and its ancestors when they are first asked for, and are
+     * kept for the node and its ancestors afterwards.
+     *
+     * @param nodeNum the node number
+     * @return the node id, or null if the node is not part of the tree
+     */
+    public NodeId getNodeId(final int nodeNum) {
         final NodeIdFactory nodeFactory = getDatabase().getNodeFactory();
-        nodeId[0] = nodeFactory.documentNodeId();
-        if(size == 1) {
-            return;
+        if(nodeNum == 0) {
+            return nodeFactory.documentNodeId();
         }
-        NodeId nextId = nodeFactory.createInstance();
-        NodeImpl next = (NodeImpl) getFirstChild();
-        while(next != null) {
-            computeNodeIds(nextId, next.nodeNumber);
-            next = (NodeImpl) next.getNextSibling();
-            nextId = nextId.nextSibling();
+        computeNodeIds();
+        if(nodeIds[nodeNum] != null) {
+            return nodeIds[nodeNum];
+        }
+        // walk up to the closest ancestor whose id is known
+        int depth = 0;
+        for(int n = nodeNum; n > 0 && nodeIds[n] == null; n = nodeIdParent[n]) {
+            if(nodeIdOrdinal[n] == 0) {
+                return null;
+            }
+            ++depth;
+        }
+        final int[] path = new int[depth];
+        for(int n = nodeNum; depth > 0; n = nodeIdParent[n]) {
+            path[--depth] = n;
+        }
+        for(final int n : path) {
+            final int parent = nodeIdParent[n];
+            nodeIds[n] = parent == 0 ? nodeFactory.createInstance(nodeIdOrdinal[n]) : nodeIds[parent].getChild(nodeIdOrdinal[n]);
         }
+        return nodeIds[nodeNum];
     }
 
-    private void computeNodeIds(final NodeId id, final int nodeNum) {
-        nodeId[nodeNum] = id;
-        if(nodeKind[nodeNum] == Node.ELEMENT_NODE) {
-            NodeId nextId = id.newChild();
-            int attr = document.alpha[nodeNum];
-            if(-1 < attr) {
-                while((attr < document.nextAttr) && (document.attrParent[attr] == nodeNum)) {
-                    attrNodeId[attr] = nextId;
-                    nextId = nextId.nextSibling();
-                    ++attr;
-                }
+    /**
+     * Returns the node id of an attribute.
+     *
+     * @param attrNum the attribute number
+     * @return the node id, or null if the attribute has no parent element
+     */
+    public NodeId getAttributeNodeId(final int attrNum) {
+        final int parent = attrParent[attrNum];
+        if(parent == 0 || nodeKind[parent] != Node.ELEMENT_NODE) {
+            return null;
+        }
+        final NodeId parentId = getNodeId(parent);
+        return parentId == null ? null : parentId.getChild(attrNum - alpha[parent] + 1);
+    }
+
+    /**
+     * Computes the position of every node among the attributes and children
+     * of its parent in a single pass over the nodes in document order.
+     */
+    private void computeNodeIds() {
+        if(nodeIdOrdinal != null && nodeIdOrdinal.length == size) {
+            return;
+        }
+        final int[] ordinal = new int[size];
+        final int[] parent = new int[size];
+        // last node seen and its position, per tree level
+        int[] lastAtLevel = new int[16];
+        int[] countAtLevel = new int[16];
+        for(int i = 1; i < size; i++) {
+            final int level = treeLevel[i];
+            if(level + 1 >= lastAtLevel.length) {
+                lastAtLevel = Arrays.copyOf(lastAtLevel, level * 2);
+                countAtLevel = Arrays.copyOf(countAtLevel, level * 2);
             }
-            int nextNode = getFirstChildFor(nodeNum);
-            while(nextNode > nodeNum) {
-                computeNodeIds(nextId, nextNode);
-                nextNode = document.next[nextNode];
-                if(nextNode > nodeNum) {
-                    nextId = nextId.nextSibling();
-                }
+            final int p = lastAtLevel[level - 1];
+            if(p == 0 || nodeKind[p] == Node.ELEMENT_NODE) {
+                parent[i] = p;
+                ordinal[i] = ++countAtLevel[level];
             }
+            lastAtLevel[level] = i;
+            // children are numbered after the attributes of the element
+            countAtLevel[level + 1] = nodeKind[i] == Node.ELEMENT_NODE ? getAttributesCountFor(i) : 0;
         }
+        nodeIdOrdinal = ordinal;
+        nodeIdParent = parent;
+        nodeIds = new NodeId[size];
     }
 
     /**
@@ -1231,15 +1329,19 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
         treeLevel = newDoc.treeLevel;
         next = newDoc.next;
         nodeName = newDoc.nodeName;
-        nodeId = newDoc.nodeId;
+        nodeIdOrdinal = newDoc.nodeIdOrdinal;
+        nodeIdParent = newDoc.nodeIdParent;
+        nodeIds = newDoc.nodeIds;
         alpha = newDoc.alpha;
         alphaLen = newDoc.alphaLen;
         characters = newDoc.characters;
         nextChar = newDoc.nextChar;
         attrName = newDoc.attrName;
-        attrNodeId = newDoc.attrNodeId;
         attrParent = newDoc.attrParent;
-        attrValue = newDoc.attrValue;
+        attrValueStart = newDoc.attrValueStart;
+        attrValueLen = newDoc.attrValueLen;
+        attrChars = newDoc.attrChars;
+        nextAttrChar = newDoc.nextAttrChar;
         attrType = newDoc.attrType;
         nextAttr = newDoc.nextAttr;
         namespaceParent = newDoc.namespaceParent;
@@ -1316,7 +1418,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
                     attribs = new AttrList();
                     while((attr < document.nextAttr) && (document.attrParent[attr] == nr)) {
                         final QName attrQName = document.attrName[attr];
-                        attribs.addAttribute(attrQName, attrValue[attr]);
+                        attribs.addAttribute(attrQName, getAttributeValue(attr));
                         ++attr;
                     }
                 }
@@ -1328,7 +1430,7 @@ public class DocumentImpl extends NodeImpl<DocumentImpl> implements Document {
                 break;
             case Node.ATTRIBUTE_NODE:
                 final QName attrQName = document.attrName[nr];
-                receiver.attribute(attrQName, attrValue[nr]);
+                receiver.attribute(attrQName, getAttributeValue(nr));
                 break;
             case Node.COMMENT_NODE:
                 receiver.comment(document.characters, document.alpha[nr], document.alphaLen[nr]);
@@ -76,13 +76,35 @@ public class InMemoryNodeSet extends ValueSequence {
         final InMemoryNodeSet nodes = new InMemoryNodeSet();
         for(int i = 0; i <= size; i++) {
             final NodeImpl node = (NodeImpl) values[i];
-            if(node.getNodeId().isChildOf(parent.getNodeId())) {
+            if(isChildOf(node, parent)) {
                 nodes.add(node);
             }
         }
         return nodes;
     }
 
+    /**
+     * Checks the parent of a node in the tree, without computing the node ids of both.
+     */
+    private static boolean isChildOf(final NodeImpl node, final NodeImpl parent) {
+        if(node.document != parent.document) {
+            return false;
+        }
+        final short parentType = parent.getNodeType();
+        if(parentType != Node.ELEMENT_NODE && parentType != Node.DOCUMENT_NODE) {
+            return false;
+        }
+        switch(node.getNodeType()) {
+            case Node.DOCUMENT_NODE:
+                return false;
+            case Node.ATTRIBUTE_NODE:
+                // attribute ids are numbered among the children of their element
+                return node.document.attrParent[node.nodeNumber] == parent.nodeNumber;
+            default:
+                return node.document.getParentNodeFor(node.nodeNumber) == parent.nodeNumber;
+        }
+    }
+
     @Override
     public Sequence getDescendants(final boolean includeSelf, final NodeTest test)
         throws XPathException {
@@ -250,7 +250,7 @@ public abstract class NodeImpl<T extends NodeImpl> implements INode<DocumentImpl
     @Override
     public NodeId getNodeId() {
         expand();
-        return document.nodeId[nodeNumber];
+        return document.getNodeId(nodeNumber);
     }
 
     public void expand() throws DOMException {
@@ -810,12 +810,20 @@ public abstract class NodeImpl<T extends NodeImpl> implements INode<DocumentImpl
 
     public void selectPreceding(final NodeTest test, final Sequence result, final int position)
         throws XPathException {
-        final NodeId myNodeId = getNodeId();
+        expand();
+        // an attribute precedes the same nodes as its element
+        final int self = getNodeType() == Node.ATTRIBUTE_NODE ? document.attrParent[nodeNumber] : nodeNumber;
+        // the ancestors are the only nodes before this one which are not on the preceding axis
+        int ancestor = document.getParentNodeFor(self);
         int count = 0;
 
-        for(int i = nodeNumber - 1; i > 0; i--) {
+        for(int i = self - 1; i > 0; i--) {
+            if(i == ancestor) {
+                ancestor = document.getParentNodeFor(ancestor);
+                continue;
+            }
             final NodeImpl n = document.getNode(i);
-            if(!myNodeId.isDescendantOf(n.getNodeId()) && test.matches(n)) {
+            if(test.matches(n)) {
                 if((position < 0) || (++count == position)) {
                     result.add(n);
                 }
@@ -858,12 +866,17 @@ public abstract class NodeImpl<T extends NodeImpl> implements INode<DocumentImpl
                 next = (NodeImpl) next.getNextSibling();
             }
         } else {
-            final NodeId myNodeId = getNodeId();
-            int count = 0;
+            expand();
+            // skip the descendants, which directly follow this node
+            final short level = document.treeLevel[nodeNumber];
             int nextNode = nodeNumber + 1;
+            while(nextNode < document.size && document.treeLevel[nextNode] > level) {
+                nextNode++;
+            }
+            int count = 0;
             while(nextNode < document.size) {
                 final NodeImpl n = document.getNode(nextNode);
-                if(!n.getNodeId().isDescendantOf(myNodeId) && test.matches(n)) {
+                if(test.matches(n)) {
                     if((position < 0) || (++count == position)) {
                         result.add(n);
                     }
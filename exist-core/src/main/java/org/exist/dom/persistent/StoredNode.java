@@ -29,6 +29,7 @@ import org.exist.stax.IEmbeddedXMLStreamReader;
 import org.exist.storage.DBBroker;
 import org.exist.storage.NodePath;
 import org.exist.storage.NodePath2;
+import org.exist.storage.QueryResourceUsage;
 import org.exist.storage.Signatures;
 import org.exist.storage.dom.INodeIterator;
 import org.exist.util.pool.NodePool;
@@ -148,6 +149,7 @@ public abstract class StoredNode<T extends StoredNode> extends NodeImpl<T> imple
      * @return StoredNode of given byte array
      */
     public static StoredNode deserialize(final byte[] data, final int start, final int len, final DocumentImpl doc, boolean pooled) {
+        QueryResourceUsage.recordNodeMaterialized();
         final short type = Signatures.getType(data[start]);
         switch(type) {
             case Node.TEXT_NODE:
@@ -245,6 +245,10 @@ public class RESTServer {
      * <li>_wrap: if set to "yes", the query results will be wrapped into a
      * exist:result element.</li>
      *
+     * <li>_stream: if set to "yes", the query results are not cached and are
+     * serialized item by item straight to the response as they are pulled from
+     * the result sequence.</li>
+     *
      * <li>_indent: if set to "yes", the returned XML will be pretty-printed.
      * </li>
      *
@@ -305,6 +309,7 @@ public class RESTServer {
         boolean wrap = true;
         boolean source = false;
         boolean cache = false;
+        boolean stream = false;
         final Properties outputProperties = new Properties(defaultOutputKeysProperties);
 
         String query = null;
@@ -356,6 +361,9 @@ public class RESTServer {
         if ((option = getParameter(request, Cache)) != null) {
             cache = "yes".equals(option);
         }
+        if ((option = getParameter(request, Stream)) != null) {
+            stream = "yes".equals(option);
+        }
         if ((option = getParameter(request, Indent)) != null) {
             outputProperties.setProperty(OutputKeys.INDENT, option);
         }
@@ -392,7 +400,7 @@ public class RESTServer {
             // query parameter specified, search method does all the rest of the work
             try {
                 search(broker, transaction, query, path, namespaces, variables, howmany, start, typed, outputProperties,
-                        wrap, cache, request, response);
+                        wrap, cache, stream, request, response);
 
             } catch (final XPathException e) {
                 if (MimeType.XML_TYPE.getName().equals(mimeType)) {
@@ -740,6 +748,7 @@ public class RESTServer {
             ElementImpl variables = null;
             boolean enclose = true;
             boolean cache = false;
+            boolean stream = false;
             String query = null;
 
             try {
@@ -805,6 +814,10 @@ public class RESTServer {
                             cache = "yes".equals(option);
                         }
 
+                        if ((option = root.getAttribute(Stream.xmlKey())) != null) {
+                            stream = "yes".equals(option);
+                        }
+
                         if ((option = root.getAttribute(Session.xmlKey())) != null
                                 && option.length() > 0) {
                             outputProperties.setProperty(
@@ -862,7 +875,7 @@ public class RESTServer {
                         try {
                             search(broker, transaction, query, path, nsExtractor.getNamespaces(), variables,
                                     howmany, start, typed, outputProperties,
-                                    enclose, cache, request, response);
+                                    enclose, cache, stream, request, response);
                         } catch (final XPathException e) {
                             if (MimeType.XML_TYPE.getName().equals(mimeType)) {
                                 writeXPathException(response, HttpServletResponse.SC_BAD_REQUEST,
@@ -1268,6 +1281,7 @@ public class RESTServer {
      * @param outputProperties the serialization properties
      * @param wrap true to wrap the result of the XQuery in an exist:result
      * @param cache whether to cache the results
+     * @param stream whether to stream the results to the response without caching them
      * @param request the request
      * @param response the response
      *
@@ -1279,7 +1293,7 @@ public class RESTServer {
         final String path, final List<Namespace> namespaces,
         final ElementImpl variables, final int howmany, final int start,
         final boolean typed, final Properties outputProperties,
-        final boolean wrap, final boolean cache,
+        final boolean wrap, final boolean cache, final boolean stream,
         final HttpServletRequest request,
         final HttpServletResponse response) throws BadRequestException,
         PermissionDeniedException, XPathException {
@@ -1353,10 +1367,15 @@ public class RESTServer {
                 final Sequence resultSequence = xquery.execute(broker, compiled, null, outputProperties);
                 final long executionTime = System.currentTimeMillis() - executeStart;
 
-                if (LOG.isDebugEnabled()) {
+                if (LOG.isDebugEnabled() && !stream) {
                     LOG.debug("Found " + resultSequence.getItemCount() + " in " + executionTime + "ms.");
                 }
 
+                if (stream) {
+                    writeResultsStreaming(response, broker, transaction, resultSequence, howmany, start, typed, outputProperties, wrap, compilationTime, executionTime);
+                    return;
+                }
+
                 if (cache) {
                     final int sessionId = sessionManager.add(query, resultSequence);
                     outputProperties.setProperty(Serializer.PROPERTY_SESSION_ID, Integer.toString(sessionId));
@@ -2105,6 +2124,76 @@ public class RESTServer {
 
     }
 
+    /**
+     * Writes the results of a query without caching, counting or slicing them up front.
+     * Items are pulled from the result sequence and serialized directly to the response
+     * output stream, which is flushed after the headers so that the container switches
+     * to chunked transfer encoding instead of buffering the whole response.
+     *
+     * The legacy JSON writer builds the complete response in memory, so results requested
+     * with that method are written by {@link #writeResults} instead.
+     */
+    protected void writeResultsStreaming(final HttpServletResponse response, final DBBroker broker, final Txn transaction,
+            final Sequence results, final int howmany, final int start, final boolean typed,
+            final Properties outputProperties, final boolean wrap, final long compilationTime, final long executionTime)
+            throws BadRequestException {
+
+        // some xquery functions can write directly to the output stream
+        // (response:stream-binary() etc...)
+        // so if output is already written then dont overwrite here
+        if (response.isCommitted()) {
+            return;
+        }
+
+        if ("json".equals(outputProperties.getProperty(SERIALIZATION_METHOD_PROPERTY, "xml"))) {
+            writeResults(response, broker, transaction, results, howmany, start, typed, outputProperties, wrap, compilationTime, executionTime);
+            return;
+        }
+
+        if (start < 1) {
+            throw new BadRequestException("Start parameter out of range");
+        }
+
+        outputProperties.setProperty(Serializer.GENERATE_DOC_EVENTS, "false");
+        try {
+            final String encoding = outputProperties.getProperty(OutputKeys.ENCODING);
+            setResultContentType(response, outputProperties, wrap, encoding);
+            if (wrap) {
+                outputProperties.setProperty("method", "xml");
+            }
+            response.flushBuffer();
+
+            final Writer writer = new OutputStreamWriter(response.getOutputStream(), encoding);
+            final XQuerySerializer serializer = new XQuerySerializer(broker, outputProperties, writer);
+            serializer.serializeStreaming(results, start, howmany, wrap, typed, compilationTime, executionTime);
+
+            writer.flush();
+            writer.close();
+
+        } catch (final SAXException | XPathException | IOException e) {
+            LOG.warn(e.getMessage(), e);
+            throw new BadRequestException("Error while serializing xml: "
+                    + e.toString(), e);
+        }
+    }
+
+    private void setResultContentType(final HttpServletResponse response, final Properties outputProperties,
+            final boolean wrap, final String encoding) {
+        if (!response.containsHeader("Content-Type")) {
+            String mimeType = outputProperties.getProperty(OutputKeys.MEDIA_TYPE);
+            if (mimeType != null) {
+                final int semicolon = mimeType.indexOf(';');
+                if (semicolon != Constants.STRING_NOT_FOUND) {
+                    mimeType = mimeType.substring(0, semicolon);
+                }
+                if (wrap) {
+                    mimeType = "application/xml";
+                }
+                response.setContentType(mimeType + "; charset=" + encoding);
+            }
+        }
+    }
+
     private void writeResultXML(final HttpServletResponse response,
         final DBBroker broker, final Sequence results, final int howmany,
         final int start, final boolean typed, final Properties outputProperties,
@@ -2116,19 +2205,7 @@ public class RESTServer {
 
             // set output headers
             final String encoding = outputProperties.getProperty(OutputKeys.ENCODING);
-            if (!response.containsHeader("Content-Type")) {
-                String mimeType = outputProperties.getProperty(OutputKeys.MEDIA_TYPE);
-                if (mimeType != null) {
-                    final int semicolon = mimeType.indexOf(';');
-                    if (semicolon != Constants.STRING_NOT_FOUND) {
-                        mimeType = mimeType.substring(0, semicolon);
-                    }
-                    if (wrap) {
-                        mimeType = "application/xml";
-                    }
-                    response.setContentType(mimeType + "; charset=" + encoding);
-                }
-            }
+            setResultContentType(response, outputProperties, wrap, encoding);
             if (wrap) {
                 outputProperties.setProperty("method", "xml");
             }
@@ -224,6 +224,26 @@ enum RESTServerParameter {
      */
     Cache,
 
+    /**
+     * Can be used in either the Query String of a GET request
+     * or in the body of a POST request when supplying an XPath or XQuery,
+     * it causes the results of the query to be streamed to the client
+     * item by item as they are serialized, rather than being counted
+     * and sliced before serialization starts.
+     *
+     * Streamed results are never cached, so this parameter takes
+     * precedence over the Cache parameter. As the number of results is
+     * not known up front, the exist:result wrapper element of a streamed
+     * result only carries the start attribute. Errors that occur after
+     * the response has been committed can no longer be reported by
+     * status code.
+     *
+     * Contexts: GET, POST
+     *
+     * The value of the parameter should be either "yes" or "no".
+     */
+    Stream,
+
     /**
      * Can be used in the Query String of a GET request
      * to indicate that an XML result should be indented.
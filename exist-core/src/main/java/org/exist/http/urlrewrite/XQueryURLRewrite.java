@@ -24,17 +24,24 @@ package org.exist.http.urlrewrite;
 
 import java.io.*;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import org.exist.dom.persistent.LockedDocument;
 import org.exist.http.servlets.Authenticator;
 import org.exist.http.servlets.BasicAuthenticator;
+import org.exist.management.AgentFactory;
 import org.exist.security.internal.web.HttpAccount;
 import org.exist.source.Source;
 import org.exist.source.DBSource;
 import org.exist.source.SourceFactory;
 import org.exist.source.FileSource;
+import org.exist.util.DatabaseConfigurationException;
 import org.exist.util.LockException;
 import org.exist.util.io.FastByteArrayInputStream;
 import org.exist.util.io.FastByteArrayOutputStream;
@@ -87,6 +94,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
@@ -122,8 +130,13 @@ public class XQueryURLRewrite extends HttpServlet {
     public static final String RQ_ATTR_RESULT = "org.exist.forward.result";
     public static final String RQ_ATTR_ERROR = "org.exist.forward.error";
 
+    public static final int DEFAULT_URL_CACHE_SIZE = 10_000;
+    public static final long DEFAULT_URL_CACHE_TTL = 3600;  // seconds
+
     private ServletConfig config;
-    private final Map<String, ModelAndView> urlCache = Collections.synchronizedMap(new TreeMap<>());
+    private final StatsCounter urlCacheStats = new ConcurrentStatsCounter();
+    private int urlCacheSize = DEFAULT_URL_CACHE_SIZE;
+    private Cache<String, ModelAndView> urlCache = buildUrlCache(DEFAULT_URL_CACHE_SIZE, DEFAULT_URL_CACHE_TTL);
     private Subject defaultUser = null;
     private BrokerPool pool;
     // path to the query
@@ -132,6 +145,7 @@ public class XQueryURLRewrite extends HttpServlet {
     private boolean sendChallenge = true;
     private RewriteConfig rewriteConfig;
     private Authenticator authenticator;
+    @Nullable private org.exist.management.impl.URLRewriteCache urlCacheMBean = null;
 
     @Override
     public void init(final ServletConfig filterConfig) {
@@ -149,6 +163,43 @@ public class XQueryURLRewrite extends HttpServlet {
         if (optSendChallenge != null) {
             sendChallenge = optSendChallenge.equalsIgnoreCase("true");
         }
+
+        int optUrlCacheSize = DEFAULT_URL_CACHE_SIZE;
+        long optUrlCacheTtl = DEFAULT_URL_CACHE_TTL;
+        try {
+            final String urlCacheSizeParam = filterConfig.getInitParameter("url-cache-size");
+            if (urlCacheSizeParam != null) {
+                optUrlCacheSize = Integer.parseInt(urlCacheSizeParam.trim());
+            }
+            final String urlCacheTtlParam = filterConfig.getInitParameter("url-cache-ttl");
+            if (urlCacheTtlParam != null) {
+                optUrlCacheTtl = Long.parseLong(urlCacheTtlParam.trim());
+            }
+        } catch (final NumberFormatException e) {
+            LOG.warn("Invalid url-cache-size or url-cache-ttl parameter, using defaults: " + e.getMessage());
+            optUrlCacheSize = DEFAULT_URL_CACHE_SIZE;
+            optUrlCacheTtl = DEFAULT_URL_CACHE_TTL;
+        }
+        this.urlCacheSize = optUrlCacheSize;
+        this.urlCache = buildUrlCache(optUrlCacheSize, optUrlCacheTtl);
+    }
+
+    /**
+     * Creates the cache of model and view configurations, keyed by host and request URI.
+     *
+     * @param maxSize the maximum number of entries, entries are evicted once the cache grows beyond this size
+     * @param ttl the number of seconds after which an entry expires, or 0 or less if entries should not expire
+     *
+     * @return the cache
+     */
+    private Cache<String, ModelAndView> buildUrlCache(final int maxSize, final long ttl) {
+        final Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, maxSize))
+                .recordStats(() -> urlCacheStats);
+        if (ttl > 0) {
+            builder.expireAfterWrite(ttl, TimeUnit.SECONDS);
+        }
+        return builder.build();
     }
 
     @Override
@@ -315,7 +366,7 @@ public class XQueryURLRewrite extends HttpServlet {
 
                         if (modelView.useCache()) {
                             LOG.debug("Caching request to " + request.getRequestURI());
-                            urlCache.put(modifiedRequest.getHeader("Host") + request.getRequestURI(), modelView);
+                            putInCache(modifiedRequest.getHeader("Host") + request.getRequestURI(), modelView);
                         }
                     }
 
@@ -467,32 +518,100 @@ public class XQueryURLRewrite extends HttpServlet {
     }
 
     private ModelAndView getFromCache(final String url, final Subject user) throws EXistException, PermissionDeniedException {
-        /* Make sure we have a broker *before* we synchronize on urlCache or we may run
-         * into a deadlock situation (with method checkCache)
-         */
-        final ModelAndView model = urlCache.get(url);
+        final ModelAndView model = urlCache.getIfPresent(url);
         if (model == null) {
             return null;
         }
 
         try (final DBBroker broker = pool.get(Optional.ofNullable(user))) {
+            return isCachedModelValid(url, model, broker) ? model : null;
+        }
+    }
 
-            model.getSourceInfo().source.validate(broker.getCurrentSubject(), Permission.EXECUTE);
+    /**
+     * Get the model and view configuration for a URL from the cache,
+     * provided that the controller which produced it is still valid.
+     *
+     * @param url the host and request URI
+     * @param broker the database broker
+     *
+     * @return the cached model and view configuration, or null if there is none
+     *
+     * @throws PermissionDeniedException if the user may not execute the controller
+     */
+    @Nullable ModelAndView getFromCache(final String url, final DBBroker broker) throws PermissionDeniedException {
+        final ModelAndView model = urlCache.getIfPresent(url);
+        if (model == null) {
+            return null;
+        }
+        return isCachedModelValid(url, model, broker) ? model : null;
+    }
 
-            if (model.getSourceInfo().source.isValid(broker) != Source.Validity.VALID) {
-                urlCache.remove(url);
-                return null;
-            }
+    private boolean isCachedModelValid(final String url, final ModelAndView model, final DBBroker broker) throws PermissionDeniedException {
+        model.getSourceInfo().source.validate(broker.getCurrentSubject(), Permission.EXECUTE);
 
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Using cached entry for " + url);
-            }
-            return model;
+        if (model.getSourceInfo().source.isValid(broker) != Source.Validity.VALID) {
+            // the controller has changed, so drop every entry which was produced by it
+            invalidateSource(model.getSourceInfo().source);
+            return false;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Using cached entry for " + url);
         }
+        return true;
+    }
+
+    void putInCache(final String url, final ModelAndView model) {
+        urlCache.put(url, model);
+    }
+
+    /**
+     * Performs any pending maintenance of the URL cache, such as evictions.
+     */
+    void cleanUpUrlCache() {
+        urlCache.cleanUp();
+    }
+
+    private void invalidateSource(final Source source) {
+        final String path = source.path();
+        urlCache.asMap().values().removeIf(model -> model.getSourceInfo() == null
+                || model.getSourceInfo().source == source
+                || (path != null && path.equals(model.getSourceInfo().source.path())));
+    }
+
+    /**
+     * Removes all entries from the URL cache.
+     */
+    public void clearCaches() {
+        urlCache.invalidateAll();
+    }
+
+    /**
+     * Get a snapshot of the URL cache statistics.
+     *
+     * @return the statistics of the URL cache
+     */
+    public CacheStats getUrlCacheStats() {
+        return urlCacheStats.snapshot();
     }
 
-    void clearCaches() {
-        urlCache.clear();
+    /**
+     * Get the approximate number of entries in the URL cache.
+     *
+     * @return the number of entries
+     */
+    public long getUrlCacheEntries() {
+        return urlCache.estimatedSize();
+    }
+
+    /**
+     * Get the maximum number of entries in the URL cache.
+     *
+     * @return the maximum number of entries
+     */
+    public int getUrlCacheMaxSize() {
+        return urlCacheSize;
     }
 
     /**
@@ -608,6 +727,14 @@ public class XQueryURLRewrite extends HttpServlet {
             }
         }
         authenticator = new BasicAuthenticator(pool);
+
+        try {
+            final org.exist.management.impl.URLRewriteCache mbean = new org.exist.management.impl.URLRewriteCache(pool, config.getServletName(), this);
+            AgentFactory.getInstance().addMBean(mbean);
+            urlCacheMBean = mbean;
+        } catch (final DatabaseConfigurationException e) {
+            LOG.warn("Exception while registering JMX URLRewriteCache MBean.", e);
+        }
     }
 
     private void logResult(final DBBroker broker, final Sequence result) throws SAXException {
@@ -624,6 +751,11 @@ public class XQueryURLRewrite extends HttpServlet {
 
     @Override
     public void destroy() {
+        if (urlCacheMBean != null) {
+            AgentFactory.getInstance().removeMBean(urlCacheMBean);
+            urlCacheMBean = null;
+        }
+        urlCache.invalidateAll();
         config = null;
     }
 
@@ -948,14 +1080,14 @@ public class XQueryURLRewrite extends HttpServlet {
         }
     }
 
-    private static class ModelAndView {
+    static class ModelAndView {
         private URLRewrite rewrite = null;
         private final List<URLRewrite> views = new LinkedList<>();
         private List<URLRewrite> errorHandlers = null;
         private boolean useCache = false;
         private SourceInfo sourceInfo = null;
 
-        private ModelAndView() {
+        ModelAndView() {
         }
 
         public void setSourceInfo(final SourceInfo sourceInfo) {
@@ -1002,12 +1134,12 @@ public class XQueryURLRewrite extends HttpServlet {
         }
     }
 
-    private static class SourceInfo {
+    static class SourceInfo {
         final Source source;
         final String moduleLoadPath;
         final String controllerPath;
 
-        private SourceInfo(final Source source, final String moduleLoadPath) {
+        SourceInfo(final Source source, final String moduleLoadPath) {
             this(source, moduleLoadPath, "");
         }
 
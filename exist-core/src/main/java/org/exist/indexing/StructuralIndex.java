@@ -19,10 +19,12 @@
  */
 package org.exist.indexing;
 
+import org.exist.dom.persistent.DocumentImpl;
 import org.exist.dom.persistent.DocumentSet;
 import org.exist.dom.persistent.ExtNodeSet;
 import org.exist.dom.persistent.NodeSet;
 import org.exist.dom.QName;
+import org.exist.numbering.NodeId;
 import org.exist.xquery.Expression;
 import org.exist.xquery.NodeSelector;
 import org.exist.xquery.NodeTest;
@@ -46,6 +48,32 @@ public interface StructuralIndex {
 
     public NodeSet findElementsByTagName(byte type, DocumentSet docs, QName qname, NodeSelector selector, Expression parent);
 
+    /**
+     * Count the elements or attributes with the given name in a set of documents,
+     * without materializing the matching nodes.
+     *
+     * @param type node type
+     * @param docs the docs to count in
+     * @param qname the name of the elements or attributes
+     * @param limit stop counting once at least this number of nodes were found, or -1 to count all
+     * @param parent the calling expression, or null
+     * @return the number of matching nodes, which may exceed limit
+     */
+    public long countElementsByTagName(byte type, DocumentSet docs, QName qname, long limit, Expression parent);
+
+    /**
+     * Count the nodes with the given ids in a document which are elements or attributes
+     * with the given name, by looking up their keys, without materializing the matching nodes.
+     *
+     * @param type node type
+     * @param doc the document of the nodes
+     * @param qname the name of the elements or attributes
+     * @param nodeIds the ids of the nodes to check
+     * @param limit stop counting once this number of nodes were found, or -1 to count all
+     * @return the number of matching nodes
+     */
+    public long countElementsByNodeId(byte type, DocumentImpl doc, QName qname, Iterable<NodeId> nodeIds, long limit);
+
     public NodeSet findDescendantsByTagName(byte type, QName qname, int axis,
         DocumentSet docs, NodeSet contextSet,  int contextId);
 
@@ -96,13 +96,19 @@ public class JMXtoXML {
         putCategory("locking", LockTable.getAllInstancesQuery());
         putCategory("disk", DiskUsage.getAllInstancesQuery());
         putCategory("collectioncaches", CollectionCache.getAllInstancesQuery());
+        putCategory("modulecaches", XQueryModuleCache.getAllInstancesQuery());
+        putCategory("templatecaches", TemplatesCache.getAllInstancesQuery());
+        putCategory("asynctriggers", AsyncTriggers.getAllInstancesQuery());
+        putCategory("objectpools", ObjectPools.getAllInstancesQuery());
         putCategory("caches",
                 CacheManager.getAllInstancesQuery(),
                 Cache.getAllInstancesQuery()
         );
         putCategory("binarystreamcaches", BinaryValues.getAllInstancesQuery());
+        putCategory("urlrewritecaches", URLRewriteCache.getAllInstancesQuery());
         putCategory("processes", ProcessReport.getAllInstancesQuery());
         putCategory("sanity", SanityReport.getAllInstancesQuery());
+        putCategory("export", ExportReport.getAllInstancesQuery());
 
         // Jetty
         putCategory("jetty.threads", "org.eclipse.jetty.util.thread:type=queuedthreadpool,*");
@@ -0,0 +1,107 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.management.impl;
+
+import org.exist.collections.triggers.AsyncTriggerDispatcher;
+
+/**
+ * Detail information on the queue of an asynchronous trigger.
+ */
+public class AsyncTriggerQueue {
+
+    private final String id;
+    private final int capacity;
+    private final int batchSize;
+    private final int queueDepth;
+    private final long queued;
+    private final long delivered;
+    private final long failed;
+    private final long batches;
+    private final long rejected;
+    private final long averageLatency;
+    private final long maxLatency;
+
+    public AsyncTriggerQueue(final AsyncTriggerDispatcher.TriggerQueue queue) {
+        this.id = queue.getId();
+        this.capacity = queue.getCapacity();
+        this.batchSize = queue.getBatchSize();
+        this.queueDepth = queue.getQueueDepth();
+        this.queued = queue.getQueued();
+        this.delivered = queue.getDelivered();
+        this.failed = queue.getFailed();
+        this.batches = queue.getBatches();
+        this.rejected = queue.getRejected();
+        this.averageLatency = queue.getAverageLatency();
+        this.maxLatency = queue.getMaxLatency();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getQueued() {
+        return queued;
+    }
+
+    public long getDelivered() {
+        return delivered;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return the number of events which were rejected as the queue was full
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return the average time between commit and delivery of an event in milliseconds
+     */
+    public long getAverageLatency() {
+        return averageLatency;
+    }
+
+    /**
+     * @return the longest time between commit and delivery of an event in milliseconds
+     */
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+}
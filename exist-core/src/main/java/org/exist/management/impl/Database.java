@@ -87,6 +87,26 @@ public class Database implements DatabaseMXBean {
         return pool.total();
     }
 
+    @Override
+    public int getWaitingForBroker() {
+        return pool.countWaitingForBroker();
+    }
+
+    @Override
+    public long getBrokerWaitCount() {
+        return pool.getBrokerWaitCount();
+    }
+
+    @Override
+    public long getBrokerWaitTime() {
+        return pool.getBrokerWaitTime();
+    }
+
+    @Override
+    public long getMaxBrokerWaitTime() {
+        return pool.getMaxBrokerWaitTime();
+    }
+
     @Override
     public List<ActiveBroker> getActiveBrokersMap() {
         final List<ActiveBroker> brokersList = new ArrayList<>();
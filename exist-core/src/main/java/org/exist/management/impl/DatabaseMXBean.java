@@ -36,6 +36,26 @@ public interface DatabaseMXBean extends PerInstanceMBean {
     int getActiveBrokers();
 
     int getTotalBrokers();
+
+    /**
+     * @return the number of threads currently waiting for a broker
+     */
+    int getWaitingForBroker();
+
+    /**
+     * @return the number of times a thread had to wait for a broker
+     */
+    long getBrokerWaitCount();
+
+    /**
+     * @return the total time in milliseconds that threads have waited for a broker
+     */
+    long getBrokerWaitTime();
+
+    /**
+     * @return the longest time in milliseconds that a thread has waited for a broker
+     */
+    long getMaxBrokerWaitTime();
     
     long getReservedMem();
 
@@ -0,0 +1,115 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.management.impl;
+
+import org.exist.storage.BrokerPool;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.util.Date;
+
+/**
+ * JMX MXBean for examining the progress and
+ * throughput of a system export
+ */
+public class ExportReport implements ExportReportMXBean {
+
+    private final BrokerPool instance;
+
+    public ExportReport(final BrokerPool instance) {
+        this.instance = instance;
+    }
+
+    public static String getAllInstancesQuery() {
+        return "org.exist.management." + '*' + ":type=ExportReport";
+    }
+
+    @Override
+    public ObjectName getName() throws MalformedObjectNameException {
+        return new ObjectName("org.exist.management." + instance.getId() + ".tasks:type=ExportReport");
+    }
+
+    @Override
+    public String getInstanceId() {
+        return instance.getId();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return instance.getExportStatistics().isRunning();
+    }
+
+    @Override
+    public Date getStartTime() {
+        final long startTime = instance.getExportStatistics().getStartTime();
+        return startTime == 0 ? null : new Date(startTime);
+    }
+
+    @Override
+    public Date getEndTime() {
+        final long endTime = instance.getExportStatistics().getEndTime();
+        return endTime == 0 ? null : new Date(endTime);
+    }
+
+    @Override
+    public long getElapsedTime() {
+        return instance.getExportStatistics().getElapsedTime();
+    }
+
+    @Override
+    public int getThreads() {
+        return instance.getExportStatistics().getThreads();
+    }
+
+    @Override
+    public String getCurrentCollection() {
+        return instance.getExportStatistics().getCurrentCollection();
+    }
+
+    @Override
+    public long getCollections() {
+        return instance.getExportStatistics().getCollections();
+    }
+
+    @Override
+    public long getDocuments() {
+        return instance.getExportStatistics().getDocuments();
+    }
+
+    @Override
+    public long getSkippedDocuments() {
+        return instance.getExportStatistics().getSkippedDocuments();
+    }
+
+    @Override
+    public long getBytes() {
+        return instance.getExportStatistics().getBytes();
+    }
+
+    @Override
+    public double getDocumentsPerSecond() {
+        return instance.getExportStatistics().getDocumentsPerSecond();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return instance.getExportStatistics().getBytesPerSecond();
+    }
+}
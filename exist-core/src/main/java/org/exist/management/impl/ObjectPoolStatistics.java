@@ -0,0 +1,101 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.management.impl;
+
+import org.exist.util.pool.ThreadLocalObjectPool;
+
+/**
+ * Detail information on an object pool.
+ *
+ * Borrows and returns which are not served by the thread local
+ * cache of the pool are counted as shared borrows and returns.
+ */
+public class ObjectPoolStatistics {
+
+    private final String name;
+    private final int maxIdle;
+    private final int idle;
+    private final int active;
+    private final long borrowed;
+    private final long returned;
+    private final long sharedBorrows;
+    private final long sharedReturns;
+    private final long created;
+    private final long destroyed;
+    private final long resetFailures;
+
+    public ObjectPoolStatistics(final ThreadLocalObjectPool<?> pool) {
+        this.name = pool.getName();
+        this.maxIdle = pool.getMaxIdle();
+        this.idle = pool.getNumIdle();
+        this.active = pool.getNumActive();
+        this.borrowed = pool.getBorrowed();
+        this.returned = pool.getReturned();
+        this.sharedBorrows = pool.getSharedBorrows();
+        this.sharedReturns = pool.getSharedReturns();
+        this.created = pool.getCreated();
+        this.destroyed = pool.getDestroyed();
+        this.resetFailures = pool.getResetFailures();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public long getBorrowed() {
+        return borrowed;
+    }
+
+    public long getReturned() {
+        return returned;
+    }
+
+    public long getSharedBorrows() {
+        return sharedBorrows;
+    }
+
+    public long getSharedReturns() {
+        return sharedReturns;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getDestroyed() {
+        return destroyed;
+    }
+
+    public long getResetFailures() {
+        return resetFailures;
+    }
+}
@@ -20,7 +20,11 @@
 
 package org.exist.management.impl;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.exist.storage.ProcessMonitor;
+import org.exist.storage.QueryResourceUsage;
 
 /**
  * Detail information about recently executed XQuery.
@@ -33,6 +37,13 @@ public class RecentQueryHistory {
     private long mostRecentExecutionTime;
     private long mostRecentExecutionDuration;
     private String requestURI;
+    private long cpuTime;
+    private long allocatedBytes;
+    private Map<String, Long> pagesRead;
+    private long cacheHits;
+    private long cacheMisses;
+    private long indexLookups;
+    private long nodesMaterialized;
 
     public RecentQueryHistory(int idx, ProcessMonitor.QueryHistory queryHistory) {
         this.idx = idx;
@@ -41,6 +52,19 @@ public class RecentQueryHistory {
         this.mostRecentExecutionTime = queryHistory.getMostRecentExecutionTime();
         this.mostRecentExecutionDuration = queryHistory.getMostRecentExecutionDuration();
         this.requestURI = queryHistory.getRequestURI();
+
+        final QueryResourceUsage usage = queryHistory.getResourceUsage();
+        if (usage != null) {
+            this.cpuTime = usage.getCpuTime();
+            this.allocatedBytes = usage.getAllocatedBytes();
+            this.pagesRead = usage.getPagesRead();
+            this.cacheHits = usage.getCacheHits();
+            this.cacheMisses = usage.getCacheMisses();
+            this.indexLookups = usage.getIndexLookups();
+            this.nodesMaterialized = usage.getNodesMaterialized();
+        } else {
+            this.pagesRead = Collections.emptyMap();
+        }
     }
 
     public int getIdx() {
@@ -66,4 +90,38 @@ public class RecentQueryHistory {
     public String getRequestURI() {
         return requestURI;
     }
+
+    /**
+     * @return CPU time in nanoseconds
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the number of pages read from disk, by file name
+     */
+    public Map<String, Long> getPagesRead() {
+        return pagesRead;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public long getIndexLookups() {
+        return indexLookups;
+    }
+
+    public long getNodesMaterialized() {
+        return nodesMaterialized;
+    }
 }
@@ -20,6 +20,9 @@
 
 package org.exist.management.impl;
 
+import java.util.Map;
+
+import org.exist.storage.QueryResourceUsage;
 import org.exist.xquery.XQueryWatchDog;
 
 /**
@@ -34,6 +37,13 @@ public class RunningQuery {
     String requestURI;
     String thread;
     long elapsed;
+    long cpuTime;
+    long allocatedBytes;
+    Map<String, Long> pagesRead;
+    long cacheHits;
+    long cacheMisses;
+    long indexLookups;
+    long nodesMaterialized;
 
     public RunningQuery(final XQueryWatchDog watchdog, final String requestURI) {
         this.id = watchdog.getContext().hashCode();
@@ -43,6 +53,15 @@ public class RunningQuery {
         this.requestURI = requestURI;
         this.thread = watchdog.getRunningThread();
         this.elapsed = System.currentTimeMillis() - watchdog.getStartTime();
+
+        final QueryResourceUsage usage = watchdog.getResourceUsage();
+        this.cpuTime = usage.getCpuTime();
+        this.allocatedBytes = usage.getAllocatedBytes();
+        this.pagesRead = usage.getPagesRead();
+        this.cacheHits = usage.getCacheHits();
+        this.cacheMisses = usage.getCacheMisses();
+        this.indexLookups = usage.getIndexLookups();
+        this.nodesMaterialized = usage.getNodesMaterialized();
     }
 
     public int getId() {
@@ -72,4 +91,38 @@ public class RunningQuery {
     public long getElapsed() {
         return elapsed;
     }
+
+    /**
+     * @return CPU time in nanoseconds
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the number of pages read from disk, by file name
+     */
+    public Map<String, Long> getPagesRead() {
+        return pagesRead;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public long getIndexLookups() {
+        return indexLookups;
+    }
+
+    public long getNodesMaterialized() {
+        return nodesMaterialized;
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.management.impl;
+
+import org.exist.http.urlrewrite.XQueryURLRewrite;
+import org.exist.storage.BrokerPool;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * JMX MXBean for examining the URL rewrite cache
+ * of an XQueryURLRewrite servlet
+ */
+public class URLRewriteCache implements URLRewriteCacheMXBean {
+
+    private final BrokerPool instance;
+    private final String servletName;
+    private final XQueryURLRewrite urlRewrite;
+
+    public URLRewriteCache(final BrokerPool instance, final String servletName, final XQueryURLRewrite urlRewrite) {
+        this.instance = instance;
+        this.servletName = servletName;
+        this.urlRewrite = urlRewrite;
+    }
+
+    public static String getAllInstancesQuery() {
+        return "org.exist.management.*:type=URLRewriteCache,*";
+    }
+
+    @Override
+    public ObjectName getName() throws MalformedObjectNameException {
+        return new ObjectName("org.exist.management." + instance.getId() + ":type=URLRewriteCache,servlet=" + ObjectName.quote(servletName));
+    }
+
+    @Override
+    public String getInstanceId() {
+        return instance.getId();
+    }
+
+    @Override
+    public long getHitCount() {
+        return urlRewrite.getUrlCacheStats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return urlRewrite.getUrlCacheStats().missCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return urlRewrite.getUrlCacheStats().evictionCount();
+    }
+
+    @Override
+    public long getEntries() {
+        return urlRewrite.getUrlCacheEntries();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return urlRewrite.getUrlCacheMaxSize();
+    }
+
+    @Override
+    public void clear() {
+        urlRewrite.clearCaches();
+    }
+}
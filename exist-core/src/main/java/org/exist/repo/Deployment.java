@@ -272,6 +272,8 @@ public class Deployment {
                 ClasspathHelper.updateClasspath(broker.getBrokerPool(), pkg);
             }
             broker.getBrokerPool().getXQueryPool().clear();
+            broker.getBrokerPool().getXQueryModuleCache().clear();
+            broker.getBrokerPool().getTemplatesCache().clear();
             final String pkgName = pkg.getName();
             // signal status
             broker.getBrokerPool().reportStatus("Installing app: " + pkg.getAbbrev());
@@ -28,6 +28,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.Database;
 import org.exist.EXistException;
+import org.exist.backup.ExportStatistics;
 import org.exist.collections.Collection;
 import org.exist.collections.CollectionCache;
 import org.exist.collections.CollectionConfiguration;
@@ -71,6 +72,7 @@ import org.exist.xmldb.ShutdownListener;
 import org.exist.xmldb.XmldbURI;
 import org.exist.xquery.PerformanceStats;
 import org.exist.xquery.XQuery;
+import org.exist.xslt.TemplatesCache;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -84,7 +86,13 @@ import java.text.NumberFormat;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
@@ -186,7 +194,7 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
     /**
      * The number of brokers for the database instance
      */
-    private int brokersCount = 0;
+    private final AtomicInteger brokersCount = new AtomicInteger();
 
     /**
      * The minimal number of brokers for the database instance
@@ -201,9 +209,29 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
     private final int maxBrokers;
 
     /**
-     * The number of inactive brokers for the database instance
+     * The inactive brokers for the database instance, used as a stack
      */
-    private final Deque<DBBroker> inactiveBrokers = new ArrayDeque<>();
+    private final Deque<DBBroker> inactiveBrokers = new ConcurrentLinkedDeque<>();
+
+    /**
+     * One permit per broker which may be leased, i.e. {@link #maxBrokers}.
+     * A thread holds a permit for as long as it has an active broker.
+     * The semaphore is fair, so that threads waiting for a broker are
+     * served in the order in which they arrived.
+     */
+    private final Semaphore brokerPermits;
+
+    /**
+     * Statistics about threads that had to wait for a broker
+     */
+    private final LongAdder brokerWaitCount = new LongAdder();
+    private final LongAdder brokerWaitTime = new LongAdder();   // nanoseconds
+    private final AtomicLong maxBrokerWaitTime = new AtomicLong();   // nanoseconds
+
+    /**
+     * Interval at which a thread waiting for a broker reports that it is still waiting
+     */
+    private static final long BROKER_WAIT_REPORT_INTERVAL = 5000;   // milliseconds
 
     /**
      * The number of active brokers for the database instance
@@ -230,15 +258,15 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
      */
     //TODO : rename as syncScheduled ?
     //TODO : alternatively, delete this member and create a Sync.NOSYNC event
-    private boolean syncRequired = false;
+    private volatile boolean syncRequired = false;
 
     /**
      * The kind of scheduled cache synchronization event.
      * One of {@link org.exist.storage.sync.Sync}
      */
-    private Sync syncEvent = Sync.MINOR;
+    private volatile Sync syncEvent = Sync.MINOR;
 
-    private boolean checkpoint = false;
+    private volatile boolean checkpoint = false;
 
     /**
      * Indicates whether the database is operating in read-only mode
@@ -331,11 +359,31 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
      */
     private XQueryPool xQueryPool;
 
+    /**
+     * The cache in which the database instance's <strong>parsed</strong> XQuery library modules are stored.
+     */
+    private XQueryModuleCache xQueryModuleCache;
+
+    /**
+     * The cache in which the database instance's <strong>compiled</strong> XSLT stylesheets are stored.
+     */
+    private TemplatesCache templatesCache;
+
+    /**
+     * The dispatcher which delivers the events of the database instance's asynchronous triggers.
+     */
+    private AsyncTriggerDispatcher asyncTriggerDispatcher;
+
     /**
      * The monitor in which the database instance's strong>running</strong> XQueries are managed.
      */
     private ProcessMonitor processMonitor;
 
+    /**
+     * Progress and throughput of the most recently started system export.
+     */
+    private volatile ExportStatistics exportStatistics = new ExportStatistics();
+
     /**
      * Global performance stats to gather function execution statistics
      * from all queries running on this database instance.
@@ -362,8 +410,8 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
 
     private final Lock globalXUpdateLock = new ReentrantLock();
 
-    private Subject serviceModeUser = null;
-    private boolean inServiceMode = false;
+    private volatile Subject serviceModeUser = null;
+    private volatile boolean inServiceMode = false;
 
     //the time that the database was started
     private final Calendar startupTime = Calendar.getInstance();
@@ -405,6 +453,7 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
 
         this.minBrokers = conf.getProperty(PROPERTY_MIN_CONNECTIONS, minBrokers);
         this.maxBrokers = conf.getProperty(PROPERTY_MAX_CONNECTIONS, maxBrokers);
+        this.brokerPermits = new Semaphore(this.maxBrokers, true);
         LOG.info("database instance '" + instanceName + "' will have between " + nf.format(this.minBrokers) + " and " + nf.format(this.maxBrokers) + " brokers");
 
         this.majorSyncPeriod = conf.getProperty(PROPERTY_SYNC_PERIOD, DEFAULT_SYNCH_PERIOD);
@@ -474,10 +523,12 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
 
         this.cacheManager = servicesManager.register(new DefaultCacheManager(this));
         this.xQueryPool = servicesManager.register(new XQueryPool());
+        this.xQueryModuleCache = servicesManager.register(new XQueryModuleCache());
+        this.templatesCache = servicesManager.register(new TemplatesCache());
         this.processMonitor = servicesManager.register(new ProcessMonitor());
         this.xqueryStats = servicesManager.register(new PerformanceStats(this));
         final XMLReaderObjectFactory xmlReaderObjectFactory = servicesManager.register(new XMLReaderObjectFactory());
-        this.xmlReaderPool = servicesManager.register(new XMLReaderPool(xmlReaderObjectFactory, 5, 0));
+        this.xmlReaderPool = servicesManager.register(new XMLReaderPool(xmlReaderObjectFactory, 5));
         final int bufferSize = Optional.of(conf.getInteger(PROPERTY_COLLECTION_CACHE_SIZE))
                 .filter(size -> size != -1)
                 .orElse(DEFAULT_COLLECTION_BUFFER_SIZE);
@@ -512,6 +563,9 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
 
         this.startupTriggersManager = servicesManager.register(new StartupTriggersManager());
 
+        // registered last, so that it is stopped first and can still deliver the remaining events
+        this.asyncTriggerDispatcher = servicesManager.register(new AsyncTriggerDispatcher());
+
         //configure the registered services
         try {
             servicesManager.configureServices(conf);
@@ -652,6 +706,11 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
                             LOG.error(pde.getMessage(), pde);
                         }
 
+                        // build the indexes of the documents of interrupted bulk loads
+                        if(!exportOnly) {
+                            BulkLoader.reindexPending(systemBroker);
+                        }
+
                         sync(systemBroker, Sync.MAJOR);
 
                         // we have completed all system mode operations
@@ -779,11 +838,12 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
      */
     public boolean runRecovery(final DBBroker broker) throws EXistException {
         final boolean forceRestart = conf.getProperty(PROPERTY_RECOVERY_FORCE_RESTART, false);
+        final int replayThreads = conf.getProperty(PROPERTY_RECOVERY_REPLAY_THREADS, 1);
         if(LOG.isDebugEnabled()) {
             LOG.debug("ForceRestart = " + forceRestart);
         }
         if(journalManager.isPresent()) {
-            final RecoveryManager recovery = new RecoveryManager(broker, journalManager.get(), forceRestart);
+            final RecoveryManager recovery = new RecoveryManager(broker, journalManager.get(), forceRestart, replayThreads);
             return recovery.recover();
         } else {
             throw new IllegalStateException("Cannot run recovery without a JournalManager");
@@ -880,7 +940,43 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
     }
 
     public int total() {
-        return brokersCount;
+        return brokersCount.get();
+    }
+
+    /**
+     * Returns the number of threads which are currently waiting for a broker.
+     *
+     * @return an estimate of the number of waiting threads
+     */
+    public int countWaitingForBroker() {
+        return brokerPermits.getQueueLength();
+    }
+
+    /**
+     * Returns the number of times that a thread had to wait for a broker.
+     *
+     * @return the number of waits
+     */
+    public long getBrokerWaitCount() {
+        return brokerWaitCount.sum();
+    }
+
+    /**
+     * Returns the total time that threads have spent waiting for a broker.
+     *
+     * @return the total wait time in milliseconds
+     */
+    public long getBrokerWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(brokerWaitTime.sum());
+    }
+
+    /**
+     * Returns the longest time that a thread has spent waiting for a broker.
+     *
+     * @return the maximum wait time in milliseconds
+     */
+    public long getMaxBrokerWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxBrokerWaitTime.get());
     }
 
     /**
@@ -1042,6 +1138,33 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
         return xQueryPool;
     }
 
+    /**
+     * Returns a cache in which the database instance's <strong>parsed</strong> XQuery library modules are stored.
+     *
+     * @return The cache
+     */
+    public XQueryModuleCache getXQueryModuleCache() {
+        return xQueryModuleCache;
+    }
+
+    /**
+     * Returns a cache in which the database instance's <strong>compiled</strong> XSLT stylesheets are stored.
+     *
+     * @return The cache
+     */
+    public TemplatesCache getTemplatesCache() {
+        return templatesCache;
+    }
+
+    /**
+     * Returns the dispatcher which delivers the events of the database instance's asynchronous triggers.
+     *
+     * @return The dispatcher
+     */
+    public AsyncTriggerDispatcher getAsyncTriggerDispatcher() {
+        return asyncTriggerDispatcher;
+    }
+
     /**
      * Retuns the XQuery Service
      *
@@ -1060,6 +1183,24 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
         return processMonitor;
     }
 
+    /**
+     * Returns the progress and throughput of the most recently started system export.
+     *
+     * @return The export statistics
+     */
+    public ExportStatistics getExportStatistics() {
+        return exportStatistics;
+    }
+
+    /**
+     * Publishes the statistics of a system export which is starting.
+     *
+     * @param exportStatistics The statistics of the export
+     */
+    public void setExportStatistics(final ExportStatistics exportStatistics) {
+        this.exportStatistics = exportStatistics;
+    }
+
     /**
      * Returns the global profiler used to gather execution statistics
      * from all XQueries running on this db instance.
@@ -1099,11 +1240,25 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
      * @throws EXistException if the broker cannot be created
      */
     protected DBBroker createBroker() throws EXistException {
-        //TODO : in the future, don't pass the whole configuration, just the part relevant to brokers
-        final DBBroker broker = BrokerFactory.getInstance(this, this.getConfiguration());
+        final DBBroker broker = newBroker();
         inactiveBrokers.push(broker);
-        brokersCount++;
-        broker.setId(broker.getClass().getName() + '_' + instanceName + "_" + brokersCount);
+        return broker;
+    }
+
+    /**
+     * Creates a new broker for the database instance,
+     * without adding it to the inactive brokers.
+     *
+     * @return The broker
+     * @throws EXistException if the broker cannot be created
+     */
+    private DBBroker newBroker() throws EXistException {
+        final DBBroker broker;
+        synchronized(this) {
+            //TODO : in the future, don't pass the whole configuration, just the part relevant to brokers
+            broker = BrokerFactory.getInstance(this, this.getConfiguration());
+            broker.setId(broker.getClass().getName() + '_' + instanceName + "_" + brokersCount.incrementAndGet());
+        }
         if (LOG.isDebugEnabled()) {
             LOG.debug("Created broker '" + broker.getId() + " for database instance '" + instanceName + "'");
         }
@@ -1210,64 +1365,100 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
 
         //No active broker : get one ASAP
 
-        while(serviceModeUser != null && subject.isPresent() && !subject.equals(Optional.ofNullable(serviceModeUser))) {
-            try {
-                LOG.debug("Db instance is in service mode. Waiting for db to become available again ...");
-                wait();
-            } catch(final InterruptedException e) {
-                Thread.currentThread().interrupt();
-                LOG.error("Interrupt detected");
+        if(serviceModeUser != null) {
+            synchronized(this) {
+                while(serviceModeUser != null && subject.isPresent() && !subject.equals(Optional.ofNullable(serviceModeUser))) {
+                    try {
+                        LOG.debug("Db instance is in service mode. Waiting for db to become available again ...");
+                        wait(1000);
+                    } catch(final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        LOG.error("Interrupt detected");
+                        break;
+                    }
+                }
             }
         }
 
-        synchronized(this) {
-            //Are there any available brokers ?
-            if(inactiveBrokers.isEmpty()) {
-                //There are no available brokers. If allowed...
-                if(brokersCount < maxBrokers)
-                //... create one
-                {
-                    createBroker();
-                } else
-                    //... or wait until there is one available
-                    while(inactiveBrokers.isEmpty()) {
-                        LOG.debug("waiting for a broker to become available");
-                        try {
-                            this.wait();
-                        } catch(final InterruptedException e) {
-                            //nothing to be done!
-                        }
-                    }
+        acquireBrokerPermit();
+        if(isShutDown()) {
+            brokerPermits.release();
+            throw new EXistException("database instance '" + instanceName + "' has been shut down");
+        }
+
+        //Are there any available brokers ?
+        broker = inactiveBrokers.pollFirst();
+        if(broker == null) {
+            //There are no available brokers, but as we hold a permit we may create one
+            try {
+                broker = newBroker();
+            } catch(final EXistException | RuntimeException e) {
+                brokerPermits.release();
+                throw e;
             }
-            broker = inactiveBrokers.pop();
-            broker.prepare();
+        }
+        broker.prepare();
 
-            //activate the broker
-            activeBrokers.put(Thread.currentThread(), broker);
+        //activate the broker
+        activeBrokers.put(Thread.currentThread(), broker);
 
-            if(LOG.isTraceEnabled()) {
-                LOG.trace("+++ " + Thread.currentThread() + Stacktrace.top(Thread.currentThread().getStackTrace(), Stacktrace.DEFAULT_STACK_TOP));
-            }
+        if(LOG.isTraceEnabled()) {
+            LOG.trace("+++ " + Thread.currentThread() + Stacktrace.top(Thread.currentThread().getStackTrace(), Stacktrace.DEFAULT_STACK_TOP));
+        }
+
+        if(watchdog.isPresent()) {
+            watchdog.get().add(broker);
+        }
+
+        broker.incReferenceCount();
 
-            if(watchdog.isPresent()) {
-                watchdog.get().add(broker);
+        broker.pushSubject(subject.orElseGet(securityManager::getGuestSubject));
+
+        if(LOG.isTraceEnabled()) {
+            if(!brokerLeaseChangeTrace.containsKey(broker.getId())) {
+                brokerLeaseChangeTrace.put(broker.getId(), new TraceableStateChanges<>());
             }
+            brokerLeaseChangeTrace.get(broker.getId()).add(TraceableBrokerLeaseChange.get(new TraceableBrokerLeaseChange.BrokerInfo(broker.getId(), broker.getReferenceCount())));
+        }
 
-            broker.incReferenceCount();
+        return broker;
+    }
 
-            broker.pushSubject(subject.orElseGet(securityManager::getGuestSubject));
+    /**
+     * Acquires a permit to lease a broker, waiting in arrival order
+     * until one becomes available.
+     */
+    private void acquireBrokerPermit() {
+        try {
+            if(brokerPermits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch(final InterruptedException e) {
+            // restore the interrupt, and wait uninterruptibly below
+            Thread.currentThread().interrupt();
+        }
 
-            if(LOG.isTraceEnabled()) {
-                if(!brokerLeaseChangeTrace.containsKey(broker.getId())) {
-                    brokerLeaseChangeTrace.put(broker.getId(), new TraceableStateChanges<>());
+        final long waitStart = System.nanoTime();
+        try {
+            boolean acquired = false;
+            while(!acquired) {
+                if(Thread.currentThread().isInterrupted()) {
+                    //nothing to be done, we must still wait for a broker!
+                    brokerPermits.acquireUninterruptibly();
+                    break;
+                }
+                LOG.debug("waiting for a broker to become available");
+                try {
+                    acquired = brokerPermits.tryAcquire(BROKER_WAIT_REPORT_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch(final InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
-                brokerLeaseChangeTrace.get(broker.getId()).add(TraceableBrokerLeaseChange.get(new TraceableBrokerLeaseChange.BrokerInfo(broker.getId(), broker.getReferenceCount())));
             }
-
-            //Inform the other threads that we have a new-comer
-            // TODO: do they really need to be informed here???????
-            this.notifyAll();
-            return broker;
+        } finally {
+            final long waited = System.nanoTime() - waitStart;
+            brokerWaitCount.increment();
+            brokerWaitTime.add(waited);
+            maxBrokerWaitTime.accumulateAndGet(waited, Math::max);
         }
     }
 
@@ -1300,109 +1491,224 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
             return;
         }
 
-        synchronized(this) {
-            //Broker is no more used : inactivate it
-            for(final DBBroker inactiveBroker : inactiveBrokers) {
-                if(broker == inactiveBroker) {
-                    LOG.error("Broker " + broker.getId() + " is already in the inactive list!!!");
-                    return;
-                }
+        //Broker is no more used : inactivate it
+        for(final DBBroker inactiveBroker : inactiveBrokers) {
+            if(broker == inactiveBroker) {
+                LOG.error("Broker " + broker.getId() + " is already in the inactive list!!!");
+                return;
             }
+        }
 
-            if(activeBrokers.remove(Thread.currentThread()) == null) {
-                LOG.error("release() has been called from the wrong thread for broker " + broker.getId());
-                // Cleanup the state of activeBrokers
-                for(final Entry<Thread, DBBroker> activeBroker : activeBrokers.entrySet()) {
-                    if(activeBroker.getValue() == broker) {
-                        final String msg = "release() has been called from '" + Thread.currentThread() + "', but occupied at '" + activeBroker.getKey() + "'.";
-                        final EXistException ex = new EXistException(msg);
-                        LOG.error(msg, ex);
-                        activeBrokers.remove(activeBroker.getKey());
-                        break;
-                    }
-                }
-            } else {
-                if(LOG.isTraceEnabled()) {
-                    LOG.trace("--- " + Thread.currentThread() + Stacktrace.top(Thread.currentThread().getStackTrace(), Stacktrace.DEFAULT_STACK_TOP));
+        if(activeBrokers.remove(Thread.currentThread()) == null) {
+            LOG.error("release() has been called from the wrong thread for broker " + broker.getId());
+            // Cleanup the state of activeBrokers
+            for(final Entry<Thread, DBBroker> activeBroker : activeBrokers.entrySet()) {
+                if(activeBroker.getValue() == broker) {
+                    final String msg = "release() has been called from '" + Thread.currentThread() + "', but occupied at '" + activeBroker.getKey() + "'.";
+                    final EXistException ex = new EXistException(msg);
+                    LOG.error(msg, ex);
+                    activeBrokers.remove(activeBroker.getKey());
+                    break;
                 }
             }
-            
-            Subject lastUser = broker.popSubject();
-
-            //guard to ensure that the broker has popped all its subjects
-            if(lastUser == null || broker.getCurrentSubject() != null) {
-                LOG.warn("Broker " + broker.getId() + " was returned with extraneous Subjects, cleaning...", new IllegalStateException("DBBroker pushSubject/popSubject mismatch").fillInStackTrace());
-                if(LOG.isTraceEnabled()) {
-                    broker.traceSubjectChanges();
-                }
-
-                //cleanup any remaining erroneous subjects
-                while(broker.getCurrentSubject() != null) {
-                    lastUser = broker.popSubject();
-                }
+        } else {
+            if(LOG.isTraceEnabled()) {
+                LOG.trace("--- " + Thread.currentThread() + Stacktrace.top(Thread.currentThread().getStackTrace(), Stacktrace.DEFAULT_STACK_TOP));
             }
+        }
 
-            inactiveBrokers.push(broker);
-            watchdog.ifPresent(wd -> wd.remove(broker));
+        Subject lastUser = broker.popSubject();
 
+        //guard to ensure that the broker has popped all its subjects
+        if(lastUser == null || broker.getCurrentSubject() != null) {
+            LOG.warn("Broker " + broker.getId() + " was returned with extraneous Subjects, cleaning...", new IllegalStateException("DBBroker pushSubject/popSubject mismatch").fillInStackTrace());
             if(LOG.isTraceEnabled()) {
-                if(!brokerLeaseChangeTraceHistory.containsKey(broker.getId())) {
-                    brokerLeaseChangeTraceHistory.put(broker.getId(), new ArrayList<>());
-                }
-                try {
-                    brokerLeaseChangeTraceHistory.get(broker.getId()).add((TraceableStateChanges<TraceableBrokerLeaseChange.BrokerInfo, TraceableBrokerLeaseChange.Change>) brokerLeaseChangeTrace.get(broker.getId()).clone());
-                    brokerLeaseChangeTrace.get(broker.getId()).clear();
-                } catch(final CloneNotSupportedException e) {
-                    LOG.error(e);
-                }
+                broker.traceSubjectChanges();
+            }
+
+            //cleanup any remaining erroneous subjects
+            while(broker.getCurrentSubject() != null) {
+                lastUser = broker.popSubject();
+            }
+        }
 
-                broker.clearSubjectChangesTrace();
+        watchdog.ifPresent(wd -> wd.remove(broker));
+
+        symbols.releaseNamePool();
+
+        if(LOG.isTraceEnabled()) {
+            if(!brokerLeaseChangeTraceHistory.containsKey(broker.getId())) {
+                brokerLeaseChangeTraceHistory.put(broker.getId(), new ArrayList<>());
+            }
+            try {
+                brokerLeaseChangeTraceHistory.get(broker.getId()).add((TraceableStateChanges<TraceableBrokerLeaseChange.BrokerInfo, TraceableBrokerLeaseChange.Change>) brokerLeaseChangeTrace.get(broker.getId()).clone());
+                brokerLeaseChangeTrace.get(broker.getId()).clear();
+            } catch(final CloneNotSupportedException e) {
+                LOG.error(e);
             }
 
-            //If the database is now idle, do some useful stuff
-            if(activeBrokers.size() == 0) {
-                //TODO : use a "clean" dedicated method (we have some below) ?
+            broker.clearSubjectChangesTrace();
+        }
+
+        inactiveBrokers.push(broker);
+        brokerPermits.release();
+
+        //If the database is now idle, do some useful stuff
+        if(syncRequired || serviceModeUser != null) {
+            final Subject releasingUser = lastUser;
+            runIfIdle(idleBroker -> {
                 if(syncRequired) {
-                    //Note that the broker is not yet really inactive ;-)
-                    sync(broker, syncEvent);
+                    sync(idleBroker, syncEvent);
                     this.syncRequired = false;
                     this.checkpoint = false;
                 }
-                if(serviceModeUser != null && !lastUser.equals(serviceModeUser)) {
+                if(serviceModeUser != null && releasingUser != null && !releasingUser.equals(serviceModeUser)) {
                     inServiceMode = true;
                 }
+            });
+        }
+
+        //Inform the threads waiting for the service mode that someone is gone
+        if(serviceModeUser != null) {
+            synchronized(this) {
+                this.notifyAll();
             }
-            //Inform the other threads that someone is gone
-            this.notifyAll();
         }
     }
 
-    public DBBroker enterServiceMode(final Subject user) throws PermissionDeniedException {
-        if(!user.hasDbaRole()) {
-            throw new PermissionDeniedException("Only users of group dba can switch the db to service mode");
+    /**
+     * Runs a task with an inactive broker, if the database instance is idle.
+     *
+     * All broker permits are taken for the duration of the task, so that
+     * no other thread may obtain a broker until the task has completed.
+     * See {@link #runExclusive(Consumer)} for the restrictions on the task.
+     *
+     * @param task the task to run with the broker
+     *
+     * @return true if the database instance was idle and the task was run, false otherwise
+     */
+    private boolean runIfIdle(final Consumer<DBBroker> task) {
+        if(!brokerPermits.tryAcquire(maxBrokers)) {
+            return false;
         }
+        try {
+            if(inactiveBrokers.isEmpty()) {
+                return false;
+            }
+            runExclusive(task);
+            return true;
+        } catch(final EXistException e) {
+            LOG.error(e.getMessage(), e);
+            return false;
+        } finally {
+            brokerPermits.release(maxBrokers);
+        }
+    }
 
-        serviceModeUser = user;
-        synchronized(this) {
-            if(activeBrokers.size() != 0) {
-                while(!inServiceMode) {
-                    try {
-                        wait();
-                    } catch(final InterruptedException e) {
-                        //nothing to be done
+    /**
+     * Runs a task with a broker which is leased to the calling thread
+     * without taking a broker permit. The calling thread must hold
+     * all the broker permits, or be forcing a shutdown.
+     *
+     * Calls to {@link #get(Optional)} made by the task on the calling thread
+     * re-use the broker, whereas calls from any other thread block until the
+     * permits are released. The task must therefore never wait for another
+     * thread which obtains a broker, as that would deadlock.
+     *
+     * @param task the task to run with the broker
+     *
+     * @throws EXistException if there is no inactive broker and a new one cannot be created
+     */
+    private void runExclusive(final Consumer<DBBroker> task) throws EXistException {
+        DBBroker broker = inactiveBrokers.pollFirst();
+        if(broker == null) {
+            broker = newBroker();
+        }
+        broker.prepare();
+        broker.incReferenceCount();
+        activeBrokers.put(Thread.currentThread(), broker);
+        try {
+            task.accept(broker);
+        } finally {
+            activeBrokers.remove(Thread.currentThread());
+            broker.decReferenceCount();
+            inactiveBrokers.push(broker);
+        }
+    }
+
+    /**
+     * Acquires a number of broker permits, waiting in arrival order
+     * behind the threads which are already waiting for a broker.
+     *
+     * @param permits the number of permits to acquire
+     * @param timeout the maximum time to wait in milliseconds, or a negative value to wait indefinitely
+     *
+     * @return true if the permits were acquired, false if the timeout expired
+     */
+    private boolean acquireBrokerPermits(final int permits, final long timeout) {
+        final long deadline = System.currentTimeMillis() + timeout;
+        boolean interrupted = false;
+        try {
+            while(true) {
+                final long wait = timeout < 0 ? BROKER_WAIT_REPORT_INTERVAL : Math.max(0, Math.min(BROKER_WAIT_REPORT_INTERVAL, deadline - System.currentTimeMillis()));
+                try {
+                    if(brokerPermits.tryAcquire(permits, wait, TimeUnit.MILLISECONDS)) {
+                        return true;
                     }
+                } catch(final InterruptedException e) {
+                    //nothing to be done, we must still wait for the brokers
+                    interrupted = true;
+                }
+                if(timeout >= 0 && System.currentTimeMillis() >= deadline) {
+                    return false;
                 }
+                LOG.debug("waiting for " + (maxBrokers - brokerPermits.availablePermits()) + " brokers to be returned");
+            }
+        } finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
             }
         }
+    }
 
-        inServiceMode = true;
-        final DBBroker broker = inactiveBrokers.peek();
-        broker.prepare();
-        checkpoint = true;
-        sync(broker, Sync.MAJOR);
-        checkpoint = false;
-        // Return a broker that can be used to perform system tasks
-        return broker;
+    /**
+     * Switches the database instance to service mode, in which only
+     * the given user may obtain a broker. Waits until all brokers
+     * leased by other threads have been returned, and then performs a
+     * major sync whilst no other thread can obtain a broker.
+     *
+     * @param user the dba user which switches to service mode
+     *
+     * @throws PermissionDeniedException if the user is not a dba
+     */
+    public void enterServiceMode(final Subject user) throws PermissionDeniedException {
+        if(!user.hasDbaRole()) {
+            throw new PermissionDeniedException("Only users of group dba can switch the db to service mode");
+        }
+
+        serviceModeUser = user;
+
+        // a broker leased by the calling thread holds one of the permits
+        final DBBroker leased = activeBrokers.get(Thread.currentThread());
+        final int permits = leased == null ? maxBrokers : maxBrokers - 1;
+        acquireBrokerPermits(permits, -1);
+        try {
+            inServiceMode = true;
+            final Consumer<DBBroker> majorSync = broker -> {
+                checkpoint = true;
+                sync(broker, Sync.MAJOR);
+                checkpoint = false;
+            };
+            if(leased != null) {
+                majorSync.accept(leased);
+            } else {
+                runExclusive(majorSync);
+            }
+        } catch(final EXistException e) {
+            LOG.error("Unable to sync the database when entering service mode: " + e.getMessage(), e);
+        } finally {
+            brokerPermits.release(permits);
+        }
     }
 
     public void exitServiceMode(final Subject user) throws PermissionDeniedException {
@@ -1504,33 +1810,22 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
         }
 
         LOG.debug("Triggering sync: " + syncEvent);
-        synchronized(this) {
-            //Are there available brokers ?
-            // TOUNDERSTAND (pb) : the trigger is ignored !
-            // WM: yes, it seems wrong!!
-//			if(inactiveBrokers.size() == 0)
-//				return;
-            //TODO : switch on syncEvent and throw an exception if it is inaccurate ?
-            //Is the database instance idle ?
-            if(inactiveBrokers.size() == brokersCount) {
-                //Borrow a broker
-                //TODO : this broker is *not* marked as active and may be reused by another process !
-                // No other brokers are running at this time, so there's no risk.
-                //TODO : use get() then release the broker ?
-                // No, might lead to a deadlock.
-                final DBBroker broker = inactiveBrokers.pop();
-                broker.prepare();
+
+        //Put the synchronization job into the queue, in case the database instance is not idle;
+        //the last thread to release its broker will then run it
+        //TODO : check that we don't replace high priority Sync.MAJOR_SYNC by a lesser priority sync !
+        this.syncEvent = syncEvent;
+        syncRequired = true;
+
+        //TODO : switch on syncEvent and throw an exception if it is inaccurate ?
+        //Is the database instance idle ?
+        runIfIdle(broker -> {
+            if(syncRequired) {
                 //Do the synchronization job
-                sync(broker, syncEvent);
-                inactiveBrokers.push(broker);
+                sync(broker, this.syncEvent);
                 syncRequired = false;
-            } else {
-                //Put the synchronization job into the queue
-                //TODO : check that we don't replace high priority Sync.MAJOR_SYNC by a lesser priority sync !
-                this.syncEvent = syncEvent;
-                syncRequired = true;
             }
-        }
+        });
     }
 
     /**
@@ -1588,6 +1883,7 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
             return;
         }
 
+        boolean shutdownPermits = false;
         try {
             LOG.info("Database is shutting down ...");
 
@@ -1600,118 +1896,88 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
                 statusReporter = new StatusReporter(SIGNAL_SHUTDOWN);
                 statusObservers.forEach(statusReporter::addObserver);
 
-                synchronized (this) {
-                    final Thread statusThread = newInstanceThread(this, "shutdown-status-reporter", statusReporter);
-                    statusThread.start();
+                final Thread statusThread = newInstanceThread(this, "shutdown-status-reporter", statusReporter);
+                statusThread.start();
 
-                    // DW: only in debug mode
-                    if (LOG.isDebugEnabled()) {
-                        notificationService.debug();
-                    }
-
-                    //Notify all running tasks that we are shutting down
-
-                    //Notify all running XQueries that we are shutting down
-                    processMonitor.killAll(500);
+                // DW: only in debug mode
+                if (LOG.isDebugEnabled()) {
+                    notificationService.debug();
+                }
 
-                    if (isRecoveryEnabled()) {
-                        journalManager.ifPresent(jm -> jm.flush(true, true));
-                    }
+                //Notify all running tasks that we are shutting down
 
-                    final long waitStart = System.currentTimeMillis();
-                    //Are there active brokers ?
-                    if (activeBrokers.size() > 0) {
-                        printSystemInfo();
-                        LOG.info("Waiting " + maxShutdownWait + "ms for remaining threads to shut down...");
-                        while (activeBrokers.size() > 0) {
-                            try {
-                                //Wait until they become inactive...
-                                this.wait(1000);
-                            } catch (final InterruptedException e) {
-                                //nothing to be done
-                            }
+                //Notify all running XQueries that we are shutting down
+                processMonitor.killAll(500);
 
-                            //...or force the shutdown
-                            if (maxShutdownWait > -1 && System.currentTimeMillis() - waitStart > maxShutdownWait) {
-                                LOG.warn("Not all threads returned. Forcing shutdown ...");
-                                break;
-                            }
-                        }
-                    }
-                    LOG.debug("Calling shutdown ...");
-
-                    //TODO : replace the following code by get()/release() statements ?
-                    // WM: deadlock risk if not all brokers returned properly.
-                    DBBroker broker = null;
-                    if (inactiveBrokers.isEmpty())
-                        try {
-                            broker = createBroker();
-                        } catch (final EXistException e) {
-                            LOG.warn("could not create instance for shutdown. Giving up.");
-                        }
-                    else
-                    //TODO : this broker is *not* marked as active and may be reused by another process !
-                    //TODO : use get() then release the broker ?
-                    // WM: deadlock risk if not all brokers returned properly.
-                    //TODO: always createBroker? -dmitriy
-                    {
-                        broker = inactiveBrokers.peek();
-                    }
+                if (isRecoveryEnabled()) {
+                    journalManager.ifPresent(jm -> jm.flush(true, true));
+                }
 
-                    try {
-                        if (broker != null) {
-                            broker.prepare();
-                            broker.pushSubject(securityManager.getSystemSubject());
-                        }
+                //Are there active brokers ?
+                if (activeBrokers.size() > 0) {
+                    printSystemInfo();
+                    LOG.info("Waiting " + maxShutdownWait + "ms for remaining threads to shut down...");
+                }
+                //Wait until they become inactive, and prevent any other thread from obtaining a broker...
+                shutdownPermits = acquireBrokerPermits(maxBrokers, maxShutdownWait);
+                //...or force the shutdown
+                if (!shutdownPermits) {
+                    LOG.warn("Not all threads returned. Forcing shutdown ...");
+                }
+                LOG.debug("Calling shutdown ...");
 
+                try {
+                    runExclusive(broker -> {
+                        broker.pushSubject(securityManager.getSystemSubject());
                         try {
-                            // instruct all database services to stop
-                            servicesManager.stopServices(broker);
-                        } catch(final BrokerPoolServicesManagerException e) {
-                           for(final BrokerPoolServiceException bpse : e.getServiceExceptions()) {
-                               LOG.error(bpse.getMessage(), bpse);
-                           }
-                        }
-
-                        //TOUNDERSTAND (pb) : shutdown() is called on only *one* broker ?
-                        // WM: yes, the database files are shared, so only one broker is needed to close them for all
-                        broker.shutdown();
+                            try {
+                                // instruct all database services to stop
+                                servicesManager.stopServices(broker);
+                            } catch(final BrokerPoolServicesManagerException e) {
+                               for(final BrokerPoolServiceException bpse : e.getServiceExceptions()) {
+                                   LOG.error(bpse.getMessage(), bpse);
+                               }
+                            }
 
-                    } finally {
-                        if(broker != null) {
+                            //TOUNDERSTAND (pb) : shutdown() is called on only *one* broker ?
+                            // WM: yes, the database files are shared, so only one broker is needed to close them for all
+                            broker.shutdown();
+                        } finally {
                             broker.popSubject();
                         }
-                    }
+                    });
+                } catch (final EXistException e) {
+                    LOG.warn("could not create instance for shutdown. Giving up.");
+                }
 
-                    collectionCache.invalidateAll();
+                collectionCache.invalidateAll();
 
-                    // final notification to database services to shutdown
-                    servicesManager.shutdown();
+                // final notification to database services to shutdown
+                servicesManager.shutdown();
 
-                    // remove all remaining inactive brokers as we have shutdown now and no longer need those
-                    inactiveBrokers.clear();
+                // remove all remaining inactive brokers as we have shutdown now and no longer need those
+                inactiveBrokers.clear();
 
-                    // deregister JMX MBeans
-                    AgentFactory.getInstance().closeDBInstance(this);
+                // deregister JMX MBeans
+                AgentFactory.getInstance().closeDBInstance(this);
 
-                    //Clear the living instances container
-                    shutdownInstanceConsumer.accept(instanceName);
+                //Clear the living instances container
+                shutdownInstanceConsumer.accept(instanceName);
 
-                    synchronized (readOnly) {
-                        if (!readOnly) {
-                            // release the lock on the data directory
-                            dataLock.release();
-                        }
+                synchronized (readOnly) {
+                    if (!readOnly) {
+                        // release the lock on the data directory
+                        dataLock.release();
                     }
+                }
 
-                    //clearing additional resources, like ThreadLocal
-                    clearThreadLocals();
+                //clearing additional resources, like ThreadLocal
+                clearThreadLocals();
 
-                    LOG.info("shutdown complete !");
+                LOG.info("shutdown complete !");
 
-                    if (shutdownListener != null) {
-                        shutdownListener.shutdown(instanceName, instancesCount());
-                    }
+                if (shutdownListener != null) {
+                    shutdownListener.shutdown(instanceName, instancesCount());
                 }
             } finally {
                 // clear instance variables, just to be sure they will be garbage collected
@@ -1720,6 +1986,9 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
                 transactionManager = null;
                 collectionCache = null;
                 xQueryPool = null;
+                xQueryModuleCache = null;
+                templatesCache = null;
+                asyncTriggerDispatcher = null;
                 processMonitor = null;
                 collectionConfigurationManager = null;
                 notificationService = null;
@@ -1743,6 +2012,11 @@ public class BrokerPool extends BrokerPools implements BrokerPoolConstants, Data
             }
         } finally {
             status.process(Event.FINISHED_SHUTDOWN);
+
+            // wake up the threads waiting for a broker, they will find the instance shut down
+            if (shutdownPermits) {
+                brokerPermits.release(maxBrokers);
+            }
         }
     }
 
@@ -60,6 +60,8 @@ public interface BrokerPoolConstants {
     String SYNC_PERIOD_ATTRIBUTE = "sync-period";
     String SHUTDOWN_DELAY_ATTRIBUTE = "wait-before-shutdown";
     String NODES_BUFFER_ATTRIBUTE = "nodesBuffer";
+    String MEMORY_MAPPED_FILES_ATTRIBUTE = "memoryMappedFiles";
+    String DOM_OVERFLOW_COMPRESSION_ATTRIBUTE = "domOverflowCompression";
 
     //Various configuration property keys (set by the configuration manager)
     String PROPERTY_STARTUP_TRIGGERS = "startup.triggers";
@@ -84,8 +86,12 @@ public interface BrokerPoolConstants {
     String RECOVERY_GROUP_COMMIT_ATTRIBUTE = "group-commit";
     String PROPERTY_RECOVERY_FORCE_RESTART = "db-connection.recovery.force-restart";
     String RECOVERY_FORCE_RESTART_ATTRIBUTE = "force-restart";
+    String PROPERTY_RECOVERY_REPLAY_THREADS = "db-connection.recovery.replay-threads";
+    String RECOVERY_REPLAY_THREADS_ATTRIBUTE = "replay-threads";
 
     String PROPERTY_PAGE_SIZE = "db-connection.page-size";
+    String PROPERTY_MEMORY_MAPPED_FILES = "db-connection.memory-mapped-files";
+    String PROPERTY_DOM_OVERFLOW_COMPRESSION = "db-connection.dom-overflow-compression";
 
     /**
      * Default values
@@ -0,0 +1,336 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.exist.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.collections.IndexInfo;
+import org.exist.dom.persistent.LockedDocument;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.lock.Lock.LockMode;
+import org.exist.storage.sync.Sync;
+import org.exist.storage.txn.TransactionManager;
+import org.exist.storage.txn.Txn;
+import org.exist.util.FileInputSource;
+import org.exist.util.FileUtils;
+import org.exist.util.LockException;
+import org.exist.xmldb.XmldbURI;
+import org.xml.sax.SAXException;
+
+/**
+ * Stores a large number of XML documents into a collection with deferred indexing.
+ *
+ * While the loader is open, the documents stored through it are only written to
+ * the DOM file of the database. All indexes of the loaded documents are built when
+ * the loader is closed, one document after the other in the order in which they were
+ * stored, in transactions of {@link #REINDEX_BATCH_SIZE} documents, followed by a
+ * single checkpoint. Other documents stored through the same broker are indexed as usual.
+ *
+ * Until then, queries will not find the loaded documents through any index.
+ *
+ * The URI of each document is written to a pending file in the {@link #PENDING_DIR}
+ * directory of the data directory before the document is stored, and the file is
+ * only removed once the indexes have been built. If the database stops before, the
+ * documents listed in the remaining pending files are reindexed by
+ * {@link #reindexPending(DBBroker)} when the database is started again.
+ *
+ * <pre>
+ * try (final BulkLoader loader = new BulkLoader(broker, collectionUri)) {
+ *     for (final Path file : files) {
+ *         loader.store(XmldbURI.create(FileUtils.fileName(file)), file);
+ *     }
+ * }
+ * </pre>
+ *
+ * A loader is bound to the broker, and thereby the thread, which created it.
+ */
+public class BulkLoader implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger(BulkLoader.class);
+
+    /**
+     * Directory, within the data directory, of the pending files.
+     */
+    public static final String PENDING_DIR = "bulkload";
+
+    private static final String PENDING_FILE_SUFFIX = ".pending";
+
+    /**
+     * Number of documents between two progress reports.
+     */
+    private static final int REPORT_INTERVAL = 1000;
+
+    /**
+     * Number of documents which are reindexed in a single transaction.
+     */
+    static final int REINDEX_BATCH_SIZE = 100;
+
+    private final DBBroker broker;
+    private final XmldbURI collectionUri;
+    private final Path pendingFile;
+    private final FileChannel pending;
+    private final List<XmldbURI> stored = new ArrayList<>();
+    private final long start = System.currentTimeMillis();
+    private boolean closed = false;
+
+    /**
+     * @param broker the broker to store the documents with
+     * @param collectionUri the collection to store the documents into
+     *
+     * @throws IOException if the pending file can not be created
+     */
+    public BulkLoader(final DBBroker broker, final XmldbURI collectionUri) throws IOException {
+        this.broker = broker;
+        this.collectionUri = collectionUri;
+        final Path pendingDir = Files.createDirectories(pendingDir(broker));
+        this.pendingFile = Files.createTempFile(pendingDir, "bulkload-", PENDING_FILE_SUFFIX);
+        this.pending = FileChannel.open(pendingFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Store an XML file into the collection.
+     *
+     * @param name the name of the document
+     * @param file the file to store
+     *
+     * @throws EXistException if the collection does not exist or storing fails
+     * @throws PermissionDeniedException if the current user may not write to the collection
+     * @throws SAXException if the file is not well-formed
+     * @throws LockException if the collection or the document can not be locked
+     * @throws IOException if the file can not be read
+     */
+    public void store(final XmldbURI name, final Path file)
+            throws EXistException, PermissionDeniedException, SAXException, LockException, IOException {
+        checkOpen();
+        final XmldbURI documentUri = pending(name);
+        final TransactionManager transact = broker.getBrokerPool().getTransactionManager();
+        try (final Txn transaction = transact.beginTransaction();
+             final Collection collection = openCollection()) {
+            // the indexer decides whether to index the document when the validation ends
+            broker.setDeferredIndexingDocument(documentUri);
+            try {
+                final IndexInfo info = collection.validateXMLResource(transaction, broker, name, new FileInputSource(file));
+                collection.store(transaction, broker, info, new FileInputSource(file));
+            } finally {
+                broker.setDeferredIndexingDocument(null);
+            }
+            transaction.commit();
+        }
+        stored(documentUri);
+    }
+
+    /**
+     * Store an XML document into the collection.
+     *
+     * @param name the name of the document
+     * @param data the content of the document
+     *
+     * @throws EXistException if the collection does not exist or storing fails
+     * @throws PermissionDeniedException if the current user may not write to the collection
+     * @throws SAXException if the data is not well-formed
+     * @throws LockException if the collection or the document can not be locked
+     * @throws IOException if the data can not be read
+     */
+    public void store(final XmldbURI name, final String data)
+            throws EXistException, PermissionDeniedException, SAXException, LockException, IOException {
+        checkOpen();
+        final XmldbURI documentUri = pending(name);
+        final TransactionManager transact = broker.getBrokerPool().getTransactionManager();
+        try (final Txn transaction = transact.beginTransaction();
+             final Collection collection = openCollection()) {
+            // the indexer decides whether to index the document when the validation ends
+            broker.setDeferredIndexingDocument(documentUri);
+            try {
+                final IndexInfo info = collection.validateXMLResource(transaction, broker, name, data);
+                collection.store(transaction, broker, info, data);
+            } finally {
+                broker.setDeferredIndexingDocument(null);
+            }
+            transaction.commit();
+        }
+        stored(documentUri);
+    }
+
+    /**
+     * @return the number of documents stored so far
+     */
+    public int getDocumentCount() {
+        return stored.size();
+    }
+
+    /**
+     * @return the average number of documents stored per second
+     */
+    public double getDocumentsPerSecond() {
+        return rate(stored.size(), start);
+    }
+
+    /**
+     * Builds the indexes of all stored documents, writes a checkpoint
+     * and removes the pending file.
+     *
+     * @throws EXistException if reindexing fails, the documents will then
+     *     be reindexed when the database is started again
+     */
+    @Override
+    public void close() throws EXistException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            pending.close();
+        } catch (final IOException e) {
+            LOG.warn("Unable to close {}: {}", pendingFile, e.getMessage());
+        }
+
+        LOG.info("Bulk load into {}: stored {} documents ({} docs/s), building indexes...",
+                collectionUri, stored.size(), String.format("%.1f", getDocumentsPerSecond()));
+
+        reindex(broker, stored, collectionUri.toString());
+        FileUtils.deleteQuietly(pendingFile);
+
+        LOG.info("Bulk load into {}: finished {} documents in {} ms",
+                collectionUri, stored.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Builds the indexes of the documents of bulk loads which did not complete,
+     * as listed by the pending files. Called when the database is started.
+     *
+     * @param broker the system broker
+     *
+     * @throws EXistException if reindexing fails
+     */
+    public static void reindexPending(final DBBroker broker) throws EXistException {
+        final Path pendingDir = pendingDir(broker);
+        if (!Files.isDirectory(pendingDir)) {
+            return;
+        }
+
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(pendingDir, "*" + PENDING_FILE_SUFFIX)) {
+            for (final Path file : files) {
+                final List<XmldbURI> documents = new ArrayList<>();
+                for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    try {
+                        documents.add(XmldbURI.create(line));
+                    } catch (final IllegalArgumentException e) {
+                        // the last line may have been partially written
+                        LOG.warn("Ignoring invalid document URI in {}: {}", file, line);
+                    }
+                }
+                LOG.info("Building the indexes of {} documents of an interrupted bulk load...", documents.size());
+                reindex(broker, documents, FileUtils.fileName(file));
+                FileUtils.deleteQuietly(file);
+            }
+        } catch (final IOException e) {
+            throw new EXistException("Unable to read the pending bulk loads: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reindexes documents in transactions of {@link #REINDEX_BATCH_SIZE} documents,
+     * followed by a checkpoint.
+     */
+    private static void reindex(final DBBroker broker, final List<XmldbURI> documents, final String description)
+            throws EXistException {
+        final long indexStart = System.currentTimeMillis();
+        final TransactionManager transact = broker.getBrokerPool().getTransactionManager();
+        int count = 0;
+        while (count < documents.size()) {
+            final int batchEnd = Math.min(count + REINDEX_BATCH_SIZE, documents.size());
+            try (final Txn transaction = transact.beginTransaction()) {
+                for (; count < batchEnd; count++) {
+                    try (final LockedDocument lockedDoc = broker.getXMLResource(documents.get(count), LockMode.READ_LOCK)) {
+                        // the document may have been removed in the meantime
+                        if (lockedDoc != null) {
+                            broker.reindexXMLResource(transaction, lockedDoc.getDocument(), DBBroker.IndexMode.REPAIR);
+                        }
+                    }
+                    if ((count + 1) % REPORT_INTERVAL == 0) {
+                        LOG.info("Bulk load into {}: indexed {} of {} documents ({} docs/s)",
+                                description, count + 1, documents.size(), String.format("%.1f", rate(count + 1, indexStart)));
+                    }
+                }
+                transaction.commit();
+            } catch (final PermissionDeniedException e) {
+                throw new EXistException(e.getMessage(), e);
+            }
+        }
+        broker.sync(Sync.MAJOR);
+    }
+
+    /**
+     * Records a document in the pending file, before it is stored.
+     */
+    private XmldbURI pending(final XmldbURI name) throws IOException {
+        final XmldbURI documentUri = collectionUri.append(name);
+        final ByteBuffer line = ByteBuffer.wrap((documentUri + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            pending.write(line);
+        }
+        pending.force(false);
+        return documentUri;
+    }
+
+    private Collection openCollection() throws EXistException, PermissionDeniedException {
+        final Collection collection = broker.openCollection(collectionUri, LockMode.WRITE_LOCK);
+        if (collection == null) {
+            throw new EXistException("Collection " + collectionUri + " not found");
+        }
+        return collection;
+    }
+
+    private void stored(final XmldbURI documentUri) {
+        stored.add(documentUri);
+        if (stored.size() % REPORT_INTERVAL == 0) {
+            LOG.info("Bulk load into {}: stored {} documents ({} docs/s)",
+                    collectionUri, stored.size(), String.format("%.1f", getDocumentsPerSecond()));
+        }
+    }
+
+    private void checkOpen() throws EXistException {
+        if (closed) {
+            throw new EXistException("Bulk load into " + collectionUri + " has already been closed");
+        }
+    }
+
+    private static Path pendingDir(final DBBroker broker) {
+        return broker.getBrokerPool().getStoragePlace().resolve(PENDING_DIR);
+    }
+
+    private static double rate(final int count, final long since) {
+        final long elapsed = Math.max(1, System.currentTimeMillis() - since);
+        return count * 1000.0 / elapsed;
+    }
+}
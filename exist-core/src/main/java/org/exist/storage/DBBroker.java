@@ -65,6 +65,7 @@ import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 
 /**
  * This is the base class for all database backends. All the basic database
@@ -133,6 +134,8 @@ public abstract class DBBroker implements AutoCloseable {
 
     private boolean triggersEnabled = true;
 
+    @Nullable private XmldbURI deferredIndexingDocument = null;
+
     public DBBroker(final BrokerPool pool, final Configuration config) {
         this.config = config;
         final Boolean temp = (Boolean) config.getProperty(NativeValueIndex.PROPERTY_INDEX_CASE_SENSITIVE);
@@ -686,6 +689,47 @@ public abstract class DBBroker implements AutoCloseable {
 
     public abstract void getCollectionResources(Collection.InternalAccess collectionInternalAccess);
 
+    /**
+     * Read a page of the document entries of a Collection, in the order
+     * of their keys in collections.dbx.
+     *
+     * @param collectionInternalAccess receives the documents
+     * @param after the last document of the previous page, or null to start with the first document
+     * @param max the maximum number of documents to read
+     */
+    public abstract void getCollectionResources(Collection.InternalAccess collectionInternalAccess,
+            @Nullable DocumentImpl after, int max);
+
+    /**
+     * Read the document entry with the given id of a Collection.
+     *
+     * The entry is looked up by its key in collections.dbx, the other
+     * document entries of the Collection are not read.
+     *
+     * @param collectionInternalAccess receives the document, if it is found
+     * @param docId the id of the document
+     */
+    public abstract void getCollectionResource(Collection.InternalAccess collectionInternalAccess, int docId);
+
+    /**
+     * Get the names and ids of the documents of a Collection.
+     *
+     * Only the id and the name are read from the document entries.
+     *
+     * @param collectionId the id of the Collection
+     * @param consumer receives the name and the id of each document
+     */
+    public abstract void getCollectionResourceNames(int collectionId, ObjIntConsumer<String> consumer);
+
+    /**
+     * Get the ids of the documents of a Collection, without reading their entries.
+     *
+     * @param collectionId the id of the Collection
+     *
+     * @return the ids of the documents
+     */
+    public abstract int[] getCollectionResourceIds(int collectionId);
+
     /**
      * @deprecated use {@link #readBinaryResource(Txn, BinaryDocument, OutputStream)}
      * @param blob
@@ -1216,6 +1260,34 @@ public abstract class DBBroker implements AutoCloseable {
         this.triggersEnabled = triggersEnabled;
     }
 
+    /**
+     * @param document a document which is being stored through this broker
+     *
+     * @return true if the indexing of the document is deferred
+     */
+    public boolean isIndexingDeferred(final DocumentImpl document) {
+        return deferredIndexingDocument != null && deferredIndexingDocument.equals(document.getURI());
+    }
+
+    public @Nullable XmldbURI getDeferredIndexingDocument() {
+        return deferredIndexingDocument;
+    }
+
+    /**
+     * Defers the indexing of a document. When the document is stored through
+     * this broker, it is only written to the DOM file. Its indexes have to be
+     * built afterwards by calling {@link #reindexXMLResource(Txn, DocumentImpl, IndexMode)}
+     * with {@link IndexMode#REPAIR}, see {@link BulkLoader}. The indexing has to be
+     * deferred before the document is validated, as the indexer is set up at the end
+     * of the validation.
+     *
+     * @param documentUri the URI of the document whose indexing is deferred, or null
+     *     to index all documents when they are stored
+     */
+    public void setDeferredIndexingDocument(@Nullable final XmldbURI documentUri) {
+        this.deferredIndexingDocument = documentUri;
+    }
+
     /**
      * Represents a {@link Subject} change
      * made to a broker
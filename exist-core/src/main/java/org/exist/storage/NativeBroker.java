@@ -19,6 +19,7 @@
  */
 package org.exist.storage;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import com.evolvedbinary.j8fu.function.FunctionE;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -85,7 +86,8 @@ import java.nio.file.Paths;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.function.Function;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -801,7 +803,7 @@ public class NativeBroker extends DBBroker {
     private @Nullable @EnsureLocked(mode=LockMode.READ_LOCK, type=LockType.COLLECTION) Collection loadCollection(
             @EnsureLocked(mode=LockMode.READ_LOCK, type=LockType.COLLECTION) final XmldbURI collectionUri)
             throws PermissionDeniedException, LockException, IOException {
-        try (final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try (final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.CollectionKey(collectionUri.toString());
             final VariableByteInput is = collectionsDb.getAsStream(key);
             return is == null ? null : MutableCollection.load(this, collectionUri, is);
@@ -955,7 +957,7 @@ public class NativeBroker extends DBBroker {
         final Pattern p = Pattern.compile(regexp);
         final Matcher m = p.matcher("");
 
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
 
             //TODO write a regexp lookup for key data in BTree.query
             //final IndexQuery idxQuery = new IndexQuery(IndexQuery.REGEXP, regexp);
@@ -994,7 +996,7 @@ public class NativeBroker extends DBBroker {
         final CollectionCache collectionsCache = pool.getCollectionsCache();
         final Collection collection = collectionsCache.getIfPresent(uri);
         if(collection == null) {
-            try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
 
                 final Value key = new CollectionStore.CollectionKey(uri.toString());
                 final VariableByteInput is = collectionsDb.getAsStream(key);
@@ -1534,7 +1536,7 @@ public class NativeBroker extends DBBroker {
         collectionsCache.invalidate(sourceCollection.getURI());
 
         // remove source from disk
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.CollectionKey(sourceCollectionUri.toString());
             collectionsDb.remove(transaction, key);
         }
@@ -1624,7 +1626,7 @@ public class NativeBroker extends DBBroker {
 
             // 5) remove Collection from collections.dbx
             if(parentCollection != null) {
-                try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
                     final Value key = new CollectionStore.CollectionKey(collectionUri.getRawCollectionPath());
                     collectionsDb.remove(transaction, key);
 
@@ -1647,7 +1649,7 @@ public class NativeBroker extends DBBroker {
 
             //TODO(AR) this could possibly be executed asynchronously as a task, we don't need to know when it completes (this is because access to documents is through a Collection, and the Collection was removed above), however we cannot recycle the collectionId until all docs are gone
             // 6) unlink all documents from the Collection
-            try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
                 final Value docKey = new CollectionStore.DocumentKey(collection.getId());
                 final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, docKey);
                 collectionsDb.removeAll(transaction, query);
@@ -1810,7 +1812,7 @@ public class NativeBroker extends DBBroker {
         final CollectionCache collectionsCache = pool.getCollectionsCache();
         collectionsCache.put(collection);
 
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             final Value name = new CollectionStore.CollectionKey(collection.getURI().toString());
             try(final VariableByteOutputStream os = new VariableByteOutputStream(8)) {
                 collection.serialize(os);
@@ -1837,7 +1839,7 @@ public class NativeBroker extends DBBroker {
             return nextCollectionId;
         }
 
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.CollectionKey(CollectionStore.NEXT_COLLECTION_ID_KEY);
             final Value data = collectionsDb.get(key);
             if(data != null) {
@@ -2058,7 +2060,7 @@ public class NativeBroker extends DBBroker {
     @Override
     public DocumentImpl getResourceById(final int collectionId, final byte resourceType, final int documentId) throws PermissionDeniedException {
         XmldbURI uri;
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
 
             //get the collection uri
             String collectionUri = null;
@@ -2113,7 +2115,7 @@ public class NativeBroker extends DBBroker {
     @Override
     public void storeXMLResource(final Txn transaction, final DocumentImpl doc) {
         try(final VariableByteOutputStream os = new VariableByteOutputStream(8);
-                final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+                final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             doc.write(os);
             final Value key = new CollectionStore.DocumentKey(doc.getCollection().getId(), doc.getResourceType(), doc.getDocId());
             collectionsDb.put(transaction, key, os.data(), true);
@@ -2316,7 +2318,7 @@ public class NativeBroker extends DBBroker {
     //TODO : consider a better cooperation with Collection -pb
     @Override
     public void getCollectionResources(final Collection.InternalAccess collectionInternalAccess) {
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.DocumentKey(collectionInternalAccess.getId());
             final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, key);
 
@@ -2328,10 +2330,98 @@ public class NativeBroker extends DBBroker {
         }
     }
 
+    @Override
+    public void getCollectionResources(final Collection.InternalAccess collectionInternalAccess,
+            @Nullable final DocumentImpl after, final int max) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+            final Value prefix = new CollectionStore.DocumentKey(collectionInternalAccess.getId());
+            final Value start = after == null ? prefix
+                    : new CollectionStore.DocumentKey(collectionInternalAccess.getId(), after.getResourceType(), after.getDocId());
+            final IndexQuery query = new IndexQuery(IndexQuery.GT, start);
+
+            final DocumentCallback documentCallback = new DocumentCallback(collectionInternalAccess);
+            final int[] count = { 0 };
+            collectionsDb.query(query, prefix, (key, pointer) -> {
+                // NOTE: the BTree ignores a return value of false, so we have to terminate the scan
+                if (count[0]++ == max) {
+                    throw new ScanStoppedException();
+                }
+                return documentCallback.indexInfo(key, pointer);
+            });
+        } catch(final ScanStoppedException e) {
+            // the page is full
+        } catch(final LockException e) {
+            LOG.error("Failed to acquire lock on {}", FileUtils.fileName(collectionsDb.getFile()));
+        } catch(final IOException | BTreeException | TerminatedException e) {
+            LOG.error("Exception while reading document data", e);
+        }
+    }
+
+    @Override
+    public void getCollectionResource(final Collection.InternalAccess collectionInternalAccess, final int docId) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+            // the type of the document is part of the key, so there are at most two candidates
+            for (final byte type : new byte[] { DocumentImpl.XML_FILE, DocumentImpl.BINARY_FILE }) {
+                final Value key = new CollectionStore.DocumentKey(collectionInternalAccess.getId(), type, docId);
+                final long pointer = collectionsDb.findValue(key);
+                if (pointer != BTree.KEY_NOT_FOUND) {
+                    new DocumentCallback(collectionInternalAccess).indexInfo(key, pointer);
+                    return;
+                }
+            }
+        } catch(final LockException e) {
+            LOG.error("Failed to acquire lock on {}", FileUtils.fileName(collectionsDb.getFile()));
+        } catch(final IOException | BTreeException | TerminatedException e) {
+            LOG.error("Exception while reading document data", e);
+        }
+    }
+
+    @Override
+    public void getCollectionResourceNames(final int collectionId, final ObjIntConsumer<String> consumer) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+            final Value key = new CollectionStore.DocumentKey(collectionId);
+            final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, key);
+
+            collectionsDb.query(query, (docKey, pointer) -> {
+                try {
+                    final VariableByteInput is = collectionsDb.getAsStream(pointer);
+                    final int docId = is.readInt();
+                    consumer.accept(is.readUTF(), docId);
+                } catch (final IOException e) {
+                    LOG.error("Exception while reading document data", e);
+                }
+                return true;
+            });
+        } catch(final LockException e) {
+            LOG.error("Failed to acquire lock on {}", FileUtils.fileName(collectionsDb.getFile()));
+        } catch(final IOException | BTreeException | TerminatedException e) {
+            LOG.error("Exception while reading document names", e);
+        }
+    }
+
+    @Override
+    public int[] getCollectionResourceIds(final int collectionId) {
+        final IntArrayList docIds = new IntArrayList();
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+            final Value key = new CollectionStore.DocumentKey(collectionId);
+            final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, key);
+
+            collectionsDb.query(query, (docKey, pointer) -> {
+                docIds.add(CollectionStore.DocumentKey.getDocumentId(docKey));
+                return true;
+            });
+        } catch(final LockException e) {
+            LOG.error("Failed to acquire lock on {}", FileUtils.fileName(collectionsDb.getFile()));
+        } catch(final IOException | BTreeException | TerminatedException e) {
+            LOG.error("Exception while reading document ids", e);
+        }
+        return docIds.toIntArray();
+    }
+
     @Override
     public void getResourcesFailsafe(final Txn transaction, final BTreeCallback callback, final boolean fullScan) throws TerminatedException {
         assert(transaction != null && transaction.getState() == Txn.State.STARTED);
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.DocumentKey();
             final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, key);
             if(fullScan) {
@@ -2349,7 +2439,7 @@ public class NativeBroker extends DBBroker {
     @Override
     public void getCollectionsFailsafe(final Txn transaction, final BTreeCallback callback) throws TerminatedException {
         assert(transaction != null && transaction.getState() == Txn.State.STARTED);
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeReadLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.CollectionKey();
             final IndexQuery query = new IndexQuery(IndexQuery.TRUNC_RIGHT, key);
             collectionsDb.query(query, callback);
@@ -2860,7 +2950,7 @@ public class NativeBroker extends DBBroker {
     public void removeResourceMetadata(final Txn transaction,
             @EnsureLocked(mode=LockMode.WRITE_LOCK) final DocumentImpl document) {
         // remove document metadata
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             if(LOG.isDebugEnabled()) {
                 LOG.debug("Removing resource metadata for {}", document.getDocId());
             }
@@ -2892,7 +2982,7 @@ public class NativeBroker extends DBBroker {
             return nextDocId;
         }
         nextDocId = 1;
-        try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
             final Value key = new CollectionStore.CollectionKey(CollectionStore.NEXT_DOC_ID_KEY);
             final Value data = collectionsDb.get(key);
             if(data != null) {
@@ -3118,8 +3208,15 @@ public class NativeBroker extends DBBroker {
         }.run();
         ++nodesCount;
         ByteArrayPool.releaseByteArray(data);
-        nodeProcessor.reset(transaction, node, currentPath, indexSpec);
-        nodeProcessor.doIndex();
+        if(isIndexingDeferred(doc)) {
+            // the element object may be reused, clear a stale index type
+            if(nodeType == Node.ELEMENT_NODE) {
+                ((ElementImpl) node).setIndexType(RangeIndexSpec.NO_INDEX);
+            }
+        } else {
+            nodeProcessor.reset(transaction, node, currentPath, indexSpec);
+            nodeProcessor.doIndex();
+        }
     }
 
     @Override
@@ -3639,7 +3736,7 @@ public class NativeBroker extends DBBroker {
 
     protected void rebuildIndex(final byte indexId) {
         final BTree btree = getStorage(indexId);
-        try(final ManagedLock<ReentrantLock> btreeLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = lockManager.acquireBtreeWriteLock(btree.getLockName())) {
             LOG.info("Rebuilding index {}", FileUtils.fileName(btree.getFile()));
             btree.rebuild();
             LOG.info("Index {} was rebuilt.", FileUtils.fileName(btree.getFile()));
@@ -3680,7 +3777,7 @@ public class NativeBroker extends DBBroker {
                 }
             }.run();
             if(syncEvent == Sync.MAJOR) {
-                try(final ManagedLock<ReentrantLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> collectionsDbLock = lockManager.acquireBtreeWriteLock(collectionsDb.getLockName())) {
                     collectionsDb.flush();
                 } catch(final LockException e) {
                     LOG.error("Failed to acquire lock on " + FileUtils.fileName(collectionsDb.getFile()), e);
@@ -3970,6 +4067,17 @@ public class NativeBroker extends DBBroker {
         }
     }
 
+    /**
+     * Terminates a scan of collections.dbx once enough entries were read.
+     */
+    private static final class ScanStoppedException extends TerminatedException {
+        private static final long serialVersionUID = -2151318478312858765L;
+
+        private ScanStoppedException() {
+            super("Scan stopped");
+        }
+    }
+
     private final class DocumentCallback implements BTreeCallback {
 
         private final Collection.InternalAccess collectionInternalAccess;
@@ -33,6 +33,7 @@ import org.exist.indexing.AbstractStreamListener;
 import org.exist.indexing.IndexUtils;
 import org.exist.indexing.IndexWorker;
 import org.exist.indexing.StreamListener;
+import org.exist.indexing.StructuralIndex;
 import org.exist.numbering.NodeId;
 import org.exist.storage.btree.BTreeCallback;
 import org.exist.storage.btree.BTreeException;
@@ -59,10 +60,12 @@ import org.exist.util.*;
 
 import org.w3c.dom.Node;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Maintains an index on typed node values (optionally by QName).
@@ -344,7 +347,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
     @Override
     public void sync() {
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
             dbValues.flush();
         } catch (final LockException e) {
             LOG.warn("Failed to acquire lock for '" + FileUtils.fileName(dbValues.getFile()) + "'", e);
@@ -399,7 +402,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
             //Write (variable) length of node IDs
             os.writeFixedInt(nodeIDsLength, os.position() - nodeIDsLength - LENGTH_NODE_IDS);
-            try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
                 final Value v = dbKeyFn.apply(key);
 
                 if (dbValues.append(v, os.data()) == BFile.UNKNOWN_ADDRESS) {
@@ -442,7 +445,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
             final List<NodeId> newGIDList = new ArrayList<>();
             os.clear();
 
-            try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
 
                 //Compute a key for the value
                 final Value searchKey = dbKeyFn.apply(key);
@@ -546,7 +549,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
     @Override
     public void dropIndex(final Collection collection) {
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
 
             flush();
 
@@ -567,7 +570,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
     @Override
     public void dropIndex(final DocumentImpl document) {
         final int collectionId = document.getCollection().getId();
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
             dropIndex(document.getDocId(), pendingGeneric, key -> new SimpleValue(collectionId, (Indexable) key));
             dropIndex(document.getDocId(), pendingQName, key -> new QNameValue(collectionId, key.qname, key.value, broker.getBrokerPool().getSymbols()));
         } catch (final LockException e) {
@@ -691,7 +694,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
             watchDog.proceed(null);
 
             if (qnames == null) {
-                try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
                     final Value searchKey = new SimpleValue(collectionId, value);
                     final IndexQuery query = new IndexQuery(idxOp, searchKey);
 
@@ -708,7 +711,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
                 }
             } else {
                 for (final QName qname : qnames) {
-                    try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                    try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
 
                         //Compute a key for the value in the collection
                         final Value searchKey = new QNameValue(collectionId, qname, value, broker.getBrokerPool().getSymbols());
@@ -731,6 +734,86 @@ public class NativeValueIndex implements ContentLoadingObserver {
         return result;
     }
 
+    /**
+     * Count the nodes with the given name whose value compares to the given value,
+     * without materializing the matching nodes. Only the number of node ids
+     * of each document is read from the index entries.
+     *
+     * @param watchDog the watchdog of the query
+     * @param comparison the type of comparison
+     * @param docs the documents to count in
+     * @param qname the name of the indexed elements or attributes
+     * @param value right hand comparison value, of the type of the index
+     * @param limit stop counting once at least this number of nodes were found, or -1 to count all
+     * @return the number of matching nodes, which may exceed limit
+     * @throws TerminatedException if the query was terminated
+     */
+    public long count(final XQueryWatchDog watchDog, final Comparison comparison, final DocumentSet docs, final QName qname, final Indexable value, final long limit) throws TerminatedException {
+        final CountCallback cb = new CountCallback(docs, null);
+        count(watchDog, comparison, docs, qname, value, limit, cb);
+        return cb.count;
+    }
+
+    /**
+     * Count the distinct elements with the name parentQName which have a child or attribute
+     * with the given name whose value compares to the given value. The parents are looked up
+     * in the structural index by their node id, so that no node set is materialized.
+     *
+     * @param watchDog the watchdog of the query
+     * @param comparison the type of comparison
+     * @param docs the documents to count in
+     * @param qname the name of the indexed child elements or attributes
+     * @param value right hand comparison value, of the type of the index
+     * @param parentQName the name of the parent elements
+     * @param limit stop counting once at least this number of parents were found, or -1 to count all
+     * @return the number of matching parents, which may exceed limit
+     * @throws TerminatedException if the query was terminated
+     */
+    public long countParents(final XQueryWatchDog watchDog, final Comparison comparison, final DocumentSet docs, final QName qname, final Indexable value, final QName parentQName, final long limit) throws TerminatedException {
+        final Map<DocumentImpl, Set<NodeId>> parentIds = new HashMap<>();
+        count(watchDog, comparison, docs, qname, value, -1, new CountCallback(docs, parentIds));
+
+        final StructuralIndex structuralIndex = broker.getStructuralIndex();
+        long count = 0;
+        for (final Map.Entry<DocumentImpl, Set<NodeId>> entry : parentIds.entrySet()) {
+            if (limit >= 0 && count >= limit) {
+                break;
+            }
+            watchDog.proceed(null);
+            count += structuralIndex.countElementsByNodeId(ElementValue.ELEMENT, entry.getKey(), parentQName,
+                    entry.getValue(), limit < 0 ? -1 : limit - count);
+        }
+        return count;
+    }
+
+    private void count(final XQueryWatchDog watchDog, final Comparison comparison, final DocumentSet docs, final QName qname, final Indexable value, final long limit, final CountCallback cb) throws TerminatedException {
+        final int idxOp = toIndexQueryOp(comparison);
+
+        for (final Iterator<Collection> iter = docs.getCollectionIterator(); iter.hasNext(); ) {
+            if (limit >= 0 && cb.count >= limit) {
+                break;
+            }
+            final int collectionId = iter.next().getId();
+
+            watchDog.proceed(null);
+
+            try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                final Value searchKey = new QNameValue(collectionId, qname, value, broker.getBrokerPool().getSymbols());
+                final IndexQuery query = new IndexQuery(idxOp, searchKey);
+                if (idxOp == IndexQuery.EQ) {
+                    dbValues.query(query, cb);
+                } else {
+                    final Value prefixKey = new QNamePrefixValue(collectionId, qname, value.getType(), broker.getBrokerPool().getSymbols());
+                    dbValues.query(query, prefixKey, cb);
+                }
+            } catch (final EXistException | BTreeException | IOException e) {
+                LOG.error(e.getMessage(), e);
+            } catch (final LockException e) {
+                LOG.warn("Failed to acquire lock for '" + FileUtils.fileName(dbValues.getFile()) + "'", e);
+            }
+        }
+    }
+
     public NodeSet match(final XQueryWatchDog watchDog, final DocumentSet docs, final NodeSet contextSet, final int axis, final String expr, final QName qname, final int type) throws TerminatedException, EXistException {
         return match(watchDog, docs, contextSet, axis, expr, qname, type, null, StringTruncationOperator.RIGHT);
     }
@@ -847,7 +930,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
             watchDog.proceed(null);
             if (qnames == null) {
-                try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
 
                     final Value searchKey;
                     if (startTerm != null) {
@@ -866,7 +949,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
                 }
             } else {
                 for (final QName qname : qnames) {
-                    try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                    try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
 
                         final Value searchKey;
                         if (startTerm != null) {
@@ -895,7 +978,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
         for (final Iterator<Collection> i = docs.getCollectionIterator(); i.hasNext(); ) {
 
-            try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
                 final Collection c = i.next();
                 final int collectionId = c.getId();
 
@@ -945,7 +1028,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
         for (final QName qname : qnames) {
 
             for (final Iterator<Collection> i = docs.getCollectionIterator(); i.hasNext(); ) {
-                try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeReadLock(dbValues.getLockName())) {
                     final int collectionId = i.next().getId();
 
                     //Compute a key for the start value in the collection
@@ -1047,7 +1130,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
     @Override
     public void closeAndRemove() throws DBException {
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
             config.setProperty(getConfigKeyForFile(), null);
             dbValues.closeAndRemove();
         } catch (final LockException e) {
@@ -1057,7 +1140,7 @@ public class NativeValueIndex implements ContentLoadingObserver {
 
     @Override
     public void close() throws DBException {
-        try(final ManagedLock<ReentrantLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> bfileLock = lockManager.acquireBtreeWriteLock(dbValues.getLockName())) {
             config.setProperty(getConfigKeyForFile(), null);
             dbValues.close();
         } catch (final LockException e) {
@@ -1256,6 +1339,64 @@ public class NativeValueIndex implements ContentLoadingObserver {
         }
     }
 
+    private class CountCallback implements BTreeCallback {
+        private final DocumentSet docs;
+        @Nullable private final Map<DocumentImpl, Set<NodeId>> parentIds;
+        private long count = 0;
+
+        /**
+         * @param docs the documents to count in
+         * @param parentIds if not null, the ids of the parents of the matching nodes are
+         *     collected into this map instead of counting the nodes
+         */
+        CountCallback(final DocumentSet docs, @Nullable final Map<DocumentImpl, Set<NodeId>> parentIds) {
+            this.docs = docs;
+            this.parentIds = parentIds;
+        }
+
+        @Override
+        public boolean indexInfo(final Value value, final long pointer) throws TerminatedException {
+            final VariableByteInput is;
+            try {
+                is = dbValues.getAsStream(pointer);
+            } catch (final IOException e) {
+                LOG.error(e.getMessage(), e);
+                return true;
+            }
+
+            try {
+                while (is.available() > 0) {
+                    final int storedDocId = is.readInt();
+                    final int gidsCount = is.readInt();
+                    final int size = is.readFixedInt();
+                    final DocumentImpl storedDocument = docs.getDoc(storedDocId);
+
+                    if (storedDocument == null) {
+                        is.skipBytes(size);
+                    } else if (parentIds == null) {
+                        count += gidsCount;
+                        is.skipBytes(size);
+                    } else {
+                        final Set<NodeId> ids = parentIds.computeIfAbsent(storedDocument, doc -> new TreeSet<>());
+                        NodeId previous = null;
+                        for (int j = 0; j < gidsCount; j++) {
+                            final NodeId nodeId = broker.getBrokerPool().getNodeFactory().createFromStream(previous, is);
+                            previous = nodeId;
+                            final NodeId parentId = nodeId.getParentId();
+                            if (!NodeId.DOCUMENT_NODE.equals(parentId)) {
+                                ids.add(parentId);
+                            }
+                        }
+                    }
+                }
+            } catch (final IOException e) {
+                LOG.error(e.getMessage(), e);
+            }
+
+            return true;
+        }
+    }
+
     private final class MatcherCallback extends SearchCallback {
         private final TermMatcher matcher;
         private final XMLString key = new XMLString(128);
@@ -135,14 +135,28 @@ public class ProcessMonitor implements BrokerPoolService {
         }
     }
 
+    /**
+     * Registers a query which is about to be executed by the current thread,
+     * and starts accounting the resources used by the thread to the query.
+     *
+     * @param watchdog the watchdog of the query
+     */
     public void queryStarted(final XQueryWatchDog watchdog) {
+        watchdog.getResourceUsage().attach();
         synchronized (runningQueries) {
             watchdog.setRunningThread(Thread.currentThread().getName());
             runningQueries.add(watchdog);
         }
     }
 
+    /**
+     * Removes a query which has been executed by the current thread.
+     * Must be called by the thread which called {@link #queryStarted(XQueryWatchDog)}.
+     *
+     * @param watchdog the watchdog of the query
+     */
     public void queryCompleted(final XQueryWatchDog watchdog) {
+        watchdog.getResourceUsage().detach();
         boolean found;
         synchronized (runningQueries) {
             found = runningQueries.remove(watchdog);
@@ -158,6 +172,7 @@ public class ProcessMonitor implements BrokerPoolService {
                 qh.setMostRecentExecutionTime(watchdog.getStartTime());
                 qh.setMostRecentExecutionDuration(elapsed);
                 qh.incrementInvocationCount();
+                qh.setResourceUsage(watchdog.getResourceUsage().snapshot());
                 if (trackRequests) {
                     qh.setRequestURI(getRequestURI(watchdog));
                 }
@@ -222,6 +237,7 @@ public class ProcessMonitor implements BrokerPoolService {
         private long mostRecentExecutionTime;
         private long mostRecentExecutionDuration;
         private int invocationCount = 0;
+        private QueryResourceUsage resourceUsage = null;
         private long expires;
 
         public QueryHistory(final String source, final long delay) {
@@ -265,6 +281,17 @@ public class ProcessMonitor implements BrokerPoolService {
             requestURI = uri;
         }
 
+        /**
+         * @return the resources used by the most recent execution, or null if unknown
+         */
+        public QueryResourceUsage getResourceUsage() {
+            return resourceUsage;
+        }
+
+        public void setResourceUsage(final QueryResourceUsage resourceUsage) {
+            this.resourceUsage = resourceUsage;
+        }
+
         @Override
         public long getDelay(final TimeUnit unit) {
             return unit.convert(expires - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
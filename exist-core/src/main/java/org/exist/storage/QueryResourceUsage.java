@@ -0,0 +1,261 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.exist.storage;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resources consumed by a single query: thread CPU time, allocated bytes,
+ * pages read per paged file, page cache hits and misses, B+-tree lookups and
+ * nodes loaded from the DOM file.
+ *
+ * The usage is attached to the thread running the query by
+ * {@link ProcessMonitor#queryStarted(org.exist.xquery.XQueryWatchDog)}. While attached,
+ * the storage layer reports to it through the static <code>record*</code> methods,
+ * which only cost a thread local lookup if no query is running. Queries which run nested
+ * within another query on the same thread are reported to both.
+ *
+ * The counters are only written by the thread running the query, other threads,
+ * e.g. JMX, read them without synchronization and may see slightly outdated values.
+ */
+public class QueryResourceUsage {
+
+    private static final ThreadLocal<QueryResourceUsage> CURRENT = new ThreadLocal<>();
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private QueryResourceUsage parent = null;
+    private int depth = 0;
+
+    private volatile long threadId = -1;
+    private long cpuTimeStart;
+    private long allocatedBytesStart;
+
+    private long cpuTime = 0;
+    private long allocatedBytes = 0;
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+    private long indexLookups = 0;
+    private long nodesMaterialized = 0;
+    private final Map<String, AtomicLong> pagesRead = new ConcurrentHashMap<>();
+
+    private void reset() {
+        cpuTime = 0;
+        allocatedBytes = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+        indexLookups = 0;
+        nodesMaterialized = 0;
+        pagesRead.clear();
+    }
+
+    /**
+     * Start accounting the resources used by the current thread to this query.
+     * Previously recorded values are cleared.
+     */
+    void attach() {
+        if (depth++ > 0) {
+            // the same query is already running on this thread
+            return;
+        }
+        reset();
+        final Thread thread = Thread.currentThread();
+        cpuTimeStart = currentThreadCpuTime();
+        allocatedBytesStart = threadAllocatedBytes(thread.getId());
+        threadId = thread.getId();
+        parent = CURRENT.get();
+        CURRENT.set(this);
+    }
+
+    /**
+     * Stop accounting the resources used by the current thread to this query.
+     */
+    void detach() {
+        if (depth == 0 || --depth > 0) {
+            return;
+        }
+        cpuTime += delta(currentThreadCpuTime(), cpuTimeStart);
+        allocatedBytes += delta(threadAllocatedBytes(threadId), allocatedBytesStart);
+        threadId = -1;
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(parent);
+            parent = null;
+        }
+    }
+
+    /**
+     * @return a copy of the current values which is no longer updated
+     */
+    public QueryResourceUsage snapshot() {
+        final QueryResourceUsage copy = new QueryResourceUsage();
+        copy.cpuTime = getCpuTime();
+        copy.allocatedBytes = getAllocatedBytes();
+        copy.cacheHits = cacheHits;
+        copy.cacheMisses = cacheMisses;
+        copy.indexLookups = indexLookups;
+        copy.nodesMaterialized = nodesMaterialized;
+        for (final Map.Entry<String, AtomicLong> entry : pagesRead.entrySet()) {
+            copy.pagesRead.put(entry.getKey(), new AtomicLong(entry.getValue().get()));
+        }
+        return copy;
+    }
+
+    /**
+     * @return the CPU time of the query in nanoseconds, or 0 if CPU time measurement
+     *     is not supported by the JVM
+     */
+    public long getCpuTime() {
+        final long id = threadId;
+        if (id == -1) {
+            return cpuTime;
+        }
+        return cpuTime + delta(threadCpuTime(id), cpuTimeStart);
+    }
+
+    /**
+     * @return the number of bytes allocated by the query, or 0 if allocation measurement
+     *     is not supported by the JVM
+     */
+    public long getAllocatedBytes() {
+        final long id = threadId;
+        if (id == -1) {
+            return allocatedBytes;
+        }
+        return allocatedBytes + delta(threadAllocatedBytes(id), allocatedBytesStart);
+    }
+
+    /**
+     * @return the number of pages read from disk, by file name
+     */
+    public Map<String, Long> getPagesRead() {
+        final Map<String, Long> pages = new HashMap<>();
+        for (final Map.Entry<String, AtomicLong> entry : pagesRead.entrySet()) {
+            pages.put(entry.getKey(), entry.getValue().get());
+        }
+        return Collections.unmodifiableMap(pages);
+    }
+
+    /**
+     * @return the total number of pages read from disk
+     */
+    public long getTotalPagesRead() {
+        long total = 0;
+        for (final AtomicLong count : pagesRead.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public long getIndexLookups() {
+        return indexLookups;
+    }
+
+    public long getNodesMaterialized() {
+        return nodesMaterialized;
+    }
+
+    /**
+     * Record that a page of a paged file has been read from disk.
+     *
+     * @param fileName the name of the paged file
+     */
+    public static void recordPageRead(final String fileName) {
+        for (QueryResourceUsage usage = CURRENT.get(); usage != null; usage = usage.parent) {
+            usage.pagesRead.computeIfAbsent(fileName, name -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    /**
+     * Record a lookup in a page cache.
+     *
+     * @param hit true if the page was found in the cache
+     */
+    public static void recordCacheAccess(final boolean hit) {
+        for (QueryResourceUsage usage = CURRENT.get(); usage != null; usage = usage.parent) {
+            if (hit) {
+                usage.cacheHits++;
+            } else {
+                usage.cacheMisses++;
+            }
+        }
+    }
+
+    /**
+     * Record a key lookup or range scan in a B+-tree.
+     */
+    public static void recordIndexLookup() {
+        for (QueryResourceUsage usage = CURRENT.get(); usage != null; usage = usage.parent) {
+            usage.indexLookups++;
+        }
+    }
+
+    /**
+     * Record that a node has been loaded from the DOM file.
+     */
+    public static void recordNodeMaterialized() {
+        for (QueryResourceUsage usage = CURRENT.get(); usage != null; usage = usage.parent) {
+            usage.nodesMaterialized++;
+        }
+    }
+
+    private static long delta(final long now, final long start) {
+        return now < 0 || start < 0 ? 0 : now - start;
+    }
+
+    private static long currentThreadCpuTime() {
+        if (!THREADS.isCurrentThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        return THREADS.getCurrentThreadCpuTime();
+    }
+
+    private static long threadCpuTime(final long id) {
+        if (!THREADS.isThreadCpuTimeSupported() || !THREADS.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        return THREADS.getThreadCpuTime(id);
+    }
+
+    private static long threadAllocatedBytes(final long id) {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(id);
+            }
+        }
+        return -1;
+    }
+}
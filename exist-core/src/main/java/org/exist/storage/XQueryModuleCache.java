@@ -0,0 +1,220 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import java.text.NumberFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import antlr.collections.AST;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.source.Source;
+import org.exist.util.Configuration;
+
+import javax.annotation.Nullable;
+
+/**
+ * Global cache for the parsed syntax trees of XQuery library modules.
+ *
+ * Library modules are imported by many different queries, and every query
+ * which is not found in the {@link XQueryPool} has to load all of its imported
+ * modules again. The expensive part of that is lexing and parsing the module
+ * source, whose result depends on nothing but the source text, so the syntax
+ * tree can be shared by all threads. The tree walk which builds the
+ * {@link org.exist.xquery.ExternalModule} and its expressions still happens for
+ * each importing context, so no per-execution state is ever shared between queries.
+ *
+ * Entries are stored and retrieved by comparing {@link Source} objects and are
+ * checked for validity against the source on every lookup. An entry is evicted
+ * when the cache grows beyond its maximum size, or if it has not been
+ * used for the same timeout as the {@link XQueryPool}.
+ */
+@ThreadSafe
+public class XQueryModuleCache implements BrokerPoolService {
+
+    private static final Logger LOG = LogManager.getLogger(XQueryModuleCache.class);
+
+    public static final String MODULE_CACHE_SIZE_ATTRIBUTE = "module-cache-size";
+    public static final String PROPERTY_MODULE_CACHE_SIZE = "db-connection.query-pool.module-cache-size";
+
+    private static final int DEFAULT_MAX_CACHE_SIZE = 256;
+
+    private int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder compilations = new LongAdder();
+    private final LongAdder compilationTime = new LongAdder();
+
+    /**
+     * Source -> parsed module, null if the cache is disabled
+     */
+    @Nullable private Cache<Source, ParsedModule> cache;
+
+    @Override
+    public void configure(final Configuration configuration) {
+        final Integer maxCacheSz = (Integer) configuration.getProperty(PROPERTY_MODULE_CACHE_SIZE);
+        final Long t = (Long) configuration.getProperty(XQueryPool.PROPERTY_TIMEOUT);
+        final NumberFormat nf = NumberFormat.getNumberInstance();
+
+        if (maxCacheSz != null) {
+            this.maxCacheSize = maxCacheSz;
+        } else {
+            this.maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+        }
+
+        final long timeout = t != null ? t : XQueryPool.DEFAULT_TIMEOUT;
+
+        if (maxCacheSize > 0) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maxCacheSize)
+                    .expireAfterAccess(timeout, TimeUnit.MILLISECONDS)
+                    .build();
+        } else {
+            this.cache = null;
+        }
+
+        LOG.info("XQueryModuleCache: " + "size = " + nf.format(maxCacheSize) + "; "
+                + "timeout = " + nf.format(timeout) + "; ");
+    }
+
+    /**
+     * Gets the parsed syntax tree of a library module.
+     *
+     * @param broker A database broker.
+     * @param source The source of the library module.
+     *
+     * @return The syntax tree of the module, or null if there is no
+     *     valid syntax tree for the source in the cache.
+     */
+    public @Nullable AST get(final DBBroker broker, final Source source) {
+        if (cache == null || broker == null || source == null) {
+            return null;
+        }
+
+        final ParsedModule parsedModule = cache.getIfPresent(source);
+        if (parsedModule == null) {
+            misses.increment();
+            return null;
+        }
+
+        Source.Validity validity = parsedModule.source.isValid(broker);
+        if (validity == Source.Validity.UNKNOWN) {
+            validity = parsedModule.source.isValid(source);
+        }
+
+        if (validity != Source.Validity.VALID) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(source.getKey() + " is invalid, removing from XQuery Module Cache...");
+            }
+            cache.asMap().remove(source, parsedModule);
+            invalidations.increment();
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return parsedModule.ast;
+    }
+
+    /**
+     * Adds the parsed syntax tree of a library module to the cache.
+     *
+     * The syntax tree must not be modified after it has been added,
+     * as it will be walked concurrently by other threads.
+     *
+     * @param source The source from which the module was parsed.
+     * @param ast The syntax tree of the module.
+     * @param parseTime The time taken to parse the module in nanoseconds.
+     */
+    public void put(final Source source, final AST ast, final long parseTime) {
+        compilations.increment();
+        compilationTime.add(parseTime);
+
+        if (cache == null) {
+            return;
+        }
+        cache.put(source, new ParsedModule(source, ast));
+    }
+
+    /**
+     * Removes all entries from the XQuery Module Cache.
+     */
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxCacheSize;
+    }
+
+    public long getSize() {
+        return cache == null ? 0 : cache.estimatedSize();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Get the number of times that a module was parsed
+     * because it was not found in the cache.
+     *
+     * @return the number of parsed modules
+     */
+    public long getCompilationCount() {
+        return compilations.sum();
+    }
+
+    /**
+     * Get the total time spent parsing modules
+     * which were not found in the cache.
+     *
+     * @return the total parse time in milliseconds
+     */
+    public long getCompilationTime() {
+        return TimeUnit.NANOSECONDS.toMillis(compilationTime.sum());
+    }
+
+    private static class ParsedModule {
+        final Source source;
+        final AST ast;
+
+        ParsedModule(final Source source, final AST ast) {
+            this.source = source;
+            this.ast = ast;
+        }
+    }
+}
@@ -66,7 +66,7 @@ public class XQueryPool implements BrokerPoolService {
 
     private static final int DEFAULT_MAX_POOL_SIZE = 128;
     private static final int DEFAULT_MAX_QUERY_STACK_SIZE = 64;
-    private static final long DEFAULT_TIMEOUT = 120_000L;   // ms (i.e. 2 mins)
+    static final long DEFAULT_TIMEOUT = 120_000L;   // ms (i.e. 2 mins)
 
     private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
     private int maxQueryStackSize = DEFAULT_MAX_QUERY_STACK_SIZE;
@@ -25,4 +25,15 @@ import org.exist.storage.journal.Loggable;
 public interface BlobLoggable extends Loggable {
     byte LOG_STORE_BLOB_FILE = 0x50;
     byte LOG_UPDATE_BLOB_REF_COUNT = 0x51;
+
+    /**
+     * Storage file id of the Blob Store. Paged files use
+     * byte ids, so this can never clash with one of them.
+     */
+    int BLOB_STORE_FILE_ID = 0x100;
+
+    @Override
+    default int getStorageFileId() {
+        return BLOB_STORE_FILE_ID;
+    }
 }
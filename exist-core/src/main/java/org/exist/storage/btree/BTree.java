@@ -79,6 +79,7 @@ import org.exist.storage.BufferStats;
 
 import org.exist.storage.DefaultCacheManager;
 import org.exist.storage.NativeBroker;
+import org.exist.storage.QueryResourceUsage;
 import org.exist.storage.cache.*;
 import org.exist.storage.journal.*;
 import org.exist.storage.txn.Txn;
@@ -293,6 +294,7 @@ public class BTree extends Paged implements Lockable {
      */
     public void remove(final Txn transaction, IndexQuery query, final BTreeCallback callback)
             throws IOException, BTreeException, TerminatedException {
+        QueryResourceUsage.recordIndexLookup();
         if (query != null && query.getOperator() == IndexQuery.TRUNC_RIGHT) {
             final Value val1 = query.getValue(0);
             final byte data1[] = val1.getData();
@@ -343,6 +345,7 @@ public class BTree extends Paged implements Lockable {
      * @throws BTreeException if an error occurss with the tree
      */
     public long findValue(final Value value) throws IOException, BTreeException {
+        QueryResourceUsage.recordIndexLookup();
         return getRootNode().findValue(value);
     }
 
@@ -385,6 +388,7 @@ public class BTree extends Paged implements Lockable {
      */
     public void query(final IndexQuery query, final Value prefix, final BTreeCallback callback)
             throws IOException, BTreeException, TerminatedException {
+        QueryResourceUsage.recordIndexLookup();
         getRootNode().query(query, prefix, callback);
     }
 
@@ -0,0 +1,114 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Read-only memory mappings over the regions of a {@link Paged} file.
+ *
+ * The file is mapped in fixed size regions, each of which is mapped lazily
+ * on first access. The last region of the file is only mapped up to the
+ * current end of the file, and is re-mapped when a read falls beyond the
+ * mapped range after the file has grown. Reads which cannot be served from a
+ * mapping, i.e. which straddle two regions or lie beyond the end of the file,
+ * return null so that the caller can fall back to an explicit file read.
+ *
+ * Views are obtained from {@link ByteBuffer#duplicate()} so that concurrent
+ * readers never share a buffer position.
+ *
+ * Superseded mappings are released by the garbage collector.
+ */
+@ThreadSafe
+final class MappedFileRegions {
+
+    static final int REGION_SIZE = 64 * 1024 * 1024;    // 64 MB
+
+    private final FileChannel channel;
+    private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+
+    MappedFileRegions(final FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Get a view of the file for reading {@code length} bytes at {@code offset}.
+     *
+     * @param offset the offset in the file
+     * @param length the number of bytes that will be read
+     *
+     * @return a buffer positioned at the offset, or null if the range cannot be served from a mapping
+     *
+     * @throws IOException if the file cannot be mapped
+     */
+    ByteBuffer view(final long offset, final int length) throws IOException {
+        final int idx = (int) (offset / REGION_SIZE);
+        final int position = (int) (offset % REGION_SIZE);
+        if (position + length > REGION_SIZE) {
+            return null;
+        }
+
+        final MappedByteBuffer[] current = regions;
+        MappedByteBuffer region = idx < current.length ? current[idx] : null;
+        if (region == null || region.capacity() < position + length) {
+            region = map(idx, position + length);
+            if (region == null) {
+                return null;
+            }
+        }
+
+        final ByteBuffer view = region.duplicate();
+        view.position(position);
+        return view;
+    }
+
+    private synchronized MappedByteBuffer map(final int idx, final int required) throws IOException {
+        final MappedByteBuffer[] current = regions;
+        if (idx < current.length && current[idx] != null && current[idx].capacity() >= required) {
+            return current[idx];
+        }
+
+        final long start = (long) idx * REGION_SIZE;
+        final long size = Math.min(REGION_SIZE, channel.size() - start);
+        if (size < required) {
+            // not yet written to the file
+            return null;
+        }
+
+        final MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        final MappedByteBuffer[] next = Arrays.copyOf(current, Math.max(current.length, idx + 1));
+        next[idx] = region;
+        regions = next;
+        return region;
+    }
+
+    /**
+     * Drop all mappings.
+     */
+    synchronized void clear() {
+        regions = new MappedByteBuffer[0];
+    }
+}
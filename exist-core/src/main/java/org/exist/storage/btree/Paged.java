@@ -74,6 +74,7 @@ package org.exist.storage.btree;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.storage.BrokerPool;
+import org.exist.storage.QueryResourceUsage;
 import org.exist.storage.journal.Lsn;
 import org.exist.util.ByteConversion;
 import org.exist.util.FileUtils;
@@ -84,12 +85,14 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.NonWritableChannelException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.regex.Pattern;
 
 /**
  *  Paged is a paged file foundation that is used by the BTree class and
@@ -128,13 +131,31 @@ public abstract class Paged implements AutoCloseable {
 
     protected static int PAGE_SIZE = 4096;
 
+    private static final Pattern MEMORY_MAPPED_FILES_SEPARATOR = Pattern.compile("[\\s,]+");
+
     protected final short fileVersion;
     private final FileHeader fileHeader;
     private final byte[] tempPageData;
     private final byte[] tempHeaderData;
 
+    /**
+     * Guards the file pointer of {@link #raf} and the temporary
+     * page buffers, as pages may be read concurrently by readers
+     * holding a shared lock on the file.
+     */
+    private final Object ioLatch = new Object();
+
     private RandomAccessFile raf;
+
+    /**
+     * Memory mappings used for reading pages, or null if
+     * the file is not configured to be memory mapped.
+     */
+    private MappedFileRegions mappedRegions;
+    private final String memoryMappedFiles;
+
     private Path file;
+    private String fileName;
     private boolean readOnly = false;
     private boolean fileIsNew = false;
 	
@@ -143,6 +164,7 @@ public abstract class Paged implements AutoCloseable {
         this.fileHeader = createFileHeader(pool.getPageSize());
         this.tempPageData = new byte[fileHeader.pageSize];
         this.tempHeaderData = new byte[fileHeader.pageHeaderSize];
+        this.memoryMappedFiles = pool.getConfiguration().getProperty(BrokerPool.PROPERTY_MEMORY_MAPPED_FILES, null);
     }
 
     public final static void setPageSize(final int pageSize) {
@@ -165,6 +187,10 @@ public abstract class Paged implements AutoCloseable {
     @Override
     public void close() throws DBException {
         try {
+            if (mappedRegions != null) {
+                mappedRegions.clear();
+                mappedRegions = null;
+            }
             raf.close();
         } catch (final IOException e) {
             throw new DBException("An error occurred whilst closing the database file '"
@@ -239,11 +265,13 @@ public abstract class Paged implements AutoCloseable {
      * @throws IOException if an I/O error occurs
      */
     public void backupToStream(final OutputStream os) throws IOException {
-        raf.seek(0);
-        final byte[] buf = new byte[4096];
-        int len;
-        while ((len = raf.read(buf)) > 0) {
-            os.write(buf, 0, len);
+        synchronized (ioLatch) {
+            raf.seek(0);
+            final byte[] buf = new byte[4096];
+            int len;
+            while ((len = raf.read(buf)) > 0) {
+                os.write(buf, 0, len);
+            }
         }
     }
 
@@ -393,6 +421,7 @@ public abstract class Paged implements AutoCloseable {
      */
     protected final void setFile(final Path file) throws DBException {
         this.file = file;
+        this.fileName = FileUtils.fileName(file);
         fileIsNew = !Files.exists(file);
         try {
             if ((!Files.exists(file)) || Files.isWritable(file)) {
@@ -414,12 +443,31 @@ public abstract class Paged implements AutoCloseable {
                 readOnly = true;
                 raf = new RandomAccessFile(file.toFile(), "r");
             }
+            if (isMemoryMapped(file)) {
+                mappedRegions = new MappedFileRegions(raf.getChannel());
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Reading pages of " + FileUtils.fileName(file) + " through memory mapping");
+                }
+            }
         } catch (final IOException e) {
             LOG.warn("An exception occurred while opening database file " +
                 file.toAbsolutePath().toString() + ": " + e.getMessage(), e);
         }
     }
 
+    private boolean isMemoryMapped(final Path file) {
+        if (memoryMappedFiles == null) {
+            return false;
+        }
+        final String fileName = FileUtils.fileName(file);
+        for (final String memoryMappedFile : MEMORY_MAPPED_FILES_SEPARATOR.split(memoryMappedFiles)) {
+            if (memoryMappedFile.equals(fileName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Unlinks a set of pages starting at the specified page.
      *
@@ -709,8 +757,10 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public final synchronized void read() throws IOException {
-            raf.seek(0);
-            raf.read(buf);
+            synchronized (ioLatch) {
+                raf.seek(0);
+                raf.read(buf);
+            }
             read(buf);
             calculateWorkSize();
             dirty = false;
@@ -846,9 +896,11 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public final synchronized void write() throws IOException {
-            raf.seek(0);
             write(buf);
-            raf.write(buf);
+            synchronized (ioLatch) {
+                raf.seek(0);
+                raf.write(buf);
+            }
             dirty = false;
         }
     }
@@ -941,18 +993,33 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public byte[] read() throws IOException {
+            QueryResourceUsage.recordPageRead(fileName);
             try {
-                if (raf.getFilePointer() != offset) {
-                    raf.seek(offset);
+                if (mappedRegions != null) {
+                    final ByteBuffer view = mappedRegions.view(offset, fileHeader.pageSize);
+                    if (view != null) {
+                        final byte[] headerData = new byte[fileHeader.pageHeaderSize];
+                        view.get(headerData);
+                        header.read(headerData, 0);
+                        final byte[] workData = new byte[header.dataLen];
+                        view.get(workData);
+                        return workData;
+                    }
+                }
+
+                synchronized (ioLatch) {
+                    if (raf.getFilePointer() != offset) {
+                        raf.seek(offset);
+                    }
+                    Arrays.fill(tempHeaderData, (byte)0);
+                    raf.read(tempHeaderData);
+                    // Read in the header
+                    header.read(tempHeaderData, 0);
+                    // Read the working data
+                    final byte[] workData = new byte[header.dataLen];
+                    raf.read(workData);
+                    return workData;
                 }
-                Arrays.fill(tempHeaderData, (byte)0);
-                raf.read(tempHeaderData);
-                // Read in the header
-                header.read(tempHeaderData, 0);
-                // Read the working data
-                final byte[] workData = new byte[header.dataLen];
-                raf.read(workData);
-                return workData;
             } catch(final Exception e) {
                 LOG.warn("error while reading page: " + getPageInfo(), e);
                 throw new IOException(e.getMessage());
@@ -969,25 +1036,27 @@ public abstract class Paged implements AutoCloseable {
         }
 
         private final void write(final byte[] data) throws IOException {
-            if(data == null) {
-                // Removed page: fill with 0
-                Arrays.fill(tempPageData, (byte)0);
-                header.setLsn(Lsn.LSN_INVALID);
-            }
-            // Write out the header
-            header.write(tempPageData, 0);
-            header.dirty = false;
-            if (data != null) {
-                if (data.length > fileHeader.workSize) {
-                    throw new IOException("page: " + getPageInfo() + ": data length too large: " + data.length);
-                } else {
-                    System.arraycopy(data, 0, tempPageData, fileHeader.pageHeaderSize, data.length);
+            synchronized (ioLatch) {
+                if (data == null) {
+                    // Removed page: fill with 0
+                    Arrays.fill(tempPageData, (byte) 0);
+                    header.setLsn(Lsn.LSN_INVALID);
                 }
+                // Write out the header
+                header.write(tempPageData, 0);
+                header.dirty = false;
+                if (data != null) {
+                    if (data.length > fileHeader.workSize) {
+                        throw new IOException("page: " + getPageInfo() + ": data length too large: " + data.length);
+                    } else {
+                        System.arraycopy(data, 0, tempPageData, fileHeader.pageHeaderSize, data.length);
+                    }
+                }
+                if (raf.getFilePointer() != offset) {
+                    raf.seek(offset);
+                }
+                raf.write(tempPageData);
             }
-            if (raf.getFilePointer() != offset) {
-                raf.seek(offset);
-            }
-            raf.write(tempPageData);
         }
 
         @Override
@@ -1007,11 +1076,13 @@ public abstract class Paged implements AutoCloseable {
         }
 
         public void dumpPage() throws IOException {
-            if (raf.getFilePointer() != offset) {
-                raf.seek(offset);
-            }
             final byte[] data = new byte[fileHeader.pageSize];
-            raf.read(data);
+            synchronized (ioLatch) {
+                if (raf.getFilePointer() != offset) {
+                    raf.seek(offset);
+                }
+                raf.read(data);
+            }
             LOG.debug("Contents of page " + pageNum + ": " + hexDump(data));
         }
     }
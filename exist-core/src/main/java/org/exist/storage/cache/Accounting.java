@@ -23,6 +23,7 @@ package org.exist.storage.cache;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.exist.storage.QueryResourceUsage;
 import org.exist.util.hashtable.SequencedLongHashMap;
 
 /**
@@ -92,6 +93,7 @@ public class Accounting {
      */
     public void hitIncrement() {
         ++hits;
+        QueryResourceUsage.recordCacheAccess(true);
     }
     
     /**
@@ -109,6 +111,7 @@ public class Accounting {
      */
     public void missesIncrement() {
         ++misses;
+        QueryResourceUsage.recordCacheAccess(false);
     }
     
     /**
@@ -19,14 +19,14 @@
  */
 package org.exist.storage.cache;
 
-import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
 import org.exist.util.hashtable.SequencedLongHashMap;
 
 /**
  * This cache implementation always tries to keep the inner btree pages in
  * cache, while the leaf pages can be removed.
  */
-@NotThreadSafe
+@ThreadSafe
 public class BTreeCache<T extends BTreeCacheable> extends LRUCache<T> {
 
     public BTreeCache(final String name, final int size, final double growthFactor, final double growthThreshold, final CacheType type) {
@@ -34,12 +34,12 @@ public class BTreeCache<T extends BTreeCacheable> extends LRUCache<T> {
     }
 
     @Override
-    public void add(final T item, final int initialRefCount) {
+    public synchronized void add(final T item, final int initialRefCount) {
         add(item);
     }
 
     @Override
-    public void add(final T item) {
+    public synchronized void add(final T item) {
         map.put(item.getKey(), item);
         if (map.size() >= max + 1) {
             removeNext(item);
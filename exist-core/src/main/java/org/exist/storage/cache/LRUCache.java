@@ -19,7 +19,7 @@
  */
 package org.exist.storage.cache;
 
-import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.storage.CacheManager;
@@ -34,7 +34,7 @@ import org.exist.util.hashtable.SequencedLongHashMap;
  * 
  * @author wolf
  */
-@NotThreadSafe
+@ThreadSafe
 public class LRUCache<T extends Cacheable> implements Cache<T> {
     private final static Logger LOG = LogManager.getLogger(LRUCache.class);
 
@@ -63,7 +63,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
 	}
 
 	@Override
-	public void add(final T item, final int initialRefCount) {
+	public synchronized void add(final T item, final int initialRefCount) {
 		_add(item);
 	}
 
@@ -73,7 +73,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
     }
 
     @Override
-	public void add(final T item) {
+	public synchronized void add(final T item) {
         _add(item);
 	}
 
@@ -89,12 +89,12 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
     }
 
 	@Override
-	public T get(final T item) {
+	public synchronized T get(final T item) {
 		return get(item.getKey());
 	}
 
 	@Override
-	public T get(final long key) {
+	public synchronized T get(final long key) {
 		final T obj = map.get(key);
 		if(obj == null) {
 		    accounting.missesIncrement();
@@ -105,12 +105,12 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
 	}
 
 	@Override
-	public void remove(final T item) {
+	public synchronized void remove(final T item) {
 		map.remove(item.getKey());
 	}
 
 	@Override
-	public boolean flush() {
+	public synchronized boolean flush() {
 		boolean flushed = false;
 		for(SequencedLongHashMap.Entry<T> next = map.getFirstEntry(); next != null; next = next.getNext()) {
 			final T cacheable = next.getValue();
@@ -123,7 +123,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
 
 	
     @Override
-    public boolean hasDirtyItems() {
+    public synchronized boolean hasDirtyItems() {
         for(SequencedLongHashMap.Entry<T> next = map.getFirstEntry(); next != null; next = next.getNext()) {
             final T cacheable = next.getValue();
             if(cacheable.isDirty()) {
@@ -134,26 +134,26 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
     }
     
 	@Override
-	public int getBuffers() {
+	public synchronized int getBuffers() {
 		return max;
 	}
 
 	@Override
-	public int getUsedBuffers() {
+	public synchronized int getUsedBuffers() {
 		return map.size();
 	}
 
 	@Override
-	public int getHits() {
+	public synchronized int getHits() {
 		return accounting.getHits();
 	}
 
 	@Override
-	public int getFails() {
+	public synchronized int getFails() {
 		return accounting.getMisses();
 	}
  
-    public int getThrashing() {
+    public synchronized int getThrashing() {
         return accounting.getThrashing();
     }
 
@@ -193,7 +193,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
     }
     
     @Override
-    public void resize(final int newSize) {
+    public synchronized void resize(final int newSize) {
         if (newSize < max) {
             shrink(newSize);
         } else {
@@ -218,7 +218,7 @@ public class LRUCache<T extends Cacheable> implements Cache<T> {
     }
 
     @Override
-    public int getLoad() {
+    public synchronized int getLoad() {
         if (hitsOld == 0) {
             hitsOld = accounting.getHits();
             return Integer.MAX_VALUE;
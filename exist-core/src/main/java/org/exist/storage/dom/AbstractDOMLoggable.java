@@ -0,0 +1,40 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ *
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.exist.storage.dom;
+
+import org.exist.storage.NativeBroker;
+import org.exist.storage.journal.AbstractLoggable;
+
+/**
+ * Base class for the journal entries written by {@link DOMFile}.
+ * All of them modify pages of dom.dbx.
+ */
+public abstract class AbstractDOMLoggable extends AbstractLoggable {
+
+    public AbstractDOMLoggable(final byte type, final long transactionId) {
+        super(type, transactionId);
+    }
+
+    @Override
+    public int getStorageFileId() {
+        return NativeBroker.DOM_DBX_ID;
+    }
+}
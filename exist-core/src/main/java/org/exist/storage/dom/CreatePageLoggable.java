@@ -24,14 +24,13 @@ import java.nio.ByteBuffer;
 
 import org.exist.storage.DBBroker;
 import org.exist.storage.NativeBroker;
-import org.exist.storage.journal.AbstractLoggable;
 import org.exist.storage.journal.LogException;
 import org.exist.storage.txn.Txn;
 
 /**
  * @author wolf
  */
-public class CreatePageLoggable extends AbstractLoggable {
+public class CreatePageLoggable extends AbstractDOMLoggable {
     protected long prevPage;
     protected long newPage;
     protected long nextPage;
@@ -28,7 +28,9 @@ import java.io.Writer;
 import java.nio.file.Path;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import javax.annotation.Nullable;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
@@ -37,6 +39,9 @@ import static org.exist.storage.btree.Paged.Page.NO_PAGE;
 
 import it.unimi.dsi.fastutil.objects.Reference2LongMap;
 import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.dom.persistent.AttrImpl;
@@ -112,6 +117,13 @@ import org.w3c.dom.Node;
  * The upper two bits of the tuple id are used to indicate the type of the record
  * (see {@link org.exist.storage.dom.ItemId}).
  * 
+ * Node values which are too large for a page are written to a chain of overflow
+ * pages. If {@link BrokerPool#PROPERTY_DOM_OVERFLOW_COMPRESSION} is set to "lz4", such
+ * values are LZ4 compressed before they are written:
+ *  | {@link #COMPRESSED_VALUE} | uncompressed length | compressed data |
+ * Compressed values are recognised and decompressed on read, whatever the
+ * current setting. Records which fit into a data page are never compressed.
+ * 
  * @author <a href="mailto:wolfgang@exist-db.org">Wolfgang Meier</a>
  */
 public class DOMFile extends BTree implements Lockable {
@@ -174,6 +186,14 @@ public class DOMFile extends BTree implements Lockable {
     //Data length for overflow pages
     public final static short OVERFLOW = 0;
 
+    public static final String COMPRESSION_LZ4 = "lz4";
+    /**
+     * First byte of a compressed overflow value. Its upper three bits
+     * denote a node type which is never used, see {@link Signatures#getType(byte)}.
+     */
+    public static final byte COMPRESSED_VALUE = (byte) 0xE0;
+    public static final int LENGTH_COMPRESSED_HEADER = 1 + 4; //marker byte + sizeof int
+
     public final static long DATA_SYNC_PERIOD = 4200;
 
     private final Cache<DOMPage> dataCache;
@@ -188,6 +208,9 @@ public class DOMFile extends BTree implements Lockable {
 
     private final AddValueLoggable addValueLog = new AddValueLoggable();
 
+    @Nullable private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+
     public DOMFile(final BrokerPool pool, final byte id, final Path dataDir, final Configuration config) throws DBException {
         super(pool, id, FILE_FORMAT_VERSION_ID, true, pool.getCacheManager());
         this.lockManager = pool.getLockManager();
@@ -198,6 +221,17 @@ public class DOMFile extends BTree implements Lockable {
         fileHeader.setTotalCount(0);
         dataCache = new LRUCache<>(getFileName(), 256, 0.0, 1.0, Cache.CacheType.DATA);
         cacheManager.registerCache(dataCache);
+        final LZ4Factory lz4Factory = LZ4Factory.fastestInstance();
+        final String compression = (String) config.getProperty(BrokerPool.PROPERTY_DOM_OVERFLOW_COMPRESSION);
+        if (COMPRESSION_LZ4.equals(compression)) {
+            this.compressor = lz4Factory.fastCompressor();
+        } else {
+            if (compression != null && !"none".equals(compression)) {
+                LOG.warn("Unknown compression for " + FILE_NAME + ": " + compression + ", values will be stored uncompressed");
+            }
+            this.compressor = null;
+        }
+        this.decompressor = lz4Factory.fastDecompressor();
         final Path file = dataDir.resolve(getFileName());
         setFile(file);
         if (exists()) {
@@ -345,7 +379,7 @@ public class DOMFile extends BTree implements Lockable {
                 LOG.debug("Creating overflow page");
             }
             final OverflowDOMPage overflowPage = new OverflowDOMPage();
-            overflowPage.write(transaction, value);
+            overflowPage.write(transaction, compress(value));
             final byte[] pageNum = ByteConversion.longToByte(overflowPage.getPageNum());
             return add(transaction, pageNum, true);
         } else {
@@ -479,7 +513,13 @@ public class DOMFile extends BTree implements Lockable {
         if(LOG.isDebugEnabled() && !lockManager.isBtreeLocked(getLockName())) {
             LOG.debug("The file doesn't own a lock");
         }
-        return getOverflowValue(pageNum);
+        try {
+            final OverflowDOMPage overflowPage = new OverflowDOMPage(pageNum);
+            return overflowPage.read();
+        } catch (final IOException e) {
+            LOG.error("IO error while loading overflow value", e);
+            return null;
+        }
     }
 
     public void readBinary(final long pageNum, final OutputStream os) {
@@ -547,7 +587,7 @@ public class DOMFile extends BTree implements Lockable {
         if (LENGTH_TID + LENGTH_DATA_LENGTH + value.length > fileHeader.getWorkSize()) {
             final OverflowDOMPage overflowPage = new OverflowDOMPage();
             LOG.debug("Creating overflow page: " + overflowPage.getPageNum());
-            overflowPage.write(transaction, value);
+            overflowPage.write(transaction, compress(value));
             value = ByteConversion.longToByte(overflowPage.getPageNum());
             isOverflow = true;
         }
@@ -1586,13 +1626,20 @@ public class DOMFile extends BTree implements Lockable {
     }
 
 
+    /**
+     * Read a node value from a chain of overflow pages,
+     * decompressing it if necessary.
+     *
+     * @param pointer the number of the first overflow page
+     * @return the node value
+     */
     protected byte[] getOverflowValue(final long pointer) {
         if(LOG.isDebugEnabled() && !lockManager.isBtreeLocked(getLockName())) {
             LOG.debug("The file doesn't own a lock");
         }
         try {
             final OverflowDOMPage overflow = new OverflowDOMPage(pointer);
-            return overflow.read();
+            return decompress(overflow.read());
         } catch (final IOException e) {
             LOG.warn("IO error while loading overflow value", e);
             //TODO : throw exception ?
@@ -1600,6 +1647,44 @@ public class DOMFile extends BTree implements Lockable {
         }
     }
 
+    /**
+     * Compress a node value which is about to be written to overflow pages.
+     *
+     * @param value the node value
+     * @return the compressed value, or the value itself if compression is
+     *     disabled or does not reduce its size
+     */
+    private byte[] compress(final byte[] value) {
+        if (compressor == null) {
+            return value;
+        }
+        final int maxLength = compressor.maxCompressedLength(value.length);
+        final byte[] compressed = new byte[LENGTH_COMPRESSED_HEADER + maxLength];
+        compressed[0] = COMPRESSED_VALUE;
+        ByteConversion.intToByte(value.length, compressed, 1);
+        final int compressedLength = compressor.compress(value, 0, value.length, compressed, LENGTH_COMPRESSED_HEADER, maxLength);
+        if (LENGTH_COMPRESSED_HEADER + compressedLength >= value.length) {
+            return value;
+        }
+        return Arrays.copyOf(compressed, LENGTH_COMPRESSED_HEADER + compressedLength);
+    }
+
+    /**
+     * Decompress a node value read from overflow pages.
+     *
+     * @param data the value as stored
+     * @return the node value, or the data itself if it was stored uncompressed
+     */
+    private @Nullable byte[] decompress(@Nullable final byte[] data) {
+        if (data == null || data.length <= LENGTH_COMPRESSED_HEADER || data[0] != COMPRESSED_VALUE) {
+            return data;
+        }
+        final int length = ByteConversion.byteToInt(data, 1);
+        final byte[] value = new byte[length];
+        decompressor.decompress(data, LENGTH_COMPRESSED_HEADER, value, 0, length);
+        return value;
+    }
+
     /**
      * Remove the overflow value.
      * 
@@ -33,7 +33,7 @@ import org.exist.util.FileUtils;
 import org.exist.util.LockException;
 import org.exist.util.ReadOnlyException;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 
 /**
@@ -52,7 +52,7 @@ public abstract class DOMTransaction {
 
     private final Object ownerObject;
     private final DOMFile file;
-    private final SupplierE<ManagedLock<ReentrantLock>, LockException> acquireFn;
+    private final SupplierE<ManagedLock<ReentrantReadWriteLock>, LockException> acquireFn;
     private final DocumentImpl document;
 
     /**
@@ -62,7 +62,7 @@ public abstract class DOMTransaction {
      * @param file a <code>DOMFile</code> value
      * @param acquireFn a <code>Supplier</code> value
      */
-    public DOMTransaction(final Object owner, final DOMFile file, final SupplierE<ManagedLock<ReentrantLock>, LockException> acquireFn) {
+    public DOMTransaction(final Object owner, final DOMFile file, final SupplierE<ManagedLock<ReentrantReadWriteLock>, LockException> acquireFn) {
         this(owner, file, acquireFn, null);
     }
 
@@ -74,7 +74,7 @@ public abstract class DOMTransaction {
      * @param acquireFn a <code>Supplier</code> value
      * @param doc a <code>DocumentImpl</code> value
      */
-    public DOMTransaction(final Object owner, final DOMFile file, final SupplierE<ManagedLock<ReentrantLock>, LockException> acquireFn, final DocumentImpl doc) {
+    public DOMTransaction(final Object owner, final DOMFile file, final SupplierE<ManagedLock<ReentrantReadWriteLock>, LockException> acquireFn, final DocumentImpl doc) {
         this.ownerObject = owner;
         this.file = file;
         this.acquireFn = acquireFn;
@@ -96,7 +96,7 @@ public abstract class DOMTransaction {
      */
     public Object run() {
         // try to acquire a lock on the file
-        try(final ManagedLock<ReentrantLock> domFileLock = acquireFn.get()) {
+        try(final ManagedLock<ReentrantReadWriteLock> domFileLock = acquireFn.get()) {
             file.setOwnerObject(ownerObject);
             file.setCurrentDocument(document);
             return start();
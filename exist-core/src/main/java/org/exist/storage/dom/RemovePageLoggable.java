@@ -24,7 +24,6 @@ import java.nio.ByteBuffer;
 
 import org.exist.storage.DBBroker;
 import org.exist.storage.NativeBroker;
-import org.exist.storage.journal.AbstractLoggable;
 import org.exist.storage.journal.LogException;
 import org.exist.storage.txn.Txn;
 
@@ -32,7 +31,7 @@ import org.exist.storage.txn.Txn;
  * @author wolf
  *
  */
-public class RemovePageLoggable extends AbstractLoggable {
+public class RemovePageLoggable extends AbstractDOMLoggable {
     private DOMFile domDb;
     protected long pageNum;
     protected long prevPage;
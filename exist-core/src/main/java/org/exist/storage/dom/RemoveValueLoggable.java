@@ -24,14 +24,13 @@ import java.nio.ByteBuffer;
 
 import org.exist.storage.DBBroker;
 import org.exist.storage.NativeBroker;
-import org.exist.storage.journal.AbstractLoggable;
 import org.exist.storage.journal.LogException;
 import org.exist.storage.txn.Txn;
 
 /**
  * @author wolf
  */
-public class RemoveValueLoggable extends AbstractLoggable {
+public class RemoveValueLoggable extends AbstractDOMLoggable {
 
     private DOMFile domDb;
     protected long pageNum;
@@ -24,14 +24,13 @@ import java.nio.ByteBuffer;
 
 import org.exist.storage.DBBroker;
 import org.exist.storage.NativeBroker;
-import org.exist.storage.journal.AbstractLoggable;
 import org.exist.storage.journal.LogException;
 import org.exist.storage.txn.Txn;
 
 /**
  * @author wolf
  */
-public class UpdateHeaderLoggable extends AbstractLoggable {
+public class UpdateHeaderLoggable extends AbstractDOMLoggable {
     protected long pageNum;
     protected long nextPage;
     protected long prevPage;
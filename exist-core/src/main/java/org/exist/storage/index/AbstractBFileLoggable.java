@@ -67,6 +67,11 @@ public abstract class AbstractBFileLoggable extends AbstractLoggable {
         return fileId;
     }
 
+    @Override
+    public int getStorageFileId() {
+        return fileId;
+    }
+
     @Override
     public String dump() {
         return super.dump() + " [BFile]";
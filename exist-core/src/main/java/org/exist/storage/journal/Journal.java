@@ -29,6 +29,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.text.DateFormat;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import net.jpountz.xxhash.XXHash64;
@@ -123,6 +124,11 @@ public final class Journal implements Closeable {
     public static final String PROPERTY_RECOVERY_JOURNAL_DIR = "db-connection.recovery.journal-dir";
     public static final String PROPERTY_RECOVERY_SYNC_ON_COMMIT = "db-connection.recovery.sync-on-commit";
 
+    public static final String RECOVERY_GROUP_COMMIT_MAX_DELAY_ATTRIBUTE = "group-commit-max-delay";
+    public static final String RECOVERY_GROUP_COMMIT_MAX_SIZE_ATTRIBUTE = "group-commit-max-size";
+    public static final String PROPERTY_RECOVERY_GROUP_COMMIT_MAX_DELAY = "db-connection.recovery.group-commit-max-delay";
+    public static final String PROPERTY_RECOVERY_GROUP_COMMIT_MAX_SIZE = "db-connection.recovery.group-commit-max-size";
+
     public static final String LOG_FILE_SUFFIX = "log";
     public static final String BAK_FILE_SUFFIX = ".bak";
 
@@ -158,6 +164,16 @@ public final class Journal implements Closeable {
      */
     private static final int DEFAULT_MIN_SIZE = 1;  // MB
 
+    /**
+     * default maximum time that the leader of a group commit waits for further commits to join the group
+     */
+    public static final int DEFAULT_GROUP_COMMIT_MAX_DELAY = 0;  // ms
+
+    /**
+     * default maximum number of commits which are gathered into a single group commit
+     */
+    public static final int DEFAULT_GROUP_COMMIT_MAX_SIZE = 64;
+
     /**
      * We use a 1 megabyte buffer.
      */
@@ -229,6 +245,11 @@ public final class Journal implements Closeable {
      */
     private Lsn lastSyncLsn = Lsn.LSN_INVALID;
 
+    /**
+     * the number of times the journal was synced when flushing
+     */
+    private long syncCount = 0;
+
     /**
      * set to true while recovery is in progress
      */
@@ -247,6 +268,39 @@ public final class Journal implements Closeable {
     private final static boolean DEFAULT_SYNC_ON_COMMIT = true;
     private final boolean syncOnCommit;
 
+    /**
+     * maximum time in milliseconds that the leader of a group commit
+     * waits for further commits before flushing the journal
+     */
+    @ConfigurationFieldAsAttribute("group-commit-max-delay")
+    private final int groupCommitMaxDelay;
+
+    /**
+     * maximum number of commits that are gathered into a single group commit
+     */
+    @ConfigurationFieldAsAttribute("group-commit-max-size")
+    private final int groupCommitMaxSize;
+
+    /**
+     * monitor used to coordinate the commits waiting for a group commit
+     */
+    private final Object groupCommitMonitor = new Object();
+
+    /**
+     * the number of commits currently waiting for a group commit, guarded by {@link #groupCommitMonitor}
+     */
+    private int groupCommitWaiters = 0;
+
+    /**
+     * true whilst a commit is acting as the leader of a group commit, guarded by {@link #groupCommitMonitor}
+     */
+    private boolean groupCommitLeaderActive = false;
+
+    /**
+     * the last LSN made durable by a group commit, guarded by {@link #groupCommitMonitor}
+     */
+    private Lsn lastGroupCommitLsn = Lsn.LSN_INVALID;
+
     private final Path fsJournalDir;
 
     private volatile boolean initialised = false;
@@ -298,6 +352,12 @@ public final class Journal implements Closeable {
 
         this.journalSizeMin = 1024 * 1024 * pool.getConfiguration().getProperty(PROPERTY_RECOVERY_SIZE_MIN, DEFAULT_MIN_SIZE);
         this.journalSizeLimit = 1024 * 1024 * pool.getConfiguration().getProperty(PROPERTY_RECOVERY_SIZE_LIMIT, DEFAULT_MAX_SIZE);
+
+        this.groupCommitMaxDelay = pool.getConfiguration().getProperty(PROPERTY_RECOVERY_GROUP_COMMIT_MAX_DELAY, DEFAULT_GROUP_COMMIT_MAX_DELAY);
+        this.groupCommitMaxSize = Math.max(1, pool.getConfiguration().getProperty(PROPERTY_RECOVERY_GROUP_COMMIT_MAX_SIZE, DEFAULT_GROUP_COMMIT_MAX_SIZE));
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("GroupCommitMaxDelay = " + groupCommitMaxDelay + "ms, GroupCommitMaxSize = " + groupCommitMaxSize);
+        }
     }
 
     public void initialize() throws EXistException, ReadOnlyException {
@@ -383,6 +443,24 @@ public final class Journal implements Closeable {
         return lastLsnWritten;
     }
 
+    /**
+     * Returns the LSN of the last journal entry which was synced to disk.
+     *
+     * @return last synced LSN
+     */
+    public synchronized Lsn lastSyncedLsn() {
+        return lastSyncLsn;
+    }
+
+    /**
+     * Returns the number of times the journal was synced to disk when flushing.
+     *
+     * @return the number of syncs
+     */
+    public synchronized long getSyncCount() {
+        return syncCount;
+    }
+
     /**
      * Flush the current buffer to disk. If fsync is true, a sync will
      * be called on the file to force all changes to disk.
@@ -411,6 +489,7 @@ public final class Journal implements Closeable {
             if (forceSync || (fsync && syncOnCommit && currentLsn.compareTo(lastSyncLsn) > 0)) {
                 sync();
                 lastSyncLsn = currentLsn;
+                syncCount++;
             }
         } catch (final IOException e) {
             LOG.error("Could not sync Journal to disk: " + e.getMessage(), e);
@@ -425,6 +504,72 @@ public final class Journal implements Closeable {
         }
     }
 
+    /**
+     * Wait until the journal entry with the given LSN has been flushed to disk,
+     * and synced if sync-on-commit is enabled.
+     *
+     * Concurrent callers are gathered into a group commit. The first caller which finds
+     * that its LSN is not yet durable becomes the leader of the group; it waits for up to
+     * {@link #groupCommitMaxDelay} milliseconds, or until {@link #groupCommitMaxSize}
+     * callers are waiting, and then flushes (and syncs) the buffer once on behalf of
+     * the whole group. The other callers just wait until their LSN is durable.
+     *
+     * @param lsn the LSN of a journal entry previously written by {@link #writeToLog(Loggable)}
+     * @throws JournalException if the entry could not be made durable
+     */
+    public void awaitGroupCommit(final Lsn lsn) throws JournalException {
+        synchronized (groupCommitMonitor) {
+            if (++groupCommitWaiters >= groupCommitMaxSize) {
+                // wake up the leader, the group is full
+                groupCommitMonitor.notifyAll();
+            }
+            try {
+                while (lastGroupCommitLsn.compareTo(lsn) < 0) {
+                    if (groupCommitLeaderActive) {
+                        groupCommitMonitor.wait();
+                        continue;
+                    }
+
+                    // become the leader of the next group
+                    groupCommitLeaderActive = true;
+                    try {
+                        gatherGroupCommits();
+                        flushToLog(true);
+                        final Lsn written = lastLsnWritten;
+                        if (written.compareTo(lsn) < 0) {
+                            throw new JournalException("Unable to flush journal entry " + lsn + " to disk. The journal may have been shut down.");
+                        }
+                        lastGroupCommitLsn = written;
+                    } finally {
+                        groupCommitLeaderActive = false;
+                        groupCommitMonitor.notifyAll();
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JournalException("Interrupted whilst waiting for group commit of journal entry " + lsn, e);
+            } finally {
+                groupCommitWaiters--;
+            }
+        }
+    }
+
+    /**
+     * Called by the leader of a group commit whilst holding {@link #groupCommitMonitor},
+     * waits for further commits to join the group.
+     */
+    private void gatherGroupCommits() throws InterruptedException {
+        if (groupCommitMaxDelay <= 0) {
+            return;
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(groupCommitMaxDelay);
+        long remaining;
+        while (groupCommitWaiters < groupCommitMaxSize && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(groupCommitMonitor, remaining);
+        }
+    }
+
     private void sync() throws IOException {
         channel.force(true);
     }
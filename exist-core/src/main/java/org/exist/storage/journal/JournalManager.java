@@ -92,22 +92,35 @@ public class JournalManager implements BrokerPoolService {
     }
 
     /**
-     * Write a group of entrys to the journal
+     * Write an entry which ends a group of entries (e.g. a commit) to the journal,
+     * and wait for it to be flushed to disk.
+     *
+     * If group commits are enabled, the caller does not hold the monitor
+     * of the JournalManager whilst waiting, so that concurrent commits can be
+     * flushed (and synced) together.
      *
      * @see Journal#writeToLog(Loggable)
      * @see Journal#flushToLog(boolean)
+     * @see Journal#awaitGroupCommit(Lsn)
      *
      * @param loggable The entry to write in the journalGroup
      *
      * @throws JournalException of the journal group cannot be written
      */
-    public synchronized void journalGroup(final Loggable loggable) throws JournalException {
-        if(!journallingDisabled) {
+    public void journalGroup(final Loggable loggable) throws JournalException {
+        if(journallingDisabled) {
+            return;
+        }
+
+        synchronized (this) {
             journal.writeToLog(loggable);
             if (!groupCommits) {
                 journal.flushToLog(true);
+                return;
             }
         }
+
+        journal.awaitGroupCommit(loggable.getLsn());
     }
 
     /**
@@ -177,6 +190,24 @@ public class JournalManager implements BrokerPoolService {
         return journal.lastWrittenLsn();
     }
 
+    /**
+     * @see Journal#lastSyncedLsn()
+     *
+     * @return the last synced LSN
+     */
+    public Lsn lastSyncedLsn() {
+        return journal.lastSyncedLsn();
+    }
+
+    /**
+     * @see Journal#getSyncCount()
+     *
+     * @return the number of syncs
+     */
+    public long getSyncCount() {
+        return journal.getSyncCount();
+    }
+
 
 
     public RecoveryManager.JournalRecoveryAccessor getRecoveryAccessor(final RecoveryManager recoveryManager) {
@@ -30,6 +30,12 @@ import java.nio.ByteBuffer;
  * @author wolf
  */
 public interface Loggable {
+
+    /**
+     * Returned by {@link #getStorageFileId()} for entries which are not
+     * bound to a single storage file, e.g. transaction markers.
+     */
+    int NO_STORAGE_FILE = -1;
     
 	/**
 	 * Returns the type id of the log entry. This is the type registered
@@ -101,6 +107,20 @@ public interface Loggable {
      */
     void undo() throws LogException;
     
+    /**
+     * Returns the id of the storage file which is modified by
+     * {@link #redo()} and {@link #undo()}. Entries for different storage
+     * files are independent of each other, so the
+     * {@link org.exist.storage.recovery.RecoveryManager} may replay them
+     * concurrently, whereas the entries of one file are always replayed
+     * in log order.
+     *
+     * @return the storage file id, or {@link #NO_STORAGE_FILE}
+     */
+    default int getStorageFileId() {
+        return NO_STORAGE_FILE;
+    }
+
     /**
      * Returns a description of the entry for debugging purposes.
      * 
@@ -30,7 +30,7 @@ import org.exist.xmldb.XmldbURI;
 import uk.ac.ic.doc.slurp.multilock.MultiLock;
 
 import java.util.Arrays;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 
 /**
@@ -103,7 +103,7 @@ public class LockManager {
     private final LockTable lockTable;
     private final WeakLazyStripes<String, MultiLock> pathLocks;
     private final WeakLazyStripes<String, MultiLock> documentLocks;
-    private final WeakLazyStripes<String, ReentrantLock> btreeLocks;
+    private final WeakLazyStripes<String, ReentrantReadWriteLock> btreeLocks;
 
     /**
      * @param configuration database configuration
@@ -172,10 +172,12 @@ public class LockManager {
 
     /**
      * Creates a new lock for a {@link org.exist.storage.btree.BTree}
-     * will be Striped by the btreeFileName
+     * will be Striped by the btreeFileName.
+     *
+     * Readers of a BTree share the lock, whilst a writer has exclusive access.
      */
-    private static ReentrantLock createBtreeLock(final String btreeFileName) {
-        return new ReentrantLock();
+    private static ReentrantReadWriteLock createBtreeLock(final String btreeFileName) {
+        return new ReentrantReadWriteLock();
     }
 
     /**
@@ -591,12 +593,15 @@ public class LockManager {
      *
      * @return A lock for the DOMFile
      */
-    ReentrantLock getBTreeLock(final String domFileName) {
+    ReentrantReadWriteLock getBTreeLock(final String domFileName) {
         return btreeLocks.get(domFileName);
     }
 
     /**
-     * Acquire a WRITE_LOCK on a {@link org.exist.storage.btree.BTree}
+     * Acquire a READ_LOCK on a {@link org.exist.storage.btree.BTree}
+     *
+     * The READ_LOCK is shared, so many readers may access the BTree
+     * concurrently, but excludes any writer.
      *
      * @param btreeFileName the filename of the BTree
      *
@@ -604,14 +609,14 @@ public class LockManager {
      *
      * @throws LockException if the lock could not be acquired
      */
-    public ManagedLock<ReentrantLock> acquireBtreeReadLock(final String btreeFileName) throws LockException {
+    public ManagedLock<ReentrantReadWriteLock> acquireBtreeReadLock(final String btreeFileName) throws LockException {
         final long groupId = System.nanoTime();
 
-        final ReentrantLock lock = getBTreeLock(btreeFileName);
+        final ReentrantReadWriteLock lock = getBTreeLock(btreeFileName);
         try {
             lockTable.attempt(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
 
-            lock.lockInterruptibly();
+            lock.readLock().lockInterruptibly();
 
             lockTable.acquired(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
         } catch(final InterruptedException e) {
@@ -619,8 +624,8 @@ public class LockManager {
             throw new LockException("Unable to acquire READ_LOCK for: " + btreeFileName, e);
         }
 
-        return new ManagedLock(lock, () -> {
-            lock.unlock();
+        return new ManagedLock<>(lock, () -> {
+            lock.readLock().unlock();
             lockTable.released(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.READ_LOCK);
         });
     }
@@ -628,20 +633,28 @@ public class LockManager {
     /**
      * Acquire a WRITE_LOCK on a {@link org.exist.storage.btree.BTree}
      *
+     * The WRITE_LOCK is exclusive. NOTE: a READ_LOCK may not be upgraded
+     * to a WRITE_LOCK, a thread holding a READ_LOCK must release it before
+     * acquiring the WRITE_LOCK.
+     *
      * @param btreeFileName the filename of the BTree
      *
      * @return the lock for the BTree
      *
      * @throws LockException if the lock could not be acquired
      */
-    public ManagedLock<ReentrantLock> acquireBtreeWriteLock(final String btreeFileName) throws LockException {
+    public ManagedLock<ReentrantReadWriteLock> acquireBtreeWriteLock(final String btreeFileName) throws LockException {
         final long groupId = System.nanoTime();
 
-        final ReentrantLock lock = getBTreeLock(btreeFileName);
+        final ReentrantReadWriteLock lock = getBTreeLock(btreeFileName);
+        if (lock.getReadHoldCount() > 0 && !lock.isWriteLockedByCurrentThread()) {
+            throw new LockException("Unable to upgrade READ_LOCK to WRITE_LOCK for: " + btreeFileName);
+        }
+
         try {
             lockTable.attempt(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.WRITE_LOCK);
 
-            lock.lockInterruptibly();
+            lock.writeLock().lockInterruptibly();
 
             lockTable.acquired(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.WRITE_LOCK);
         } catch(final InterruptedException e) {
@@ -649,8 +662,8 @@ public class LockManager {
             throw new LockException("Unable to acquire WRITE_LOCK for: " + btreeFileName, e);
         }
 
-        return new ManagedLock(lock, () -> {
-            lock.unlock();
+        return new ManagedLock<>(lock, () -> {
+            lock.writeLock().unlock();
             lockTable.released(groupId, btreeFileName, LockType.BTREE, Lock.LockMode.WRITE_LOCK);
         });
     }
@@ -663,8 +676,8 @@ public class LockManager {
      * @return true if the Btree is locked.
      */
     public boolean isBtreeLocked(final String btreeFileName) {
-        final ReentrantLock lock = getBTreeLock(btreeFileName);
-        return lock.isLocked();
+        final ReentrantReadWriteLock lock = getBTreeLock(btreeFileName);
+        return lock.isWriteLocked() || lock.getReadLockCount() > 0;
     }
 
     /**
@@ -673,12 +686,10 @@ public class LockManager {
      * @param btreeFileName The name of the .dbx file.
      *
      * @return true if the Btree is locked for writes.
-     *
-     * @deprecated Just a place holder until we can make the BTree reader/writer safe
      */
-    @Deprecated
     public boolean isBtreeLockedForWrite(final String btreeFileName) {
-        return isBtreeLocked(btreeFileName);
+        final ReentrantReadWriteLock lock = getBTreeLock(btreeFileName);
+        return lock.isWriteLocked();
     }
 
     /**
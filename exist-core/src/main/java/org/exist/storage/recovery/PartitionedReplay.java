@@ -0,0 +1,185 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.exist.storage.recovery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import org.exist.storage.journal.LogEntryTypes;
+import org.exist.storage.journal.LogException;
+import org.exist.storage.journal.Loggable;
+import org.exist.util.NamedThreadFactory;
+
+/**
+ * Replays journal entries on a number of worker threads.
+ *
+ * Each storage file (see {@link Loggable#getStorageFileId()}) is pinned
+ * to exactly one single-threaded lane, so the entries of a file, and thereby
+ * of each of its pages, are applied in the order in which they were submitted.
+ * Entries of different files may run concurrently.
+ *
+ * Entries which are not bound to a storage file may touch anything, so they
+ * are only run after all previously submitted work has completed.
+ *
+ * The first failure stops the replay, it is reported by the next call to
+ * {@link #submit(Loggable, LoggableAction)} or {@link #await()}.
+ */
+class PartitionedReplay implements AutoCloseable {
+
+    /**
+     * Maximum number of entries which have been read from the journal,
+     * but not yet been replayed.
+     */
+    private static final int MAX_PENDING = 4096;
+
+    @FunctionalInterface
+    interface LoggableAction {
+        void apply(Loggable loggable) throws LogException;
+    }
+
+    private final ExecutorService[] lanes;
+    private final Int2IntMap laneOfFile = new Int2IntOpenHashMap();
+    private final Semaphore pending = new Semaphore(MAX_PENDING);
+    private final AtomicReference<Failure> failure = new AtomicReference<>();
+
+    PartitionedReplay(final String instanceId, final int threads) {
+        this.lanes = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(new NamedThreadFactory(instanceId, "recovery.replay-" + i));
+        }
+    }
+
+    /**
+     * Schedules the action for the loggable.
+     *
+     * @param loggable the journal entry
+     * @param action the action to apply, i.e. redo or undo
+     *
+     * @throws LogException if a previously scheduled action failed
+     */
+    void submit(final Loggable loggable, final LoggableAction action) throws LogException {
+        checkFailure();
+
+        final int fileId = loggable.getStorageFileId();
+        if (fileId == Loggable.NO_STORAGE_FILE) {
+            if (!isTransactionMarker(loggable)) {
+                await();
+            }
+            action.apply(loggable);
+            return;
+        }
+
+        final int lane;
+        if (laneOfFile.containsKey(fileId)) {
+            lane = laneOfFile.get(fileId);
+        } else {
+            lane = laneOfFile.size() % lanes.length;
+            laneOfFile.put(fileId, lane);
+        }
+        try {
+            pending.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LogException("Interrupted whilst waiting for journal replay", e);
+        }
+        lanes[lane].execute(() -> {
+            try {
+                if (failure.get() == null) {
+                    action.apply(loggable);
+                }
+            } catch (final Throwable t) {
+                failure.compareAndSet(null, new Failure(loggable, t));
+            } finally {
+                pending.release();
+            }
+        });
+    }
+
+    /**
+     * Waits until all scheduled actions have been applied.
+     *
+     * @throws LogException if one of the actions failed
+     */
+    void await() throws LogException {
+        final List<Future<?>> drained = new ArrayList<>(lanes.length);
+        for (final ExecutorService lane : lanes) {
+            drained.add(lane.submit(() -> {}));
+        }
+        try {
+            for (final Future<?> future : drained) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LogException("Interrupted whilst waiting for journal replay", e);
+        } catch (final ExecutionException e) {
+            throw new LogException(e.getMessage(), e.getCause());
+        }
+        checkFailure();
+    }
+
+    /**
+     * Transaction markers do not modify any storage,
+     * there is no need to wait for the lanes before them.
+     */
+    private static boolean isTransactionMarker(final Loggable loggable) {
+        switch (loggable.getLogType()) {
+            case LogEntryTypes.TXN_START:
+            case LogEntryTypes.TXN_COMMIT:
+            case LogEntryTypes.TXN_ABORT:
+            case LogEntryTypes.CHECKPOINT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void checkFailure() throws LogException {
+        final Failure f = failure.get();
+        if (f != null) {
+            throw new LogException("Replay of log entry failed: " + f.loggable.dump(), f.cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (final ExecutorService lane : lanes) {
+            lane.shutdownNow();
+        }
+    }
+
+    private static class Failure {
+        final Loggable loggable;
+        final Throwable cause;
+
+        Failure(final Loggable loggable, final Throwable cause) {
+            this.loggable = loggable;
+            this.cause = cause;
+        }
+    }
+}
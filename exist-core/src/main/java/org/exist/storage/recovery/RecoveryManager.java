@@ -57,14 +57,33 @@ public class RecoveryManager {
 	
 	private final static Logger LOG = LogManager.getLogger(RecoveryManager.class);
 
+    /**
+     * Number of replayed log entries after which the throughput is reported.
+     */
+    private final static int STATUS_REPORT_INTERVAL = 10000;
+
     private final DBBroker broker;
     private final JournalRecoveryAccessor journalRecovery;
     private final boolean restartOnError;
+    private final int replayThreads;
 
     public RecoveryManager(final DBBroker broker, final JournalManager journalManager, final boolean restartOnError) {
+        this(broker, journalManager, restartOnError, 1);
+    }
+
+    /**
+     * @param broker the database broker
+     * @param journalManager the journal manager
+     * @param restartOnError true if the database should start even if recovery failed
+     * @param replayThreads the number of threads used to redo and undo journal entries.
+     *     Entries of different storage files are replayed concurrently if this is greater than 1.
+     */
+    public RecoveryManager(final DBBroker broker, final JournalManager journalManager, final boolean restartOnError,
+            final int replayThreads) {
         this.broker = broker;
         this.journalRecovery = journalManager.getRecoveryAccessor(this);
         this.restartOnError = restartOnError;
+        this.replayThreads = Math.max(1, replayThreads);
 	}
 
 	/**
@@ -246,10 +265,12 @@ public class RecoveryManager {
      */
     private void doRecovery(final int txnCount, final Path last, final JournalReader reader, final Lsn lastLsn) throws LogException {
         if (LOG.isInfoEnabled()) {
-            LOG.info("Running recovery ...");
+            LOG.info("Running recovery with " + replayThreads + " replay thread(s)...");
         }
         journalRecovery.setInRecovery.accept(true);
 
+        final PartitionedReplay replay = replayThreads > 1 ?
+                new PartitionedReplay(broker.getBrokerPool().getId(), replayThreads) : null;
         try {
             // map to track running transactions
             final Long2ObjectMap<Loggable> runningTxns = new Long2ObjectOpenHashMap<>();
@@ -258,8 +279,10 @@ public class RecoveryManager {
             if (LOG.isInfoEnabled())
                 {LOG.info("First pass: redoing " + txnCount + " transactions...");}
             final ProgressBar progress = new ProgressBar("Redo ", FileUtils.sizeQuietly(last));
+            final long redoStart = System.currentTimeMillis();
             Loggable next = null;
             int redoCnt = 0;
+            long entryCnt = 0;
             try {
                 while ((next = reader.nextEntry()) != null) {
                     SanityCheck.ASSERT(next.getLogType() != LogEntryTypes.CHECKPOINT,
@@ -277,11 +300,21 @@ public class RecoveryManager {
                     }
         //            LOG.debug("Redo: " + next.dump());
                     // redo the log entry
-                    next.redo();
+                    if (replay == null) {
+                        next.redo();
+                    } else {
+                        replay.submit(next, Loggable::redo);
+                    }
                     progress.set(next.getLsn().getOffset());
+                    if (++entryCnt % STATUS_REPORT_INTERVAL == 0) {
+                        reportThroughput("Redo", entryCnt, redoStart);
+                    }
                     if (next.getLsn().equals(lastLsn))
                         {break;} // last readable entry reached. Stop here.
                 }
+                if (replay != null) {
+                    replay.await();
+                }
             } catch (final Exception e) {
                 LOG.error("Exception caught while redoing transactions. Aborting recovery to avoid possible damage. " +
                     "Before starting again, make sure to run a check via the emergency export tool.", e);
@@ -291,6 +324,7 @@ public class RecoveryManager {
             } finally {
                 LOG.info("Redo processed " + redoCnt + " out of " + txnCount + " transactions.");
             }
+            reportThroughput("Redo", entryCnt, redoStart);
 
             // ------- UNDO ---------
             if (LOG.isInfoEnabled())
@@ -298,6 +332,8 @@ public class RecoveryManager {
                         runningTxns.size());}
             // see if there are uncommitted transactions pending
             if (runningTxns.size() > 0) {
+                final long undoStart = System.currentTimeMillis();
+                entryCnt = 0;
                 // do a reverse scan of the log, undoing all uncommitted transactions
                 try {
                     while((next = reader.previousEntry()) != null) {
@@ -318,9 +354,19 @@ public class RecoveryManager {
                         // undo the log entry if it belongs to an uncommitted transaction
                         if (runningTxns.get(next.getTransactionId()) != null) {
     //					LOG.debug("Undo: " + next.dump());
-                            next.undo();
+                            if (replay == null) {
+                                next.undo();
+                            } else {
+                                replay.submit(next, Loggable::undo);
+                            }
+                            if (++entryCnt % STATUS_REPORT_INTERVAL == 0) {
+                                reportThroughput("Undo", entryCnt, undoStart);
+                            }
                         }
                     }
+                    if (replay != null) {
+                        replay.await();
+                    }
                 } catch (final Exception e) {
                     LOG.warn("Exception caught while undoing dirty transactions. Remaining transactions " +
                             "to be undone: " + runningTxns.size() + ". Aborting recovery to avoid possible damage. " +
@@ -329,12 +375,26 @@ public class RecoveryManager {
                         {LOG.warn("Log entry that caused the exception: " + next.dump());}
                     throw new LogException("Recovery aborted", e);
                 }
+                reportThroughput("Undo", entryCnt, undoStart);
             }
         } finally {
+            if (replay != null) {
+                replay.close();
+            }
             broker.sync(Sync.MAJOR);
             journalRecovery.setInRecovery.accept(false);
         }
     }
+
+    private void reportThroughput(final String pass, final long entries, final long start) {
+        final long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        final String status = pass + ": " + entries + " log entries in " + elapsed + "ms (" +
+                (entries * 1000 / elapsed) + " entries/s)";
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(status);
+        }
+        broker.getBrokerPool().reportStatus(status);
+    }
     
 	private void cleanDirectory(final Stream<Path> files) {
         files.forEach(FileUtils::deleteQuietly);
@@ -979,7 +979,70 @@ public abstract class Serializer implements XMLReader {
 
         receiver.endDocument();
     }
-        
+
+    /**
+     * Serialize the items of the given iterator to SAX, starting with item start, without
+     * random access into the underlying sequence. Items are pulled from the iterator one at a
+     * time, so the caller never needs to know the length of the result. If parameter
+     * wrap is set to true, output a wrapper element to enclose the serialized items. As the total
+     * number of items is not known up front, the wrapper only carries the start position:
+     *
+     * &lt;exist:result start="value of start"&gt;
+     *
+     * @param items The iterator over the items to serialize
+     * @param start The position in the sequence to start serialization from
+     * @param count The maximum number of items from the start position to serialize, or a value
+     *     less than 1 to serialize all remaining items
+     * @param wrap Indicates whether the output should be wrapped
+     * @param typed Indicates whether the output types should be wrapped
+     * @param compilationTime The time taken to compile the query which produced the sequence
+     * @param executionTime The time taken to execute the query which produced the sequence
+     *
+     * @throws SAXException If an error occurs during serialization
+     */
+    public void toSAX(final SequenceIterator items, final int start, final int count, final boolean wrap, final boolean typed, final long compilationTime, final long executionTime) throws SAXException {
+        try {
+            setStylesheetFromProperties(null);
+        } catch (final TransformerConfigurationException e) {
+            throw new SAXException(e.getMessage(), e);
+        }
+        setXSLHandler(null, false);
+        final AttrList attrs = new AttrList();
+        attrs.addAttribute(ATTR_START_QNAME, Integer.toString(start));
+        if (outputProperties.getProperty(PROPERTY_SESSION_ID) != null) {
+            attrs.addAttribute(ATTR_SESSION_ID, outputProperties.getProperty(PROPERTY_SESSION_ID));
+        }
+        attrs.addAttribute(ATTR_COMPILATION_TIME_QNAME, Long.toString(compilationTime));
+        attrs.addAttribute(ATTR_EXECUTION_TIME_QNAME, Long.toString(executionTime));
+
+        receiver.startDocument();
+        if (wrap) {
+            receiver.startPrefixMapping("exist", Namespaces.EXIST_NS);
+            receiver.startElement(ELEM_RESULT_QNAME, attrs);
+        }
+
+        if (start > 1 && items.skip(start - 1) == -1) {
+            for (int i = 1; i < start && items.hasNext(); i++) {
+                items.nextItem();
+            }
+        }
+        int written = 0;
+        while (items.hasNext() && (count < 1 || written < count)) {
+            final Item item = items.nextItem();
+            if (item == null) {
+                continue;
+            }
+            itemToSAX(item, typed, wrap);
+            written++;
+        }
+
+        if (wrap) {
+            receiver.endElement(ELEM_RESULT_QNAME);
+            receiver.endPrefixMapping("exist");
+        }
+        receiver.endDocument();
+    }
+
     /**
 	 * Serializes an Item
 	 *
@@ -55,7 +55,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import java.util.*;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.exist.security.PermissionDeniedException;
 
@@ -116,7 +116,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
             final byte[] toKey = computeKey(type, qname, range.end + 1);
             final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
 
-            try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
                 index.btree.query(query, callback);
             } catch (final LockException e) {
                 NativeStructuralIndex.LOG.warn("Lock problem while searching structural index: " + e.getMessage(), e);
@@ -129,6 +129,54 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         return result;
     }
 
+    @Override
+    public long countElementsByTagName(final byte type, final DocumentSet docs, final QName qname, final long limit,
+            final Expression parent) {
+        final CountElementsCallback callback = new CountElementsCallback(docs, parent);
+
+        // a range scan can not be interrupted, so the limit is only checked between document id ranges
+        for (final Range range : getDocIdRanges(docs)) {
+            if (limit >= 0 && callback.count >= limit) {
+                break;
+            }
+            final byte[] fromKey = computeKey(type, qname, range.start);
+            final byte[] toKey = computeKey(type, qname, range.end + 1);
+            final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
+
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+                index.btree.query(query, callback);
+            } catch (final LockException e) {
+                NativeStructuralIndex.LOG.warn("Lock problem while searching structural index: " + e.getMessage(), e);
+            } catch (final TerminatedException e) {
+                NativeStructuralIndex.LOG.warn("Query was terminated while searching structural index: " + e.getMessage(), e);
+            } catch (final Exception e) {
+                NativeStructuralIndex.LOG.error("Error while searching structural index: " + e.getMessage(), e);
+            }
+        }
+        return callback.count;
+    }
+
+    @Override
+    public long countElementsByNodeId(final byte type, final DocumentImpl doc, final QName qname,
+            final Iterable<NodeId> nodeIds, final long limit) {
+        long count = 0;
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+            for (final NodeId nodeId : nodeIds) {
+                if (limit >= 0 && count >= limit) {
+                    break;
+                }
+                if (index.btree.findValue(new Value(computeKey(type, qname, doc.getDocId(), nodeId))) != -1) {
+                    count++;
+                }
+            }
+        } catch (final LockException e) {
+            NativeStructuralIndex.LOG.warn("Lock problem while searching structural index: " + e.getMessage(), e);
+        } catch (final Exception e) {
+            NativeStructuralIndex.LOG.error("Error while searching structural index: " + e.getMessage(), e);
+        }
+        return count;
+    }
+
     /**
      * Scan the document set to find document id ranges to query
      *
@@ -193,7 +241,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
     public NodeSet findDescendantsByTagName(byte type, QName qname, int axis, DocumentSet docs, NodeSet contextSet, int contextId, Expression parent) {
         final NewArrayNodeSet result = new NewArrayNodeSet();
         final FindDescendantsCallback callback = new FindDescendantsCallback(type, axis, qname, contextId, result, parent);
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
             for (final NodeProxy ancestor : contextSet) {
                 final DocumentImpl doc = ancestor.getOwnerDocument();
                 final NodeId ancestorId = ancestor.getNodeId();
@@ -224,7 +272,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
     public NodeSet findAncestorsByTagName(byte type, QName qname, int axis, DocumentSet docs, NodeSet contextSet,
                                           int contextId) {
         final NewArrayNodeSet result = new NewArrayNodeSet();
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
             for (final NodeProxy descendant : contextSet) {
                 NodeId parentId;
                 if (axis == Constants.ANCESTOR_SELF_AXIS || axis == Constants.SELF_AXIS)
@@ -270,7 +318,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
             final DocumentImpl doc = ancestor.getOwnerDocument();
             final NodeId ancestorId = ancestor.getNodeId();
             final List<QName> qnames = getQNamesForDoc(doc);
-            try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
 	            for (final QName qname : qnames) {
 	            	if (test.getName() == null || test.matches(qname)) {
 	            		callback.setAncestor(doc, ancestor);
@@ -298,6 +346,28 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         return result;
     }
     
+    private class CountElementsCallback implements BTreeCallback {
+        final DocumentSet docs;
+        final Expression parent;
+        long count = 0;
+
+        CountElementsCallback(final DocumentSet docs, final Expression parent) {
+            this.docs = docs;
+            this.parent = parent;
+        }
+
+        @Override
+        public boolean indexInfo(final Value value, final long pointer) throws TerminatedException {
+            if (parent != null) {
+                parent.getContext().proceed(parent);
+            }
+            if (docs.contains(readDocId(value.getData()))) {
+                count++;
+            }
+            return true;
+        }
+    }
+
     private class FindElementsCallback implements BTreeCallback {
         byte type;
         QName qname;
@@ -491,7 +561,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         try {
             for (final Map.Entry<QName,List<NodeProxy>> entry: pending.entrySet()) {
                 final QName qname = entry.getKey();
-                try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
                     final List<NodeProxy> nodes = entry.getValue();
                     for (final NodeProxy proxy : nodes) {
                         final NodeId nodeId = proxy.getNodeId();
@@ -517,7 +587,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
             final byte[] fromKey = computeKey(qname.getNameType(), qname, docToRemove.getDocId());
             final byte[] toKey = computeKey(qname.getNameType(), qname, docToRemove.getDocId() + 1);
             final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
-            try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+            try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
                 index.btree.remove(query, null);
             } catch (final LockException e) {
                 NativeStructuralIndex.LOG.warn("Failed to lock structural index: " + e.getMessage(), e);
@@ -533,7 +603,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         final byte[] fromKey = computeDocKey(doc.getDocId());
         final byte[] toKey = computeDocKey(doc.getDocId() + 1);
         final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
             index.btree.remove(query, null);
         } catch (final LockException e) {
             NativeStructuralIndex.LOG.warn("Failed to lock structural index: " + e.getMessage(), e);
@@ -550,7 +620,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         final byte[] fromKey = computeDocKey(doc.getDocId());
         final byte[] toKey = computeDocKey(doc.getDocId() + 1);
         final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
-        try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+        try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
             index.btree.query(query, (value, pointer) -> {
                 final QName qname = readQName(value.getData());
                 qnames.add(qname);
@@ -607,7 +677,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
                 final byte[] toKey = computeKey(qname.getNameType(), qname, doc.getDocId() + 1);
                 final IndexQuery query = new IndexQuery(IndexQuery.RANGE, new Value(fromKey), new Value(toKey));
 
-                try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeReadLock(index.btree.getLockName())) {
                     index.btree.query(query, (value, pointer) -> {
                         Occurrences oc = occurrences.get(name);
                         if (oc == null) {
@@ -668,7 +738,7 @@ public class NativeStructuralIndexWorker implements IndexWorker, StructuralIndex
         try {
             for (final Map.Entry<QName,List<NodeProxy>> entry: pending.entrySet()) {
                 final QName qname = entry.getKey();
-                try(final ManagedLock<ReentrantLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
+                try(final ManagedLock<ReentrantReadWriteLock> btreeLock = index.lockManager.acquireBtreeWriteLock(index.btree.getLockName())) {
                     final List<NodeProxy> nodes = entry.getValue();
                     for (final NodeProxy proxy : nodes) {
                         final NodeId nodeId = proxy.getNodeId();
@@ -54,6 +54,7 @@ import org.exist.storage.IndexSpec;
 import org.exist.storage.NativeBroker;
 import org.exist.storage.NativeValueIndex;
 import org.exist.storage.XQueryPool;
+import org.exist.storage.XQueryModuleCache;
 import org.exist.storage.journal.Journal;
 import org.exist.storage.serializers.CustomMatchListenerFactory;
 import org.exist.storage.serializers.Serializer;
@@ -61,9 +62,11 @@ import org.exist.validation.GrammarPool;
 import org.exist.validation.resolver.eXistXMLCatalogResolver;
 import org.exist.xmldb.DatabaseImpl;
 import org.exist.xquery.FunctionFactory;
+import org.exist.xquery.OrderByClause;
 import org.exist.xquery.PerformanceStats;
 import org.exist.xquery.XQueryContext;
 import org.exist.xquery.XQueryWatchDog;
+import org.exist.xslt.TemplatesCache;
 import org.exist.xslt.TransformerFactoryAllocator;
 
 import java.io.IOException;
@@ -380,6 +383,17 @@ public class Configuration implements ErrorHandler
         config.put( XQueryContext.PROPERTY_XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL, Configuration.parseBoolean( raiseErrorOnFailedRetrieval, XQueryContext.XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL_DEFAULT ) );
         LOG.debug( XQueryContext.PROPERTY_XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL + ": " + config.get( XQueryContext.PROPERTY_XQUERY_RAISE_ERROR_ON_FAILED_RETRIEVAL ) );
 
+        final String orderByMaxInMemory = getConfigAttributeValue( xquery, OrderByClause.ORDER_BY_MAX_IN_MEMORY_ATTRIBUTE );
+        if( ( orderByMaxInMemory != null ) && ( orderByMaxInMemory.length() > 0 ) ) {
+            try {
+                config.put( OrderByClause.PROPERTY_ORDER_BY_MAX_IN_MEMORY, Integer.valueOf( orderByMaxInMemory ) );
+                LOG.debug( OrderByClause.PROPERTY_ORDER_BY_MAX_IN_MEMORY + ": " + config.get( OrderByClause.PROPERTY_ORDER_BY_MAX_IN_MEMORY ) );
+            }
+            catch( final NumberFormatException e ) {
+                LOG.warn( e );
+            }
+        }
+
         final String trace = getConfigAttributeValue( xquery, PerformanceStats.CONFIG_ATTR_TRACE );
         config.put( PerformanceStats.CONFIG_PROPERTY_TRACE, trace );
 
@@ -586,6 +600,19 @@ public class Configuration implements ErrorHandler
             config.put( TransformerFactoryAllocator.PROPERTY_CACHING_ATTRIBUTE, parseBoolean( cachingValue, false ) );
             LOG.debug( TransformerFactoryAllocator.PROPERTY_CACHING_ATTRIBUTE + ": " + config.get( TransformerFactoryAllocator.PROPERTY_CACHING_ATTRIBUTE ) );
         }
+
+        final String cacheSize = getConfigAttributeValue( transformer, TemplatesCache.CACHE_SIZE_ATTRIBUTE );
+
+        if( cacheSize != null ) {
+
+            try {
+                config.put( TemplatesCache.PROPERTY_CACHE_SIZE, Integer.valueOf(cacheSize) );
+                LOG.debug( TemplatesCache.PROPERTY_CACHE_SIZE + ": " + config.get( TemplatesCache.PROPERTY_CACHE_SIZE ) );
+            }
+            catch( final NumberFormatException e ) {
+                LOG.warn( e );
+            }
+        }
     }
 
     private void configureParser(final Element parser) {
@@ -937,6 +964,14 @@ public class Configuration implements ErrorHandler
             }
         }
 
+        final String collectionLazyDocuments = getConfigAttributeValue(con, CollectionCache.LAZY_DOCUMENTS_ATTRIBUTE);
+        if (collectionLazyDocuments != null) {
+            config.put(CollectionCache.PROPERTY_LAZY_DOCUMENTS, parseBoolean(collectionLazyDocuments, false));
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Set config {} = {}", CollectionCache.PROPERTY_LAZY_DOCUMENTS, config.get(CollectionCache.PROPERTY_LAZY_DOCUMENTS));
+            }
+        }
+
         final String pageSize = getConfigAttributeValue( con, NativeBroker.PAGE_SIZE_ATTRIBUTE );
 
         if( pageSize != null ) {
@@ -950,6 +985,20 @@ public class Configuration implements ErrorHandler
             }
         }
 
+        final String domOverflowCompression = getConfigAttributeValue( con, BrokerPool.DOM_OVERFLOW_COMPRESSION_ATTRIBUTE );
+
+        if( domOverflowCompression != null && !domOverflowCompression.trim().isEmpty() ) {
+            config.put( BrokerPool.PROPERTY_DOM_OVERFLOW_COMPRESSION, domOverflowCompression.trim().toLowerCase() );
+            LOG.debug( BrokerPool.PROPERTY_DOM_OVERFLOW_COMPRESSION + ": " + config.get( BrokerPool.PROPERTY_DOM_OVERFLOW_COMPRESSION ) );
+        }
+
+        final String memoryMappedFiles = getConfigAttributeValue( con, BrokerPool.MEMORY_MAPPED_FILES_ATTRIBUTE );
+
+        if( memoryMappedFiles != null && !memoryMappedFiles.trim().isEmpty() ) {
+            config.put( BrokerPool.PROPERTY_MEMORY_MAPPED_FILES, memoryMappedFiles.trim() );
+            LOG.debug( BrokerPool.PROPERTY_MEMORY_MAPPED_FILES + ": " + config.get( BrokerPool.PROPERTY_MEMORY_MAPPED_FILES ) );
+        }
+
         //Not clear : rather looks like a buffers count
         final String collCacheSize = getConfigAttributeValue( con, BrokerPool.COLLECTION_CACHE_SIZE_ATTRIBUTE );
 
@@ -1071,6 +1120,28 @@ public class Configuration implements ErrorHandler
         setProperty( BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT, parseBoolean( option, false ) );
         LOG.debug( BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT + ": " + config.get( BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT ) );
 
+        option = getConfigAttributeValue( recovery, Journal.RECOVERY_GROUP_COMMIT_MAX_DELAY_ATTRIBUTE );
+        if( option != null ) {
+            try {
+                setProperty( Journal.PROPERTY_RECOVERY_GROUP_COMMIT_MAX_DELAY, Integer.valueOf( option ) );
+                LOG.debug( Journal.PROPERTY_RECOVERY_GROUP_COMMIT_MAX_DELAY + ": " + config.get( Journal.PROPERTY_RECOVERY_GROUP_COMMIT_MAX_DELAY ) + "ms" );
+            }
+            catch( final NumberFormatException e ) {
+                throw( new DatabaseConfigurationException( "group-commit-max-delay attribute in recovery section needs to be a number" ) );
+            }
+        }
+
+        option = getConfigAttributeValue( recovery, Journal.RECOVERY_GROUP_COMMIT_MAX_SIZE_ATTRIBUTE );
+        if( option != null ) {
+            try {
+                setProperty( Journal.PROPERTY_RECOVERY_GROUP_COMMIT_MAX_SIZE, Integer.valueOf( option ) );
+                LOG.debug( Journal.PROPERTY_RECOVERY_GROUP_COMMIT_MAX_SIZE + ": " + config.get( Journal.PROPERTY_RECOVERY_GROUP_COMMIT_MAX_SIZE ) );
+            }
+            catch( final NumberFormatException e ) {
+                throw( new DatabaseConfigurationException( "group-commit-max-size attribute in recovery section needs to be a number" ) );
+            }
+        }
+
         option = getConfigAttributeValue( recovery, Journal.RECOVERY_JOURNAL_DIR_ATTRIBUTE );
 
         if(option != null) {
@@ -1119,6 +1190,21 @@ public class Configuration implements ErrorHandler
         }
         setProperty( BrokerPool.PROPERTY_RECOVERY_CHECK, value);
         LOG.debug( BrokerPool.PROPERTY_RECOVERY_CHECK + ": " + config.get( BrokerPool.PROPERTY_RECOVERY_CHECK ) );
+
+        option = getConfigAttributeValue( recovery, BrokerPool.RECOVERY_REPLAY_THREADS_ATTRIBUTE );
+        if( option != null ) {
+            try {
+                final int threads = Integer.parseInt( option );
+                if( threads < 1 ) {
+                    throw( new DatabaseConfigurationException( "replay-threads attribute in recovery section needs to be at least 1" ) );
+                }
+                setProperty( BrokerPool.PROPERTY_RECOVERY_REPLAY_THREADS, threads );
+                LOG.debug( BrokerPool.PROPERTY_RECOVERY_REPLAY_THREADS + ": " + config.get( BrokerPool.PROPERTY_RECOVERY_REPLAY_THREADS ) );
+            }
+            catch( final NumberFormatException e ) {
+                throw( new DatabaseConfigurationException( "replay-threads attribute in recovery section needs to be a number" ) );
+            }
+        }
     }
 
     /**
@@ -1201,6 +1287,19 @@ public class Configuration implements ErrorHandler
                 LOG.warn( e );
             }
         }
+
+        final String moduleCacheSize = getConfigAttributeValue( queryPool, XQueryModuleCache.MODULE_CACHE_SIZE_ATTRIBUTE );
+
+        if( moduleCacheSize != null ) {
+
+            try {
+                config.put( XQueryModuleCache.PROPERTY_MODULE_CACHE_SIZE, Integer.valueOf(moduleCacheSize) );
+                LOG.debug( XQueryModuleCache.PROPERTY_MODULE_CACHE_SIZE + ": " + config.get( XQueryModuleCache.PROPERTY_MODULE_CACHE_SIZE ) );
+            }
+            catch( final NumberFormatException e ) {
+                LOG.warn( e );
+            }
+        }
     }
     
     public static class StartupTriggerConfig {
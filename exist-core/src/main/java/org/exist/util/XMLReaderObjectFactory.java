@@ -40,6 +40,7 @@ import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.ext.DefaultHandler2;
 
 /**
  * Factory to create new XMLReader objects on demand. The factory is used
@@ -51,6 +52,8 @@ public class XMLReaderObjectFactory extends BasePoolableObjectFactory implements
 
     private final static Logger LOG = LogManager.getLogger(XMLReaderObjectFactory.class);
 
+    private final static DefaultHandler2 DUMMY_HANDLER = new DefaultHandler2();
+
     public enum VALIDATION_SETTING {
         UNKNOWN, ENABLED, AUTO, DISABLED
     }
@@ -101,6 +104,45 @@ public class XMLReaderObjectFactory extends BasePoolableObjectFactory implements
         return xmlReader;
     }
 
+    /**
+     * Releases the handlers of the last parse and restores the namespace
+     * features, which some callers change.
+     */
+    @Override
+    public void passivateObject(final Object obj) throws Exception {
+        final XMLReader reader = (XMLReader) obj;
+        reader.setContentHandler(DUMMY_HANDLER);
+        reader.setErrorHandler(DUMMY_HANDLER);
+        reader.setProperty(Namespaces.SAX_LEXICAL_HANDLER, DUMMY_HANDLER);
+        reader.setFeature(Namespaces.SAX_NAMESPACES, true);
+        reader.setFeature(Namespaces.SAX_NAMESPACES_PREFIXES, true);
+
+        // DIZZZ; workaround Xerces bug. Cached DTDs cause for problems during validation parsing.
+        final GrammarPool grammarPool = (GrammarPool) getReaderProperty(reader, APACHE_PROPERTIES_INTERNAL_GRAMMARPOOL);
+        if (grammarPool != null) {
+            grammarPool.clearDTDs();
+        }
+    }
+
+    /**
+     * Verifies that a passivated reader does not hold on to the handlers
+     * of its last parse, and reports namespaces like a new reader.
+     */
+    @Override
+    public boolean validateObject(final Object obj) {
+        final XMLReader reader = (XMLReader) obj;
+        try {
+            return reader.getContentHandler() == DUMMY_HANDLER
+                    && reader.getErrorHandler() == DUMMY_HANDLER
+                    && reader.getProperty(Namespaces.SAX_LEXICAL_HANDLER) == DUMMY_HANDLER
+                    && reader.getFeature(Namespaces.SAX_NAMESPACES)
+                    && reader.getFeature(Namespaces.SAX_NAMESPACES_PREFIXES);
+        } catch (final SAXNotRecognizedException | SAXNotSupportedException e) {
+            LOG.warn("Unable to verify the state of XMLReader: " + e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Create Xmlreader and setup validation.
      *
@@ -208,6 +250,19 @@ public class XMLReaderObjectFactory extends BasePoolableObjectFactory implements
         }
     }
 
+    private static Object getReaderProperty(XMLReader xmlReader, String propertyName){
+        try {
+            return xmlReader.getProperty(propertyName);
+
+        } catch (final SAXNotRecognizedException ex) {
+            LOG.error("SAXNotRecognizedException: " + ex.getMessage());
+
+        } catch (final SAXNotSupportedException ex) {
+            LOG.error("SAXNotSupportedException:" + ex.getMessage());
+        }
+        return null;
+    }
+
     private static void setReaderProperty(XMLReader xmlReader, String propertyName, Object object){
         try {
             xmlReader.setProperty(propertyName, object);
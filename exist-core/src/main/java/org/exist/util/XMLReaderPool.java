@@ -21,33 +21,27 @@
 package org.exist.util;
 
 import org.apache.commons.pool.PoolableObjectFactory;
-import org.apache.commons.pool.impl.StackObjectPool;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.exist.Namespaces;
 import org.exist.storage.BrokerPool;
 import org.exist.storage.BrokerPoolService;
 import org.exist.storage.BrokerPoolServiceException;
-import org.exist.validation.GrammarPool;
+import org.exist.util.pool.ThreadLocalObjectPool;
 import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.XMLReader;
-import org.xml.sax.ext.DefaultHandler2;
 
-import javax.xml.parsers.ParserConfigurationException;
 import java.util.Map;
 
 /**
  * Maintains a pool of XMLReader objects. The pool is available through
  * {@link BrokerPool#getParserPool()}.
+ *
+ * Readers are cached per thread, see {@link ThreadLocalObjectPool}. A returned reader
+ * is reset by {@link XMLReaderObjectFactory#passivateObject(Object)}, and discarded
+ * if {@link XMLReaderObjectFactory#validateObject(Object)} finds it was not reset.
  * 
  * @author wolf
  */
-public class XMLReaderPool extends StackObjectPool<XMLReader> implements BrokerPoolService {
-
-    private final static Logger LOG = LogManager.getLogger(XMLReaderPool.class);
-
-    private final static DefaultHandler2 DUMMY_HANDLER = new DefaultHandler2();
+public class XMLReaderPool extends ThreadLocalObjectPool<XMLReader> implements BrokerPoolService {
 
     private Configuration configuration = null;
 
@@ -55,11 +49,10 @@ public class XMLReaderPool extends StackObjectPool<XMLReader> implements BrokerP
      * Constructs an XML Reader Pool.
      *
      * @param factory the object factory
-     * @param maxIdle the max idle time for a reader
-     * @param initIdleCapacity the initial capacity
+     * @param maxIdle the maximum number of idle readers which are not cached by a thread
      */
-    public XMLReaderPool(final PoolableObjectFactory<XMLReader> factory, final int maxIdle, final int initIdleCapacity) {
-        super(factory, maxIdle, initIdleCapacity);
+    public XMLReaderPool(final PoolableObjectFactory<XMLReader> factory, final int maxIdle) {
+        super("XMLReader", factory, maxIdle);
     }
 
     @Override
@@ -67,20 +60,20 @@ public class XMLReaderPool extends StackObjectPool<XMLReader> implements BrokerP
         this.configuration = configuration;
     }
 
-    public synchronized XMLReader borrowXMLReader() {
+    public XMLReader borrowXMLReader() {
         try {
             final XMLReader reader = super.borrowObject();
             setParserConfigFeatures(reader);
             return reader;
         } catch (final Exception e) {
-            throw new IllegalStateException("error while returning XMLReader: " + e.getMessage(), e );
+            throw new IllegalStateException("error while borrowing XMLReader: " + e.getMessage(), e );
         }
     }
 
     /**
      * Sets any features for the parser which were defined in conf.xml
      */
-    private void setParserConfigFeatures(final XMLReader xmlReader) throws ParserConfigurationException, SAXNotRecognizedException, SAXNotSupportedException {
+    private void setParserConfigFeatures(final XMLReader xmlReader) throws SAXNotRecognizedException, SAXNotSupportedException {
         final Map<String, Boolean> parserFeatures = (Map<String, Boolean>)configuration.getProperty(XmlParser.XML_PARSER_FEATURES_PROPERTY);
         if(parserFeatures != null) {
             for(final Map.Entry<String, Boolean> feature : parserFeatures.entrySet()) {
@@ -90,57 +83,27 @@ public class XMLReaderPool extends StackObjectPool<XMLReader> implements BrokerP
     }
 
     @Override
-    public synchronized XMLReader borrowObject() throws Exception {
+    public XMLReader borrowObject() throws Exception {
         return borrowXMLReader();
     }
-    
-   
-    public synchronized void returnXMLReader(XMLReader reader) {
+
+    public void returnXMLReader(final XMLReader reader) {
         if (reader == null) {
             return;
         }
-        
-        try {            
-            reader.setContentHandler(DUMMY_HANDLER);
-            reader.setErrorHandler(DUMMY_HANDLER);
-            reader.setProperty(Namespaces.SAX_LEXICAL_HANDLER, DUMMY_HANDLER);
-            
-            // DIZZZ; workaround Xerces bug. Cached DTDs cause for problems during validation parsing.
-            final GrammarPool grammarPool =
-               (GrammarPool) getReaderProperty(reader,
-                                    XMLReaderObjectFactory.APACHE_PROPERTIES_INTERNAL_GRAMMARPOOL);
-            if(grammarPool!=null){
-                grammarPool.clearDTDs();
-            }
-            
+
+        try {
             super.returnObject(reader);
-            
         } catch (final Exception e) {
             throw new IllegalStateException("error while returning XMLReader: " + e.getMessage(), e);
         }
     }
 
     @Override
-    public synchronized void returnObject(XMLReader obj) throws Exception {
+    public void returnObject(final XMLReader obj) throws Exception {
         returnXMLReader(obj);
-    }   
-
-    private Object getReaderProperty(XMLReader xmlReader, String propertyName){
-
-        Object object = null;
-        try {
-            object=xmlReader.getProperty(propertyName);
-
-        } catch (final SAXNotRecognizedException ex) {
-            LOG.error("SAXNotRecognizedException: " + ex.getMessage());
-
-        } catch (final SAXNotSupportedException ex) {
-            LOG.error("SAXNotSupportedException:" + ex.getMessage());
-        }
-        return object;
     }
 
-
     // just used for config properties
     public interface XmlParser {
         String XML_PARSER_ELEMENT = "xml";
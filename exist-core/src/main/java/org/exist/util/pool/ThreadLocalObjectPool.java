@@ -0,0 +1,281 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.util.pool;
+
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.jcip.annotations.ThreadSafe;
+import org.apache.commons.pool.BaseObjectPool;
+import org.apache.commons.pool.PoolableObjectFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An object pool which does not lock, neither on borrow nor on return.
+ *
+ * Each thread caches one idle object in a thread local slot, so that a thread which
+ * repeatedly borrows and returns an object, e.g. while parsing or serializing one
+ * document after another, always gets back its own object without touching any
+ * shared state. Objects which do not fit into the slot, because the thread borrowed
+ * more than one object at a time, are kept on a shared lock-free stack of at most
+ * <code>maxIdle</code> objects; any further objects are destroyed.
+ *
+ * Closing the pool destroys the idle objects on the shared stack and in the thread
+ * local slots of all threads which are still alive.
+ *
+ * On return an object is passivated and then validated by the factory. An object
+ * which cannot be reset to a clean state is destroyed instead of being pooled again.
+ *
+ * The statistics distinguish borrows and returns served by the thread local slot
+ * from those which had to use the shared stack, i.e. which could contend with
+ * other threads.
+ *
+ * @param <T> the type of the pooled objects
+ */
+@ThreadSafe
+public class ThreadLocalObjectPool<T> extends BaseObjectPool<T> {
+
+    private static final Logger LOG = LogManager.getLogger(ThreadLocalObjectPool.class);
+
+    private final String name;
+    private final PoolableObjectFactory<T> factory;
+    private final int maxIdle;
+
+    private final ThreadLocal<Slot<T>> local = ThreadLocal.withInitial(this::newSlot);
+    // the slots of the threads, which are only held until their thread ends
+    private final Map<Slot<T>, Boolean> slots = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Deque<T> shared = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger sharedIdle = new AtomicInteger();
+
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder returned = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+    private final LongAdder sharedBorrows = new LongAdder();
+    private final LongAdder sharedReturns = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder resetFailures = new LongAdder();
+
+    /**
+     * @param name the name of the pool, as reported by the statistics
+     * @param factory the object factory
+     * @param maxIdle the maximum number of idle objects on the shared stack
+     */
+    public ThreadLocalObjectPool(final String name, final PoolableObjectFactory<T> factory, final int maxIdle) {
+        this.name = name;
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+    }
+
+    @Override
+    public T borrowObject() throws Exception {
+        assertOpen();
+
+        T obj = local.get().take();
+        if (obj == null) {
+            obj = shared.pollFirst();
+            if (obj != null) {
+                sharedIdle.decrementAndGet();
+                sharedBorrows.increment();
+            } else {
+                obj = factory.makeObject();
+                created.increment();
+            }
+        }
+
+        try {
+            factory.activateObject(obj);
+        } catch (final Exception e) {
+            destroy(obj);
+            throw e;
+        }
+        borrowed.increment();
+        return obj;
+    }
+
+    @Override
+    public void returnObject(final T obj) throws Exception {
+        returned.increment();
+        if (!reset(obj)) {
+            resetFailures.increment();
+            destroy(obj);
+            return;
+        }
+        if (isClosed()) {
+            destroy(obj);
+            return;
+        }
+
+        final Slot<T> slot = local.get();
+        if (slot.get() == null) {
+            slot.set(obj);
+            if (isClosed()) {
+                // the pool was closed concurrently, after its slots were emptied
+                final T closed = slot.take();
+                if (closed != null) {
+                    destroy(closed);
+                }
+            }
+            return;
+        }
+
+        sharedReturns.increment();
+        if (sharedIdle.incrementAndGet() <= maxIdle) {
+            shared.offerFirst(obj);
+        } else {
+            sharedIdle.decrementAndGet();
+            destroy(obj);
+        }
+    }
+
+    @Override
+    public void invalidateObject(final T obj) throws Exception {
+        invalidated.increment();
+        destroy(obj);
+    }
+
+    private boolean reset(final T obj) {
+        try {
+            factory.passivateObject(obj);
+            return factory.validateObject(obj);
+        } catch (final Exception e) {
+            LOG.warn("Unable to reset pooled object of {}: {}", name, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private void destroy(final T obj) {
+        destroyed.increment();
+        try {
+            factory.destroyObject(obj);
+        } catch (final Exception e) {
+            LOG.warn("Unable to destroy pooled object of {}: {}", name, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Destroys the idle objects on the shared stack. Objects cached
+     * by the thread local slots are released when their thread ends,
+     * or when the pool is closed.
+     */
+    @Override
+    public void clear() {
+        T obj;
+        while ((obj = shared.pollFirst()) != null) {
+            sharedIdle.decrementAndGet();
+            destroy(obj);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        super.close();
+        clear();
+        synchronized (slots) {
+            for (final Slot<T> slot : slots.keySet()) {
+                final T obj = slot.take();
+                if (obj != null) {
+                    destroy(obj);
+                }
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    /**
+     * @return the number of idle objects on the shared stack
+     */
+    @Override
+    public int getNumIdle() {
+        return sharedIdle.get();
+    }
+
+    @Override
+    public int getNumActive() {
+        return (int) (borrowed.sum() - returned.sum() - invalidated.sum());
+    }
+
+    public long getBorrowed() {
+        return borrowed.sum();
+    }
+
+    public long getReturned() {
+        return returned.sum();
+    }
+
+    /**
+     * @return the number of borrows which were served by the shared stack
+     */
+    public long getSharedBorrows() {
+        return sharedBorrows.sum();
+    }
+
+    /**
+     * @return the number of returns which did not fit into the thread local slot
+     */
+    public long getSharedReturns() {
+        return sharedReturns.sum();
+    }
+
+    public long getCreated() {
+        return created.sum();
+    }
+
+    public long getDestroyed() {
+        return destroyed.sum();
+    }
+
+    /**
+     * @return the number of returned objects which could not be reset
+     */
+    public long getResetFailures() {
+        return resetFailures.sum();
+    }
+
+    private Slot<T> newSlot() {
+        final Slot<T> slot = new Slot<>();
+        slots.put(slot, Boolean.TRUE);
+        return slot;
+    }
+
+    /**
+     * The idle object cached by a thread. It is only ever set by its thread,
+     * but may be taken by another thread which closes the pool.
+     */
+    private static final class Slot<T> extends AtomicReference<T> {
+        private T take() {
+            return get() == null ? null : getAndSet(null);
+        }
+    }
+}
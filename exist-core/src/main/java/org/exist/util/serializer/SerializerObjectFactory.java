@@ -37,17 +37,19 @@ public class SerializerObjectFactory extends BaseKeyedPoolableObjectFactory {
         return null;
     }
 
-    public void activateObject(Object key, Object obj) throws Exception {
+    public void passivateObject(Object key, Object obj) throws Exception {
         if (key == SAXSerializer.class)
             {((SAXSerializer)obj).reset();}
         else if (key == DOMStreamer.class)
             {((DOMStreamer)obj).reset();}
     }
 
-    public void passivateObject(Object key, Object obj) throws Exception {
+    /**
+     * A passivated serializer must not hold on to the writer it wrote to.
+     */
+    public boolean validateObject(Object key, Object obj) {
         if (key == SAXSerializer.class)
-            {((SAXSerializer)obj).reset();}
-        else if (key == DOMStreamer.class)
-            {((DOMStreamer)obj).reset();}
+            {return ((SAXSerializer)obj).getWriter() == null;}
+        return true;
     }
 }
@@ -22,33 +22,49 @@
 package org.exist.util.serializer;
 
 import org.apache.commons.pool.KeyedPoolableObjectFactory;
-import org.apache.commons.pool.impl.StackKeyedObjectPool;
+import org.apache.commons.pool.PoolUtils;
 import org.exist.storage.serializers.Serializer;
+import org.exist.util.pool.ThreadLocalObjectPool;
+
+import java.util.Arrays;
+import java.util.List;
 
 /**
+ * Pools {@link SAXSerializer} and {@link DOMStreamer} objects, keyed by
+ * either of these classes. The objects are cached per thread,
+ * see {@link ThreadLocalObjectPool}.
+ *
  * @author wolf
  *
  */
-public class SerializerPool extends StackKeyedObjectPool {
+public class SerializerPool {
 
-    private final static SerializerPool instance = new SerializerPool(new SerializerObjectFactory(), 10, 1);
+    private final static SerializerPool instance = new SerializerPool(new SerializerObjectFactory(), 10);
     
     public final static SerializerPool getInstance() {
         return instance;
     }
-    
+
+    private final ThreadLocalObjectPool<Object> saxSerializers;
+    private final ThreadLocalObjectPool<Object> domStreamers;
+
     /**
      * @param factory the object factory
-     * @param max the maximum size of the pool
-     * @param init the initial size of the pool
+     * @param maxIdle the maximum number of idle objects per key which are not cached by a thread
      */
-    public SerializerPool(KeyedPoolableObjectFactory factory, int max, int init) {
-        super(factory, max, init);
+    public SerializerPool(final KeyedPoolableObjectFactory factory, final int maxIdle) {
+        this.saxSerializers = new ThreadLocalObjectPool<Object>("SAXSerializer", PoolUtils.adapt(factory, SAXSerializer.class), maxIdle);
+        this.domStreamers = new ThreadLocalObjectPool<Object>("DOMStreamer", PoolUtils.adapt(factory, DOMStreamer.class), maxIdle);
     }
-    
-    public synchronized Object borrowObject(Object key) {
+
+    /**
+     * @param key either {@link SAXSerializer}.class or {@link DOMStreamer}.class
+     *
+     * @return the borrowed object
+     */
+    public Object borrowObject(final Object key) {
         try {
-            return super.borrowObject(key);
+            return getPool(key).borrowObject();
         } catch (final Exception e) {
             throw new IllegalStateException("Error while creating serializer: " + e.getMessage());
         }
@@ -64,13 +80,40 @@ public class SerializerPool extends StackKeyedObjectPool {
         }
     }
     
-    public synchronized void returnObject(Object obj) {
+    public void returnObject(final Object obj) {
         if (obj == null)
             {return;}
+
+        // only pool the classes created by the factory, not any subclasses of them
+        final ThreadLocalObjectPool<Object> pool;
+        if (obj.getClass() == SAXSerializer.class) {
+            pool = saxSerializers;
+        } else if (obj.getClass() == ExtendedDOMStreamer.class) {
+            pool = domStreamers;
+        } else {
+            return;
+        }
+
         try {
-            super.returnObject(obj.getClass(), obj);
+            pool.returnObject(obj);
         } catch (final Exception e) {
             throw new IllegalStateException("Error while returning serializer: " + e.getMessage());
         }
     }
+
+    private ThreadLocalObjectPool<Object> getPool(final Object key) {
+        if (key == SAXSerializer.class) {
+            return saxSerializers;
+        } else if (key == DOMStreamer.class) {
+            return domStreamers;
+        }
+        throw new IllegalArgumentException("No serializer pool for: " + key);
+    }
+
+    /**
+     * @return the pools of the serializer objects, for statistics
+     */
+    public List<ThreadLocalObjectPool<Object>> getPools() {
+        return Arrays.asList(saxSerializers, domStreamers);
+    }
 }
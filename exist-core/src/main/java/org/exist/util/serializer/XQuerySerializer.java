@@ -56,6 +56,39 @@ public class XQuerySerializer {
         }
     }
 
+    /**
+     * Serialize the sequence by pulling items from its iterator rather than by
+     * position, so that neither the length of the sequence nor random access into
+     * it is needed. Only the XML based output methods honour start and howmany,
+     * in the same way as {@link #serialize(Sequence, int, int, boolean, boolean, long, long)}.
+     *
+     * @param sequence the sequence to serialize
+     * @param start the position of the first item to serialize
+     * @param howmany the maximum number of items to serialize, or a value less than 1 for all items
+     * @param wrap whether to wrap the items in an exist:result element
+     * @param typed whether to annotate the items with their types
+     * @param compilationTime the time taken to compile the query
+     * @param executionTime the time taken to execute the query
+     *
+     * @throws SAXException if an error occurs during serialization
+     * @throws XPathException if an error occurs whilst iterating the sequence
+     */
+    public void serializeStreaming(final Sequence sequence, final int start, final int howmany, final boolean wrap, final boolean typed, final long compilationTime, final long executionTime) throws SAXException, XPathException {
+        final String method = outputProperties.getProperty(OutputKeys.METHOD, "xml");
+        switch (method) {
+            case "adaptive":
+                serializeAdaptive(sequence);
+                break;
+            case "json":
+                serializeJSON(sequence, compilationTime, executionTime);
+                break;
+            case "xml":
+            default:
+                serializeXMLStreaming(sequence.iterate(), start, howmany, wrap, typed, compilationTime, executionTime);
+                break;
+        }
+    }
+
     public boolean normalize() {
         final String method = outputProperties.getProperty(OutputKeys.METHOD, "xml");
         return !("json".equals(method) || "adaptive".equals(method));
@@ -81,6 +114,26 @@ public class XQuerySerializer {
         }
     }
 
+    private void serializeXMLStreaming(final SequenceIterator items, final int start, final int howmany, final boolean wrap, final boolean typed, final long compilationTime, final long executionTime) throws SAXException {
+        final Serializer serializer = broker.getSerializer();
+        serializer.reset();
+        SAXSerializer sax = null;
+        try {
+            sax = (SAXSerializer) SerializerPool.getInstance().borrowObject(
+                    SAXSerializer.class);
+            sax.setOutput(writer, outputProperties);
+            serializer.setProperties(outputProperties);
+            serializer.setSAXHandlers(sax, sax);
+            serializer.toSAX(items, start, howmany, wrap, typed, compilationTime, executionTime);
+        } catch (SAXNotSupportedException | SAXNotRecognizedException e) {
+            throw new SAXException(e.getMessage(), e);
+        } finally {
+            if (sax != null) {
+                SerializerPool.getInstance().returnObject(sax);
+            }
+        }
+    }
+
     private void serializeJSON(final Sequence sequence, final long compilationTime, final long executionTime) throws SAXException, XPathException {
         // backwards compatibility: if the sequence contains a single element, we assume
         // it should be transformed to JSON following the rules of the old JSON writer
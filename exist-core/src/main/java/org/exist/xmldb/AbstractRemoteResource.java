@@ -26,6 +26,8 @@ import java.util.*;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
+import javax.annotation.Nullable;
+
 import com.evolvedbinary.j8fu.lazy.LazyVal;
 
 import org.apache.xmlrpc.client.XmlRpcClient;
@@ -291,30 +293,19 @@ public abstract class AbstractRemoteResource extends AbstractRemote
             byte[] data = (byte[]) table.get("data");
             final boolean isCompressed = "yes".equals(properties.getProperty(EXistOutputKeys.COMPRESS_OUTPUT, "no"));
 
-            try (final OutputStream osTempFile = tempFile.newOutputStream()) {
-
-                // One for the local cached file
-                Inflater dec = null;
-                byte[] decResult = null;
-                int decLength;
-                if (isCompressed) {
-                    dec = new Inflater();
-                    decResult = new byte[65536];
-                    dec.setInput(data);
-                    do {
-                        decLength = dec.inflate(decResult);
-                        osTempFile.write(decResult, 0, decLength);
-                        // And other for the stream where we want to save it!
-                        if (os != null) {
-                            os.write(decResult, 0, decLength);
-                        }
-                    } while (decLength == decResult.length || !dec.needsInput());
-
-                } else {
-                    osTempFile.write(data);
-                    // And other for the stream where we want to save it!
-                    if (os != null) {
-                        os.write(data);
+            try (final OutputStream osTempFile = tempFile.newOutputStream();
+                    final ContentSink sink = new ContentSink(osTempFile, os, isCompressed)) {
+                sink.write(data);
+
+                if (offset > 0 && Boolean.TRUE.equals(table.get("supports-stream"))) {
+                    // fetch the remainder in a single request instead of chunk by chunk
+                    final long received = sink.getReceived();
+                    try {
+                        collection.getStreamTransfer().download((String) table.get("handle"), offset, sink);
+                        offset = 0;
+                    } catch (final IOException e) {
+                        // continue with the chunks which have not been received yet
+                        offset += sink.getReceived() - received;
                     }
                 }
 
@@ -325,38 +316,87 @@ public abstract class AbstractRemoteResource extends AbstractRemote
                     table = (Map<?, ?>) collection.execute(method, params);
                     offset = useLongOffset ? Long.parseLong((String) table.get("offset")) : ((Integer) table.get("offset"));
                     data = (byte[]) table.get("data");
-
-                    // One for the local cached file
-                    if (isCompressed) {
-                        dec.setInput(data);
-                        do {
-                            decLength = dec.inflate(decResult);
-                            osTempFile.write(decResult, 0, decLength);
-                            // And other for the stream where we want to save it!
-                            if (os != null) {
-                                os.write(decResult, 0, decLength);
-                            }
-                        } while (decLength == decResult.length || !dec.needsInput());
-                    } else {
-                        osTempFile.write(data);
-                        // And other for the stream where we want to save it!
-                        if (os != null) {
-                            os.write(data);
-                        }
-                    }
-                }
-
-                if (dec != null) {
-                    dec.end();
+                    sink.write(data);
                 }
             }
 
             contentFile = tempFile;
-        } catch (final IOException | DataFormatException e) {
+        } catch (final IOException e) {
             throw new XMLDBException(ErrorCodes.VENDOR_ERROR, e.getMessage(), e);
         }
     }
 
+    /**
+     * Writes the received content to the local file and, if given, to the output stream
+     * of the caller, inflating it on the way if the server compressed it.
+     */
+    private static class ContentSink extends OutputStream {
+        private final OutputStream osTempFile;
+        @Nullable private final OutputStream os;
+        @Nullable private final Inflater dec;
+        @Nullable private final byte[] decResult;
+        private long received = 0;
+
+        ContentSink(final OutputStream osTempFile, @Nullable final OutputStream os, final boolean isCompressed) {
+            this.osTempFile = osTempFile;
+            this.os = os;
+            if (isCompressed) {
+                this.dec = new Inflater();
+                this.decResult = new byte[65536];
+            } else {
+                this.dec = null;
+                this.decResult = null;
+            }
+        }
+
+        /**
+         * @return the number of bytes received from the server so far
+         */
+        long getReceived() {
+            return received;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (dec != null) {
+                dec.setInput(b, off, len);
+                try {
+                    int decLength;
+                    do {
+                        decLength = dec.inflate(decResult);
+                        writeOut(decResult, 0, decLength);
+                    } while (decLength == decResult.length || !dec.needsInput());
+                } catch (final DataFormatException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+            } else {
+                writeOut(b, off, len);
+            }
+            received += len;
+        }
+
+        private void writeOut(final byte[] b, final int off, final int len) throws IOException {
+            // One for the local cached file
+            osTempFile.write(b, off, len);
+            // And other for the stream where we want to save it!
+            if (os != null) {
+                os.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (dec != null) {
+                dec.end();
+            }
+        }
+    }
+
     protected final int getInMemorySize(Properties properties) {
         if (inMemoryBufferSize == null) {
             inMemoryBufferSize = new LazyVal<>(() -> Integer.parseInt(properties.getProperty("in-memory-buffer-size", Integer.toString(VirtualTempPath.DEFAULT_IN_MEMORY_SIZE))));
@@ -0,0 +1,48 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2001-2015 The eXist Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xmldb;
+
+import java.nio.file.Path;
+
+import org.xmldb.api.base.Service;
+import org.xmldb.api.base.XMLDBException;
+
+/**
+ * Stores a large number of XML documents into a collection,
+ * building their indexes only after all of them have been stored.
+ *
+ * The documents can not be found through any index before
+ * the operation has completed.
+ */
+public interface BulkLoadService extends Service {
+
+    /**
+     * Store the XML files into the current collection, i.e. the collection from which
+     * this service has been retrieved. Each file is stored under its file name.
+     *
+     * @param files the files to store
+     *
+     * @return the number of stored documents
+     *
+     * @throws XMLDBException if one of the files can not be stored, the indexes
+     *     of the files stored until then are built nonetheless.
+     */
+    int storeFiles(Path[] files) throws XMLDBException;
+}
@@ -0,0 +1,80 @@
+/*
+ *  eXist Open Source Native XML Database
+ *  Copyright (C) 2001-2015 The eXist Project
+ *  http://exist-db.org
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public License
+ *  as published by the Free Software Foundation; either version 2
+ *  of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xmldb;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.security.Subject;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.BulkLoader;
+import org.exist.storage.DBBroker;
+import org.exist.util.FileUtils;
+import org.exist.util.LockException;
+import org.xml.sax.SAXException;
+import org.xmldb.api.base.ErrorCodes;
+import org.xmldb.api.base.XMLDBException;
+
+public class LocalBulkLoadService extends AbstractLocalService implements BulkLoadService {
+
+    public LocalBulkLoadService(final Subject user, final BrokerPool pool, final LocalCollection parent) {
+        super(user, pool, parent);
+    }
+
+    @Override
+    public String getName() throws XMLDBException {
+        return "BulkLoadService";
+    }
+
+    @Override
+    public String getVersion() throws XMLDBException {
+        return "1.0";
+    }
+
+    @Override
+    public int storeFiles(final Path[] files) throws XMLDBException {
+        final XmldbURI collectionPath = collection.getPathURI();
+        try (final DBBroker broker = brokerPool.get(Optional.ofNullable(user));
+             final BulkLoader loader = new BulkLoader(broker, collectionPath)) {
+            for (final Path file : files) {
+                loader.store(XmldbURI.create(FileUtils.fileName(file)), file);
+            }
+            return loader.getDocumentCount();
+        } catch (final PermissionDeniedException e) {
+            throw new XMLDBException(ErrorCodes.PERMISSION_DENIED, e.getMessage(), e);
+        } catch (final IOException e) {
+            throw new XMLDBException(ErrorCodes.UNKNOWN_ERROR, e.getMessage(), e);
+        } catch (final EXistException | SAXException | LockException e) {
+            throw new XMLDBException(ErrorCodes.VENDOR_ERROR, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getProperty(final String name) throws XMLDBException {
+        return null;
+    }
+
+    @Override
+    public void setProperty(final String name, final String value) throws XMLDBException {
+    }
+}
@@ -406,6 +406,10 @@ public class LocalCollection extends AbstractLocal implements EXistCollection {
                 service = new LocalRestoreService(user, brokerPool, this);
                 break;
 
+            case "BulkLoadService":
+                service = new LocalBulkLoadService(user, brokerPool, this);
+                break;
+
             default:
                 throw new XMLDBException(ErrorCodes.NO_SUCH_SERVICE);
         }
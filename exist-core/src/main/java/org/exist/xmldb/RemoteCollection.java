@@ -40,6 +40,7 @@ import org.xmldb.api.base.*;
 import org.xmldb.api.modules.BinaryResource;
 import org.xmldb.api.modules.XMLResource;
 
+import javax.annotation.Nullable;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -577,52 +578,46 @@ public class RemoteCollection extends AbstractRemote implements EXistCollection
                 }
             }
 
-            final byte[] chunk;
-            if (res instanceof ExtendedResource) {
-                if(res instanceof AbstractRemoteResource) {
-                    final long contentLen = ((AbstractRemoteResource)res).getContentLength();
-                    if (contentLen != -1) {
-                        // content length is known
-                        chunk = new byte[(int)Math.min(contentLen, MAX_UPLOAD_CHUNK)];
-                    } else {
-                        chunk = new byte[MAX_UPLOAD_CHUNK];
-                    }
-                } else {
-                    final long streamLen = ((ExtendedResource)res).getStreamLength();
-                    if (streamLen != -1) {
-                        // stream length is known
-                        chunk = new byte[(int)Math.min(streamLen, MAX_UPLOAD_CHUNK)];
-                    } else {
-                        chunk = new byte[MAX_UPLOAD_CHUNK];
-                    }
-                }
+            final long contentLen;
+            if (res instanceof AbstractRemoteResource) {
+                contentLen = ((AbstractRemoteResource) res).getContentLength();
+            } else if (res instanceof ExtendedResource) {
+                contentLen = ((ExtendedResource) res).getStreamLength();
             } else {
-                chunk = new byte[MAX_UPLOAD_CHUNK];
+                contentLen = -1;
             }
             try {
 
                 String fileName = null;
-                if (chunk.length > 0) {
-                    int len;
-                    while ((len = is.read(chunk)) > -1) {
-                        final List<Object> params = new ArrayList<>();
-                        if (fileName != null) {
-                            params.add(fileName);
-                        }
+                if (contentLen == -1 || contentLen > MAX_UPLOAD_CHUNK) {
+                    // more than one chunk, send everything in a single request if the server allows for it
+                    fileName = uploadStream(is);
+                }
 
-                    /*
-                    Only compress the chunk if it is larger than 256 bytes,
-                    otherwise the compression framing overhead results in a larger chunk
-                    */
-                        if (len < 256) {
-                            params.add(chunk);
-                            params.add(len);
-                            fileName = (String) execute("upload", params);
-                        } else {
-                            final byte[] compressed = Compressor.compress(chunk, len);
-                            params.add(compressed);
-                            params.add(len);
-                            fileName = (String) execute("uploadCompressed", params);
+                if (fileName == null) {
+                    final byte[] chunk = new byte[contentLen != -1 ? (int) Math.min(contentLen, MAX_UPLOAD_CHUNK) : MAX_UPLOAD_CHUNK];
+                    if (chunk.length > 0) {
+                        int len;
+                        while ((len = is.read(chunk)) > -1) {
+                            final List<Object> params = new ArrayList<>();
+                            if (fileName != null) {
+                                params.add(fileName);
+                            }
+
+                        /*
+                        Only compress the chunk if it is larger than 256 bytes,
+                        otherwise the compression framing overhead results in a larger chunk
+                        */
+                            if (len < 256) {
+                                params.add(chunk);
+                                params.add(len);
+                                fileName = (String) execute("upload", params);
+                            } else {
+                                final byte[] compressed = Compressor.compress(chunk, len);
+                                params.add(compressed);
+                                params.add(len);
+                                fileName = (String) execute("uploadCompressed", params);
+                            }
                         }
                     }
                 }
@@ -687,6 +682,45 @@ public class RemoteCollection extends AbstractRemote implements EXistCollection
         }
     }
 
+    /**
+     * Uploads the content of the stream through the binary transfer of the server.
+     *
+     * @param is the content to upload
+     *
+     * @return the handle of the uploaded file, or null if the server does not offer the binary transfer
+     *
+     * @throws XMLDBException if the upload fails after the content has been read
+     */
+    private @Nullable String uploadStream(final InputStream is) throws XMLDBException {
+        final RemoteStreamTransfer transfer = getStreamTransfer();
+        final String handle;
+        try {
+            handle = transfer.create();
+        } catch (final IOException e) {
+            LOG.debug("Binary transfer not available, falling back to chunked upload: {}", e.getMessage());
+            return null;
+        }
+        if (handle != null) {
+            try {
+                transfer.append(handle, is);
+            } catch (final IOException e) {
+                throw new XMLDBException(ErrorCodes.VENDOR_ERROR, "Failed to upload resource: " + e.getMessage(), e);
+            }
+        }
+        return handle;
+    }
+
+    RemoteStreamTransfer getStreamTransfer() throws XMLDBException {
+        if (xmlRpcClientLease.isClosed()) {
+            throw new XMLDBException(ErrorCodes.COLLECTION_CLOSED);
+        }
+        try {
+            return RemoteStreamTransfer.of(xmlRpcClientLease.get());
+        } catch (final IOException e) {
+            throw new XMLDBException(ErrorCodes.VENDOR_ERROR, e.getMessage(), e);
+        }
+    }
+
     @Override
     public boolean isRemoteCollection() throws XMLDBException {
         return true;
@@ -0,0 +1,186 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.exist.xmldb;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.apache.xmlrpc.client.XmlRpcClient;
+import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.exist.util.io.InputStreamUtil.copy;
+
+/**
+ * Client side of the raw binary transfer offered by the XML-RPC servlet
+ * under <code>{xmlrpc}/stream</code>.
+ *
+ * Instead of fetching or sending a resource in base64 encoded chunks of at most
+ * {@link RemoteCollection#MAX_UPLOAD_CHUNK} bytes, the whole content is moved
+ * in a single HTTP request, compressed with LZ4.
+ */
+final class RemoteStreamTransfer {
+
+    private static final String PATH = "/stream";
+    private static final String ENCODING_GZIP = "gzip";
+    private static final String ENCODING_LZ4 = "x-lz4";
+    private static final int BUFFER_SIZE = 65536;
+
+    private final URL streamUrl;
+    @Nullable private final String authorization;
+
+    private RemoteStreamTransfer(final URL streamUrl, @Nullable final String authorization) {
+        this.streamUrl = streamUrl;
+        this.authorization = authorization;
+    }
+
+    static RemoteStreamTransfer of(final XmlRpcClient client) throws IOException {
+        final XmlRpcClientConfigImpl config = (XmlRpcClientConfigImpl) client.getClientConfig();
+        final URL serverUrl = config.getServerURL();
+        final URL streamUrl = new URL(serverUrl.getProtocol(), serverUrl.getHost(), serverUrl.getPort(),
+                serverUrl.getPath().replaceFirst("/+$", "") + PATH);
+
+        String authorization = null;
+        if (config.getBasicUserName() != null) {
+            final String password = config.getBasicPassword() == null ? "" : config.getBasicPassword();
+            authorization = "Basic " + Base64.getEncoder().encodeToString((config.getBasicUserName() + ':' + password).getBytes(UTF_8));
+        }
+        return new RemoteStreamTransfer(streamUrl, authorization);
+    }
+
+    /**
+     * Copies a serialized result held by the server into the output stream.
+     *
+     * @param handle the handle of the serialized result
+     * @param offset the offset from which on to transfer
+     * @param os the output stream for the received bytes
+     *
+     * @throws IOException if the transfer fails
+     */
+    void download(final String handle, final long offset, final OutputStream os) throws IOException {
+        final HttpURLConnection connection = open("/" + handle + "?offset=" + offset);
+        try {
+            connection.setRequestProperty("Accept-Encoding", ENCODING_LZ4 + ", " + ENCODING_GZIP);
+            checkResponse(connection);
+            try (final InputStream is = decode(connection.getInputStream(), connection.getContentEncoding())) {
+                copy(is, os, BUFFER_SIZE);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Creates an empty upload file on the server.
+     *
+     * @return the handle of the upload file, or null if the server
+     *     does not offer the binary transfer
+     *
+     * @throws IOException if the request fails
+     */
+    @Nullable String create() throws IOException {
+        final HttpURLConnection connection = open("");
+        try {
+            connection.setRequestMethod("PUT");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(0);
+            connection.getOutputStream().close();
+            final int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_BAD_METHOD) {
+                return null;
+            }
+            checkResponse(connection);
+            return readHandle(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Appends the content of the input stream to an upload file on the server.
+     *
+     * @param handle the handle of the upload file
+     * @param is the content to upload
+     *
+     * @throws IOException if the transfer fails
+     */
+    void append(final String handle, final InputStream is) throws IOException {
+        final HttpURLConnection connection = open("/" + handle);
+        try {
+            connection.setRequestMethod("PUT");
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(BUFFER_SIZE);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setRequestProperty("Content-Encoding", ENCODING_LZ4);
+            try (final OutputStream os = new LZ4FrameOutputStream(connection.getOutputStream())) {
+                copy(is, os, BUFFER_SIZE);
+            }
+            checkResponse(connection);
+            readHandle(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(final String path) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(streamUrl, streamUrl.getPath() + path).openConnection();
+        connection.setUseCaches(false);
+        if (authorization != null) {
+            connection.setRequestProperty("Authorization", authorization);
+        }
+        return connection;
+    }
+
+    private static void checkResponse(final HttpURLConnection connection) throws IOException {
+        final int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            throw new IOException("Binary transfer from " + connection.getURL() + " failed: " + status + " " + connection.getResponseMessage());
+        }
+    }
+
+    private static String readHandle(final HttpURLConnection connection) throws IOException {
+        try (final InputStream is = connection.getInputStream()) {
+            final byte[] buf = new byte[64];
+            int len = 0;
+            int read;
+            while (len < buf.length && (read = is.read(buf, len, buf.length - len)) > -1) {
+                len += read;
+            }
+            return new String(buf, 0, len, UTF_8).trim();
+        }
+    }
+
+    private static InputStream decode(final InputStream is, @Nullable final String encoding) throws IOException {
+        if (ENCODING_LZ4.equalsIgnoreCase(encoding)) {
+            return new LZ4FrameInputStream(is);
+        } else if (ENCODING_GZIP.equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(is, BUFFER_SIZE);
+        }
+        return is;
+    }
+}
@@ -720,6 +720,7 @@ public class RpcConnection implements RpcAPI {
                 final int handle = factory.resultSets.add(new SerializedResult(tempFile));
                 result.put("handle", Integer.toString(handle));
                 result.put("supports-long-offset", Boolean.TRUE);
+                result.put("supports-stream", Boolean.TRUE);
             } else {
                 temporaryFileManager.returnTemporaryFile(tempFile);
             }
@@ -2240,6 +2241,7 @@ public class RpcConnection implements RpcAPI {
                 final int handle = factory.resultSets.add(new SerializedResult(tempFile));
                 result.put("handle", Integer.toString(handle));
                 result.put("supports-long-offset", Boolean.TRUE);
+                result.put("supports-stream", Boolean.TRUE);
             } else {
                 temporaryFileManager.returnTemporaryFile(tempFile);
             }
@@ -2352,6 +2354,7 @@ public class RpcConnection implements RpcAPI {
                 final int handle = factory.resultSets.add(new SerializedResult(tempFile));
                 result.put("handle", Integer.toString(handle));
                 result.put("supports-long-offset", Boolean.TRUE);
+                result.put("supports-stream", Boolean.TRUE);
             } else {
                 temporaryFileManager.returnTemporaryFile(tempFile);
             }
@@ -2491,6 +2494,7 @@ public class RpcConnection implements RpcAPI {
                 final int handle = factory.resultSets.add(new SerializedResult(tempFile));
                 result.put("handle", Integer.toString(handle));
                 result.put("supports-long-offset", Boolean.TRUE);
+                result.put("supports-stream", Boolean.TRUE);
             } else {
                 temporaryFileManager.returnTemporaryFile(tempFile);
             }
@@ -59,6 +59,7 @@ public class RpcServlet extends XmlRpcServlet {
 
     private boolean useDefaultUser = DEFAULT_USE_DEFAULT_USER;
     private Charset charset = null;
+    private transient XmldbRequestProcessorFactoryFactory requestProcessorFactoryFactory = null;
 
     @Override
     public void init(final ServletConfig pConfig) throws ServletException {
@@ -118,6 +119,35 @@ public class RpcServlet extends XmlRpcServlet {
         }
     }
 
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws IOException, ServletException {
+        if (RpcStreamTransfer.isStreamRequest(request)) {
+            getStreamTransfer().download(request, response);
+        } else {
+            super.doGet(request, response);
+        }
+    }
+
+    @Override
+    protected void doPut(final HttpServletRequest request, final HttpServletResponse response) throws IOException, ServletException {
+        if (RpcStreamTransfer.isStreamRequest(request)) {
+            getStreamTransfer().upload(request, response);
+        } else {
+            super.doPut(request, response);
+        }
+    }
+
+    private RpcStreamTransfer getStreamTransfer() throws ServletException {
+        if (requestProcessorFactoryFactory == null) {
+            throw new ServletException("XMLRPC interface has not been initialized");
+        }
+        try {
+            return new RpcStreamTransfer((XmldbRequestProcessorFactory) requestProcessorFactoryFactory.getRequestProcessorFactory(RpcConnection.class));
+        } catch (final XmlRpcException e) {
+            throw new ServletException(e.getMessage(), e);
+        }
+    }
+
     @Override
     protected XmlRpcServletServer newXmlRpcServer(final ServletConfig pConfig) throws XmlRpcException {
         final XmlRpcServletServer server = super.newXmlRpcServer(pConfig);
@@ -129,7 +159,8 @@ public class RpcServlet extends XmlRpcServlet {
     protected XmlRpcHandlerMapping newXmlRpcHandlerMapping() throws XmlRpcException {
         final DefaultHandlerMapping mapping = new DefaultHandlerMapping();
         mapping.setVoidMethodEnabled(true);
-        mapping.setRequestProcessorFactoryFactory(new XmldbRequestProcessorFactoryFactory(useDefaultUser));
+        requestProcessorFactoryFactory = new XmldbRequestProcessorFactoryFactory(useDefaultUser);
+        mapping.setRequestProcessorFactoryFactory(requestProcessorFactoryFactory);
         mapping.loadDefault(RpcConnection.class);
         return mapping;
     }
@@ -0,0 +1,266 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.exist.xmlrpc;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.xmlrpc.XmlRpcException;
+import org.exist.util.io.TemporaryFileManager;
+
+import javax.annotation.Nullable;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Transfers serialized results and uploads as raw bytes over plain HTTP, as an
+ * alternative to the base64 encoded chunks of getNextChunk/getNextExtendedChunk and
+ * upload/uploadCompressed.
+ *
+ * <ul>
+ *     <li><code>GET {servlet}/stream/{handle}?offset={n}</code> sends the serialized result
+ *     of a handle from offset n on and releases the handle.</li>
+ *     <li><code>PUT {servlet}/stream</code> stores the request body in a new upload file,
+ *     <code>PUT {servlet}/stream/{handle}</code> appends it to an existing one. The handle
+ *     is returned as text/plain and can be passed to parseLocal/parseLocalExt.</li>
+ * </ul>
+ *
+ * Bodies are compressed with gzip or LZ4 (frame format, {@link #ENCODING_LZ4}) if requested
+ * through the Accept-Encoding and Content-Encoding headers. Requests are authenticated by
+ * HTTP Basic authentication, exactly like the XML-RPC calls.
+ */
+class RpcStreamTransfer {
+
+    private static final Logger LOG = LogManager.getLogger(RpcStreamTransfer.class);
+
+    static final String PATH = "/stream";
+    static final String ENCODING_GZIP = "gzip";
+    static final String ENCODING_LZ4 = "x-lz4";
+
+    /**
+     * Maximum number of bytes moved by a single transferFrom call.
+     */
+    private static final long TRANSFER_SIZE = 1024 * 1024;
+
+    private final XmldbRequestProcessorFactory factory;
+
+    RpcStreamTransfer(final XmldbRequestProcessorFactory factory) {
+        this.factory = factory;
+    }
+
+    static boolean isStreamRequest(final HttpServletRequest request) {
+        final String pathInfo = request.getPathInfo();
+        return pathInfo != null && (pathInfo.equals(PATH) || pathInfo.startsWith(PATH + "/"));
+    }
+
+    void download(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        if (!authenticate(request, response)) {
+            return;
+        }
+        final Integer handle = getHandle(request);
+        final SerializedResult sr = handle == null ? null : factory.resultSets.getSerializedResult(handle);
+        if (sr == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Invalid handle specified");
+            return;
+        }
+        // This will keep the serialized result in the cache
+        sr.touch();
+
+        final long offset;
+        try {
+            final String offsetParam = request.getParameter("offset");
+            offset = offsetParam == null ? 0 : Long.parseLong(offsetParam);
+        } catch (final NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Syntactically invalid offset specified");
+            return;
+        }
+
+        final Path file = sr.result;
+        try (final FileChannel channel = FileChannel.open(file, READ)) {
+            final long size = channel.size();
+            if (offset < 0 || offset > size) {
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, "No more data available");
+                return;
+            }
+
+            final String encoding = negotiateEncoding(request.getHeader("Accept-Encoding"));
+            response.setContentType("application/octet-stream");
+            if (encoding == null) {
+                response.setContentLengthLong(size - offset);
+            } else {
+                response.setHeader("Content-Encoding", encoding);
+            }
+
+            try (final OutputStream os = encode(response.getOutputStream(), encoding)) {
+                final WritableByteChannel target = Channels.newChannel(os);
+                long position = offset;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, target);
+                }
+            }
+        }
+
+        // the client has everything, the same as after the last getNextChunk
+        factory.resultSets.remove(handle);
+    }
+
+    void upload(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        if (!authenticate(request, response)) {
+            return;
+        }
+        final String encoding = request.getHeader("Content-Encoding");
+        if (encoding != null && !isSupportedEncoding(encoding)) {
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported Content-Encoding: " + encoding);
+            return;
+        }
+
+        final Path file;
+        final int handle;
+        final boolean append = request.getPathInfo().length() > PATH.length() + 1;
+        if (append) {
+            final Integer existing = getHandle(request);
+            final SerializedResult sr = existing == null ? null : factory.resultSets.getSerializedResult(existing);
+            if (sr == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Invalid handle specified");
+                return;
+            }
+            // This will keep the serialized result in the cache
+            sr.touch();
+            file = sr.result;
+            handle = existing;
+        } else {
+            file = TemporaryFileManager.getInstance().getTemporaryFile();
+            handle = factory.resultSets.add(new SerializedResult(file));
+        }
+
+        try (final InputStream is = decode(request.getInputStream(), encoding);
+             final FileChannel channel = append ? FileChannel.open(file, WRITE, CREATE) : FileChannel.open(file, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            final ReadableByteChannel source = Channels.newChannel(is);
+            long position = channel.size();
+            long transferred;
+            while ((transferred = channel.transferFrom(source, position, TRANSFER_SIZE)) > 0) {
+                position += transferred;
+            }
+        }
+
+        response.setContentType("text/plain");
+        response.setCharacterEncoding(UTF_8.name());
+        response.getWriter().write(Integer.toString(handle));
+    }
+
+    private boolean authenticate(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        String username = null;
+        String password = null;
+        final String authorization = request.getHeader("Authorization");
+        if (authorization != null && authorization.regionMatches(true, 0, "Basic ", 0, 6)) {
+            try {
+                final String credentials = new String(Base64.getDecoder().decode(authorization.substring(6).trim()), UTF_8);
+                final int colon = credentials.indexOf(':');
+                if (colon > -1) {
+                    username = credentials.substring(0, colon);
+                    password = credentials.substring(colon + 1);
+                } else {
+                    username = credentials;
+                    password = "";
+                }
+            } catch (final IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Malformed Authorization header");
+                return false;
+            }
+        }
+
+        try {
+            factory.authenticate(username, password);
+            return true;
+        } catch (final XmlRpcException e) {
+            LOG.debug(e.getMessage());
+            response.setHeader("WWW-Authenticate", "Basic realm=\"exist\"");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, e.getMessage());
+            return false;
+        }
+    }
+
+    private static @Nullable Integer getHandle(final HttpServletRequest request) {
+        final String pathInfo = request.getPathInfo();
+        if (pathInfo.length() <= PATH.length() + 1) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(pathInfo.substring(PATH.length() + 1));
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static @Nullable String negotiateEncoding(@Nullable final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        // prefer LZ4 as it is much cheaper than gzip
+        String encoding = null;
+        for (final String accepted : acceptEncoding.split(",")) {
+            final String name = accepted.split(";")[0].trim();
+            if (ENCODING_LZ4.equalsIgnoreCase(name)) {
+                return ENCODING_LZ4;
+            } else if (ENCODING_GZIP.equalsIgnoreCase(name)) {
+                encoding = ENCODING_GZIP;
+            }
+        }
+        return encoding;
+    }
+
+    private static boolean isSupportedEncoding(final String encoding) {
+        return ENCODING_LZ4.equalsIgnoreCase(encoding) || ENCODING_GZIP.equalsIgnoreCase(encoding)
+                || "identity".equalsIgnoreCase(encoding);
+    }
+
+    private static OutputStream encode(final OutputStream os, @Nullable final String encoding) throws IOException {
+        if (ENCODING_LZ4.equals(encoding)) {
+            return new LZ4FrameOutputStream(os);
+        } else if (ENCODING_GZIP.equals(encoding)) {
+            return new GZIPOutputStream(os, 65536);
+        }
+        return os;
+    }
+
+    private static InputStream decode(final InputStream is, @Nullable final String encoding) throws IOException {
+        if (ENCODING_LZ4.equalsIgnoreCase(encoding)) {
+            return new LZ4FrameInputStream(is);
+        } else if (ENCODING_GZIP.equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(is, 65536);
+        }
+        return is;
+    }
+}
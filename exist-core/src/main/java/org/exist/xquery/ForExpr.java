@@ -58,6 +58,15 @@ public class ForExpr extends BindingExpression {
         positionalVariable = var;
     }
 
+    /**
+     * Get the name of the positional variable.
+     *
+     * @return the name of the positional variable, or null if there is none
+     */
+    public String getPositionalVariable() {
+        return positionalVariable;
+    }
+
 	/* (non-Javadoc)
      * @see org.exist.xquery.Expression#analyze(org.exist.xquery.Expression)
      */
@@ -1,12 +1,10 @@
 package org.exist.xquery;
 
-import com.ibm.icu.text.Collator;
 import org.exist.dom.QName;
 import org.exist.xquery.util.ExpressionDumper;
 import org.exist.xquery.value.*;
 
 import java.util.*;
-import java.util.stream.Stream;
 
 /**
  * Implements a "group by" clause inside a FLWOR.
@@ -27,20 +25,15 @@ public class GroupByClause extends AbstractFLWORClause {
      */
     private class GroupByData {
 
-        private Map<List<AtomicValue>, Tuple> groupedMap = null;
+        private Map<List<AtomicValueKey>, Tuple> groupedMap = null;
         private Map<QName, LocalVariable> variables = null;
         private List<LocalVariable> groupingVars = null;
 
         private boolean initialized = false;
 
         public GroupByData() {
-            // check if we can use a hash map
-            if (usesDefaultCollator()) {
-                groupedMap = new HashMap<>();
-            } else {
-                // non-default collation: must use tree map
-                groupedMap = new TreeMap<>(GroupByClause.this::compareKeys);
-            }
+            // keys are hashed on their collation keys, groups are kept in order of first appearance
+            groupedMap = new LinkedHashMap<>();
             variables = new HashMap<>();
             groupingVars = new ArrayList<>();
         }
@@ -67,7 +60,7 @@ public class GroupByClause extends AbstractFLWORClause {
 
         // Evaluate group spec to create grouping key sequence
         final List<Sequence> groupingValues = new ArrayList<>();
-        final List<AtomicValue> groupingKeys = new ArrayList<>();
+        final List<AtomicValueKey> groupingKeys = new ArrayList<>(groupSpecs.length);
         for (GroupSpec spec: groupSpecs) {
             final Sequence groupingSeq = spec.getGroupExpression().eval(null);
             if (groupingSeq.getItemCount() > 1) {
@@ -83,7 +76,7 @@ public class GroupByClause extends AbstractFLWORClause {
                 data.groupingVars.add(groupingVar);
             }
             groupingValues.add(groupingSeq);
-            groupingKeys.add(groupingValue);
+            groupingKeys.add(new AtomicValueKey(groupingValue, spec.getCollator()));
         }
 
         // collect the current tuples into the grouping map
@@ -243,36 +236,6 @@ public class GroupByClause extends AbstractFLWORClause {
         visitor.visitGroupByClause(this);
     }
 
-    /**
-     * Compare keys using the collator given in the group spec. Used to
-     * sort keys into the grouping map.
-     */
-    private int compareKeys(List<AtomicValue> s1, List<AtomicValue> s2) {
-        final int c1 = s1.size();
-        final int c2 = s2.size();
-        if (c1 == c2) {
-            try {
-                for (int i = 0; i < c1; i++) {
-                    final AtomicValue v1 = s1.get(i);
-                    final AtomicValue v2 = s2.get(i);
-                    final Collator collator = groupSpecs[i].getCollator();
-                    final int r = v1.compareTo(collator, v2);
-                    if (r != Constants.EQUAL) {
-                        return r;
-                    }
-                }
-                return Constants.EQUAL;
-            } catch (XPathException e) {
-                return Constants.INFERIOR;
-            }
-        }
-        return c1 < c2 ? Constants.INFERIOR : Constants.SUPERIOR;
-    }
-
-    private boolean usesDefaultCollator() {
-        return Stream.of(groupSpecs).allMatch(spec -> spec.getCollator() == null);
-    }
-
     static class Tuple extends HashMap<QName, Sequence> {
 
         private final List<Sequence> groupingValues;
@@ -1,10 +1,12 @@
 package org.exist.xquery;
 
+import org.exist.dom.QName;
 import org.exist.xquery.util.ExpressionDumper;
 import org.exist.xquery.value.Item;
 import org.exist.xquery.value.OrderedValueSequence;
 import org.exist.xquery.value.Sequence;
 
+import javax.annotation.Nullable;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.List;
@@ -15,8 +17,16 @@ import java.util.Stack;
  */
 public class OrderByClause extends AbstractFLWORClause {
 
+    public static final String ORDER_BY_MAX_IN_MEMORY_ATTRIBUTE = "order-by-max-in-memory";
+    public static final String PROPERTY_ORDER_BY_MAX_IN_MEMORY = "xquery.order-by-max-in-memory";
+    public static final int ORDER_BY_MAX_IN_MEMORY_DEFAULT = 1000000;
+
     protected OrderSpec[] orderSpecs = null;
 
+    /*  The number of items which will be consumed by the caller of the next evaluation,
+        see {@link #setTopN(int)}. */
+    private int topN = -1;
+
     /*  OrderByClause needs to keep state between calls to eval and postEval. We thus need
         to track state in a stack to avoid overwrites if we're called recursively. */
     private final Deque<OrderedValueSequence> stack = new ArrayDeque<>();
@@ -30,6 +40,58 @@ public class OrderByClause extends AbstractFLWORClause {
         return orderSpecs;
     }
 
+    /**
+     * Announce that only the first n items of the next evaluation of this
+     * clause will be used, e.g. by fn:subsequence. Only these items will be
+     * retained when sorting. Applies to the next evaluation only.
+     *
+     * If the items are bound by the preceding for clause from a {@link RankedExpression}
+     * and are ordered by their descending score, the ranked expression is asked
+     * to return only its n best ranked items.
+     *
+     * @param n the number of items, or -1 to retain all items
+     */
+    public void setTopN(final int n) {
+        this.topN = n;
+        final RankedExpression rankedInput = getRankedInput();
+        if (rankedInput != null) {
+            rankedInput.setTopN(n);
+        }
+    }
+
+    /**
+     * Get the input of the preceding for clause, if it is a ranked expression
+     * and this clause orders by its descending score alone.
+     *
+     * @return the ranked input expression, or null
+     */
+    private @Nullable RankedExpression getRankedInput() {
+        if (orderSpecs.length != 1 || (orderSpecs[0].getModifiers() & OrderSpec.DESCENDING_ORDER) == 0) {
+            return null;
+        }
+
+        // any other clause, e.g. a where clause, could drop some of the best ranked items
+        final FLWORClause previous = getPreviousClause();
+        if (!(previous instanceof ForExpr) || previous.getPreviousClause() != null
+                || ((ForExpr) previous).getPositionalVariable() != null) {
+            return null;
+        }
+
+        final ForExpr forExpr = (ForExpr) previous;
+        final Expression input = RankedExpression.unwrap(forExpr.getInputSequence());
+        if (!(input instanceof RankedExpression)) {
+            return null;
+        }
+
+        try {
+            final QName variable = QName.parse(context, forExpr.getVariable(), null);
+            final RankedExpression rankedInput = (RankedExpression) input;
+            return rankedInput.isScoreOf(orderSpecs[0].getSortExpression(), variable) ? rankedInput : null;
+        } catch (final QName.IllegalQNameException e) {
+            return null;
+        }
+    }
+
     @Override
     public ClauseType getType() {
         return ClauseType.ORDERBY;
@@ -53,7 +115,9 @@ public class OrderByClause extends AbstractFLWORClause {
     public Sequence eval(Sequence contextSequence, Item contextItem) throws XPathException {
         final OrderedValueSequence orderedResult;
         if (stack.isEmpty()) {
-            orderedResult = new OrderedValueSequence(orderSpecs, 100);
+            final int maxInMemory = context.getBroker().getConfiguration().getProperty(PROPERTY_ORDER_BY_MAX_IN_MEMORY, ORDER_BY_MAX_IN_MEMORY_DEFAULT);
+            orderedResult = new OrderedValueSequence(orderSpecs, 100, maxInMemory, topN);
+            topN = -1;
         } else {
             orderedResult = stack.pop();
         }
@@ -101,5 +165,6 @@ public class OrderByClause extends AbstractFLWORClause {
         super.resetState(postOptimization);
         returnExpr.resetState(postOptimization);
         stack.clear();
+        topN = -1;
     }
 }
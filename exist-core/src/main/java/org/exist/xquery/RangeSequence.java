@@ -17,10 +17,31 @@ public class RangeSequence extends AbstractSequence {
 
     private final IntegerValue start;
     private final IntegerValue end;
+    private final long itemCount;
 
     public RangeSequence(final IntegerValue start, final IntegerValue end) {
         this.start = start;
         this.end = end;
+        this.itemCount = countItems(start, end);
+    }
+
+    private static long countItems(final IntegerValue start, final IntegerValue end) {
+        if (start.compareTo(end) > 0) {
+            return 0;
+        }
+        if (start.isLong() && end.isLong()) {
+            try {
+                return Math.addExact(Math.subtractExact(end.getLong(), start.getLong()), 1);
+            } catch (final ArithmeticException e) {
+                // fall through
+            }
+        }
+        try {
+            return ((IntegerValue) end.minus(start)).getLong() + 1;
+        } catch (final XPathException e) {
+            LOG.warn("Unexpected exception when processing result of range expression: " + e.getMessage(), e);
+            return 0;
+        }
     }
 
     @Override
@@ -125,15 +146,7 @@ public class RangeSequence extends AbstractSequence {
 
     @Override
     public long getItemCountLong() {
-        if (start.compareTo(end) > 0) {
-            return 0;
-        }
-        try {
-            return ((IntegerValue) end.minus(start)).getLong() + 1;
-        } catch (final XPathException e) {
-            LOG.warn("Unexpected exception when processing result of range expression: " + e.getMessage(), e);
-            return 0;
-        }
+        return itemCount;
     }
 
     @Override
@@ -165,7 +178,7 @@ public class RangeSequence extends AbstractSequence {
 
     @Override
     public Item itemAt(final int pos) {
-        if (pos < getItemCountLong()) {
+        if (pos < itemCount) {
             return new IntegerValue(start.getLong() + pos);
         }
         return null;
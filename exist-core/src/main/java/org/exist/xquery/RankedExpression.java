@@ -0,0 +1,75 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2018 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.dom.QName;
+
+/**
+ * An expression whose items are ranked by a score, e.g. the relevance
+ * computed by a full text index, and which can restrict its result to
+ * the best ranked items.
+ *
+ * If a FLWOR expression binds the items of a ranked expression in its
+ * for clause and orders them by descending score, the {@link OrderByClause}
+ * passes the number of items announced by {@link OrderByClause#setTopN(int)}
+ * on to the ranked expression.
+ */
+public interface RankedExpression extends Expression {
+
+    /**
+     * Returns true if the expression computes the score of the item
+     * which is bound to the variable.
+     *
+     * @param expr the expression, e.g. the key of an order spec
+     * @param variable the name of the variable
+     *
+     * @return true if the expression returns the score of the variable's item
+     */
+    boolean isScoreOf(Expression expr, QName variable);
+
+    /**
+     * Announce that only the n best ranked items of the next evaluation
+     * of this expression will be used.
+     *
+     * @param n the number of items, or -1 to return all items
+     */
+    void setTopN(int n);
+
+    /**
+     * Removes the wrappers which the compiler adds around an expression,
+     * e.g. cardinality and type checks.
+     *
+     * @param expr the expression
+     *
+     * @return the wrapped expression
+     */
+    static Expression unwrap(Expression expr) {
+        while (true) {
+            if (expr instanceof DynamicCardinalityCheck || expr instanceof DynamicTypeCheck || expr instanceof Atomize
+                    || (expr.getClass() == PathExpr.class && expr.getSubExpressionCount() == 1)) {
+                expr = expr.getSubExpression(0);
+            } else if (expr instanceof InternalFunctionCall) {
+                expr = ((InternalFunctionCall) expr).getFunction();
+            } else {
+                return expr;
+            }
+        }
+    }
+}
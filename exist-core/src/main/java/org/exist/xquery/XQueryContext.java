@@ -78,6 +78,7 @@ import org.exist.source.*;
 import org.exist.stax.ExtendedXMLStreamReader;
 import org.exist.storage.DBBroker;
 import org.exist.storage.UpdateListener;
+import org.exist.storage.XQueryModuleCache;
 import org.exist.storage.lock.Lock.LockMode;
 import org.exist.storage.lock.LockedDocumentMap;
 import org.exist.storage.txn.Txn;
@@ -2461,7 +2462,8 @@ public class XQueryContext implements BinaryValueManager, Context {
     }
 
     /**
-     * Compile of borrow an already compile module from the cache.
+     * Compile a module, borrowing its already parsed syntax tree
+     * from the {@link XQueryModuleCache} if available.
      *
      * @param prefix the module namespace prefix
      * @param namespaceURI the module namespace URI
@@ -2499,8 +2501,12 @@ public class XQueryContext implements BinaryValueManager, Context {
             LOG.debug("Loading module from " + location);
         }
 
-        try (final Reader reader = source.getReader()) {
-            if (reader == null) {
+        // the syntax tree only depends on the module source, so it may be shared with other queries
+        final XQueryModuleCache moduleCache = getBroker().getBrokerPool().getXQueryModuleCache();
+        AST ast = moduleCache.get(getBroker(), source);
+
+        try (final Reader reader = ast == null ? source.getReader() : null) {
+            if (ast == null && reader == null) {
                 throw moduleLoadException("failed to load module: '" + namespaceURI + "' from: " +
                         "'" + source + "', location: '" + location + "'. Source not found. ", location);
             }
@@ -2517,21 +2523,25 @@ public class XQueryContext implements BinaryValueManager, Context {
             setModule(namespaceURI, modExternal);
             final XQueryContext modContext = new ModuleContext(this, prefix, namespaceURI, location);
             modExternal.setContext(modContext);
-            final XQueryLexer lexer = new XQueryLexer(modContext, reader);
-            final XQueryParser parser = new XQueryParser(lexer);
             final XQueryTreeParser astParser = new XQueryTreeParser(modContext, modExternal);
 
             try {
-                parser.xpath();
-
-                if (parser.foundErrors()) {
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug(parser.getErrorMessage());
+                if (ast == null) {
+                    final long parseStart = System.nanoTime();
+                    final XQueryLexer lexer = new XQueryLexer(modContext, reader);
+                    final XQueryParser parser = new XQueryParser(lexer);
+                    parser.xpath();
+
+                    if (parser.foundErrors()) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug(parser.getErrorMessage());
+                        }
+                        throw new XPathException(ErrorCodes.XPST0003, "error found while loading module from " + location + ": " + parser.getErrorMessage());
                     }
-                    throw new XPathException(ErrorCodes.XPST0003, "error found while loading module from " + location + ": " + parser.getErrorMessage());
-                }
 
-                final AST ast = parser.getAST();
+                    ast = parser.getAST();
+                    moduleCache.put(source, ast, System.nanoTime() - parseStart);
+                }
 
                 final PathExpr path = new PathExpr(modContext);
                 astParser.xpath(ast, path);
@@ -29,6 +29,7 @@ import org.exist.config.annotation.ConfigurationClass;
 import org.exist.config.annotation.ConfigurationFieldAsAttribute;
 import org.exist.dom.memtree.MemTreeBuilder;
 import org.exist.storage.DBBroker;
+import org.exist.storage.QueryResourceUsage;
 import org.exist.util.Configuration;
 import org.exist.xquery.util.ExpressionDumper;
 
@@ -60,6 +61,8 @@ public class XQueryWatchDog {
 
     private String runningThread = null;
 
+    private final QueryResourceUsage resourceUsage = new QueryResourceUsage();
+
     public XQueryWatchDog(XQueryContext context) {
         this.context = context;
         configureDefaults();
@@ -85,6 +88,16 @@ public class XQueryWatchDog {
         return runningThread;
     }
 
+    /**
+     * Get the resources used by the current or, if the query has completed,
+     * the last execution of this query.
+     *
+     * @return the resource usage
+     */
+    public QueryResourceUsage getResourceUsage() {
+        return resourceUsage;
+    }
+
     private void configureDefaults() {
     	final DBBroker broker = context.getBroker();
         final Configuration conf = broker.getBrokerPool().getConfiguration();
@@ -103,9 +103,26 @@ public class FunAvg extends Function {
             }
             //Set the first value
             ComputableValue sum = (ComputableValue) value;
+
+            //Sum xs:integer values which fit into a long without creating intermediate values
+            boolean summingLongs = FunSum.isLongInteger(value);
+            long longSum = summingLongs ? ((IntegerValue) value).getLong() : 0;
+
             while (iter.hasNext()) {
                 item = iter.nextItem();
                 value = item.atomize();
+                if (summingLongs) {
+                    if (FunSum.isLongInteger(value)) {
+                        try {
+                            longSum = Math.addExact(longSum, ((IntegerValue) value).getLong());
+                            continue;
+                        } catch (final ArithmeticException e) {
+                            // overflow, continue with arbitrary precision
+                        }
+                    }
+                    sum = new IntegerValue(longSum);
+                    summingLongs = false;
+                }
                 //Any value of type xdt:untypedAtomic are cast to xs:double
                 if (value.getType() == Type.UNTYPED_ATOMIC) 
                     {value = value.convertTo(Type.DOUBLE);}
@@ -130,6 +147,9 @@ public class FunAvg extends Function {
                     throw new XPathException(this, ErrorCodes.FORG0006, e.getMessage());
                 }
             }
+            if (summingLongs) {
+                sum = new IntegerValue(longSum);
+            }
             result = sum.div(new IntegerValue(inner.getItemCount()));
         }
         if (!gotInfinity) {
@@ -92,8 +92,7 @@ public class FunCount extends Function {
         if (getArgumentCount() == 0) {
             result = IntegerValue.ZERO;
         } else {
-            final Sequence seq = getArgument(0).eval(contextSequence);
-            result = new IntegerValue(seq.getItemCountLong());
+            result = new IntegerValue(IndexOnlyCount.count(this, getArgument(0), contextSequence, null, -1));
         }
 
         if (context.getProfiler().isEnabled()) {
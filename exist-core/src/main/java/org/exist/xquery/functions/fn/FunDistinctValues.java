@@ -21,29 +21,25 @@
  */
 package org.exist.xquery.functions.fn;
 
-import java.util.Comparator;
-import java.util.TreeSet;
+import java.util.HashSet;
+import java.util.Set;
 
 import com.ibm.icu.text.Collator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.dom.QName;
 import org.exist.xquery.Cardinality;
-import org.exist.xquery.Constants;
-import org.exist.xquery.Constants.Comparison;
-import org.exist.xquery.Constants.StringTruncationOperator;
 import org.exist.xquery.Dependency;
 import org.exist.xquery.Function;
 import org.exist.xquery.FunctionSignature;
 import org.exist.xquery.Profiler;
-import org.exist.xquery.ValueComparison;
 import org.exist.xquery.XPathException;
 import org.exist.xquery.XQueryContext;
 import org.exist.xquery.value.AtomicValue;
+import org.exist.xquery.value.AtomicValueKey;
 import org.exist.xquery.value.FunctionReturnSequenceType;
 import org.exist.xquery.value.FunctionParameterSequenceType;
 import org.exist.xquery.value.Item;
-import org.exist.xquery.value.NumericValue;
 import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceIterator;
 import org.exist.xquery.value.SequenceType;
@@ -117,68 +113,18 @@ public class FunDistinctValues extends CollatingFunction {
         }
         final Sequence seq = getArgument(0).eval(contextSequence, contextItem);
         final Collator collator = getCollator(contextSequence, contextItem, 2);		
-        final TreeSet<AtomicValue> set = new TreeSet<>(new ValueComparator(collator));
+        final Set<AtomicValueKey> set = new HashSet<>();
         final ValueSequence result = new ValueSequence();
-        Item item;
-        AtomicValue value;
-        boolean hasAlreadyNaN = false;
         for (final SequenceIterator i = seq.iterate(); i.hasNext();) {
-            item = i.nextItem();
-            value = item.atomize();
-            if (!set.contains(value)) {
-                if (Type.subTypeOfUnion(value.getType(), Type.NUMBER)) {
-                    if (((NumericValue)value).isNaN()) {
-                        //although NaN does not equal itself, if $arg 
-                        //contains multiple NaN values a single NaN is returned.
-                        if (!hasAlreadyNaN) {
-                            set.add(value);
-                            result.add(value);	
-                            hasAlreadyNaN = true;
-                        }
-                    } else {
-                        set.add(value);
-                        result.add(value);
-                    }
-                } else {
-                    set.add(value);
-                    result.add(value);
-                }
+            final AtomicValue value = i.nextItem().atomize();
+            //although NaN does not equal itself, if $arg
+            //contains multiple NaN values a single NaN is returned.
+            if (set.add(new AtomicValueKey(value, collator))) {
+                result.add(value);
             }
         }
         if (context.getProfiler().isEnabled())
             {context.getProfiler().end(this, "", result);}
         return result;
     }
-
-    public final static class ValueComparator implements Comparator<AtomicValue> {
-        Collator collator;
-
-        public ValueComparator(Collator collator) {
-            this.collator = collator;
-        }
-
-        /* (non-Javadoc)
-         * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
-         */
-        public int compare(AtomicValue o1, AtomicValue o2) {
-            try {
-                if (ValueComparison.compareAtomic(collator, o1, o2,
-                        StringTruncationOperator.NONE, Comparison.EQ))
-                    {return Constants.EQUAL;}
-                else if (ValueComparison.compareAtomic(collator, o1, o2,
-                        StringTruncationOperator.NONE, Comparison.LT))
-                    {return Constants.INFERIOR;}
-                else if (ValueComparison.compareAtomic(collator, o1, o2,
-                        StringTruncationOperator.NONE, Comparison.GT))
-                    {return Constants.SUPERIOR;}
-                //Fallback
-                else
-                    {return o1.compareTo(collator, o2);}
-            } catch (final XPathException e) {
-                //Values that cannot be compared, i.e. the eq operator
-                //is not defined for their types, are considered to be distinct
-                return Constants.INFERIOR;
-            }
-        }
-    }
 }
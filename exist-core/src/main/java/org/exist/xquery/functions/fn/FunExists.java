@@ -74,8 +74,8 @@ public class FunExists extends Function {
         //if(contextItem != null)
 			//contextSequence = contextItem.toSequence();
         
-		final Sequence seq = getArgument(0).eval(contextSequence, contextItem);
-		final Sequence result = seq.isEmpty() ? BooleanValue.FALSE : BooleanValue.TRUE;
+		final long count = IndexOnlyCount.count(this, getArgument(0), contextSequence, contextItem, 1);
+		final Sequence result = count > 0 ? BooleanValue.TRUE : BooleanValue.FALSE;
         
         if (context.getProfiler().isEnabled()) 
             {context.getProfiler().end(this, "", result);} 
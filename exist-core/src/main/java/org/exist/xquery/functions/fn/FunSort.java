@@ -29,6 +29,7 @@ import org.exist.xquery.value.FunctionReference;
 import org.exist.xquery.value.FunctionReturnSequenceType;
 import org.exist.xquery.value.Item;
 import org.exist.xquery.value.NumericValue;
+import org.exist.xquery.value.OrderedValueSequence;
 import org.exist.xquery.value.Sequence;
 import org.exist.xquery.value.SequenceIterator;
 import org.exist.xquery.value.SequenceType;
@@ -92,10 +93,16 @@ public class FunSort extends BasicFunction {
     Sequence seq = args[0];
 
     Collator collator = collator(args, 1);
-    ArrayList<Sequence> keys = new ArrayList<>(seq.getItemCount());
+    ArrayList<Sequence> keys;
 
     try (FunctionReference ref = function(args, 2)) {
 
+      final Sequence ordered = orderedSort(seq, args, ref);
+      if (ordered != null) {
+        return ordered;
+      }
+
+      keys = new ArrayList<>(seq.getItemCount());
       final Sequence refArgs[] = new Sequence[1];
 
       Item item;
@@ -116,6 +123,74 @@ public class FunSort extends BasicFunction {
     return sort(seq, keys, collator);
   }
 
+  /**
+   * Sorts with an {@link OrderedValueSequence}, which writes sorted runs to disk for large inputs
+   * just like an "order by" clause, if every sort key is empty or a single atomic value, and all
+   * keys compare the same way under "order by" and fn:sort. Returns null otherwise, the keys
+   * then have to be computed again by {@link #sort(Sequence, ArrayList, Collator)}.
+   */
+  private Sequence orderedSort(Sequence seq, Sequence[] args, FunctionReference ref) throws XPathException {
+    final OrderSpec spec = new OrderSpec(context, this);
+    spec.setModifiers(OrderSpec.EMPTY_LEAST);
+    if (args.length > 1 && !args[1].isEmpty()) {
+      spec.setCollation(args[1].getStringValue());
+    }
+
+    final int maxInMemory = context.getBroker().getConfiguration().getProperty(OrderByClause.PROPERTY_ORDER_BY_MAX_IN_MEMORY, OrderByClause.ORDER_BY_MAX_IN_MEMORY_DEFAULT);
+    final OrderedValueSequence result = new OrderedValueSequence(new OrderSpec[] { spec }, 100, maxInMemory, -1);
+
+    final Sequence refArgs[] = new Sequence[1];
+    int keyType = Type.ANY_TYPE;
+    for (final SequenceIterator i = seq.iterate(); i.hasNext(); ) {
+      final Item item = i.nextItem();
+      final Sequence value;
+      if (ref != null) {
+        refArgs[0] = item.toSequence();
+        value = Atomize.atomize(ref.evalFunction(null, null, refArgs));
+      } else {
+        value = Atomize.atomize(item.toSequence());
+      }
+
+      final AtomicValue key;
+      if (value.isEmpty()) {
+        key = AtomicValue.EMPTY_VALUE;
+      } else if (value.hasOne()) {
+        key = (AtomicValue) value.itemAt(0);
+        final int type = comparisonType(key);
+        if (type == Type.ANY_TYPE || (keyType != Type.ANY_TYPE && type != keyType)) {
+          result.close();
+          return null;
+        }
+        keyType = type;
+      } else {
+        result.close();
+        return null;
+      }
+      result.add(item, new AtomicValue[] { key });
+    }
+
+    result.sort();
+    return result;
+  }
+
+  /**
+   * Groups the key types whose values are ordered the same way by "order by" and fn:sort.
+   *
+   * @return the type of the group, or {@link Type#ANY_TYPE} if the key has to be sorted by fn:sort itself
+   */
+  private static int comparisonType(AtomicValue key) {
+    final int type = key.getType();
+    if (Type.subTypeOfUnion(type, Type.NUMBER)) {
+      // order by treats NaN like an empty key
+      return ((NumericValue) key).isNaN() ? Type.ANY_TYPE : Type.NUMBER;
+    } else if (Type.subTypeOf(type, Type.STRING) || type == Type.UNTYPED_ATOMIC) {
+      return Type.STRING;
+    } else if (type == Type.ANY_URI || type == Type.BOOLEAN || type == Type.DATE_TIME || type == Type.DATE || type == Type.TIME) {
+      return type;
+    }
+    return Type.ANY_TYPE;
+  }
+
   private Sequence sort(Sequence seq, ArrayList<Sequence> keys, Collator collator) throws XPathException {
 
     final Holder<XPathException> exception = new Holder<>();
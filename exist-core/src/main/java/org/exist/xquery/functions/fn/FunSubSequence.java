@@ -111,14 +111,36 @@ public class FunSubSequence extends Function {
         }
 
         final Sequence result;
-        final Sequence seq = getArgument(0).eval(contextSequence, contextItem);
-        if (seq.isEmpty()) {
-            result = Sequence.EMPTY_SEQUENCE;
+        final OrderByClause orderBy = getArgumentCount() == 3 ? findOrderByClause(getArgument(0)) : null;
+        if (orderBy != null) {
+            // only the first items in sort order are needed
+            final DoubleValue startLoc = (DoubleValue) getArgument(1).eval(contextSequence, contextItem).convertTo(Type.DOUBLE);
+            final DoubleValue length = (DoubleValue) getArgument(2).eval(contextSequence, contextItem).convertTo(Type.DOUBLE);
+            final long topN = startLoc.getLong() + length.getLong() - 1;
+            if (topN > 0 && topN < Integer.MAX_VALUE) {
+                if (context.getProfiler().isEnabled()) {
+                    context.getProfiler().message(this, Profiler.OPTIMIZATIONS, "OPTIMIZATION",
+                            "Retaining only the first " + topN + " items of order by");
+                }
+                orderBy.setTopN((int) topN);
+            }
+            final Sequence seq;
+            try {
+                seq = getArgument(0).eval(contextSequence, contextItem);
+            } finally {
+                orderBy.setTopN(-1);
+            }
+            result = seq.isEmpty() ? Sequence.EMPTY_SEQUENCE : subsequence(seq, startLoc, length);
         } else {
-            return subsequence(seq,
-                    ((DoubleValue)getArgument(1).eval(contextSequence, contextItem).convertTo(Type.DOUBLE)),
-                    getArgumentCount() != 3 ? null : ((DoubleValue)getArgument(2).eval(contextSequence, contextItem).convertTo(Type.DOUBLE))
-            );
+            final Sequence seq = getArgument(0).eval(contextSequence, contextItem);
+            if (seq.isEmpty()) {
+                result = Sequence.EMPTY_SEQUENCE;
+            } else {
+                return subsequence(seq,
+                        ((DoubleValue)getArgument(1).eval(contextSequence, contextItem).convertTo(Type.DOUBLE)),
+                        getArgumentCount() != 3 ? null : ((DoubleValue)getArgument(2).eval(contextSequence, contextItem).convertTo(Type.DOUBLE))
+                );
+            }
         }
 
         if (context.getProfiler().isEnabled()) {
@@ -128,6 +150,38 @@ public class FunSubSequence extends Function {
         return result;
     }
 
+    /**
+     * Find the "order by" clause of a FLWOR expression, if its sorted
+     * items are the result of the expression.
+     *
+     * @param expr the expression
+     *
+     * @return the order by clause, or null if the expression is not a FLWOR
+     *     expression ending in an order by clause.
+     */
+    private static @Nullable OrderByClause findOrderByClause(Expression expr) {
+        while (expr instanceof DynamicCardinalityCheck
+                || (expr.getClass() == PathExpr.class && expr.getSubExpressionCount() == 1)) {
+            expr = expr.getSubExpression(0);
+        }
+        if (!(expr instanceof FLWORClause) || ((FLWORClause) expr).getPreviousClause() != null) {
+            return null;
+        }
+        FLWORClause clause = (FLWORClause) expr;
+        while (!(clause instanceof OrderByClause)) {
+            final Expression next = clause.getReturnExpression();
+            if (!(next instanceof FLWORClause) || ((FLWORClause) next).getPreviousClause() != clause) {
+                return null;
+            }
+            clause = (FLWORClause) next;
+        }
+        // clauses following the order by clause could change the sorted items
+        if (clause.getReturnExpression() instanceof FLWORClause) {
+            return null;
+        }
+        return (OrderByClause) clause;
+    }
+
     /**
      * Creates a Subsequence from a sequence
      *
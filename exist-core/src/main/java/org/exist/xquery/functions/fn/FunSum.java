@@ -106,10 +106,28 @@ public class FunSum extends Function {
     		
     		//Set the first value
     		ComputableValue sum = (ComputableValue) value;
+
+    		//Sum xs:integer values which fit into a long without creating intermediate values
+    		boolean summingLongs = isLongInteger(value);
+    		long longSum = summingLongs ? ((IntegerValue) value).getLong() : 0;
+
     		while (iter.hasNext()) {
     			item = iter.nextItem();
     			value = item.atomize();
 
+    			if (summingLongs) {
+    				if (isLongInteger(value)) {
+    					try {
+    						longSum = Math.addExact(longSum, ((IntegerValue) value).getLong());
+    						continue;
+    					} catch (final ArithmeticException e) {
+    						// overflow, continue with arbitrary precision
+    					}
+    				}
+    				sum = new IntegerValue(longSum);
+    				summingLongs = false;
+    			}
+
             	value = check(value, sum);
     			
         		if (Type.subTypeOfUnion(value.getType(), Type.NUMBER)) {
@@ -124,6 +142,9 @@ public class FunSum extends Function {
     			//Aggregate next values
     			sum = sum.plus((ComputableValue) value);
     		}
+    		if (summingLongs) {
+    			sum = new IntegerValue(longSum);
+    		}
     		result = sum;
         }
         
@@ -140,6 +161,10 @@ public class FunSum extends Function {
         return result;        
 	}
 	
+	static boolean isLongInteger(final AtomicValue value) {
+		return value.getType() == Type.INTEGER && value instanceof IntegerValue && ((IntegerValue) value).isLong();
+	}
+
 	private AtomicValue check(AtomicValue value, ComputableValue sum) throws XPathException {
 		//Duration values must either all be xs:yearMonthDuration values or must all be xs:dayTimeDuration values.
 		if (Type.subTypeOf(value.getType(), Type.DURATION)) {
@@ -0,0 +1,320 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package org.exist.xquery.functions.fn;
+
+import org.exist.dom.QName;
+import org.exist.dom.persistent.DocumentSet;
+import org.exist.dom.persistent.NodeProxy;
+import org.exist.dom.persistent.NodeSet;
+import org.exist.indexing.StructuralIndex;
+import org.exist.numbering.NodeId;
+import org.exist.storage.ElementValue;
+import org.exist.storage.Indexable;
+import org.exist.storage.NativeValueIndex;
+import org.exist.xquery.Atomize;
+import org.exist.xquery.Constants;
+import org.exist.xquery.Dependency;
+import org.exist.xquery.DynamicCardinalityCheck;
+import org.exist.xquery.DynamicTypeCheck;
+import org.exist.xquery.Expression;
+import org.exist.xquery.ExtensionExpression;
+import org.exist.xquery.Function;
+import org.exist.xquery.GeneralComparison;
+import org.exist.xquery.InternalFunctionCall;
+import org.exist.xquery.LocationStep;
+import org.exist.xquery.NameTest;
+import org.exist.xquery.NodeTest;
+import org.exist.xquery.PathExpr;
+import org.exist.xquery.Pragma;
+import org.exist.xquery.Predicate;
+import org.exist.xquery.Profiler;
+import org.exist.xquery.RootNode;
+import org.exist.xquery.Step;
+import org.exist.xquery.Variable;
+import org.exist.xquery.VariableReference;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQueryContext;
+import org.exist.xquery.pragmas.Optimize;
+import org.exist.xquery.value.Item;
+import org.exist.xquery.value.Sequence;
+import org.exist.xquery.value.Type;
+
+import java.util.List;
+
+/**
+ * Counts the items of the argument of fn:count, fn:exists or fn:empty, if possible
+ * directly from the indexes, without building a node set.
+ *
+ * The argument has to be a single descendant step over whole stored documents, i.e.
+ * <code>//name</code>, <code>//@name</code>, <code>$docs//name</code> or
+ * <code>collection(...)//name</code>. Without a predicate the nodes are counted
+ * in the structural index. A single predicate comparing the node itself, a child
+ * element or an attribute with a value, e.g. <code>//name[. = 'x']</code> or
+ * <code>//name[@id = 'x']</code>, is counted in the qname range index.
+ *
+ * For anything else the argument is evaluated and its items are counted. If the
+ * descendant step was already applied to stored documents and does not depend
+ * on the context item, only the step is evaluated for them.
+ */
+final class IndexOnlyCount {
+
+    private static final long NOT_APPLICABLE = -1;
+
+    private IndexOnlyCount() {
+    }
+
+    /**
+     * Count the items of the argument.
+     *
+     * @param function the calling function
+     * @param argument the argument of the function
+     * @param contextSequence the context sequence
+     * @param contextItem the context item, or null
+     * @param limit stop counting after this number of items, or -1 to count all
+     *
+     * @return the number of items, which may exceed limit
+     *
+     * @throws XPathException if the evaluation of the argument fails
+     */
+    static long count(final Function function, final Expression argument, final Sequence contextSequence,
+            final Item contextItem, final long limit) throws XPathException {
+        final PathExpr path = unwrapPath(argument);
+        if (path == null || path.getSubExpressionCount() != 2) {
+            return count(argument.eval(contextSequence, contextItem), limit);
+        }
+
+        final Expression first = path.getSubExpression(0);
+        final Expression last = path.getSubExpression(1);
+        final LocationStep step = getStep(last);
+        if (!(first instanceof RootNode || first instanceof VariableReference || isCollectionCall(first))
+                || step == null || getIndexType(step) == ElementValue.UNKNOWN) {
+            return count(argument.eval(contextSequence, contextItem), limit);
+        }
+
+        final Sequence docs = first.eval(contextItem != null ? contextItem.toSequence() : contextSequence, null);
+        if (!isStoredDocuments(docs)) {
+            return count(argument.eval(contextSequence, contextItem), limit);
+        }
+
+        final long count = countFromIndex(function, step, docs, limit);
+        if (count != NOT_APPLICABLE) {
+            return count;
+        }
+        if (Dependency.dependsOn(last, Dependency.CONTEXT_ITEM) || Dependency.dependsOn(last, Dependency.CONTEXT_POSITION)) {
+            return count(argument.eval(contextSequence, contextItem), limit);
+        }
+        return count(evalStep(function.getContext(), first, last, docs), limit);
+    }
+
+    private static long count(final Sequence seq, final long limit) throws XPathException {
+        // fn:exists and fn:empty only need to know if there is an item
+        if (limit == 1) {
+            return seq.isEmpty() ? 0 : 1;
+        }
+        return seq.getItemCountLong();
+    }
+
+    private static long countFromIndex(final Function function, final LocationStep step, final Sequence docs,
+            final long limit) throws XPathException {
+        final XQueryContext context = function.getContext();
+        final byte type = getIndexType(step);
+        final DocumentSet docSet = docs.toNodeSet().getDocumentSet();
+
+        if (!step.hasPredicates()) {
+            final StructuralIndex index = context.getBroker().getStructuralIndex();
+            if (context.getProfiler().isEnabled()) {
+                context.getProfiler().message(function, Profiler.OPTIMIZATIONS, "OPTIMIZATION",
+                        "Counting " + step.getTest() + " from structural index '" + index.toString() + "'");
+            }
+            return index.countElementsByTagName(type, docSet, step.getTest().getName(), limit, function);
+        }
+
+        final List<Predicate> predicates = step.getPredicates();
+        if (predicates.size() != 1 || predicates.get(0).getSubExpressionCount() != 1) {
+            return NOT_APPLICABLE;
+        }
+        final Expression predicate = unwrap(predicates.get(0).getSubExpression(0));
+        if (predicate.getClass() != GeneralComparison.class) {
+            return NOT_APPLICABLE;
+        }
+        final GeneralComparison comparison = (GeneralComparison) predicate;
+        if (comparison.getTruncation() != Constants.StringTruncationOperator.NONE) {
+            return NOT_APPLICABLE;
+        }
+
+        // the left operand selects the indexed nodes: the node itself, or a child element or attribute of it
+        final Expression left = unwrap(comparison.getLeft());
+        if (left.getClass() != LocationStep.class || ((LocationStep) left).hasPredicates()) {
+            return NOT_APPLICABLE;
+        }
+        final LocationStep leftStep = (LocationStep) left;
+        final NodeTest leftTest = leftStep.getTest();
+        final QName qname;
+        final boolean self;
+        if (leftStep.getAxis() == Constants.SELF_AXIS && leftTest.getType() == Type.NODE) {
+            qname = indexQName(step.getTest().getName(), type);
+            self = true;
+        } else if (type == ElementValue.ELEMENT && leftTest instanceof NameTest && !leftTest.isWildcardTest()
+                && leftStep.getAxis() == Constants.ATTRIBUTE_AXIS && leftTest.getType() == Type.ATTRIBUTE) {
+            qname = indexQName(leftTest.getName(), ElementValue.ATTRIBUTE);
+            self = false;
+        } else if (type == ElementValue.ELEMENT && leftTest instanceof NameTest && !leftTest.isWildcardTest()
+                && leftStep.getAxis() == Constants.CHILD_AXIS && leftTest.getType() == Type.ELEMENT) {
+            qname = indexQName(leftTest.getName(), ElementValue.ELEMENT);
+            self = false;
+        } else {
+            return NOT_APPLICABLE;
+        }
+
+        // the right operand has to be a single value which does not depend on the context item
+        final Expression right = comparison.getRight();
+        if (Dependency.dependsOn(right, Dependency.CONTEXT_ITEM) || Dependency.dependsOn(right, Dependency.CONTEXT_POSITION)) {
+            return NOT_APPLICABLE;
+        }
+        final int indexType = Optimize.getQNameIndexType(context, docs, qname);
+        if (indexType == Type.ITEM) {
+            return NOT_APPLICABLE;
+        }
+        final Sequence keys = Atomize.atomize(right.eval(null, null));
+        if (keys.getItemCount() != 1) {
+            return NOT_APPLICABLE;
+        }
+        Item key = keys.itemAt(0);
+        if (key.getType() != indexType) {
+            try {
+                key = key.convertTo(indexType);
+            } catch (final XPathException e) {
+                return NOT_APPLICABLE;
+            }
+        }
+        if (!(key instanceof Indexable)) {
+            return NOT_APPLICABLE;
+        }
+
+        final NativeValueIndex index = context.getBroker().getValueIndex();
+        if (context.getProfiler().isEnabled()) {
+            context.getProfiler().message(function, Profiler.OPTIMIZATIONS, "OPTIMIZATION",
+                    "Counting " + step.getTest() + " from value index '" + index.toString() + "' for key '"
+                            + Type.getTypeName(key.getType()) + "(" + key.getStringValue() + ")'");
+        }
+        if (self) {
+            return index.count(context.getWatchDog(), comparison.getRelation(), docSet, qname, (Indexable) key, limit);
+        }
+        return index.countParents(context.getWatchDog(), comparison.getRelation(), docSet, qname, (Indexable) key,
+                indexQName(step.getTest().getName(), ElementValue.ELEMENT), limit);
+    }
+
+    /**
+     * Evaluate the last step of a path for the already evaluated stored documents of the
+     * first step. For a step which does not depend on the context item or position,
+     * this is what {@link PathExpr#eval(Sequence, Item)} does.
+     */
+    private static Sequence evalStep(final XQueryContext context, final Expression first, final Expression step,
+            final Sequence docs) throws XPathException {
+        DocumentSet contextDocs = null;
+        if (first instanceof VariableReference) {
+            final Variable var = context.resolveVariable(((VariableReference) first).getName());
+            if (var != null) {
+                contextDocs = var.getContextDocs();
+            }
+        }
+        step.setContextDocSet(contextDocs);
+
+        context.getWatchDog().proceed(step);
+        final Sequence result = step.eval(docs);
+        if (step instanceof Step) {
+            result.removeDuplicates();
+        }
+        return result;
+    }
+
+    private static QName indexQName(final QName name, final byte type) {
+        return type == ElementValue.ATTRIBUTE ? new QName(name, ElementValue.ATTRIBUTE) : new QName(name);
+    }
+
+    /**
+     * Removes the wrappers which the compiler adds around an expression,
+     * and path expressions of a single step.
+     */
+    private static Expression unwrap(Expression expr) {
+        while (true) {
+            if (expr instanceof DynamicCardinalityCheck || expr instanceof DynamicTypeCheck || expr instanceof Atomize
+                    || (expr.getClass() == PathExpr.class && expr.getSubExpressionCount() == 1)) {
+                expr = expr.getSubExpression(0);
+            } else {
+                return expr;
+            }
+        }
+    }
+
+    private static boolean isCollectionCall(final Expression expr) {
+        return expr instanceof InternalFunctionCall && ((InternalFunctionCall) expr).getFunction() instanceof ExtCollection;
+    }
+
+    private static PathExpr unwrapPath(final Expression expr) {
+        final Expression unwrapped = unwrap(expr);
+        return unwrapped.getClass() == PathExpr.class ? (PathExpr) unwrapped : null;
+    }
+
+    /**
+     * Get the location step of a path, which the {@link org.exist.xquery.Optimizer} may
+     * have enclosed in an <code>(# exist:optimize #)</code> pragma.
+     */
+    private static LocationStep getStep(Expression expr) {
+        if (expr instanceof ExtensionExpression) {
+            for (final Pragma pragma : ((ExtensionExpression) expr).getPragmas()) {
+                if (!(pragma instanceof Optimize)) {
+                    return null;
+                }
+            }
+            expr = ((ExtensionExpression) expr).getExpression();
+        }
+        return expr.getClass() == LocationStep.class ? (LocationStep) expr : null;
+    }
+
+    private static byte getIndexType(final LocationStep step) {
+        final NodeTest test = step.getTest();
+        if (!(test instanceof NameTest) || test.isWildcardTest()) {
+            return ElementValue.UNKNOWN;
+        }
+        switch (step.getAxis()) {
+            case Constants.DESCENDANT_AXIS:
+            case Constants.DESCENDANT_SELF_AXIS:
+                return test.getType() == Type.ELEMENT ? ElementValue.ELEMENT : ElementValue.UNKNOWN;
+            case Constants.DESCENDANT_ATTRIBUTE_AXIS:
+                return test.getType() == Type.ATTRIBUTE ? ElementValue.ATTRIBUTE : ElementValue.UNKNOWN;
+            default:
+                return ElementValue.UNKNOWN;
+        }
+    }
+
+    private static boolean isStoredDocuments(final Sequence seq) throws XPathException {
+        if (!seq.isPersistentSet() || !Type.subTypeOf(seq.getItemType(), Type.NODE)) {
+            return false;
+        }
+        final NodeSet nodes = seq.toNodeSet();
+        for (final NodeProxy node : nodes) {
+            if (!NodeId.DOCUMENT_NODE.equals(node.getNodeId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -23,10 +23,12 @@
 package org.exist.xquery.functions.system;
 
 import java.util.Date;
+import java.util.Map;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.dom.QName;
 import org.exist.dom.memtree.MemTreeBuilder;
+import org.exist.storage.QueryResourceUsage;
 import org.exist.xquery.BasicFunction;
 import org.exist.xquery.Cardinality;
 import org.exist.xquery.FunctionSignature;
@@ -55,7 +57,9 @@ public class GetRunningXQueries extends BasicFunction
 	public final static FunctionSignature signature =
 		new FunctionSignature(
 			new QName( "get-running-xqueries", SystemModule.NAMESPACE_URI, SystemModule.PREFIX ),
-			"Get a list of running XQueries (dba role only).",
+			"Get a list of running XQueries (dba role only). For each query, the resources used so far are reported: " +
+			"the CPU time in nanoseconds, the number of bytes allocated, page cache hits and misses, B+-tree lookups, " +
+			"nodes loaded from the DOM file and the number of pages read from disk per database file.",
 			null,
 			new FunctionReturnSequenceType( Type.ITEM, Cardinality.EXACTLY_ONE, "a node containing the list of running XQueries" )
 		);
@@ -126,8 +130,31 @@ public class GetRunningXQueries extends BasicFunction
 		builder.startElement( new QName( "xqueryExpression", NAMESPACE_URI, PREFIX ), null );
 		builder.characters( context.getRootExpression().toString() );
 		builder.endElement();
+
+		getResourceUsage( builder, watchdog.getResourceUsage() );
 		
 		builder.endElement();
 	}
+
+	private void getResourceUsage( MemTreeBuilder builder, QueryResourceUsage usage )
+	{
+		builder.startElement( new QName( "resources", NAMESPACE_URI, PREFIX ), null );
+
+		builder.addAttribute( new QName( "cpuTime", null, null ), Long.toString( usage.getCpuTime() ) );
+		builder.addAttribute( new QName( "allocatedBytes", null, null ), Long.toString( usage.getAllocatedBytes() ) );
+		builder.addAttribute( new QName( "cacheHits", null, null ), Long.toString( usage.getCacheHits() ) );
+		builder.addAttribute( new QName( "cacheMisses", null, null ), Long.toString( usage.getCacheMisses() ) );
+		builder.addAttribute( new QName( "indexLookups", null, null ), Long.toString( usage.getIndexLookups() ) );
+		builder.addAttribute( new QName( "nodesMaterialized", null, null ), Long.toString( usage.getNodesMaterialized() ) );
+
+		for( final Map.Entry<String, Long> pages : usage.getPagesRead().entrySet() ) {
+			builder.startElement( new QName( "pagesRead", NAMESPACE_URI, PREFIX ), null );
+			builder.addAttribute( new QName( "file", null, null ), pages.getKey() );
+			builder.addAttribute( new QName( "count", null, null ), pages.getValue().toString() );
+			builder.endElement();
+		}
+
+		builder.endElement();
+	}
 	
 }
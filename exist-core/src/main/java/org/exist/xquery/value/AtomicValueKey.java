@@ -0,0 +1,156 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.value;
+
+import com.ibm.icu.text.Collator;
+import org.exist.xquery.Constants.Comparison;
+import org.exist.xquery.Constants.StringTruncationOperator;
+import org.exist.xquery.ValueComparison;
+import org.exist.xquery.XPathException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Wraps an atomic value so that it can be used as a key in
+ * a {@link java.util.HashMap} or {@link java.util.HashSet}
+ * with the semantics of the XPath {@code eq} operator under
+ * a given collation, as needed by fn:distinct-values and
+ * the group by clause.
+ *
+ * The hash code is derived from a normalized form of the value, so that
+ * values which are equal after type promotion fall into the same bucket.
+ * Strings are hashed on their ICU collation key, or on the plain string
+ * for the codepoint collation. Numerics are hashed on their single
+ * precision value, and durations on their total number of months and
+ * seconds. Equality itself is still decided by
+ * {@link ValueComparison#compareAtomic(Collator, AtomicValue, AtomicValue, StringTruncationOperator, Comparison)}.
+ * Values which cannot be compared are considered to be distinct,
+ * NaN is considered to be equal to itself, and all numeric zeros are equal.
+ */
+public final class AtomicValueKey {
+
+    private final AtomicValue value;
+    @Nullable private final Collator collator;
+    private final boolean nan;
+    private final boolean zero;
+    private final int hashCode;
+
+    public AtomicValueKey(final AtomicValue value, @Nullable final Collator collator) {
+        this.value = value;
+        this.collator = collator;
+        final boolean numeric = !value.isEmpty() && Type.subTypeOfUnion(value.getType(), Type.NUMBER);
+        this.nan = numeric && ((NumericValue) value).isNaN();
+        this.zero = numeric && ((NumericValue) value).isZero();
+        this.hashCode = hash(value, collator, nan);
+    }
+
+    public AtomicValue getValue() {
+        return value;
+    }
+
+    private static int hash(final AtomicValue value, @Nullable final Collator collator, final boolean nan) {
+        if (value.isEmpty() || nan) {
+            return 0;
+        }
+
+        final int type = value.getType();
+        try {
+            if (Type.subTypeOf(type, Type.STRING) || type == Type.UNTYPED_ATOMIC || type == Type.ANY_URI) {
+                final String s = value.getStringValue();
+                return collator == null ? s.hashCode() : collator.getCollationKey(s).hashCode();
+            }
+
+            if (Type.subTypeOfUnion(type, Type.NUMBER)) {
+                // decimals may be promoted to xs:float, so hash at float precision; 0.0 and -0.0 are equal
+                final float f = (float) ((NumericValue) value).getDouble();
+                return f == 0.0f ? 0 : Float.hashCode(f);
+            }
+
+            if (value instanceof AbstractDateTimeValue) {
+                return Long.hashCode(((AbstractDateTimeValue) value).getTimeInMillis());
+            }
+
+            if (value instanceof DurationValue) {
+                // P1Y and P12M or PT1M and PT60S are equal, so hash the normalized totals
+                final DurationValue duration = (DurationValue) value;
+                final double seconds = duration.secondsValueSigned().doubleValue();
+                return 31 * duration.monthsValueSigned().hashCode() + (seconds == 0.0 ? 0 : Double.hashCode(seconds));
+            }
+
+            if (type == Type.BOOLEAN) {
+                return Boolean.hashCode(((BooleanValue) value).getValue());
+            }
+
+            if (type == Type.QNAME) {
+                return ((QNameValue) value).getQName().getLocalPart().hashCode();
+            }
+        } catch (final XPathException | RuntimeException e) {
+            // fall through to the shared bucket, equality is decided by compareAtomic
+        }
+
+        // the remaining types share a single bucket
+        return -1;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof AtomicValueKey)) {
+            return false;
+        }
+
+        final AtomicValueKey other = (AtomicValueKey) obj;
+        if (hashCode != other.hashCode) {
+            return false;
+        }
+        if (value.isEmpty() || other.value.isEmpty()) {
+            return value.isEmpty() && other.value.isEmpty();
+        }
+        if (nan || other.nan) {
+            //although NaN does not equal itself, NaN keys are considered the same
+            return nan && other.nan;
+        }
+        if (zero && other.zero) {
+            //0.0 and -0.0 are equal, although they are ordered when compared as doubles or floats
+            return true;
+        }
+
+        try {
+            return ValueComparison.compareAtomic(collator, value, other.value, StringTruncationOperator.NONE,
+                    Comparison.EQ);
+        } catch (final XPathException e) {
+            //Values that cannot be compared, i.e. the eq operator
+            //is not defined for their types, are considered to be distinct
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return value.toString();
+    }
+}
@@ -22,7 +22,6 @@
 package org.exist.xquery.value;
 
 import com.ibm.icu.text.Collator;
-import org.exist.xquery.Constants;
 import org.exist.xquery.ErrorCodes;
 import org.exist.xquery.XPathException;
 
@@ -69,34 +68,53 @@ public class IntegerValue extends NumericValue {
 
     private static final BigInteger LARGEST_UNSIGNED_BYTE = new BigInteger("255");
 
-    final BigInteger value;
+    /**
+     * The value, when it fits into a long.
+     */
+    private final long longValue;
+
+    /**
+     * The value, when it does not fit into a long, otherwise null.
+     * Values are always normalized, so that a value which fits into
+     * a long is never held as a BigInteger.
+     */
+    @Nullable private final BigInteger bigValue;
+
     private final int type;
 
     public IntegerValue(final long value) {
-        this.value = BigInteger.valueOf(value);
+        this.longValue = value;
+        this.bigValue = null;
         this.type = Type.INTEGER;
     }
 
     public IntegerValue(final BigInteger integer) {
-        this.value = integer;
+        if (fitsLong(integer)) {
+            this.longValue = integer.longValue();
+            this.bigValue = null;
+        } else {
+            this.longValue = 0;
+            this.bigValue = integer;
+        }
         this.type = Type.INTEGER;
     }
 
     public IntegerValue(final long value, final int type) throws XPathException {
-        this(BigInteger.valueOf(value), type);
+        this(value, null, type, true);
     }
 
     public IntegerValue(final BigInteger value, final int requiredType) throws XPathException {
-        this(value, requiredType, true);
+        this(fitsLong(value) ? value.longValue() : 0, fitsLong(value) ? null : value, requiredType, true);
     }
 
-    private IntegerValue(final BigInteger value, final int requiredType, boolean checkType) throws XPathException {
-        this.value = value;
+    private IntegerValue(final long longValue, @Nullable final BigInteger bigValue, final int requiredType, final boolean checkType) throws XPathException {
+        this.longValue = longValue;
+        this.bigValue = bigValue;
         this.type = requiredType;
 
         if (checkType && !checkType()) {
             throw new XPathException(ErrorCodes.FORG0001, "can not convert '" +
-                    value + "' to " + Type.getTypeName(type));
+                    getStringValue() + "' to " + Type.getTypeName(type));
         }
     }
 
@@ -105,20 +123,81 @@ public class IntegerValue extends NumericValue {
     }
 
     public IntegerValue(final String stringValue, final int requiredType) throws XPathException {
+        final String trimmed = StringValue.trimWhitespace(stringValue);
+        long parsedLong = 0;
+        BigInteger parsedBig = null;
         try {
-            this.value = new BigInteger(StringValue.trimWhitespace(stringValue));
-            this.type = requiredType;
-            if (!(checkType())) {
-                throw new XPathException(ErrorCodes.FORG0001, "can not convert '" +
-                        stringValue + "' to " + Type.getTypeName(type));
+            try {
+                parsedLong = Long.parseLong(trimmed);
+            } catch (final NumberFormatException e) {
+                // may still be a valid integer which is too large for a long
+                parsedBig = new BigInteger(trimmed);
             }
         } catch (final NumberFormatException e) {
             throw new XPathException(ErrorCodes.FORG0001, "can not convert '" +
                     stringValue + "' to " + Type.getTypeName(requiredType));
         }
+        this.longValue = parsedLong;
+        this.bigValue = parsedBig;
+        this.type = requiredType;
+        if (!(checkType())) {
+            throw new XPathException(ErrorCodes.FORG0001, "can not convert '" +
+                    stringValue + "' to " + Type.getTypeName(type));
+        }
+    }
+
+    private static boolean fitsLong(final BigInteger value) {
+        return value.bitLength() < Long.SIZE;
     }
 
     private boolean checkType() throws XPathException {
+        if (bigValue != null) {
+            return checkType(bigValue);
+        }
+
+        switch (type) {
+
+            case Type.LONG:
+            case Type.INTEGER:
+            case Type.DECIMAL:
+                return true;
+
+            case Type.UNSIGNED_LONG:
+                return longValue >= 0;
+
+            case Type.POSITIVE_INTEGER:
+                return longValue > 0;
+            case Type.NON_NEGATIVE_INTEGER:
+                return longValue >= 0;
+
+            case Type.NEGATIVE_INTEGER:
+                return longValue < 0;
+            case Type.NON_POSITIVE_INTEGER:
+                return longValue <= 0;
+
+            case Type.INT:
+                return longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE;
+
+            case Type.UNSIGNED_INT:
+                return longValue >= 0 && longValue <= 0xFFFFFFFFL;
+
+            case Type.SHORT:
+                return longValue >= Short.MIN_VALUE && longValue <= Short.MAX_VALUE;
+
+            case Type.UNSIGNED_SHORT:
+                return longValue >= 0 && longValue <= 0xFFFF;
+
+            case Type.BYTE:
+                return longValue >= Byte.MIN_VALUE && longValue <= Byte.MAX_VALUE;
+
+            case Type.UNSIGNED_BYTE:
+                return longValue >= 0 && longValue <= 0xFF;
+        }
+
+        throw new XPathException("Unknown type: " + Type.getTypeName(type));
+    }
+
+    private boolean checkType(final BigInteger value) throws XPathException {
         switch (type) {
 
             case Type.LONG:
@@ -172,6 +251,29 @@ public class IntegerValue extends NumericValue {
         throw new XPathException("Unknown type: " + Type.getTypeName(type));
     }
 
+    /**
+     * Returns true if the value is held as a long,
+     * i.e. it lies within the range of a long.
+     *
+     * @return true if the value fits into a long
+     */
+    public boolean isLong() {
+        return bigValue == null;
+    }
+
+    /**
+     * Returns the value as a BigInteger.
+     *
+     * @return the value
+     */
+    public BigInteger toBigInteger() {
+        return bigValue != null ? bigValue : BigInteger.valueOf(longValue);
+    }
+
+    BigDecimal toBigDecimal() {
+        return bigValue != null ? new BigDecimal(bigValue) : BigDecimal.valueOf(longValue);
+    }
+
     @Override
     public int getType() {
         return type;
@@ -188,13 +290,12 @@ public class IntegerValue extends NumericValue {
     }
 
     public long getValue() {
-        return value.longValue();
+        return getLong();
     }
 
     @Override
     public String getStringValue() {
-        return // Long.toString(value);
-                value.toString();
+        return bigValue != null ? bigValue.toString() : Long.toString(longValue);
     }
 
     @Override
@@ -209,31 +310,41 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public boolean isZero() {
-        return value.signum() == 0;
-        //return value.compareTo(ZERO_BIGINTEGER) == Constants.EQUAL;
+        return signum() == 0;
     }
 
     @Override
     public boolean isNegative() {
-        return value.signum() < 0;
+        return signum() < 0;
     }
 
     @Override
     public boolean isPositive() {
-        return value.signum() > 0;
+        return signum() > 0;
+    }
+
+    private int signum() {
+        return bigValue != null ? bigValue.signum() : Long.signum(longValue);
+    }
+
+    private int compareIntegerTo(final IntegerValue other) {
+        if (bigValue == null && other.bigValue == null) {
+            return Long.compare(longValue, other.longValue);
+        }
+        return toBigInteger().compareTo(other.toBigInteger());
     }
 
     @Override
     protected @Nullable IntSupplier createComparisonWith(final NumericValue other) {
         final IntSupplier comparison;
         if (other instanceof IntegerValue) {
-            comparison = () -> value.compareTo(((IntegerValue)other).value);
+            comparison = () -> compareIntegerTo((IntegerValue)other);
         } else if (other instanceof DecimalValue) {
-            comparison = () -> new BigDecimal(value).compareTo(((DecimalValue)other).value);
+            comparison = () -> toBigDecimal().compareTo(((DecimalValue)other).value);
         } else if (other instanceof DoubleValue) {
-            comparison = () -> new BigDecimal(value).compareTo(BigDecimal.valueOf(((DoubleValue)other).value));
+            comparison = () -> toBigDecimal().compareTo(BigDecimal.valueOf(((DoubleValue)other).value));
         } else if (other instanceof FloatValue) {
-            comparison = () -> new BigDecimal(value).compareTo(BigDecimal.valueOf(((FloatValue)other).value));
+            comparison = () -> toBigDecimal().compareTo(BigDecimal.valueOf(((FloatValue)other).value));
         } else {
             return null;
         }
@@ -251,11 +362,11 @@ public class IntegerValue extends NumericValue {
             case Type.ITEM:
                 return this;
             case Type.DECIMAL:
-                return new DecimalValue(new BigDecimal(value));
+                return new DecimalValue(toBigDecimal());
             case Type.UNTYPED_ATOMIC:
                 return new UntypedAtomicValue(getStringValue());
             case Type.NUMBER:
-                return new IntegerValue(value, requiredType, false);
+                return new IntegerValue(longValue, bigValue, requiredType, false);
             case Type.LONG:
             case Type.INTEGER:
             case Type.NON_POSITIVE_INTEGER:
@@ -269,21 +380,21 @@ public class IntegerValue extends NumericValue {
             case Type.UNSIGNED_SHORT:
             case Type.UNSIGNED_BYTE:
             case Type.POSITIVE_INTEGER:
-                return new IntegerValue(value, requiredType);
+                return new IntegerValue(longValue, bigValue, requiredType, true);
             case Type.DOUBLE:
-                return new DoubleValue(value.doubleValue());
+                return new DoubleValue(getDouble());
             case Type.FLOAT:
-                return new FloatValue(value.floatValue());
+                return new FloatValue(bigValue != null ? bigValue.floatValue() : (float) longValue);
             case Type.STRING:
                 return new StringValue(getStringValue());
             case Type.BOOLEAN:
-                return (value.compareTo(ZERO_BIGINTEGER) == 0) ? BooleanValue.FALSE : BooleanValue.TRUE;
+                return isZero() ? BooleanValue.FALSE : BooleanValue.TRUE;
             default:
                 throw new XPathException(ErrorCodes.FORG0001,
                         "cannot convert '"
                                 + Type.getTypeName(this.getType())
                                 + " ("
-                                + value
+                                + getStringValue()
                                 + ")' into "
                                 + Type.getTypeName(requiredType));
         }
@@ -291,17 +402,17 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public int getInt() {
-        return value.intValue();
+        return bigValue != null ? bigValue.intValue() : (int) longValue;
     }
 
     @Override
     public long getLong() {
-        return value.longValue();
+        return bigValue != null ? bigValue.longValue() : longValue;
     }
 
     @Override
     public double getDouble() {
-        return value.doubleValue();
+        return bigValue != null ? bigValue.doubleValue() : (double) longValue;
     }
 
     @Override
@@ -334,10 +445,16 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public ComputableValue minus(final ComputableValue other) throws XPathException {
-        if (Type.subTypeOf(other.getType(), Type.INTEGER))
-        // return new IntegerValue(value - ((IntegerValue) other).value, type);
-        {
-            return new IntegerValue(value.subtract(((IntegerValue) other).value), type);
+        if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
+            final IntegerValue o = (IntegerValue) other;
+            if (bigValue == null && o.bigValue == null) {
+                try {
+                    return new IntegerValue(Math.subtractExact(longValue, o.longValue), null, type, true);
+                } catch (final ArithmeticException e) {
+                    // overflow, fall through to BigInteger
+                }
+            }
+            return new IntegerValue(toBigInteger().subtract(o.toBigInteger()), type);
         } else {
             return ((ComputableValue) convertTo(other.getType())).minus(other);
         }
@@ -345,10 +462,16 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public ComputableValue plus(final ComputableValue other) throws XPathException {
-        if (Type.subTypeOf(other.getType(), Type.INTEGER))
-        // return new IntegerValue(value + ((IntegerValue) other).value, type);
-        {
-            return new IntegerValue(value.add(((IntegerValue) other).value), type);
+        if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
+            final IntegerValue o = (IntegerValue) other;
+            if (bigValue == null && o.bigValue == null) {
+                try {
+                    return new IntegerValue(Math.addExact(longValue, o.longValue), null, type, true);
+                } catch (final ArithmeticException e) {
+                    // overflow, fall through to BigInteger
+                }
+            }
+            return new IntegerValue(toBigInteger().add(o.toBigInteger()), type);
         } else {
             return ((ComputableValue) convertTo(other.getType())).plus(other);
         }
@@ -357,7 +480,15 @@ public class IntegerValue extends NumericValue {
     @Override
     public ComputableValue mult(final ComputableValue other) throws XPathException {
         if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
-            return new IntegerValue(value.multiply(((IntegerValue) other).value), type);
+            final IntegerValue o = (IntegerValue) other;
+            if (bigValue == null && o.bigValue == null) {
+                try {
+                    return new IntegerValue(Math.multiplyExact(longValue, o.longValue), null, type, true);
+                } catch (final ArithmeticException e) {
+                    // overflow, fall through to BigInteger
+                }
+            }
+            return new IntegerValue(toBigInteger().multiply(o.toBigInteger()), type);
         } else if (Type.subTypeOf(other.getType(), Type.DURATION)) {
             return other.mult(this);
         } else {
@@ -377,8 +508,8 @@ public class IntegerValue extends NumericValue {
                 throw new XPathException(ErrorCodes.FOAR0001, "division by zero");
             }
             //http://www.w3.org/TR/xpath20/#mapping : numeric; but xs:decimal if both operands are xs:integer
-            final BigDecimal d = new BigDecimal(value);
-            final BigDecimal od = new BigDecimal(((IntegerValue) other).value);
+            final BigDecimal d = toBigDecimal();
+            final BigDecimal od = ((IntegerValue) other).toBigDecimal();
             final int scale = Math.max(18, Math.max(d.scale(), od.scale()));
             return new DecimalValue(d.divide(od, scale, BigDecimal.ROUND_HALF_DOWN));
         } else {
@@ -394,6 +525,14 @@ public class IntegerValue extends NumericValue {
         {
             throw new XPathException(ErrorCodes.FOAR0001, "division by zero");
         }
+        if (other instanceof IntegerValue) {
+            final IntegerValue o = (IntegerValue) other;
+            if (bigValue == null && o.bigValue == null && !(longValue == Long.MIN_VALUE && o.longValue == -1)) {
+                // integer division truncates towards zero, as required by op:numeric-integer-divide
+                return new IntegerValue(longValue / o.longValue);
+            }
+            return new IntegerValue(toBigInteger().divide(o.toBigInteger()));
+        }
         final ComputableValue result = div(other);
         return new IntegerValue(((IntegerValue) result.convertTo(Type.INTEGER)).getLong());
     }
@@ -405,9 +544,11 @@ public class IntegerValue extends NumericValue {
                 throw new XPathException(ErrorCodes.FOAR0001, "division by zero");
             }
 
-            // long ov = ((IntegerValue) other).value.longValue();
-            final BigInteger ov = ((IntegerValue) other).value;
-            return new IntegerValue(value.remainder(ov), type);
+            final IntegerValue o = (IntegerValue) other;
+            if (bigValue == null && o.bigValue == null) {
+                return new IntegerValue(longValue % o.longValue, null, type, true);
+            }
+            return new IntegerValue(toBigInteger().remainder(o.toBigInteger()), type);
         } else {
             return ((NumericValue) convertTo(other.getType())).mod(other);
         }
@@ -415,18 +556,25 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public NumericValue negate() {
-        return new IntegerValue(value.negate());
+        if (bigValue == null && longValue != Long.MIN_VALUE) {
+            return new IntegerValue(-longValue);
+        }
+        return new IntegerValue(toBigInteger().negate());
     }
 
     @Override
     public NumericValue abs() throws XPathException {
-        return new IntegerValue(value.abs(), type);
+        if (bigValue == null && longValue != Long.MIN_VALUE) {
+            return new IntegerValue(Math.abs(longValue), null, type, true);
+        }
+        return new IntegerValue(toBigInteger().abs(), type);
     }
 
     @Override
     public AtomicValue max(final Collator collator, final AtomicValue other) throws XPathException {
         if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
-            return new IntegerValue(value.max(((IntegerValue) other).value));
+            final IntegerValue o = (IntegerValue) other;
+            return compareIntegerTo(o) >= 0 ? new IntegerValue(longValue, bigValue, Type.INTEGER, false) : new IntegerValue(o.longValue, o.bigValue, Type.INTEGER, false);
         } else {
             return convertTo(other.getType()).max(collator, other);
         }
@@ -435,7 +583,8 @@ public class IntegerValue extends NumericValue {
     @Override
     public AtomicValue min(final Collator collator, final AtomicValue other) throws XPathException {
         if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
-            return new IntegerValue(value.min(((IntegerValue) other).value));
+            final IntegerValue o = (IntegerValue) other;
+            return compareIntegerTo(o) <= 0 ? new IntegerValue(longValue, bigValue, Type.INTEGER, false) : new IntegerValue(o.longValue, o.bigValue, Type.INTEGER, false);
         } else {
             return convertTo(other.getType()).min(collator, other);
         }
@@ -483,17 +632,16 @@ public class IntegerValue extends NumericValue {
         if (target.isAssignableFrom(IntegerValue.class)) {
             return (T) this;
         } else if (target == Long.class || target == long.class) {
-            // ?? jmv: return new Long(value);
-            return (T) Long.valueOf(value.longValue());
+            return (T) Long.valueOf(getLong());
         } else if (target == Integer.class || target == int.class) {
             final IntegerValue v = (IntegerValue) convertTo(Type.INT);
-            return (T) Integer.valueOf(v.value.intValue());
+            return (T) Integer.valueOf(v.getInt());
         } else if (target == Short.class || target == short.class) {
             final IntegerValue v = (IntegerValue) convertTo(Type.SHORT);
-            return (T) Short.valueOf(v.value.shortValue());
+            return (T) Short.valueOf((short) v.getInt());
         } else if (target == Byte.class || target == byte.class) {
             final IntegerValue v = (IntegerValue) convertTo(Type.BYTE);
-            return (T) Byte.valueOf(v.value.byteValue());
+            return (T) Byte.valueOf((byte) v.getInt());
         } else if (target == Double.class || target == double.class) {
             final DoubleValue v = (DoubleValue) convertTo(Type.DOUBLE);
             return (T) Double.valueOf(v.getValue());
@@ -503,11 +651,11 @@ public class IntegerValue extends NumericValue {
         } else if (target == Boolean.class || target == boolean.class) {
             return (T) new BooleanValue(effectiveBooleanValue());
         } else if (target == String.class) {
-            return (T) value.toString();
+            return (T) getStringValue();
         } else if (target == BigInteger.class) {
-            return (T) new BigInteger(value.toByteArray());
+            return (T) toBigInteger();
         } else if (target == Object.class) {
-            return (T) value; // Long(value);
+            return (T) toBigInteger();
         }
 
         throw new XPathException("cannot convert value of type " + Type.getTypeName(getType()) +
@@ -518,7 +666,7 @@ public class IntegerValue extends NumericValue {
     public int compareTo(final Object o) {
         final AtomicValue other = (AtomicValue) o;
         if (Type.subTypeOf(other.getType(), Type.INTEGER)) {
-            return value.compareTo(((IntegerValue) other).value);
+            return compareIntegerTo((IntegerValue) other);
         } else {
             return getType() > other.getType() ? 1 : -1;
         }
@@ -526,6 +674,6 @@ public class IntegerValue extends NumericValue {
 
     @Override
     public int hashCode() {
-        return value.hashCode();
+        return bigValue != null ? bigValue.hashCode() : Long.hashCode(longValue);
     }
 }
@@ -21,12 +21,14 @@
  */
 package org.exist.xquery.value;
 
+import org.apache.commons.io.output.CountingOutputStream;
 import org.exist.dom.memtree.DocumentImpl;
 import org.exist.dom.memtree.NodeImpl;
 import org.exist.dom.persistent.AVLTreeNodeSet;
 import org.exist.dom.persistent.NodeProxy;
 import org.exist.dom.persistent.NodeSet;
 import org.exist.numbering.NodeId;
+import org.exist.util.io.TemporaryFileManager;
 import org.exist.xquery.Constants;
 import org.exist.xquery.OrderSpec;
 import org.exist.xquery.XPathException;
@@ -34,9 +36,32 @@ import org.exist.xquery.util.ExpressionDumper;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Objects;
-import java.util.stream.Stream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * A sequence that sorts its entries in the order specified by the order specs of
@@ -46,35 +71,98 @@ import java.util.stream.Stream;
  * all order expressions are evaluated once for each item in the sequence
  * <b>while</b> items are added.
  *
+ * If more than <code>maxInMemory</code> items are added, the entries collected so far
+ * are sorted and written to a temporary file: the item, its position and its sort keys.
+ * Atomic values are written as type and string value, persistent nodes as a reference
+ * (document id and node id). Only entries which can be restored that way are written,
+ * once any other item or sort key is encountered all further entries are kept in memory.
+ * When the sequence is sorted, the runs and the entries held in memory are merged into
+ * a single file, which records where each item starts, so that items can be read by
+ * position. The entries held in memory stay there, the merged file refers to them.
+ *
+ * The temporary files belong to the sequence, not to the query which created it, as the
+ * sequence may be read after the query finished, e.g. when it is returned by the XML:DB API.
+ * They are removed by {@link #close()}, or once the sequence has been garbage collected.
+ *
+ * If a <code>limit</code> is given, only the first <code>limit</code> items in sort order
+ * are retained, e.g. when the sequence is passed to fn:subsequence.
+ *
  * @author wolf
  */
 public class OrderedValueSequence extends AbstractSequence {
 
+    private static final byte ITEM_ATOMIC = 0;
+    private static final byte ITEM_NODE = 1;
+    private static final byte ITEM_IN_MEMORY = 2;
+
+    // the number of bytes of the merged file which are read at once
+    private static final int BLOCK_SIZE = 8192;
+
+    // the temporary files of spilled sequences, which are released once a sequence is garbage collected
+    private static final ReferenceQueue<OrderedValueSequence> COLLECTED = new ReferenceQueue<>();
+    private static final Set<SpillReference> SPILLED = ConcurrentHashMap.newKeySet();
+
     private final OrderSpec[] orderSpecs;
+    private final int maxInMemory;
+    private final int limit;
     private Entry[] items;
     private int count = 0;
     private int state = 0;
 
+    // total number of added items, the position of the next item
+    private int added = 0;
+
+    // files which have been written to disk, and the documents of the nodes written to them
+    private SpillFiles spillFiles = null;
+    private SpillReference spillReference = null;
+    private Map<Integer, org.exist.dom.persistent.DocumentImpl> documents = null;
+    private boolean spillable = true;
+
+    // the start of each item in the merged file, and the end of the last item
+    private long[] offsets = null;
+
+    // used by itemAt to read the merged file
+    private MergedReader reader = null;
+
     // used to keep track of the type of added items.
     private int itemType = Type.ANY_TYPE;
 
     public OrderedValueSequence(final OrderSpec orderSpecs[], final int size) {
+        this(orderSpecs, size, 0, -1);
+    }
+
+    /**
+     * @param orderSpecs the order specs
+     * @param size the initial capacity
+     * @param maxInMemory the number of entries after which a sorted run is written to disk, or 0 to sort in memory only
+     * @param limit the number of items to retain, or -1 to retain all items
+     */
+    public OrderedValueSequence(final OrderSpec orderSpecs[], final int size, final int maxInMemory, final int limit) {
         this.orderSpecs = orderSpecs;
+        this.maxInMemory = maxInMemory;
+        this.limit = limit;
         this.items = new Entry[size == 0 ? 1 : size];
     }
 
     @Override
-    public SequenceIterator iterate() {
+    public SequenceIterator iterate() throws XPathException {
+        if (spillFiles != null) {
+            merge();
+            return new MergedIterator();
+        }
         return new OrderedValueSequenceIterator();
     }
 
     @Override
-    public SequenceIterator unorderedIterator() {
-        return new OrderedValueSequenceIterator();
+    public SequenceIterator unorderedIterator() throws XPathException {
+        return iterate();
     }
 
     @Override
     public long getItemCountLong() {
+        if (spillFiles != null) {
+            return added;
+        }
         return (items == null) ? 0 : count;
     }
 
@@ -90,6 +178,21 @@ public class OrderedValueSequence extends AbstractSequence {
 
     @Override
     public void add(final Item item) throws XPathException {
+        addEntry(new Entry(item, added));
+    }
+
+    /**
+     * Add an item whose sort keys have already been computed, e.g. by fn:sort.
+     *
+     * @param item the item
+     * @param keys one sort key for each order spec, {@link AtomicValue#EMPTY_VALUE} for an empty key
+     */
+    public void add(final Item item, final AtomicValue[] keys) throws XPathException {
+        addEntry(new Entry(item, added, keys));
+    }
+
+    private void addEntry(final Entry entry) throws XPathException {
+        final Item item = entry.item;
         if (hasOne) {
             hasOne = false;
         }
@@ -104,9 +207,22 @@ public class OrderedValueSequence extends AbstractSequence {
             System.arraycopy(items, 0, newItems, 0, count);
             items = newItems;
         }
-        items[count] = new Entry(item, count++);
+        added++;
+        items[count++] = entry;
         checkItemType(item.getType());
         setHasChanged();
+
+        if (limit > 0) {
+            if (count >= 2L * limit) {
+                truncate();
+            }
+        } else if (maxInMemory > 0 && spillable) {
+            if (!entry.isSpillable()) {
+                spillable = false;
+            } else if (count >= maxInMemory) {
+                spill();
+            }
+        }
     }
 
     @Override
@@ -123,15 +239,252 @@ public class OrderedValueSequence extends AbstractSequence {
         }
     }
 
-    public void sort() {
+    public void sort() throws XPathException {
 //		FastQSort.sort(items, 0, count - 1);
 
         Arrays.parallelSort(items, 0, count);
+        if (spillFiles != null) {
+            merge();
+            return;
+        }
+
+        if (limit > 0 && count > limit) {
+            Arrays.fill(items, limit, count, null);
+            count = limit;
+        }
         Arrays.stream(items, 0, count).parallel().forEach(Entry::clear);
     }
 
+    /**
+     * Retain only the first {@link #limit} entries in sort order.
+     */
+    private void truncate() {
+        Arrays.parallelSort(items, 0, count);
+        Arrays.fill(items, limit, count, null);
+        count = limit;
+    }
+
+    /**
+     * Sort the entries held in memory, and write them as a run to a temporary file.
+     */
+    private void spill() throws XPathException {
+        Arrays.parallelSort(items, 0, count);
+
+        if (spillFiles == null) {
+            releaseCollected();
+            spillFiles = new SpillFiles();
+            spillReference = new SpillReference(this, spillFiles);
+            SPILLED.add(spillReference);
+            documents = new HashMap<>();
+        }
+
+        final TemporaryFileManager temporaryFileManager = TemporaryFileManager.getInstance();
+        try {
+            final Path file = temporaryFileManager.getTemporaryFile();
+            spillFiles.runs.add(file);
+            try (final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                os.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    final Entry entry = items[i];
+                    os.writeInt(entry.pos);
+                    writeItem(os, entry.item);
+                    for (final AtomicValue value : entry.values) {
+                        writeKey(os, value);
+                    }
+                    items[i] = null;
+                }
+            }
+        } catch (final IOException e) {
+            throw new XPathException("Unable to write sorted run for order by: " + e.getMessage(), e);
+        }
+        count = 0;
+    }
+
+    /**
+     * Merge the runs written to disk with the entries held in memory into a single file,
+     * and remove the runs. The entries held in memory are referred to by their index.
+     */
+    private void merge() throws XPathException {
+        if (offsets != null) {
+            return;
+        }
+
+        final long[] merged = new long[added + 1];
+        final List<Run> openRuns = new ArrayList<>(spillFiles.runs.size());
+        final PriorityQueue<Run> queue = new PriorityQueue<>(spillFiles.runs.size() + 1, (r1, r2) -> r1.head.compareTo(r2.head));
+        try {
+            final Path file = TemporaryFileManager.getInstance().getTemporaryFile();
+            spillFiles.merged = file;
+            try (final CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+                    final DataOutputStream os = new DataOutputStream(counter)) {
+                for (final Path runFile : spillFiles.runs) {
+                    final Run run = new FileRun(runFile);
+                    openRuns.add(run);
+                    if (run.next()) {
+                        queue.add(run);
+                    }
+                }
+                final Run memoryRun = new MemoryRun(items, count);
+                if (memoryRun.next()) {
+                    queue.add(memoryRun);
+                }
+
+                int i = 0;
+                Run run;
+                while ((run = queue.poll()) != null) {
+                    merged[i++] = counter.getByteCount();
+                    run.writeHead(os);
+                    if (run.next()) {
+                        queue.add(run);
+                    }
+                }
+                os.flush();
+                merged[i] = counter.getByteCount();
+            } finally {
+                for (final Run run : openRuns) {
+                    run.close();
+                }
+            }
+            spillFiles.releaseRuns();
+            spillFiles.channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (final IOException e) {
+            throw new XPathException("Unable to merge sorted runs for order by: " + e.getMessage(), e);
+        }
+
+        offsets = merged;
+    }
+
+    /**
+     * @return true if entries have been written to disk, which are removed by {@link #close()}
+     */
+    public boolean isSpilled() {
+        return spillFiles != null;
+    }
+
+    /**
+     * Remove the temporary files holding the entries written to disk. The sequence
+     * can not be used afterwards.
+     */
+    public void close() {
+        if (spillFiles != null) {
+            SPILLED.remove(spillReference);
+            spillReference.clear();
+            spillFiles.release();
+            spillFiles = null;
+            spillReference = null;
+            documents = null;
+            offsets = null;
+            reader = null;
+            items = new Entry[1];
+            count = 0;
+            added = 0;
+            isEmpty = true;
+            hasOne = false;
+        }
+    }
+
+    /**
+     * Only persistent nodes without match or context information, and atomic values
+     * which can be restored from their type and string value are written to disk.
+     */
+    private static boolean isSpillable(final Item item) {
+        if (item instanceof NodeProxy) {
+            final NodeProxy p = (NodeProxy) item;
+            return p.getMatches() == null && p.getContext() == null;
+        }
+        return item instanceof AtomicValue && isSpillable((AtomicValue) item);
+    }
+
+    /**
+     * Only values which can be restored from their type and string value are written to disk.
+     */
+    private static boolean isSpillable(final AtomicValue value) {
+        if (value == AtomicValue.EMPTY_VALUE) {
+            return true;
+        }
+        final int type = value.getType();
+        return Type.subTypeOf(type, Type.STRING)
+                || type == Type.UNTYPED_ATOMIC
+                || type == Type.ANY_URI
+                || type == Type.BOOLEAN
+                || Type.subTypeOfUnion(type, Type.NUMBER)
+                || type == Type.DATE_TIME
+                || type == Type.DATE
+                || type == Type.TIME;
+    }
+
+    private void writeItem(final DataOutputStream os, final Item item) throws IOException, XPathException {
+        if (item instanceof NodeProxy) {
+            final NodeProxy p = (NodeProxy) item;
+            final org.exist.dom.persistent.DocumentImpl doc = p.getOwnerDocument();
+            documents.putIfAbsent(doc.getDocId(), doc);
+            os.writeByte(ITEM_NODE);
+            os.writeInt(doc.getDocId());
+            os.writeShort(p.getNodeType());
+            os.writeLong(p.getInternalAddress());
+            final NodeId nodeId = p.getNodeId();
+            final byte[] data = new byte[nodeId.size()];
+            nodeId.serialize(data, 0);
+            os.writeShort(nodeId.units());
+            os.writeShort(data.length);
+            os.write(data);
+        } else {
+            os.writeByte(ITEM_ATOMIC);
+            writeKey(os, (AtomicValue) item);
+        }
+    }
+
+    private Item readItem(final DataInputStream is) throws IOException, XPathException {
+        final byte itemType = is.readByte();
+        if (itemType == ITEM_IN_MEMORY) {
+            return items[is.readInt()].item;
+        } else if (itemType == ITEM_NODE) {
+            final org.exist.dom.persistent.DocumentImpl doc = documents.get(is.readInt());
+            final short nodeType = is.readShort();
+            final long address = is.readLong();
+            final int units = is.readShort();
+            final byte[] data = new byte[is.readShort()];
+            is.readFully(data);
+            final NodeId nodeId = doc.getBrokerPool().getNodeFactory().createFromData(units, data, 0);
+            return new NodeProxy(doc, nodeId, nodeType, address);
+        }
+        return readKey(is);
+    }
+
+    private static void writeKey(final DataOutputStream os, final AtomicValue value) throws IOException, XPathException {
+        if (value == AtomicValue.EMPTY_VALUE) {
+            os.writeInt(-1);
+            return;
+        }
+        os.writeInt(value.getType());
+        final byte[] data = value.getStringValue().getBytes(UTF_8);
+        os.writeInt(data.length);
+        os.write(data);
+    }
+
+    private static AtomicValue readKey(final DataInputStream is) throws IOException, XPathException {
+        final int type = is.readInt();
+        if (type == -1) {
+            return AtomicValue.EMPTY_VALUE;
+        }
+        final byte[] data = new byte[is.readInt()];
+        is.readFully(data);
+        final String value = new String(data, UTF_8);
+        switch (type) {
+            case Type.STRING:
+                return new StringValue(value);
+            case Type.UNTYPED_ATOMIC:
+                return new UntypedAtomicValue(value);
+            default:
+                return new StringValue(value).convertTo(type);
+        }
+    }
+
     @Override
     public Item itemAt(final int pos) {
+        if (spillFiles != null) {
+            return mergedItemAt(pos);
+        }
         if (items != null && pos > -1 && pos < count) {
             return items[pos].item;
         } else {
@@ -139,6 +492,21 @@ public class OrderedValueSequence extends AbstractSequence {
         }
     }
 
+    private Item mergedItemAt(final int pos) {
+        if (pos < 0 || pos >= added) {
+            return null;
+        }
+        try {
+            merge();
+            if (reader == null) {
+                reader = new MergedReader();
+            }
+            return reader.read(pos);
+        } catch (final XPathException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
     private void checkItemType(final int type) {
         if (itemType == type) {
             return;
@@ -162,11 +530,7 @@ public class OrderedValueSequence extends AbstractSequence {
         }
         // for this method to work, all items have to be nodes
         if (itemType != Type.ANY_TYPE && Type.subTypeOf(itemType, Type.NODE)) {
-            //Was ExtArrayNodeset() which orders the nodes in document order
-            //The order seems to change between different invocations !!!
-            final NodeSet set = new AVLTreeNodeSet();
-            //We can't make it from an ExtArrayNodeSet (probably because it is sorted ?)
-            //NodeSet set = new ArraySet(100);
+            // in-memory nodes are never written to disk, so only the entries held in memory need to be converted
             for (int i = 0; i < count; i++) {
                 NodeValue v = (NodeValue) items[i].item;
                 if (v.getImplementationType() != NodeValue.PERSISTENT_NODE) {
@@ -210,8 +574,17 @@ public class OrderedValueSequence extends AbstractSequence {
                             }
                         }
                     }
-                    set.add((NodeProxy) items[i].item);
-                } else {
+                }
+            }
+
+            //Was ExtArrayNodeset() which orders the nodes in document order
+            //The order seems to change between different invocations !!!
+            final NodeSet set = new AVLTreeNodeSet();
+            //We can't make it from an ExtArrayNodeSet (probably because it is sorted ?)
+            //NodeSet set = new ArraySet(100);
+            for (final SequenceIterator i = iterate(); i.hasNext(); ) {
+                final NodeValue v = (NodeValue) i.nextItem();
+                if (v.getImplementationType() == NodeValue.PERSISTENT_NODE) {
                     set.add((NodeProxy) v);
                 }
             }
@@ -222,9 +595,14 @@ public class OrderedValueSequence extends AbstractSequence {
         }
     }
 
+    /*
+     * Nodes written to disk are always persistent, so only the entries held in
+     * memory need to be checked by isPersistentSet and toMemNodeSet.
+     */
+
     @Override
     public boolean isPersistentSet() {
-        if (count == 0) {
+        if (isEmpty()) {
             return true;
         }
         if (itemType != Type.ANY_TYPE && Type.subTypeOf(itemType, Type.NODE)) {
@@ -241,13 +619,16 @@ public class OrderedValueSequence extends AbstractSequence {
 
     @Override
     public MemoryNodeSet toMemNodeSet() throws XPathException {
-        if (count == 0) {
+        if (isEmpty()) {
             return MemoryNodeSet.EMPTY;
         }
         if (itemType == Type.ANY_TYPE || !Type.subTypeOf(itemType, Type.NODE)) {
             throw new XPathException("Type error: the sequence cannot be converted into" +
                     " a node set. Item type is " + Type.getTypeName(itemType));
         }
+        if (spillFiles != null) {
+            return null;
+        }
         for (int i = 0; i < count; i++) {
             final NodeValue v = (NodeValue) items[i].item;
             if (v.getImplementationType() == NodeValue.PERSISTENT_NODE) {
@@ -260,6 +641,16 @@ public class OrderedValueSequence extends AbstractSequence {
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder();
+        if (spillFiles != null) {
+            try {
+                for (final SequenceIterator i = iterate(); i.hasNext(); ) {
+                    builder.append(i.nextItem());
+                }
+            } catch (final XPathException e) {
+                builder.append(e.getMessage());
+            }
+            return builder.toString();
+        }
         for (int i = 0; i < count; i++) {
             builder.append(items[i].toString());
         }
@@ -295,6 +686,12 @@ public class OrderedValueSequence extends AbstractSequence {
         AtomicValue values[];
         private final int pos;
 
+        Entry(final Item item, final int position, final AtomicValue[] values) {
+            this.item = item;
+            this.pos = position;
+            this.values = values;
+        }
+
         /**
          * @param item     the item in the sequence
          * @param position the original position of the item in the result sequence
@@ -389,11 +786,257 @@ public class OrderedValueSequence extends AbstractSequence {
             return builder.toString();
         }
 
+        boolean isSpillable() {
+            if (!OrderedValueSequence.isSpillable(item)) {
+                return false;
+            }
+            for (final AtomicValue value : values) {
+                if (!OrderedValueSequence.isSpillable(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         public void clear() {
             values = null;
         }
     }
 
+    /**
+     * A sorted run of entries, used to merge the runs.
+     */
+    private abstract static class Run {
+        Entry head;
+
+        /**
+         * Advance {@link #head} to the next entry.
+         *
+         * @return false if the run is exhausted
+         */
+        abstract boolean next() throws IOException;
+
+        /**
+         * Write the item of {@link #head} to the merged file.
+         */
+        abstract void writeHead(DataOutputStream os) throws IOException;
+
+        void close() {
+        }
+    }
+
+    private static class MemoryRun extends Run {
+        private final Entry[] entries;
+        private final int count;
+        private int pos = 0;
+
+        MemoryRun(final Entry[] entries, final int count) {
+            this.entries = entries;
+            this.count = count;
+        }
+
+        @Override
+        boolean next() {
+            if (pos < count) {
+                head = entries[pos++];
+                return true;
+            }
+            head = null;
+            return false;
+        }
+
+        @Override
+        void writeHead(final DataOutputStream os) throws IOException {
+            os.writeByte(ITEM_IN_MEMORY);
+            os.writeInt(pos - 1);
+        }
+    }
+
+    private class FileRun extends Run {
+        private final DataInputStream is;
+        private int remaining;
+
+        FileRun(final Path file) throws IOException {
+            this.is = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+            try {
+                this.remaining = is.readInt();
+            } catch (final IOException e) {
+                is.close();
+                throw e;
+            }
+        }
+
+        @Override
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                head = null;
+                return false;
+            }
+            remaining--;
+            final int pos = is.readInt();
+            try {
+                final Item item = readItem(is);
+                final AtomicValue[] values = new AtomicValue[orderSpecs.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readKey(is);
+                }
+                head = new Entry(item, pos, values);
+            } catch (final XPathException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            return true;
+        }
+
+        @Override
+        void writeHead(final DataOutputStream os) throws IOException {
+            try {
+                writeItem(os, head.item);
+            } catch (final XPathException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        void close() {
+            try {
+                is.close();
+            } catch (final IOException e) {
+                // nothing to do
+            }
+        }
+    }
+
+    /**
+     * Reads the items of the merged file in blocks of about {@link #BLOCK_SIZE} bytes.
+     * Reading the items in order reads each block once, any other position is read
+     * from the block starting at it.
+     */
+    private class MergedReader {
+        private DataInputStream is = null;
+        // the position of the next item in the current block, and the position after its last item
+        private int next = 0;
+        private int end = 0;
+
+        Item read(final int pos) throws XPathException {
+            try {
+                if (pos != next || pos >= end) {
+                    load(pos);
+                }
+                next++;
+                return readItem(is);
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Unable to read sorted entries for order by: " + e.getMessage(), e);
+            }
+        }
+
+        private void load(final int pos) throws IOException {
+            int last = pos + 1;
+            while (last < added && offsets[last + 1] - offsets[pos] <= BLOCK_SIZE) {
+                last++;
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int) (offsets[last] - offsets[pos]));
+            long position = offsets[pos];
+            while (buffer.hasRemaining()) {
+                final int read = spillFiles.channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                position += read;
+            }
+            is = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+            next = pos;
+            end = last;
+        }
+    }
+
+    private class MergedIterator implements SequenceIterator {
+        private final MergedReader reader = new MergedReader();
+        private int pos = 0;
+
+        @Override
+        public boolean hasNext() {
+            return pos < added;
+        }
+
+        @Override
+        public Item nextItem() {
+            if (pos < added) {
+                try {
+                    return reader.read(pos++);
+                } catch (final XPathException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long skippable() {
+            return added - pos;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final long skip = Math.min(n, added - pos);
+            pos += skip;
+            return skip;
+        }
+    }
+
+    /**
+     * The temporary files of a sequence. It does not refer to the sequence, so
+     * that the files can be released once the sequence was garbage collected.
+     */
+    private static final class SpillFiles {
+        private final List<Path> runs = new ArrayList<>();
+        private Path merged = null;
+        private FileChannel channel = null;
+
+        void releaseRuns() {
+            final TemporaryFileManager temporaryFileManager = TemporaryFileManager.getInstance();
+            for (final Path file : runs) {
+                temporaryFileManager.returnTemporaryFile(file);
+            }
+            runs.clear();
+        }
+
+        void release() {
+            releaseRuns();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (final IOException e) {
+                    // nothing to do
+                }
+                channel = null;
+            }
+            if (merged != null) {
+                TemporaryFileManager.getInstance().returnTemporaryFile(merged);
+                merged = null;
+            }
+        }
+    }
+
+    private static final class SpillReference extends PhantomReference<OrderedValueSequence> {
+        private final SpillFiles files;
+
+        SpillReference(final OrderedValueSequence sequence, final SpillFiles files) {
+            super(sequence, COLLECTED);
+            this.files = files;
+        }
+    }
+
+    /**
+     * Release the temporary files of the sequences which have been garbage collected without being closed.
+     */
+    private static void releaseCollected() {
+        Reference<? extends OrderedValueSequence> reference;
+        while ((reference = COLLECTED.poll()) != null) {
+            SPILLED.remove(reference);
+            ((SpillReference) reference).files.release();
+        }
+    }
+
     private class OrderedValueSequenceIterator implements SequenceIterator {
         private int pos = 0;
 
@@ -21,12 +21,16 @@ package org.exist.xslt;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
 import javax.xml.transform.URIResolver;
 import javax.xml.transform.sax.SAXTransformerFactory;
 import javax.xml.transform.sax.TemplatesHandler;
@@ -37,14 +41,15 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.exist.dom.persistent.DocumentImpl;
 import org.exist.dom.persistent.LockedDocument;
+import org.exist.security.Permission;
 import org.exist.security.PermissionDeniedException;
 import org.exist.storage.BrokerPool;
 import org.exist.storage.DBBroker;
 import org.exist.storage.lock.Lock.LockMode;
 import org.exist.storage.serializers.Serializer;
-import org.exist.util.EXistURISchemeURIResolver;
 import org.exist.xmldb.XmldbURI;
 import org.exist.xquery.Constants;
+import org.exist.xslt.TemplatesCache.CompiledStylesheet;
 import org.xml.sax.SAXException;
 
 import static org.exist.xslt.XsltURIResolverHelper.getXsltURIResolver;
@@ -52,6 +57,9 @@ import static org.exist.xslt.XsltURIResolverHelper.getXsltURIResolver;
 /**
  * {@link javax.xml.transform.Templates} resolver and compiler.
  *
+ * If caching is enabled, compiled stylesheets are shared through
+ * the {@link TemplatesCache} of the database.
+ *
  * @author <a href="mailto:shabanovd@gmail.com">Dmitriy Shabanov</a>
  */
 @ThreadSafe
@@ -59,18 +67,25 @@ public class StylesheetResolverAndCompiler implements Stylesheet {
 
   protected final static Logger LOG = LogManager.getLogger(StylesheetResolverAndCompiler.class);
 
-  SAXTransformerFactory factory;
-
-  long lastModified = -1;
-  Templates templates = null;
+  final String uri;
+  final String base;
 
-  String uri;
-  String base;
+  final Properties properties;
 
-  Properties properties;
+  final boolean useCache;
 
   public StylesheetResolverAndCompiler(String uri) {
+    this(uri, null);
+  }
+
+  public StylesheetResolverAndCompiler(String uri, Properties properties) {
+    this(uri, properties, false);
+  }
+
+  public StylesheetResolverAndCompiler(String uri, Properties properties, boolean useCache) {
     this.uri = uri;
+    this.properties = properties;
+    this.useCache = useCache;
 
     final int p = uri.lastIndexOf('/');
     if (p != Constants.STRING_NOT_FOUND) {
@@ -80,15 +95,52 @@ public class StylesheetResolverAndCompiler implements Stylesheet {
     }
   }
 
-  public StylesheetResolverAndCompiler(String uri, Properties properties) {
-    this(uri);
+  public <E extends Exception> Templates templates(DBBroker broker, XSLTErrorsListener<E> errorListener)
+      throws E, TransformerConfigurationException, IOException, PermissionDeniedException, SAXException {
+    return compiled(broker, errorListener).getTemplates();
+  }
 
-    this.properties = properties;
+  @Override
+  public <E extends Exception> TransformerHandler newTransformerHandler(DBBroker broker, XSLTErrorsListener<E> errorListener)
+      throws E, PermissionDeniedException, SAXException, TransformerConfigurationException, IOException {
+
+    final CompiledStylesheet compiled = compiled(broker, errorListener);
+
+    TransformerHandler handler = compiled.getFactory().newTransformerHandler(compiled.getTemplates());
+
+    handler.getTransformer().setErrorListener(errorListener);
+
+    return handler;
   }
 
-  public <E extends Exception> Templates templates(DBBroker broker, XSLTErrorsListener<E> errorListener)
+  private <E extends Exception> CompiledStylesheet compiled(DBBroker broker, XSLTErrorsListener<E> errorListener)
       throws E, TransformerConfigurationException, IOException, PermissionDeniedException, SAXException {
 
+    if (!useCache) {
+      return compile(broker, errorListener);
+    }
+
+    final TemplatesCache cache = broker.getBrokerPool().getTemplatesCache();
+    final TemplatesCache.Key key = new TemplatesCache.Key(uri, properties);
+
+    // a cached stylesheet must still be readable by the calling user
+    CompiledStylesheet compiled = cache.get(broker, key);
+    if (compiled == null) {
+      final long start = System.nanoTime();
+      compiled = compile(broker, errorListener);
+      cache.put(broker, key, compiled, System.nanoTime() - start);
+    }
+    return compiled;
+  }
+
+  private <E extends Exception> CompiledStylesheet compile(DBBroker broker, XSLTErrorsListener<E> errorListener)
+      throws E, TransformerConfigurationException, IOException, PermissionDeniedException, SAXException {
+
+    final Map<XmldbURI, Long> documents = new HashMap<>();
+    final Map<String, Long> external = new HashMap<>();
+    final SAXTransformerFactory factory = factory(broker.getBrokerPool(), errorListener, documents, external);
+
+    final Templates templates;
     if (uri.startsWith(XmldbURI.EMBEDDED_SERVER_URI_PREFIX)) {
       final String docPath = uri.substring(XmldbURI.EMBEDDED_SERVER_URI_PREFIX.length());
       try (final LockedDocument lockedDocument = broker.getXMLResource(XmldbURI.create(docPath), LockMode.READ_LOCK)) {
@@ -96,54 +148,36 @@ public class StylesheetResolverAndCompiler implements Stylesheet {
           throw new IOException("XSL stylesheet not found: "+docPath);
         }
         final DocumentImpl doc = lockedDocument.getDocument();
-        if (templates == null || doc.getMetadata().getLastModified() > lastModified) {
-          if (LOG.isDebugEnabled()) {
-            LOG.debug("compiling stylesheet " + doc.getURI());
-          }
-          templates = compileTemplates(broker, doc, errorListener);
-          lastModified = doc.getMetadata().getLastModified();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("compiling stylesheet " + doc.getURI());
         }
+        documents.put(doc.getURI(), doc.getMetadata().getLastModified());
+        templates = compileTemplates(factory, broker, doc, errorListener);
       }
 
     } else {
       final URL url = new URL(uri);
       final URLConnection connection = url.openConnection();
-      long modified = connection.getLastModified();
-      if (templates == null || modified > lastModified || modified == 0) {
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("compiling stylesheet " + url);
-        }
-        try (final InputStream is = connection.getInputStream()) {
-          templates = factory(broker.getBrokerPool(), errorListener).newTemplates(new StreamSource(is));
-        }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("compiling stylesheet " + url);
+      }
+      external.put(uri, connection.getLastModified());
+      try (final InputStream is = connection.getInputStream()) {
+        templates = factory.newTemplates(new StreamSource(is));
       }
-      lastModified = modified;
     }
 
-    return templates;
-  }
-
-  @Override
-  public <E extends Exception> TransformerHandler newTransformerHandler(DBBroker broker, XSLTErrorsListener<E> errorListener)
-      throws E, PermissionDeniedException, SAXException, TransformerConfigurationException, IOException {
-
-    TransformerHandler handler = cachedFactory(broker.getBrokerPool())
-        .newTransformerHandler(templates(broker, errorListener));
-
-    handler.getTransformer().setErrorListener(errorListener);
-
-    return handler;
+    return new CompiledStylesheet(templates, handlerFactory(broker.getBrokerPool()), documents, external);
   }
 
   private <E extends Exception> Templates compileTemplates(
+      SAXTransformerFactory factory,
       DBBroker broker,
       DocumentImpl stylesheet,
       XSLTErrorsListener<E> errorListener)
       throws E, TransformerConfigurationException, SAXException
   {
-    //factory.setURIResolver(new EXistURIResolver(broker, stylesheet.getCollection().getURI().toString()));
-
-    final TemplatesHandler handler = factory(broker.getBrokerPool(), errorListener).newTemplatesHandler();
+    final TemplatesHandler handler = factory.newTemplatesHandler();
     handler.setSystemId(stylesheet.getBaseURI());
     handler.startDocument();
 
@@ -162,23 +196,22 @@ public class StylesheetResolverAndCompiler implements Stylesheet {
     return t;
   }
 
-  private SAXTransformerFactory cachedFactory(BrokerPool db) {
-    if (factory == null) {
-      factory = TransformerFactoryAllocator.getTransformerFactory(db);
+  private SAXTransformerFactory handlerFactory(BrokerPool db) {
+    final SAXTransformerFactory factory = TransformerFactoryAllocator.getTransformerFactory(db);
 
-      if (properties != null) {
-        //set any attributes
-        for (final Map.Entry<Object, Object> attribute : properties.entrySet()) {
-          factory.setAttribute((String) attribute.getKey(), attribute.getValue());
-        }
+    if (properties != null) {
+      //set any attributes
+      for (final Map.Entry<Object, Object> attribute : properties.entrySet()) {
+        factory.setAttribute((String) attribute.getKey(), attribute.getValue());
       }
-      final URIResolver uriResolver = getXsltURIResolver(db, factory.getURIResolver(), base, true);
-      factory.setURIResolver(uriResolver);
     }
+    final URIResolver uriResolver = getXsltURIResolver(db, factory.getURIResolver(), base, true);
+    factory.setURIResolver(uriResolver);
     return factory;
   }
 
-  private <E extends Exception> SAXTransformerFactory factory(BrokerPool db, XSLTErrorsListener<E> errorListener) {
+  private <E extends Exception> SAXTransformerFactory factory(BrokerPool db, XSLTErrorsListener<E> errorListener,
+      Map<XmldbURI, Long> documents, Map<String, Long> external) {
     SAXTransformerFactory newFactory = TransformerFactoryAllocator.getTransformerFactory(db);
 
     if (properties != null) {
@@ -188,11 +221,72 @@ public class StylesheetResolverAndCompiler implements Stylesheet {
       }
     }
 
-    // setup any URI resolvers
+    // setup any URI resolvers, recording the included and imported stylesheets
     final URIResolver uriResolver = getXsltURIResolver(db, newFactory.getURIResolver(), base, true);
-    newFactory.setURIResolver(uriResolver);
+    newFactory.setURIResolver(new DependencyRecorder(db, uriResolver, documents, external));
 
     newFactory.setErrorListener(errorListener);
     return newFactory;
   }
+
+  /**
+   * Records the stylesheets which are included or imported while compiling a stylesheet.
+   */
+  private static class DependencyRecorder implements URIResolver {
+    private final BrokerPool db;
+    private final URIResolver resolver;
+    private final Map<XmldbURI, Long> documents;
+    private final Map<String, Long> external;
+
+    DependencyRecorder(BrokerPool db, URIResolver resolver, Map<XmldbURI, Long> documents, Map<String, Long> external) {
+      this.db = db;
+      this.resolver = resolver;
+      this.documents = documents;
+      this.external = external;
+    }
+
+    @Override
+    public Source resolve(String href, String base) throws TransformerException {
+      final Source source = resolver == null ? null : resolver.resolve(href, base);
+      if (source != null && source.getSystemId() != null) {
+        record(source.getSystemId());
+      } else {
+        record(absolute(href, base));
+      }
+      return source;
+    }
+
+    private void record(String systemId) {
+      if (systemId.startsWith(XmldbURI.EMBEDDED_SERVER_URI_PREFIX)) {
+        systemId = systemId.substring(XmldbURI.EMBEDDED_SERVER_URI_PREFIX.length());
+      }
+      if (systemId.startsWith("/")) {
+        try {
+          final XmldbURI docUri = XmldbURI.create(systemId);
+          final DocumentImpl doc = db.getActiveBroker().getResource(docUri, Permission.READ);
+          // a missing document is recorded as modified, so the stylesheet is not cached
+          documents.put(docUri, doc == null ? -1 : doc.getMetadata().getLastModified());
+        } catch (final IllegalArgumentException | PermissionDeniedException e) {
+          LOG.warn("Unable to record stylesheet dependency " + systemId + ": " + e.getMessage());
+        }
+      } else if (systemId.indexOf(':') != Constants.STRING_NOT_FOUND) {
+        // a stylesheet whose last-modified time is unknown can not be checked for changes
+        final long modified = CompiledStylesheet.lastModified(systemId);
+        if (modified > 0) {
+          external.put(systemId, modified);
+        }
+      }
+    }
+
+    private static String absolute(String href, String base) {
+      if (base == null) {
+        return href;
+      }
+      try {
+        return URI.create(base).resolve(href).toString();
+      } catch (final IllegalArgumentException e) {
+        return href;
+      }
+    }
+  }
 }
@@ -0,0 +1,407 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xslt;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.NumberFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.xml.transform.Templates;
+import javax.xml.transform.sax.SAXTransformerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import net.jcip.annotations.ThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.dom.persistent.NodeHandle;
+import org.exist.numbering.NodeId;
+import org.exist.security.Permission;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPoolService;
+import org.exist.storage.DBBroker;
+import org.exist.storage.UpdateListener;
+import org.exist.storage.txn.Txn;
+import org.exist.util.Configuration;
+import org.exist.xmldb.XmldbURI;
+
+import javax.annotation.Nullable;
+
+/**
+ * Global cache for compiled XSLT stylesheets.
+ *
+ * Entries are keyed by the URI of the stylesheet and the attributes of the
+ * transformer factory which compiled it. Each entry records the stylesheet and
+ * all stylesheets it transitively includes or imports. An entry is invalidated
+ * as soon as one of the database documents it depends on is stored, updated
+ * or removed. As documents which are moved, or whose collection is moved or
+ * removed, are not notified, every lookup also checks that the calling user
+ * may still read each database document and that its last-modified time is
+ * unchanged; stylesheets outside of the database are checked against their
+ * last-modified time too. Entries are evicted when the cache grows beyond
+ * its maximum size.
+ */
+@ThreadSafe
+public class TemplatesCache implements BrokerPoolService {
+
+    private static final Logger LOG = LogManager.getLogger(TemplatesCache.class);
+
+    public static final String CACHE_SIZE_ATTRIBUTE = "cache-size";
+    public static final String PROPERTY_CACHE_SIZE = "transformer.cache-size";
+
+    private static final int DEFAULT_MAX_CACHE_SIZE = 128;
+
+    private int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder compilations = new LongAdder();
+    private final LongAdder compilationTime = new LongAdder();
+
+    /**
+     * Key -> compiled stylesheet, null if the cache is disabled
+     */
+    @Nullable private Cache<Key, CompiledStylesheet> cache;
+
+    /**
+     * Database document -> keys of the cached stylesheets which depend on it
+     */
+    private final Map<XmldbURI, Set<Key>> dependents = new ConcurrentHashMap<>();
+
+    @Override
+    public void configure(final Configuration configuration) {
+        final Integer maxCacheSz = (Integer) configuration.getProperty(PROPERTY_CACHE_SIZE);
+        this.maxCacheSize = maxCacheSz != null ? maxCacheSz : DEFAULT_MAX_CACHE_SIZE;
+
+        if (maxCacheSize > 0) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maxCacheSize)
+                    .executor(Runnable::run)
+                    .removalListener(this::removed)
+                    .build();
+        } else {
+            this.cache = null;
+        }
+
+        LOG.info("TemplatesCache: size = " + NumberFormat.getNumberInstance().format(maxCacheSize));
+    }
+
+    @Override
+    public void startPreMultiUserSystem(final DBBroker systemBroker, final Txn transaction) {
+        if (cache != null) {
+            systemBroker.getBrokerPool().getNotificationService().subscribe(new DocumentListener());
+        }
+    }
+
+    /**
+     * Gets a compiled stylesheet.
+     *
+     * @param broker the broker of the calling user
+     * @param key the key of the stylesheet
+     *
+     * @return The compiled stylesheet, or null if there is no
+     *     valid compiled stylesheet for the key in the cache.
+     *
+     * @throws PermissionDeniedException if the calling user may not read
+     *     one of the database documents the stylesheet was compiled from
+     */
+    public @Nullable CompiledStylesheet get(final DBBroker broker, final Key key) throws PermissionDeniedException {
+        if (cache == null) {
+            return null;
+        }
+
+        final CompiledStylesheet compiled = cache.getIfPresent(key);
+        if (compiled == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (!compiled.isDocumentsValid(broker) || !compiled.isExternalValid()) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(key.uri + " or one of its dependencies has been modified, removing from Templates Cache...");
+            }
+            cache.asMap().remove(key, compiled);
+            invalidations.increment();
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return compiled;
+    }
+
+    /**
+     * Adds a compiled stylesheet to the cache.
+     *
+     * The stylesheet is not cached if one of the database documents it depends on
+     * has been modified since it was read by the compiler, as it may have been compiled
+     * from an outdated version of the document.
+     *
+     * @param broker the broker which compiled the stylesheet
+     * @param key the key of the stylesheet
+     * @param compiled the compiled stylesheet
+     * @param compileTime the time taken to compile the stylesheet in nanoseconds
+     */
+    public void put(final DBBroker broker, final Key key, final CompiledStylesheet compiled, final long compileTime) {
+        compilations.increment();
+        compilationTime.add(compileTime);
+
+        if (cache == null) {
+            return;
+        }
+
+        cache.put(key, compiled);
+        for (final XmldbURI docUri : compiled.documents.keySet()) {
+            dependents.computeIfAbsent(docUri, k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+
+        // a document modified before the dependency was registered is not notified to us
+        try {
+            if (!compiled.isDocumentsValid(broker)) {
+                cache.asMap().remove(key, compiled);
+            }
+        } catch (final PermissionDeniedException e) {
+            cache.asMap().remove(key, compiled);
+        }
+    }
+
+    /**
+     * Removes all entries from the Templates Cache.
+     */
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxCacheSize;
+    }
+
+    public long getSize() {
+        return cache == null ? 0 : cache.estimatedSize();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Get the number of times that a stylesheet was compiled.
+     *
+     * @return the number of compiled stylesheets
+     */
+    public long getCompilationCount() {
+        return compilations.sum();
+    }
+
+    /**
+     * Get the total time spent compiling stylesheets.
+     *
+     * @return the total compile time in milliseconds
+     */
+    public long getCompilationTime() {
+        return TimeUnit.NANOSECONDS.toMillis(compilationTime.sum());
+    }
+
+    private void removed(@Nullable final Key key, @Nullable final CompiledStylesheet compiled, final RemovalCause cause) {
+        if (key == null || compiled == null) {
+            return;
+        }
+        for (final XmldbURI docUri : compiled.documents.keySet()) {
+            dependents.computeIfPresent(docUri, (k, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private void documentChanged(final XmldbURI docUri) {
+        final Set<Key> keys = dependents.remove(docUri);
+        if (keys != null && cache != null) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(docUri + " has been modified, removing " + keys.size() + " stylesheets from Templates Cache...");
+            }
+            invalidations.add(keys.size());
+            cache.invalidateAll(keys);
+        }
+    }
+
+    private class DocumentListener implements UpdateListener {
+
+        @Override
+        public void documentUpdated(final DocumentImpl document, final int event) {
+            documentChanged(document.getURI());
+        }
+
+        @Override
+        public void nodeMoved(final NodeId oldNodeId, final NodeHandle newNode) {
+        }
+
+        @Override
+        public void unsubscribe() {
+        }
+
+        @Override
+        public void debug() {
+            LOG.debug("TemplatesCache listener: " + dependents.size() + " documents");
+        }
+    }
+
+    /**
+     * Identifies a compiled stylesheet by its URI and the
+     * attributes of the transformer factory.
+     */
+    public static final class Key {
+        private final String uri;
+        @Nullable private final Properties properties;
+
+        public Key(final String uri, @Nullable final Properties properties) {
+            this.uri = uri;
+            this.properties = properties == null || properties.isEmpty() ? null : (Properties) properties.clone();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other == null || getClass() != other.getClass()) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return uri.equals(key.uri) && Objects.equals(properties, key.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uri, properties);
+        }
+    }
+
+    /**
+     * A compiled stylesheet, the factory for its transformers,
+     * and the stylesheets it has been compiled from.
+     */
+    public static final class CompiledStylesheet {
+        final Templates templates;
+        final SAXTransformerFactory factory;
+        final Map<XmldbURI, Long> documents;
+        final Map<String, Long> external;
+
+        /**
+         * @param templates the compiled stylesheet
+         * @param factory the factory to create transformers with
+         * @param documents the database documents the stylesheet was compiled from,
+         *     with their last-modified time
+         * @param external URLs outside of the database the stylesheet was compiled from,
+         *     with their last-modified time
+         */
+        public CompiledStylesheet(final Templates templates, final SAXTransformerFactory factory,
+                final Map<XmldbURI, Long> documents, final Map<String, Long> external) {
+            this.templates = templates;
+            this.factory = factory;
+            this.documents = documents;
+            this.external = external;
+        }
+
+        public Templates getTemplates() {
+            return templates;
+        }
+
+        public SAXTransformerFactory getFactory() {
+            return factory;
+        }
+
+        /**
+         * Checks the database documents the stylesheet was compiled from.
+         *
+         * @param broker the broker of the calling user
+         *
+         * @return true if none of the documents has been modified, moved or removed
+         *
+         * @throws PermissionDeniedException if the calling user may not read one of the documents
+         */
+        boolean isDocumentsValid(final DBBroker broker) throws PermissionDeniedException {
+            for (final Map.Entry<XmldbURI, Long> entry : documents.entrySet()) {
+                final DocumentImpl doc = broker.getResource(entry.getKey(), Permission.READ);
+                if (doc == null || doc.getMetadata().getLastModified() != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isExternalValid() {
+            for (final Map.Entry<String, Long> entry : external.entrySet()) {
+                final long modified = lastModified(entry.getKey());
+                if (modified == 0 || modified > entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param url the URL of a stylesheet
+         *
+         * @return the last-modified time of the stylesheet, or 0 if unknown
+         */
+        static long lastModified(final String url) {
+            try {
+                if (url.startsWith("file:")) {
+                    return Files.getLastModifiedTime(Paths.get(URI.create(url))).toMillis();
+                }
+                final URLConnection connection = new URL(url).openConnection();
+                try {
+                    return connection.getLastModified();
+                } finally {
+                    if (connection instanceof HttpURLConnection) {
+                        ((HttpURLConnection) connection).disconnect();
+                    }
+                }
+            } catch (final IOException | IllegalArgumentException e) {
+                return 0;
+            }
+        }
+    }
+}
@@ -26,8 +26,6 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.URIResolver;
@@ -48,40 +46,21 @@ import org.xml.sax.SAXException;
 import static org.exist.xslt.XsltURIResolverHelper.getXsltURIResolver;
 
 /**
- * Factory for stylesheet resolver and compiler instances
- * and if instance is safe for reuse then it cached.
+ * Factory for stylesheet resolver and compiler instances.
+ * If caching is requested, the compiled stylesheets are shared
+ * through the {@link TemplatesCache} of the database.
  *
  * @author <a href="mailto:shabanovd@gmail.com">Dmitriy Shabanov</a>
  */
 @ThreadSafe
 public class TemplatesFactory {
 
-  private final static ConcurrentMap<String, StylesheetResolverAndCompiler> cache = new ConcurrentHashMap<>();
-
   public static Stylesheet stylesheet(String stylesheet, String baseUri, Properties properties, boolean useCache) {
-
-    if (useCache && properties == null) {
-      return stylesheet(stylesheet, baseUri);
-    }
-
-    String uri = uri(stylesheet, baseUri);
-
-    return new StylesheetResolverAndCompiler(uri, properties);
-  }
-
-  private static Stylesheet stylesheet(String stylesheet, String baseUri) {
-
-    String uri = uri(stylesheet, baseUri);
-
-    return cache.computeIfAbsent(uri, StylesheetResolverAndCompiler::new);
+    return new StylesheetResolverAndCompiler(uri(stylesheet, baseUri), properties, useCache);
   }
 
   public static Stylesheet stylesheet(String stylesheet, String baseUri, boolean useCache) {
-    if (useCache) {
-      return stylesheet(stylesheet, baseUri);
-    } else {
-      return new StylesheetResolverAndCompiler(uri(stylesheet, baseUri));
-    }
+    return new StylesheetResolverAndCompiler(uri(stylesheet, baseUri), null, useCache);
   }
 
   private static String uri(String stylesheet, String baseUri) {
@@ -0,0 +1,236 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.collections;
+
+import org.exist.EXistException;
+import org.exist.collections.triggers.TriggerException;
+import org.exist.dom.persistent.BinaryDocument;
+import org.exist.dom.persistent.DefaultDocumentSet;
+import org.exist.dom.persistent.DocumentImpl;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.lock.Lock;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.DatabaseConfigurationException;
+import org.exist.util.LockException;
+import org.exist.xmldb.XmldbURI;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests Collections whose document entries are only read
+ * from collections.dbx once they are needed.
+ */
+public class LazyCollectionDocumentsTest {
+
+    private static final int DOCUMENT_COUNT = 20;
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(properties(), true, true);
+
+    private static final XmldbURI TEST_COLLECTION = XmldbURI.ROOT_COLLECTION_URI.append("testLazyDocuments");
+
+    private static Properties properties() {
+        final Properties properties = new Properties();
+        properties.put(CollectionCache.PROPERTY_LAZY_DOCUMENTS, true);
+        return properties;
+    }
+
+    @BeforeClass
+    public static void storeDocuments() throws EXistException, PermissionDeniedException, IOException, SAXException, LockException, TriggerException, DatabaseConfigurationException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+             final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            broker.getOrCreateCollection(transaction, TEST_COLLECTION);
+            try (final Collection collection = broker.openCollection(TEST_COLLECTION, Lock.LockMode.WRITE_LOCK)) {
+                for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                    final String xml = "<document n='" + i + "'/>";
+                    final IndexInfo indexInfo = collection.validateXMLResource(transaction, broker, XmldbURI.create("doc" + i + ".xml"), xml);
+                    collection.store(transaction, broker, indexInfo, xml);
+                }
+            }
+            transaction.commit();
+        }
+
+        // restart, so that the collection is read from disk
+        existEmbeddedServer.restart();
+    }
+
+    @Test
+    public void documentsLoadedOnDemand() throws EXistException, PermissionDeniedException, LockException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+             final Collection collection = broker.openCollection(TEST_COLLECTION, Lock.LockMode.READ_LOCK)) {
+            assertNotNull(collection);
+            final MutableCollection mutableCollection = (MutableCollection) LockedCollection.unwrapLocked(collection);
+            final int memorySize = collection.getMemorySizeNoLock();
+            final int loadedCount = mutableCollection.getLoadedDocumentCount();
+
+            final DocumentImpl doc = collection.getDocument(broker, XmldbURI.create("doc7.xml"));
+            assertNotNull(doc);
+            assertEquals(collection.getId(), doc.getCollection().getId());
+            assertEquals(XmldbURI.create("doc7.xml"), doc.getFileURI());
+            assertSame(doc, collection.getDocument(broker, XmldbURI.create("doc7.xml")));
+            assertNull(collection.getDocument(broker, XmldbURI.create("missing.xml")));
+            assertTrue(collection.hasDocument(broker, XmldbURI.create("doc3.xml")));
+
+            assertEquals(DOCUMENT_COUNT, collection.getDocumentCount(broker));
+
+            // only the documents which were looked up by name have been read
+            assertTrue(mutableCollection.getLoadedDocumentCount() <= loadedCount + 2);
+
+            final DefaultDocumentSet docs = new DefaultDocumentSet();
+            collection.getDocuments(broker, docs);
+            assertEquals(DOCUMENT_COUNT, docs.getDocumentCount());
+            assertSame(doc, docs.getDoc(doc.getDocId()));
+
+            // the documents which were read whilst iterating are not held by the collection
+            assertEquals(memorySize, collection.getMemorySizeNoLock());
+        }
+    }
+
+    @Test
+    public void addAndRemoveDocument() throws EXistException, PermissionDeniedException, IOException, SAXException, LockException, TriggerException {
+        final XmldbURI name = XmldbURI.create("added.xml");
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            try (final Txn transaction = pool.getTransactionManager().beginTransaction();
+                 final Collection collection = broker.openCollection(TEST_COLLECTION, Lock.LockMode.WRITE_LOCK)) {
+                final MutableCollection mutableCollection = (MutableCollection) LockedCollection.unwrapLocked(collection);
+                final int loadedCount = mutableCollection.getLoadedDocumentCount();
+
+                final String xml = "<document n='added'/>";
+                final IndexInfo indexInfo = collection.validateXMLResource(transaction, broker, name, xml);
+                collection.store(transaction, broker, indexInfo, xml);
+
+                assertEquals(DOCUMENT_COUNT + 1, collection.getDocumentCount(broker));
+                assertNotNull(collection.getDocument(broker, name));
+                assertTrue(mutableCollection.getLoadedDocumentCount() <= loadedCount + 1);
+
+                final DefaultDocumentSet docs = new DefaultDocumentSet();
+                collection.getDocuments(broker, docs);
+                assertEquals(DOCUMENT_COUNT + 1, docs.getDocumentCount());
+
+                collection.removeXMLResource(transaction, broker, name);
+                transaction.commit();
+
+                assertNull(collection.getDocument(broker, name));
+                assertEquals(DOCUMENT_COUNT, collection.getDocumentCount(broker));
+            }
+        }
+    }
+
+    @Test
+    public void iterateAcrossPages() throws EXistException, PermissionDeniedException, IOException, SAXException, LockException, TriggerException {
+        final XmldbURI collectionUri = XmldbURI.ROOT_COLLECTION_URI.append("testLazyDocumentsPages");
+        final int documentCount = LazyDocuments.PAGE_SIZE * 2 + 3;
+
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+             final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            broker.getOrCreateCollection(transaction, collectionUri);
+            try (final Collection collection = broker.openCollection(collectionUri, Lock.LockMode.WRITE_LOCK)) {
+                for (int i = 0; i < documentCount; i++) {
+                    final String xml = "<document n='" + i + "'/>";
+                    final IndexInfo indexInfo = collection.validateXMLResource(transaction, broker, XmldbURI.create("doc" + i + ".xml"), xml);
+                    collection.store(transaction, broker, indexInfo, xml);
+                }
+            }
+            transaction.commit();
+        }
+
+        // evict the collection, so that it is read from disk again
+        pool.getCollectionsCache().invalidate(collectionUri);
+
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+             final Collection collection = broker.openCollection(collectionUri, Lock.LockMode.READ_LOCK)) {
+            final Set<String> names = new HashSet<>();
+            final Iterator<DocumentImpl> documents = collection.iterator(broker);
+            while (documents.hasNext()) {
+                assertTrue(names.add(documents.next().getFileURI().toString()));
+            }
+            assertEquals(documentCount, names.size());
+            assertEquals(documentCount, collection.getDocumentCount(broker));
+        }
+    }
+
+    @Test
+    public void lookupByNameAfterNamesRead() throws EXistException, PermissionDeniedException, IOException, SAXException, LockException, TriggerException {
+        final XmldbURI collectionUri = XmldbURI.ROOT_COLLECTION_URI.append("testLazyDocumentsNames");
+        final XmldbURI binaryName = XmldbURI.create("binary.txt");
+        final XmldbURI xmlName = XmldbURI.create("document.xml");
+
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+             final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            broker.getOrCreateCollection(transaction, collectionUri);
+            try (final Collection collection = broker.openCollection(collectionUri, Lock.LockMode.WRITE_LOCK)) {
+                collection.addBinaryResource(transaction, broker, binaryName, "binary".getBytes(UTF_8), "text/plain");
+                final String xml = "<document/>";
+                final IndexInfo indexInfo = collection.validateXMLResource(transaction, broker, xmlName, xml);
+                collection.store(transaction, broker, indexInfo, xml);
+            }
+            transaction.commit();
+        }
+
+        // evict the collection, so that it is read from disk again
+        pool.getCollectionsCache().invalidate(collectionUri);
+
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            try (final Txn transaction = pool.getTransactionManager().beginTransaction();
+                 final Collection collection = broker.openCollection(collectionUri, Lock.LockMode.WRITE_LOCK)) {
+                // both types of document entries are found by name
+                assertTrue(collection.getDocument(broker, binaryName) instanceof BinaryDocument);
+                final DocumentImpl doc = collection.getDocument(broker, xmlName);
+                assertNotNull(doc);
+                assertEquals(DocumentImpl.XML_FILE, doc.getResourceType());
+
+                // the names which were read are not used for documents which are replaced or removed later
+                final String xml = "<replaced/>";
+                final IndexInfo indexInfo = collection.validateXMLResource(transaction, broker, xmlName, xml);
+                collection.store(transaction, broker, indexInfo, xml);
+                collection.removeBinaryResource(transaction, broker, binaryName);
+                transaction.commit();
+
+                assertNull(collection.getDocument(broker, binaryName));
+                assertEquals("replaced", collection.getDocument(broker, xmlName).getDocumentElement().getLocalName());
+                assertEquals(1, collection.getDocumentCount(broker));
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.collections.triggers;
+
+import org.exist.EXistException;
+import org.exist.storage.BrokerPool;
+import org.exist.test.ExistXmldbEmbeddedServer;
+import org.exist.xmldb.EXistResource;
+import org.exist.xmldb.IndexQueryService;
+import org.exist.xmldb.XmldbURI;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.ResourceSet;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.BinaryResource;
+import org.xmldb.api.modules.CollectionManagementService;
+import org.xmldb.api.modules.XMLResource;
+import org.xmldb.api.modules.XPathQueryService;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the asynchronous mode of {@link XQueryTrigger}.
+ */
+public class AsyncXQueryTriggerTest {
+
+    @ClassRule
+    public static final ExistXmldbEmbeddedServer existEmbeddedServer = new ExistXmldbEmbeddedServer(false, true, true);
+
+    private static final String TEST_COLLECTION = "testAsyncXQueryTrigger";
+    private static final String LOG_COLLECTION = "testAsyncXQueryTriggerLog";
+    private static final String LOG_NAME = "log.xml";
+    private static final String MODULE_NAME = "trigger.xqm";
+    private static final int BATCH_SIZE = 10;
+    private static final long TIMEOUT = 30_000;
+
+    private static final String LOG = "doc('" + XmldbURI.ROOT_COLLECTION + "/" + LOG_COLLECTION + "/" + LOG_NAME + "')";
+
+    /** after-create-document accepts many URIs and is called per batch, after-delete-document per event */
+    private static final String MODULE =
+            "module namespace trigger='http://exist-db.org/xquery/trigger'; " +
+            "declare function trigger:after-create-document($uris as xs:anyURI*) {" +
+            "  update insert <batch>{ for $uri in $uris return <uri>{$uri}</uri> }</batch> into " + LOG + "/log" +
+            "};" +
+            "declare function trigger:after-delete-document($uri as xs:anyURI) {" +
+            "  update insert <deleted>{$uri}</deleted> into " + LOG + "/log" +
+            "};";
+
+    private static final String COLLECTION_CONFIG =
+            "<exist:collection xmlns:exist='http://exist-db.org/collection-config/1.0'>" +
+            "  <exist:triggers>" +
+            "     <exist:trigger class='org.exist.collections.triggers.XQueryTrigger'>" +
+            "        <exist:parameter name='url' value='" + XmldbURI.LOCAL_DB + "/" + LOG_COLLECTION + "/" + MODULE_NAME + "'/>" +
+            "        <exist:parameter name='async' value='true'/>" +
+            "        <exist:parameter name='async-accept-loss' value='true'/>" +
+            "        <exist:parameter name='async-batch-size' value='" + BATCH_SIZE + "'/>" +
+            "     </exist:trigger>" +
+            "  </exist:triggers>" +
+            "</exist:collection>";
+
+    private Collection testCollection;
+    private Collection logCollection;
+
+    @Before
+    public void setup() throws XMLDBException {
+        final CollectionManagementService service = (CollectionManagementService) existEmbeddedServer.getRoot()
+                .getService("CollectionManagementService", "1.0");
+        logCollection = service.createCollection(LOG_COLLECTION);
+        assertNotNull(logCollection);
+
+        final XMLResource log = (XMLResource) logCollection.createResource(LOG_NAME, XMLResource.RESOURCE_TYPE);
+        log.setContent("<log/>");
+        logCollection.storeResource(log);
+
+        final BinaryResource module = (BinaryResource) logCollection.createResource(MODULE_NAME, BinaryResource.RESOURCE_TYPE);
+        ((EXistResource) module).setMimeType("application/xquery");
+        module.setContent(MODULE.getBytes(UTF_8));
+        logCollection.storeResource(module);
+
+        testCollection = service.createCollection(TEST_COLLECTION);
+        assertNotNull(testCollection);
+        final IndexQueryService idxConf = (IndexQueryService) testCollection.getService("IndexQueryService", "1.0");
+        idxConf.configureCollection(COLLECTION_CONFIG);
+    }
+
+    @After
+    public void cleanup() throws XMLDBException {
+        final IndexQueryService idxConf = (IndexQueryService) testCollection.getService("IndexQueryService", "1.0");
+        idxConf.configureCollection("<exist:collection xmlns:exist='http://exist-db.org/collection-config/1.0'/>");
+
+        final CollectionManagementService service = (CollectionManagementService) existEmbeddedServer.getRoot()
+                .getService("CollectionManagementService", "1.0");
+        service.removeCollection(TEST_COLLECTION);
+        service.removeCollection(LOG_COLLECTION);
+        testCollection = null;
+        logCollection = null;
+    }
+
+    @Test
+    public void deliveredInBatches() throws XMLDBException, EXistException, InterruptedException {
+        final int count = 25;
+        final long delivered = getDelivered();
+        final long failed = getFailed();
+        for (int i = 0; i < count; i++) {
+            final XMLResource doc = (XMLResource) testCollection.createResource("doc" + i + ".xml", XMLResource.RESOURCE_TYPE);
+            doc.setContent("<doc n='" + i + "'/>");
+            testCollection.storeResource(doc);
+        }
+
+        awaitDelivered(delivered + failed + count);
+        assertEquals(failed, getFailed());
+
+        final XPathQueryService service = (XPathQueryService) logCollection.getService("XPathQueryService", "1.0");
+        assertEquals(String.valueOf(count), query(service, "count(" + LOG + "//uri)"));
+        assertEquals(String.valueOf(count), query(service, "count(distinct-values(" + LOG + "//uri))"));
+        assertEquals("true", query(service, "every $batch in " + LOG + "//batch satisfies count($batch/uri) le " + BATCH_SIZE));
+        assertTrue(Integer.parseInt(query(service, "count(" + LOG + "//batch)")) >= (count + BATCH_SIZE - 1) / BATCH_SIZE);
+    }
+
+    @Test
+    public void deliveredPerEvent() throws XMLDBException, EXistException, InterruptedException {
+        final long delivered = getDelivered();
+        final long failed = getFailed();
+        final XMLResource doc = (XMLResource) testCollection.createResource("doc.xml", XMLResource.RESOURCE_TYPE);
+        doc.setContent("<doc/>");
+        testCollection.storeResource(doc);
+        testCollection.removeResource(testCollection.getResource("doc.xml"));
+
+        awaitDelivered(delivered + failed + 2);
+        assertEquals(failed, getFailed());
+
+        final XPathQueryService service = (XPathQueryService) logCollection.getService("XPathQueryService", "1.0");
+        assertEquals(XmldbURI.ROOT_COLLECTION + "/" + TEST_COLLECTION + "/doc.xml", query(service, "string(" + LOG + "//deleted)"));
+    }
+
+    @Test
+    public void fullQueueRejects() throws EXistException {
+        final AsyncTriggerDispatcher.TriggerQueue queue = BrokerPool.getInstance().getAsyncTriggerDispatcher()
+                .getQueue("full-queue-test", 1, 1, (broker, transaction, events) -> {});
+        final long rejected = queue.getRejected();
+
+        assertTrue(queue.tryReserve());
+        assertFalse(queue.tryReserve());
+        assertEquals(rejected + 1, queue.getRejected());
+
+        queue.release();
+        assertTrue(queue.tryReserve());
+        queue.release();
+    }
+
+    private static void awaitDelivered(final long count) throws EXistException, InterruptedException {
+        final long start = System.currentTimeMillis();
+        while (getDelivered() + getFailed() < count) {
+            if (System.currentTimeMillis() - start > TIMEOUT) {
+                fail("Events have not been delivered within " + TIMEOUT + " ms");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static long getDelivered() throws EXistException {
+        final AsyncTriggerDispatcher.TriggerQueue queue = getQueue();
+        return queue == null ? 0 : queue.getDelivered();
+    }
+
+    private static long getFailed() throws EXistException {
+        final AsyncTriggerDispatcher.TriggerQueue queue = getQueue();
+        return queue == null ? 0 : queue.getFailed();
+    }
+
+    private static AsyncTriggerDispatcher.TriggerQueue getQueue() throws EXistException {
+        for (final AsyncTriggerDispatcher.TriggerQueue queue : BrokerPool.getInstance().getAsyncTriggerDispatcher().getQueues()) {
+            if (queue.getId().startsWith(XmldbURI.ROOT_COLLECTION + "/" + TEST_COLLECTION + " ")) {
+                return queue;
+            }
+        }
+        return null;
+    }
+
+    private static String query(final XPathQueryService service, final String query) throws XMLDBException {
+        final ResourceSet result = service.query(query);
+        assertEquals(1, result.getSize());
+        return result.getResource(0).getContent().toString();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2017 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.exist.dom.memtree;
+
+import org.exist.dom.QName;
+import org.exist.numbering.NodeId;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xquery.AnyNodeTest;
+import org.exist.xquery.TypeTest;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.value.Type;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentImplNodeIdTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    /**
+     * Builds {@code <root a="1" b="2"><x/>text<y c="3"><z/></y></root>}
+     */
+    private static DocumentImpl buildDocument() {
+        final MemTreeBuilder builder = new MemTreeBuilder();
+        builder.startDocument();
+        builder.startElement(new QName("root", ""), null);
+        builder.addAttribute(new QName("a", ""), "1");
+        builder.addAttribute(new QName("b", ""), "2");
+        builder.startElement(new QName("x", ""), null);
+        builder.endElement();
+        builder.characters("text");
+        builder.startElement(new QName("y", ""), null);
+        builder.addAttribute(new QName("c", ""), "3");
+        builder.startElement(new QName("z", ""), null);
+        builder.endElement();
+        builder.endElement();
+        builder.endElement();
+        builder.endDocument();
+        return builder.getDocument();
+    }
+
+    @Test
+    public void nodeIds() {
+        final DocumentImpl doc = buildDocument();
+        final ElementImpl root = (ElementImpl) doc.getDocumentElement();
+        assertEquals("1", root.getNodeId().toString());
+        assertEquals("1.1", ((AttrImpl) root.getAttributeNode("a")).getNodeId().toString());
+        assertEquals("1.2", ((AttrImpl) root.getAttributeNode("b")).getNodeId().toString());
+
+        final NodeImpl x = (NodeImpl) root.getFirstChild();
+        assertEquals("1.3", x.getNodeId().toString());
+        final NodeImpl text = (NodeImpl) x.getNextSibling();
+        assertEquals(Node.TEXT_NODE, text.getNodeType());
+        assertEquals("1.4", text.getNodeId().toString());
+
+        final ElementImpl y = (ElementImpl) text.getNextSibling();
+        assertEquals("1.5", y.getNodeId().toString());
+        assertEquals("1.5.1", ((AttrImpl) y.getAttributeNode("c")).getNodeId().toString());
+        final NodeImpl z = (NodeImpl) y.getFirstChild();
+        assertEquals("1.5.2", z.getNodeId().toString());
+    }
+
+    @Test
+    public void nodeById() {
+        final DocumentImpl doc = buildDocument();
+        final NodeId id = doc.getNodeId(doc.getLastNode());
+        assertEquals("1.5.2", id.toString());
+        final NodeImpl z = doc.getNodeById(id);
+        assertEquals("z", z.getLocalName());
+        assertNull(doc.getNodeById(id.nextSibling()));
+    }
+
+    @Test
+    public void nodeIdsAreKept() {
+        final DocumentImpl doc = buildDocument();
+        final NodeId id = doc.getNodeId(doc.getLastNode());
+        assertSame(id, doc.getNodeId(doc.getLastNode()));
+        // the ids of the ancestors are kept too
+        final ElementImpl root = (ElementImpl) doc.getDocumentElement();
+        assertSame(root.getNodeId(), root.getNodeId());
+        assertTrue(id.isDescendantOf(root.getNodeId()));
+    }
+
+    @Test
+    public void nodeByIdOfRootAndAttribute() {
+        final DocumentImpl doc = buildDocument();
+        final ElementImpl root = (ElementImpl) doc.getDocumentElement();
+        assertEquals("root", doc.getNodeById(root.getNodeId()).getLocalName());
+        assertEquals(Node.DOCUMENT_NODE, doc.getNodeById(doc.getNodeId(0)).getNodeType());
+        // attributes are not found by id
+        assertNull(doc.getNodeById(((AttrImpl) root.getAttributeNode("a")).getNodeId()));
+    }
+
+    @Test
+    public void precedingAndFollowing() throws XPathException {
+        final DocumentImpl doc = buildDocument();
+        final ElementImpl root = (ElementImpl) doc.getDocumentElement();
+        final NodeImpl x = (NodeImpl) root.getFirstChild();
+        final ElementImpl y = (ElementImpl) x.getNextSibling().getNextSibling();
+        final NodeImpl z = (NodeImpl) y.getFirstChild();
+
+        // the ancestors root and y are not on the preceding axis
+        final InMemoryNodeSet preceding = new InMemoryNodeSet();
+        z.selectPreceding(new TypeTest(Type.ELEMENT), preceding, -1);
+        assertEquals(1, preceding.getItemCount());
+        assertEquals("x", ((NodeImpl) preceding.itemAt(0)).getLocalName());
+
+        // the descendant z is not on the following axis of y, but it is for x
+        final InMemoryNodeSet followingY = new InMemoryNodeSet();
+        y.selectFollowing(new AnyNodeTest(), followingY, -1);
+        assertEquals(0, followingY.getItemCount());
+        final InMemoryNodeSet followingX = new InMemoryNodeSet();
+        x.selectFollowing(new AnyNodeTest(), followingX, -1);
+        assertEquals(3, followingX.getItemCount());
+    }
+
+    @Test
+    public void childrenForParent() throws XPathException {
+        final DocumentImpl doc = buildDocument();
+        final ElementImpl root = (ElementImpl) doc.getDocumentElement();
+        final NodeImpl x = (NodeImpl) root.getFirstChild();
+        final ElementImpl y = (ElementImpl) x.getNextSibling().getNextSibling();
+
+        final InMemoryNodeSet nodes = new InMemoryNodeSet();
+        nodes.add(x);
+        nodes.add((NodeImpl) y.getAttributeNode("c"));
+        nodes.add((NodeImpl) y.getFirstChild());
+        assertEquals(2, nodes.getChildrenForParent(y).getItemCount());
+        assertEquals(1, nodes.getChildrenForParent(root).getItemCount());
+        assertEquals(0, nodes.getChildrenForParent(doc).getItemCount());
+    }
+
+    @Test
+    public void attributeValues() {
+        final DocumentImpl doc = buildDocument();
+        final Element root = doc.getDocumentElement();
+        assertEquals("1", root.getAttribute("a"));
+        assertEquals("2", root.getAttribute("b"));
+
+        final Attr b = root.getAttributeNode("b");
+        b.setValue("two");
+        assertEquals("two", b.getValue());
+        assertEquals("1", root.getAttribute("a"));
+        assertEquals(root, b.getOwnerElement());
+    }
+}
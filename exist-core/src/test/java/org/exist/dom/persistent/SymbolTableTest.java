@@ -10,12 +10,20 @@ import org.exist.storage.io.VariableByteOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
 import org.exist.util.Configuration;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -202,6 +210,47 @@ public class SymbolTableTest {
         symbolTable.close();
     }
 
+    @Test
+    public void concurrent_symbols_are_unique_and_stable() throws IOException, BrokerPoolServiceException, InterruptedException, ExecutionException {
+        final Path tmpDir = createTempDir();
+        SymbolTable symbolTable = createSymbolTable(tmpDir);
+
+        final int threads = 8;
+        final int names = 500;
+        final SymbolTable concurrentSymbolTable = symbolTable;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<short[]>> futures = new ArrayList<>();
+        final short[] expected;
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    final short[] ids = new short[names];
+                    for (int i = 0; i < names; i++) {
+                        final String name = "name-" + i;
+                        ids[i] = concurrentSymbolTable.getSymbol(name);
+                        assertEquals(name, concurrentSymbolTable.getName(ids[i]));
+                    }
+                    return ids;
+                }));
+            }
+
+            expected = futures.get(0).get();
+            for (final Future<short[]> future : futures) {
+                assertArrayEquals(expected, future.get());
+            }
+            assertEquals(names, IntStream.range(0, names).map(i -> expected[i]).distinct().count());
+        } finally {
+            executor.shutdownNow();
+        }
+        symbolTable.close();
+
+        symbolTable = createSymbolTable(tmpDir);
+        for (int i = 0; i < names; i++) {
+            assertEquals("name-" + i, symbolTable.getName(expected[i]));
+        }
+        symbolTable.close();
+    }
+
     private static Path createTempDir() throws IOException {
         return Files.createTempDirectory("exist-symbolTableTest");
     }
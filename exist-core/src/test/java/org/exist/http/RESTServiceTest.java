@@ -58,6 +58,8 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeThat;
 
@@ -609,6 +611,34 @@ try {
         }
     }
 
+    @Test
+    public void queryGetStreamed() throws IOException {
+        final String uri = getCollectionUri()
+                + "?_stream=yes&_wrap=yes&_start=11&_howmany=5&_query="
+                + URLEncoder.encode("for $i in 1 to 100 return <i>{$i}</i>", UTF_8.displayName());
+        final HttpURLConnection connect = getConnection(uri);
+        try {
+            connect.setRequestMethod("GET");
+            connect.connect();
+
+            final int r = connect.getResponseCode();
+            assertEquals("Server returned response code " + r, HttpStatus.OK_200, r);
+            assertEquals("chunked", connect.getHeaderField("Transfer-Encoding"));
+            assertNull(connect.getHeaderField("X-Session-Id"));
+
+            final String data = readResponse(connect.getInputStream());
+            assertThat(data, containsString("exist:start=\"11\""));
+            assertThat(data, not(containsString("exist:hits")));
+            assertThat(data, not(containsString("<i>10</i>")));
+            for (int i = 11; i < 16; i++) {
+                assertThat(data, containsString("<i>" + i + "</i>"));
+            }
+            assertThat(data, not(containsString("<i>16</i>")));
+        } finally {
+            connect.disconnect();
+        }
+    }
+
     @Test
     public void requestModule() throws IOException {
         String uri = getCollectionUri() + "?_query=request:get-uri()&_wrap=no";
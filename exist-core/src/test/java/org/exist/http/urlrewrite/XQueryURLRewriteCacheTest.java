@@ -0,0 +1,125 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2018 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.http.urlrewrite;
+
+import org.exist.http.urlrewrite.XQueryURLRewrite.ModelAndView;
+import org.exist.http.urlrewrite.XQueryURLRewrite.SourceInfo;
+import org.exist.security.PermissionDeniedException;
+import org.exist.source.Source;
+import org.exist.storage.DBBroker;
+import org.junit.Test;
+
+import javax.servlet.ServletConfig;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the cache of model and view configurations of {@link XQueryURLRewrite}.
+ */
+public class XQueryURLRewriteCacheTest {
+
+    @Test
+    public void hit() throws PermissionDeniedException {
+        final XQueryURLRewrite rewriter = rewriter(16);
+        final DBBroker broker = createNiceMock(DBBroker.class);
+        replay(broker);
+
+        final ModelAndView model = model(source("/db/apps/a/controller.xql", Source.Validity.VALID));
+        rewriter.putInCache("localhost/exist/apps/a/", model);
+
+        assertSame(model, rewriter.getFromCache("localhost/exist/apps/a/", broker));
+        assertSame(model, rewriter.getFromCache("localhost/exist/apps/a/", broker));
+        assertNull(rewriter.getFromCache("localhost/exist/apps/b/", broker));
+
+        assertEquals(2, rewriter.getUrlCacheStats().hitCount());
+        assertEquals(1, rewriter.getUrlCacheStats().missCount());
+        assertEquals(1, rewriter.getUrlCacheEntries());
+    }
+
+    @Test
+    public void eviction() throws PermissionDeniedException {
+        final int maxSize = 8;
+        final XQueryURLRewrite rewriter = rewriter(maxSize);
+        assertEquals(maxSize, rewriter.getUrlCacheMaxSize());
+
+        final Source source = source("/db/apps/a/controller.xql", Source.Validity.VALID);
+        for (int i = 0; i < maxSize * 4; i++) {
+            rewriter.putInCache("localhost/exist/apps/a/" + i, model(source));
+        }
+        rewriter.cleanUpUrlCache();
+
+        assertTrue(rewriter.getUrlCacheEntries() <= maxSize);
+        assertEquals(maxSize * 4 - rewriter.getUrlCacheEntries(), rewriter.getUrlCacheStats().evictionCount());
+    }
+
+    @Test
+    public void invalidation() throws PermissionDeniedException {
+        final XQueryURLRewrite rewriter = rewriter(16);
+        final DBBroker broker = createNiceMock(DBBroker.class);
+        replay(broker);
+
+        final Source changed = source("/db/apps/a/controller.xql", Source.Validity.INVALID);
+        final Source unchanged = source("/db/apps/b/controller.xql", Source.Validity.VALID);
+        rewriter.putInCache("localhost/exist/apps/a/1", model(changed));
+        rewriter.putInCache("localhost/exist/apps/a/2", model(changed));
+        final ModelAndView other = model(unchanged);
+        rewriter.putInCache("localhost/exist/apps/b/", other);
+
+        // the controller has changed, so every entry which it produced is dropped
+        assertNull(rewriter.getFromCache("localhost/exist/apps/a/1", broker));
+        assertEquals(1, rewriter.getUrlCacheEntries());
+        assertNull(rewriter.getFromCache("localhost/exist/apps/a/2", broker));
+        assertSame(other, rewriter.getFromCache("localhost/exist/apps/b/", broker));
+
+        rewriter.clearCaches();
+        assertEquals(0, rewriter.getUrlCacheEntries());
+    }
+
+    private static XQueryURLRewrite rewriter(final int urlCacheSize) {
+        final ServletConfig config = createNiceMock(ServletConfig.class);
+        expect(config.getInitParameter("url-cache-size")).andReturn(String.valueOf(urlCacheSize)).anyTimes();
+        replay(config);
+
+        final XQueryURLRewrite rewriter = new XQueryURLRewrite();
+        rewriter.init(config);
+        return rewriter;
+    }
+
+    private static Source source(final String path, final Source.Validity validity) throws PermissionDeniedException {
+        final Source source = createNiceMock(Source.class);
+        expect(source.path()).andReturn(path).anyTimes();
+        expect(source.isValid(anyObject(DBBroker.class))).andReturn(validity).anyTimes();
+        replay(source);
+        return source;
+    }
+
+    private static ModelAndView model(final Source source) {
+        final ModelAndView model = new ModelAndView();
+        model.setSourceInfo(new SourceInfo(source, "xmldb:exist:///db/apps"));
+        return model;
+    }
+}
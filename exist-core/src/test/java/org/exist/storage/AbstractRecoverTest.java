@@ -39,8 +39,8 @@ import org.exist.util.FileUtils;
 import org.exist.util.LockException;
 import org.exist.xmldb.XmldbURI;
 import org.junit.After;
+import org.junit.Before;
 import org.junit.Ignore;
-import org.junit.Rule;
 import org.junit.Test;
 import org.xml.sax.InputSource;
 
@@ -49,6 +49,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.Properties;
 
 import static org.junit.Assert.*;
 
@@ -66,14 +67,34 @@ public abstract class AbstractRecoverTest {
     /**
      * We set useTemporaryStorage=true for ExistEmbeddedServer
      * so that each test runs on its own data directory.
+     *
+     * The server is created by {@link #startDb()} rather than by a field
+     * initializer, so that subclasses can supply {@link #getConfigProperties()}.
      */
-    @Rule
-    public final ExistEmbeddedServer existEmbeddedServer =
-            new ExistEmbeddedServer(true, true);
+    protected ExistEmbeddedServer existEmbeddedServer;
+
+    /**
+     * Additional configuration properties for the database.
+     *
+     * @return the properties, or null to use the defaults
+     */
+    protected Properties getConfigProperties() {
+        return null;
+    }
+
+    @Before
+    public void startDb() throws DatabaseConfigurationException, EXistException, IOException {
+        existEmbeddedServer = new ExistEmbeddedServer(getConfigProperties(), true, true);
+        existEmbeddedServer.startDb();
+    }
 
     @After
     public void tearDown() {
         BrokerPool.FORCE_CORRUPTION = false;
+        if (existEmbeddedServer != null) {
+            existEmbeddedServer.stopDb();
+            existEmbeddedServer = null;
+        }
     }
 
     @Test
@@ -33,6 +33,7 @@ import java.util.concurrent.*;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 /**
@@ -165,9 +166,14 @@ public class BrokerPoolTest {
             // we should not be able to acquire an additional broker, as we have already leased max
             Thread.sleep(500);  // just to ensure the other thread has done something
             assertEquals(1, additionalBrokerAcquiredLatch.getCount());
+            assertEquals(1, pool.countWaitingForBroker());
+            final long waitingSince = System.nanoTime();
+            final long waitCount = pool.getBrokerWaitCount();
 
             // we will now release a previously acquired broker (i.e. the first broker)... this should then allow the lease of an additional broker to advance
             assertEquals(1, firstBrokerReleaseLatch.getCount());
+            // the additional broker lease was already waiting when we checked, so it waits at least until the release
+            final long minWaitTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitingSince);
             firstBrokerReleaseLatch.countDown();
             assertEquals(0, firstBrokerReleaseLatch.getCount());
             firstBrokerUser.join(); // wait for the first broker lease thread to complete
@@ -175,6 +181,9 @@ public class BrokerPoolTest {
             // check that the additional broker lease has now been acquired
             Thread.sleep(500);  // just to ensure the other thread has done something
             assertEquals(0, additionalBrokerAcquiredLatch.getCount());
+            assertEquals(0, pool.countWaitingForBroker());
+            assertEquals(waitCount + 1, pool.getBrokerWaitCount());
+            assertTrue(pool.getMaxBrokerWaitTime() >= minWaitTime);
 
         } finally {
             // release all brokers from brokerUsers
@@ -185,6 +194,43 @@ public class BrokerPoolTest {
         }
     }
 
+    /**
+     * Checks that entering service mode waits for
+     * the brokers leased by other threads to be returned.
+     */
+    @Test
+    public void serviceModeWaitsForLeasedBrokers() throws Exception {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final Subject sysUser = pool.getSecurityManager().getSystemSubject();
+
+        final CountDownLatch acquiredLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final Thread brokerUser = new Thread(new BrokerUser(pool, acquiredLatch, releaseLatch), "brokerUser");
+        brokerUser.start();
+        acquiredLatch.await();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<?> serviceMode = executor.submit(() -> {
+                pool.enterServiceMode(sysUser);
+                return null;
+            });
+
+            // the broker is still leased, so service mode must not have been entered yet
+            Thread.sleep(500);
+            assertFalse(serviceMode.isDone());
+
+            releaseLatch.countDown();
+            brokerUser.join();
+
+            serviceMode.get(10, TimeUnit.SECONDS);
+        } finally {
+            releaseLatch.countDown();
+            executor.shutdownNow();
+            pool.exitServiceMode(sysUser);
+        }
+    }
+
     public static class BrokerUser implements Runnable {
 
         final BrokerPool brokerPool;
@@ -0,0 +1,170 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2018 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.collections.IndexInfo;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.lock.Lock.LockMode;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.LockException;
+import org.exist.xmldb.XmldbURI;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQuery;
+import org.exist.xquery.value.Sequence;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotNull;
+
+public class BulkLoaderTest {
+
+    @ClassRule
+    public static ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    private static final XmldbURI TEST_COLLECTION = XmldbURI.create("/db/bulk-load-test");
+
+    private static final int DOCUMENT_COUNT = 25;
+
+    @BeforeClass
+    public static void setup() throws EXistException, PermissionDeniedException, IOException, SAXException, LockException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            try (final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+                final Collection collection = broker.getOrCreateCollection(transaction, TEST_COLLECTION);
+                assertNotNull(collection);
+                broker.saveCollection(transaction, collection);
+                transaction.commit();
+            }
+
+            try (final BulkLoader loader = new BulkLoader(broker, TEST_COLLECTION)) {
+                for (int i = 0; i < DOCUMENT_COUNT; i++) {
+                    loader.store(XmldbURI.create("doc" + i + ".xml"),
+                            "<items><item id='a" + i + "'>first</item><item id='b" + i + "'><name>second</name></item></items>");
+                }
+                assertEquals(DOCUMENT_COUNT, loader.getDocumentCount());
+            }
+            assertNull(broker.getDeferredIndexingDocument());
+        }
+    }
+
+    @Test
+    public void structuralIndex() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals("50", query("count(collection('" + TEST_COLLECTION + "')//item)"));
+        assertEquals("50", query("count(collection('" + TEST_COLLECTION + "')//@id)"));
+        assertEquals("25", query("count(collection('" + TEST_COLLECTION + "')//item/name)"));
+    }
+
+    @Test
+    public void nodes() throws EXistException, PermissionDeniedException, XPathException {
+        assertEquals("second", query("string(doc('" + TEST_COLLECTION + "/doc7.xml')//item[@id = 'b7'])"));
+        assertEquals(String.valueOf(DOCUMENT_COUNT), query("count(collection('" + TEST_COLLECTION + "'))"));
+    }
+
+    @Test
+    public void pendingFileRemoved() throws IOException {
+        final Path pendingDir = existEmbeddedServer.getBrokerPool().getStoragePlace().resolve(BulkLoader.PENDING_DIR);
+        try (final Stream<Path> files = Files.list(pendingDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void otherDocumentsIndexedWhileLoading() throws EXistException, PermissionDeniedException, IOException,
+            SAXException, LockException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+             final BulkLoader loader = new BulkLoader(broker, TEST_COLLECTION)) {
+            loader.store(XmldbURI.create("loaded.xml"), "<loaded/>");
+            store(broker, XmldbURI.create("plain.xml"), "<plain/>");
+
+            assertEquals("0", query("count(collection('" + TEST_COLLECTION + "')//loaded)"));
+            assertEquals("1", query("count(collection('" + TEST_COLLECTION + "')//plain)"));
+        } finally {
+            remove("loaded.xml");
+            remove("plain.xml");
+        }
+    }
+
+    @Test
+    public void pendingDocumentsReindexed() throws EXistException, PermissionDeniedException, IOException,
+            SAXException, LockException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final XmldbURI name = XmldbURI.create("interrupted.xml");
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            // simulate a bulk load which was interrupted before its indexes were built
+            broker.setDeferredIndexingDocument(TEST_COLLECTION.append(name));
+            try {
+                store(broker, name, "<interrupted/>");
+            } finally {
+                broker.setDeferredIndexingDocument(null);
+            }
+            final Path pendingFile = pool.getStoragePlace().resolve(BulkLoader.PENDING_DIR).resolve("test.pending");
+            Files.write(pendingFile, (TEST_COLLECTION.append(name) + "\n").getBytes(StandardCharsets.UTF_8));
+            assertEquals("0", query("count(collection('" + TEST_COLLECTION + "')//interrupted)"));
+
+            BulkLoader.reindexPending(broker);
+
+            assertEquals("1", query("count(collection('" + TEST_COLLECTION + "')//interrupted)"));
+            assertFalse(Files.exists(pendingFile));
+        } finally {
+            remove(name.toString());
+        }
+    }
+
+    private static void store(final DBBroker broker, final XmldbURI name, final String data)
+            throws EXistException, PermissionDeniedException, IOException, SAXException, LockException {
+        final BrokerPool pool = broker.getBrokerPool();
+        try (final Txn transaction = pool.getTransactionManager().beginTransaction();
+             final Collection collection = broker.openCollection(TEST_COLLECTION, LockMode.WRITE_LOCK)) {
+            final IndexInfo info = collection.validateXMLResource(transaction, broker, name, data);
+            collection.store(transaction, broker, info, data);
+            transaction.commit();
+        }
+    }
+
+    private static void remove(final String name) throws EXistException, PermissionDeniedException, XPathException {
+        query("(xmldb:remove('" + TEST_COLLECTION + "', '" + name + "'), 'removed')");
+    }
+
+    private static String query(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            final XQuery xquery = pool.getXQueryService();
+            final Sequence result = xquery.execute(broker, query, null);
+            assertEquals(1, result.getItemCount());
+            return result.itemAt(0).getStringValue();
+        }
+    }
+}
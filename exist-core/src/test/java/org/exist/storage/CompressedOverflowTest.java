@@ -0,0 +1,90 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.EXistException;
+import org.exist.collections.Collection;
+import org.exist.collections.IndexInfo;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.txn.Txn;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.test.TestConstants;
+import org.exist.util.DatabaseConfigurationException;
+import org.exist.util.LockException;
+import org.exist.xmldb.XmldbURI;
+import org.exist.xquery.XPathException;
+import org.exist.xquery.XQuery;
+import org.exist.xquery.value.Sequence;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test storage of large node values in LZ4 compressed overflow pages.
+ */
+public class CompressedOverflowTest {
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(properties(), true, true);
+
+    private static Properties properties() {
+        final Properties properties = new Properties();
+        properties.put(BrokerPool.PROPERTY_DOM_OVERFLOW_COMPRESSION, "lz4");
+        return properties;
+    }
+
+    @Test
+    public void storeAndRead() throws EXistException, PermissionDeniedException, IOException, SAXException, LockException, DatabaseConfigurationException, XPathException {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("The quick brown fox jumps over the lazy dog ").append(i).append(". ");
+        }
+        final String xml = "<text><p>" + text + "</p><p>" + text + "</p></text>";
+
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()));
+                final Txn transaction = pool.getTransactionManager().beginTransaction()) {
+            final Collection root = broker.getOrCreateCollection(transaction, TestConstants.TEST_COLLECTION_URI);
+            broker.saveCollection(transaction, root);
+            final IndexInfo info = root.validateXMLResource(transaction, broker, XmldbURI.create("compressed.xml"), xml);
+            root.store(transaction, broker, info, xml);
+            transaction.commit();
+        }
+
+        // read from disk, not from the page caches
+        existEmbeddedServer.restart();
+
+        final BrokerPool restartedPool = existEmbeddedServer.getBrokerPool();
+        try (final DBBroker broker = restartedPool.get(Optional.of(restartedPool.getSecurityManager().getSystemSubject()))) {
+            final XQuery xquery = restartedPool.getXQueryService();
+            final Sequence result = xquery.execute(broker,
+                    "doc('" + TestConstants.TEST_COLLECTION_URI.append("compressed.xml") + "')//p ! string(.)", null);
+            assertEquals(2, result.getItemCount());
+            assertEquals(text.toString(), result.itemAt(0).getStringValue());
+            assertEquals(text.toString(), result.itemAt(1).getStringValue());
+        }
+    }
+}
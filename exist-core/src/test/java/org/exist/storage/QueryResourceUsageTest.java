@@ -0,0 +1,118 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2018 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QueryResourceUsageTest {
+
+    @Test
+    public void recordOnlyWhileAttached() {
+        final QueryResourceUsage usage = new QueryResourceUsage();
+
+        QueryResourceUsage.recordIndexLookup();
+        usage.attach();
+        QueryResourceUsage.recordIndexLookup();
+        QueryResourceUsage.recordCacheAccess(true);
+        QueryResourceUsage.recordCacheAccess(true);
+        QueryResourceUsage.recordCacheAccess(false);
+        QueryResourceUsage.recordNodeMaterialized();
+        QueryResourceUsage.recordPageRead("dom.dbx");
+        QueryResourceUsage.recordPageRead("dom.dbx");
+        QueryResourceUsage.recordPageRead("collections.dbx");
+        usage.detach();
+        QueryResourceUsage.recordIndexLookup();
+
+        assertEquals(1, usage.getIndexLookups());
+        assertEquals(2, usage.getCacheHits());
+        assertEquals(1, usage.getCacheMisses());
+        assertEquals(1, usage.getNodesMaterialized());
+        assertEquals(3, usage.getTotalPagesRead());
+        assertEquals(Long.valueOf(2), usage.getPagesRead().get("dom.dbx"));
+        assertEquals(Long.valueOf(1), usage.getPagesRead().get("collections.dbx"));
+    }
+
+    @Test
+    public void nestedQueriesReportToOuter() {
+        final QueryResourceUsage outer = new QueryResourceUsage();
+        final QueryResourceUsage inner = new QueryResourceUsage();
+
+        outer.attach();
+        QueryResourceUsage.recordIndexLookup();
+        inner.attach();
+        QueryResourceUsage.recordIndexLookup();
+        inner.detach();
+        QueryResourceUsage.recordIndexLookup();
+        outer.detach();
+
+        assertEquals(1, inner.getIndexLookups());
+        assertEquals(3, outer.getIndexLookups());
+    }
+
+    @Test
+    public void reattachSameQuery() {
+        final QueryResourceUsage usage = new QueryResourceUsage();
+
+        usage.attach();
+        usage.attach();
+        QueryResourceUsage.recordIndexLookup();
+        usage.detach();
+        QueryResourceUsage.recordIndexLookup();
+        usage.detach();
+        QueryResourceUsage.recordIndexLookup();
+
+        assertEquals(2, usage.getIndexLookups());
+    }
+
+    @Test
+    public void attachResetsCounters() {
+        final QueryResourceUsage usage = new QueryResourceUsage();
+
+        usage.attach();
+        QueryResourceUsage.recordNodeMaterialized();
+        usage.detach();
+        final QueryResourceUsage snapshot = usage.snapshot();
+
+        usage.attach();
+        usage.detach();
+
+        assertEquals(0, usage.getNodesMaterialized());
+        assertEquals(1, snapshot.getNodesMaterialized());
+    }
+
+    @Test
+    public void cpuTimeAndAllocations() {
+        final QueryResourceUsage usage = new QueryResourceUsage();
+
+        usage.attach();
+        long sum = 0;
+        for (int i = 0; i < 100_000; i++) {
+            sum += Integer.toString(i).length();
+        }
+        usage.detach();
+
+        assertTrue(sum > 0);
+        assertTrue(usage.getCpuTime() >= 0);
+        assertTrue(usage.getAllocatedBytes() >= 0);
+    }
+}
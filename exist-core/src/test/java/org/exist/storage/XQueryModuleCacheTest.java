@@ -0,0 +1,119 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage;
+
+import org.exist.test.ExistXmldbEmbeddedServer;
+import org.exist.xmldb.EXistResource;
+import org.exist.xmldb.XmldbURI;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.ResourceSet;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.BinaryResource;
+import org.xmldb.api.modules.CollectionManagementService;
+import org.xmldb.api.modules.XQueryService;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the parsed syntax trees of library modules are shared
+ * between queries, and are discarded when the module source changes.
+ */
+public class XQueryModuleCacheTest {
+
+    @ClassRule
+    public static final ExistXmldbEmbeddedServer existEmbeddedServer = new ExistXmldbEmbeddedServer(false, true, true);
+
+    private static final String COLLECTION_NAME = "module-cache-test";
+
+    private static final String MODULE_NS = "http://exist-db.org/test/module-cache";
+
+    private static final String IMPORT = "import module namespace mc = '" + MODULE_NS + "' at " +
+            "'xmldb:exist://" + XmldbURI.ROOT_COLLECTION + "/" + COLLECTION_NAME + "/mc.xqm';\n";
+
+    private Collection collection;
+
+    @Before
+    public void setup() throws XMLDBException {
+        final CollectionManagementService service =
+                (CollectionManagementService) existEmbeddedServer.getRoot().getService("CollectionManagementService", "1.0");
+        collection = service.createCollection(COLLECTION_NAME);
+        storeModule("first");
+    }
+
+    @After
+    public void tearDown() throws XMLDBException {
+        final CollectionManagementService service =
+                (CollectionManagementService) existEmbeddedServer.getRoot().getService("CollectionManagementService", "1.0");
+        service.removeCollection(COLLECTION_NAME);
+    }
+
+    @Test
+    public void moduleIsParsedOnceForDifferentQueries() throws Exception {
+        final XQueryModuleCache moduleCache = BrokerPool.getInstance().getXQueryModuleCache();
+        final long compilations = moduleCache.getCompilationCount();
+        final long hits = moduleCache.getHitCount();
+
+        assertEquals("first-1", query(IMPORT + "mc:hello() || '-1'"));
+        assertEquals(compilations + 1, moduleCache.getCompilationCount());
+
+        assertEquals("first-2", query(IMPORT + "mc:hello() || '-2'"));
+        assertEquals("first-3", query(IMPORT + "mc:hello() || '-3'"));
+        assertEquals(compilations + 1, moduleCache.getCompilationCount());
+        assertEquals(hits + 2, moduleCache.getHitCount());
+    }
+
+    @Test
+    public void modifiedModuleIsParsedAgain() throws Exception {
+        final XQueryModuleCache moduleCache = BrokerPool.getInstance().getXQueryModuleCache();
+
+        assertEquals("first-a", query(IMPORT + "mc:hello() || '-a'"));
+        final long compilations = moduleCache.getCompilationCount();
+        final long invalidations = moduleCache.getInvalidationCount();
+
+        // make sure the new module source has a later modification time
+        Thread.sleep(10);
+        storeModule("second");
+
+        assertEquals("second-b", query(IMPORT + "mc:hello() || '-b'"));
+        assertEquals(compilations + 1, moduleCache.getCompilationCount());
+        assertEquals(invalidations + 1, moduleCache.getInvalidationCount());
+    }
+
+    private void storeModule(final String greeting) throws XMLDBException {
+        final String module = "module namespace mc = '" + MODULE_NS + "';\n" +
+                "declare function mc:hello() { '" + greeting + "' };";
+        final BinaryResource res = (BinaryResource) collection.createResource("mc.xqm", "BinaryResource");
+        ((EXistResource) res).setMimeType("application/xquery");
+        res.setContent(module.getBytes(UTF_8));
+        collection.storeResource(res);
+    }
+
+    private String query(final String query) throws XMLDBException {
+        final XQueryService service = (XQueryService) collection.getService("XQueryService", "1.0");
+        final ResourceSet result = service.query(query);
+        assertEquals(1, result.getSize());
+        return (String) result.getResource(0).getContent();
+    }
+}
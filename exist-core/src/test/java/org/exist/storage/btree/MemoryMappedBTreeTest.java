@@ -0,0 +1,84 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.storage.btree;
+
+import org.exist.storage.BrokerPool;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.util.PropertiesBuilder;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a B+tree can be read back through a memory mapped file.
+ */
+public class MemoryMappedBTreeTest {
+
+    private final static byte BTREE_TEST_FILE_ID = 0x7F;
+    private final static short BTREE_TEST_FILE_VERSION = Short.MIN_VALUE;
+    private static final int COUNT = 20000;
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(
+            PropertiesBuilder.propertiesBuilder()
+                    .set(BrokerPool.PROPERTY_MEMORY_MAPPED_FILES, "other.dbx, mmap.dbx")
+                    .build(),
+            true,
+            true);
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void readThroughMapping() throws DBException, IOException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final Path file = temporaryFolder.getRoot().toPath().resolve("mmap.dbx");
+
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+            btree.create((short) -1);
+            for (int i = 1; i <= COUNT; i++) {
+                btree.addValue(new Value("K" + i), i);
+            }
+            btree.flush();
+        }
+
+        // re-open with an empty cache, so that all pages are read from the file
+        try (final BTree btree = new BTree(pool, BTREE_TEST_FILE_ID, BTREE_TEST_FILE_VERSION, false, pool.getCacheManager(), file)) {
+            assertTrue(btree.open(BTREE_TEST_FILE_VERSION));
+            for (int i = 1; i <= COUNT; i++) {
+                assertEquals(i, btree.findValue(new Value("K" + i)));
+            }
+
+            // grow the file whilst it is mapped
+            for (int i = COUNT + 1; i <= COUNT * 2; i++) {
+                btree.addValue(new Value("K" + i), i);
+            }
+            btree.flush();
+            for (int i = 1; i <= COUNT * 2; i++) {
+                assertEquals(i, btree.findValue(new Value("K" + i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.exist.storage.journal;
+
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.storage.txn.TransactionManager;
+import org.exist.storage.txn.Txn;
+import org.exist.storage.txn.TxnCommit;
+import org.exist.test.ExistEmbeddedServer;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.exist.util.PropertiesBuilder.propertiesBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GroupCommitTest {
+
+    private static final int THREADS = 8;
+    private static final int COMMITS_PER_THREAD = 50;
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(
+            propertiesBuilder()
+                    .put(Journal.PROPERTY_RECOVERY_SYNC_ON_COMMIT, true)
+                    .put(BrokerPool.PROPERTY_RECOVERY_GROUP_COMMIT, true)
+                    .put(Journal.PROPERTY_RECOVERY_GROUP_COMMIT_MAX_DELAY, 5)
+                    .put(Journal.PROPERTY_RECOVERY_GROUP_COMMIT_MAX_SIZE, 4)
+                    .build(),
+            true,
+            true);
+
+    @Test
+    public void concurrentCommits() throws InterruptedException, ExecutionException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final TransactionManager transactionManager = pool.getTransactionManager();
+        final JournalManager journalManager = pool.getJournalManager().get();
+        final Lsn before = journalManager.lastWrittenLsn();
+        final long syncsBefore = journalManager.getSyncCount();
+
+        final int committed = concurrently(pool, () -> {
+            try (final Txn transaction = transactionManager.beginTransaction()) {
+                transaction.commit();
+                return transaction.getState() == Txn.State.COMMITTED;
+            }
+        });
+        assertEquals(THREADS * COMMITS_PER_THREAD, committed);
+
+        // every commit must have been flushed to the journal before returning
+        assertTrue(journalManager.lastWrittenLsn().compareTo(before) > 0);
+
+        // concurrent commits share a sync of the journal
+        final long syncs = journalManager.getSyncCount() - syncsBefore;
+        assertTrue("Expected at least one sync, but there were none", syncs > 0);
+        assertTrue("Expected fewer syncs than the " + committed + " commits, but there were " + syncs,
+                syncs < committed);
+    }
+
+    @Test
+    public void groupedCommitIsDurable() throws InterruptedException, ExecutionException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final TransactionManager transactionManager = pool.getTransactionManager();
+        final JournalManager journalManager = pool.getJournalManager().get();
+
+        final int durable = concurrently(pool, () -> {
+            try (final Txn transaction = transactionManager.beginTransaction()) {
+                // write the commit record as the transaction manager does, to learn its LSN
+                final TxnCommit commit = new TxnCommit(transaction.getId());
+                journalManager.journalGroup(commit);
+
+                // the commit record must be on disk once the waiter returns
+                final boolean synced = journalManager.lastSyncedLsn().compareTo(commit.getLsn()) >= 0;
+
+                transaction.commit();
+                return synced;
+            }
+        });
+        assertEquals(THREADS * COMMITS_PER_THREAD, durable);
+    }
+
+    /**
+     * Runs the commit on {@link #THREADS} threads at once, {@link #COMMITS_PER_THREAD}
+     * times on each thread. Each thread holds a broker whilst committing.
+     *
+     * @return the number of times the commit returned true
+     */
+    private static int concurrently(final BrokerPool pool, final Callable<Boolean> commit) throws InterruptedException, ExecutionException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+                        int succeeded = 0;
+                        for (int j = 0; j < COMMITS_PER_THREAD; j++) {
+                            if (commit.call()) {
+                                succeeded++;
+                            }
+                        }
+                        return succeeded;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (final Future<Integer> future : futures) {
+                succeeded += future.get();
+            }
+            return succeeded;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
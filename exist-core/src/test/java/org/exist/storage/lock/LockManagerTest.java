@@ -12,8 +12,12 @@ import uk.ac.ic.doc.slurp.multilock.MultiLock;
 import javax.annotation.Nullable;
 import java.util.Arrays;
 import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.junit.Assert.*;
 
@@ -654,19 +658,19 @@ public class LockManagerTest {
     public void getBtreeLock_isStripedByPath() {
         final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL);
 
-        final ReentrantLock btree1Lock1 = lockManager.getBTreeLock("btree1.dbx");
+        final ReentrantReadWriteLock btree1Lock1 = lockManager.getBTreeLock("btree1.dbx");
         assertNotNull(btree1Lock1);
 
-        final ReentrantLock btree1Lock2 = lockManager.getBTreeLock("btree1.dbx");
+        final ReentrantReadWriteLock btree1Lock2 = lockManager.getBTreeLock("btree1.dbx");
         assertNotNull(btree1Lock2);
 
         assertTrue(btree1Lock1 == btree1Lock2);
 
-        final ReentrantLock btree2Lock = lockManager.getBTreeLock("btree2.dbx");
+        final ReentrantReadWriteLock btree2Lock = lockManager.getBTreeLock("btree2.dbx");
         assertNotNull(btree2Lock);
         assertFalse(btree1Lock1 == btree2Lock);
 
-        final ReentrantLock btree3Lock = lockManager.getBTreeLock("btree3.dbx");
+        final ReentrantReadWriteLock btree3Lock = lockManager.getBTreeLock("btree3.dbx");
         assertNotNull(btree3Lock);
         assertFalse(btree1Lock1 == btree3Lock);
 
@@ -684,7 +688,7 @@ public class LockManagerTest {
 
         final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL);
         final Stack<LockAction> events = recordLockEvents(lockManager, () -> {
-            try (final ManagedLock<ReentrantLock> btree1Lock
+            try (final ManagedLock<ReentrantReadWriteLock> btree1Lock
                          = lockManager.acquireBtreeReadLock(btree1Name)) {
                 assertNotNull(btree1Lock);
             }
@@ -720,7 +724,7 @@ public class LockManagerTest {
 
         final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL);
         final Stack<LockAction> events = recordLockEvents(lockManager, () -> {
-            try (final ManagedLock<ReentrantLock> btree1Lock
+            try (final ManagedLock<ReentrantReadWriteLock> btree1Lock
                          = lockManager.acquireBtreeWriteLock(btree1Name)) {
                 assertNotNull(btree1Lock);
             }
@@ -746,6 +750,48 @@ public class LockManagerTest {
     }
 
 
+    /**
+     * READ locks on a BTree are shared, whilst a WRITE
+     * lock excludes any READ lock
+     */
+    @Test
+    public void btreeReadLocksAreShared() throws LockException, InterruptedException, ExecutionException {
+        final String btree1Name = "btree1.dbx";
+
+        final LockManager lockManager = new LockManager(CONCURRENCY_LEVEL);
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            try (final ManagedLock<ReentrantReadWriteLock> btree1Lock = lockManager.acquireBtreeReadLock(btree1Name)) {
+                // another reader may acquire the lock whilst we hold it
+                final Future<Boolean> otherReader = executorService.submit(() -> {
+                    final ReentrantReadWriteLock lock = lockManager.getBTreeLock(btree1Name);
+                    final boolean acquired = lock.readLock().tryLock();
+                    if (acquired) {
+                        lock.readLock().unlock();
+                    }
+                    return acquired;
+                });
+                assertTrue(otherReader.get());
+
+                // but a writer may not
+                final Future<Boolean> otherWriter = executorService.submit(() -> {
+                    final ReentrantReadWriteLock lock = lockManager.getBTreeLock(btree1Name);
+                    final boolean acquired = lock.writeLock().tryLock();
+                    if (acquired) {
+                        lock.writeLock().unlock();
+                    }
+                    return acquired;
+                });
+                assertFalse(otherWriter.get());
+
+                assertTrue(lockManager.isBtreeLocked(btree1Name));
+                assertFalse(lockManager.isBtreeLockedForWrite(btree1Name));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
     private Stack<LockAction> recordLockEvents(final LockManager lockManager, final RunnableE<LockException> runnable) throws LockException{
         final LockTable lockTable = lockManager.getLockTable();
         final LockEventRecordingListener lockEventRecordingListener = new LockEventRecordingListener();
@@ -0,0 +1,68 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.util;
+
+import org.exist.Namespaces;
+import org.exist.test.ExistEmbeddedServer;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class XMLReaderPoolTest {
+
+    @ClassRule
+    public final static ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(true, true);
+
+    @Test
+    public void resetOnReturn() throws Exception {
+        final XMLReaderPool parserPool = existEmbeddedServer.getBrokerPool().getParserPool();
+        final DefaultHandler handler = new DefaultHandler();
+        final long resetFailures = parserPool.getResetFailures();
+
+        final XMLReader reader = parserPool.borrowXMLReader();
+        try {
+            // as done by XUpdateProcessor
+            reader.setFeature(Namespaces.SAX_NAMESPACES_PREFIXES, false);
+            reader.setContentHandler(handler);
+            reader.setErrorHandler(handler);
+            reader.parse(new InputSource(new StringReader("<a xmlns='urn:a'><b/></a>")));
+        } finally {
+            parserPool.returnXMLReader(reader);
+        }
+
+        final XMLReader reused = parserPool.borrowXMLReader();
+        try {
+            assertSame(reader, reused);
+            assertNotSame(handler, reused.getContentHandler());
+            assertNotSame(handler, reused.getErrorHandler());
+            assertTrue(reused.getFeature(Namespaces.SAX_NAMESPACES));
+            assertTrue(reused.getFeature(Namespaces.SAX_NAMESPACES_PREFIXES));
+        } finally {
+            parserPool.returnXMLReader(reused);
+        }
+        assertEquals(resetFailures, parserPool.getResetFailures());
+    }
+}
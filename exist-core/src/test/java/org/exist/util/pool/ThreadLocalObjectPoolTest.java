@@ -0,0 +1,201 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.util.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool.BasePoolableObjectFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ThreadLocalObjectPoolTest {
+
+    @Test
+    public void reusedByThread() throws Exception {
+        final ThreadLocalObjectPool<Resettable> pool = new ThreadLocalObjectPool<>("test", new ResettableFactory(), 2);
+        final Resettable first = pool.borrowObject();
+        pool.returnObject(first);
+        final Resettable second = pool.borrowObject();
+        pool.returnObject(second);
+
+        assertSame(first, second);
+        assertEquals(1, pool.getCreated());
+        assertEquals(0, pool.getSharedBorrows());
+        assertEquals(0, pool.getSharedReturns());
+        assertEquals(0, pool.getNumActive());
+    }
+
+    @Test
+    public void overflowToSharedStack() throws Exception {
+        final ThreadLocalObjectPool<Resettable> pool = new ThreadLocalObjectPool<>("test", new ResettableFactory(), 2);
+        final List<Resettable> borrowed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            borrowed.add(pool.borrowObject());
+        }
+        assertEquals(5, pool.getNumActive());
+
+        for (final Resettable obj : borrowed) {
+            pool.returnObject(obj);
+        }
+
+        // one object is cached by the thread, two on the shared stack, the rest is destroyed
+        assertEquals(4, pool.getSharedReturns());
+        assertEquals(2, pool.getNumIdle());
+        assertEquals(2, pool.getDestroyed());
+
+        pool.borrowObject();
+        pool.borrowObject();
+        pool.borrowObject();
+        assertEquals(2, pool.getSharedBorrows());
+        assertEquals(5, pool.getCreated());
+    }
+
+    @Test
+    public void resetOnReturn() throws Exception {
+        final ThreadLocalObjectPool<Resettable> pool = new ThreadLocalObjectPool<>("test", new ResettableFactory(), 2);
+        final Resettable obj = pool.borrowObject();
+        obj.dirty = true;
+        pool.returnObject(obj);
+
+        final Resettable reused = pool.borrowObject();
+        assertSame(obj, reused);
+        assertFalse(reused.dirty);
+        assertEquals(0, pool.getResetFailures());
+    }
+
+    @Test
+    public void discardedIfResetFails() throws Exception {
+        final ThreadLocalObjectPool<Resettable> pool = new ThreadLocalObjectPool<>("test", new ResettableFactory(), 2);
+        final Resettable obj = pool.borrowObject();
+        obj.broken = true;
+        pool.returnObject(obj);
+
+        assertEquals(1, pool.getResetFailures());
+        assertEquals(1, pool.getDestroyed());
+        assertNotSame(obj, pool.borrowObject());
+    }
+
+    @Test
+    public void neverSharedBetweenThreads() throws Exception {
+        final int threads = 8;
+        final ThreadLocalObjectPool<Resettable> pool = new ThreadLocalObjectPool<>("test", new ResettableFactory(), 4);
+        final Set<Resettable> inUse = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        final Resettable outer = pool.borrowObject();
+                        final Resettable inner = pool.borrowObject();
+                        assertTrue(inUse.add(outer));
+                        assertTrue(inUse.add(inner));
+                        assertFalse(outer.dirty || inner.dirty);
+                        outer.dirty = true;
+                        inner.dirty = true;
+                        inUse.remove(inner);
+                        inUse.remove(outer);
+                        pool.returnObject(inner);
+                        pool.returnObject(outer);
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        assertEquals(0, pool.getNumActive());
+        assertEquals(threads * 20_000, pool.getBorrowed());
+        // objects alive: at most one cached per thread plus the shared stack
+        assertTrue(pool.getCreated() - pool.getDestroyed() <= threads + 4);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closed() throws Exception {
+        final ThreadLocalObjectPool<Resettable> pool = new ThreadLocalObjectPool<>("test", new ResettableFactory(), 2);
+        pool.returnObject(pool.borrowObject());
+        pool.close();
+        pool.borrowObject();
+    }
+
+    @Test
+    public void closeDestroysCachedObjects() throws Exception {
+        final ThreadLocalObjectPool<Resettable> pool = new ThreadLocalObjectPool<>("test", new ResettableFactory(), 2);
+        pool.returnObject(pool.borrowObject());
+
+        // another thread which is still alive when the pool is closed
+        final CountDownLatch returned = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        final Thread other = new Thread(() -> {
+            try {
+                pool.returnObject(pool.borrowObject());
+                returned.countDown();
+                closed.await();
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        other.start();
+        returned.await();
+
+        pool.close();
+        closed.countDown();
+        other.join();
+
+        assertEquals(2, pool.getCreated());
+        assertEquals(2, pool.getDestroyed());
+    }
+
+    private static class Resettable {
+        private boolean dirty;
+        private boolean broken;
+    }
+
+    private static class ResettableFactory extends BasePoolableObjectFactory<Resettable> {
+        @Override
+        public Resettable makeObject() {
+            return new Resettable();
+        }
+
+        @Override
+        public void passivateObject(final Resettable obj) {
+            obj.dirty = false;
+        }
+
+        @Override
+        public boolean validateObject(final Resettable obj) {
+            return !obj.broken;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.util.serializer;
+
+import org.junit.Test;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.StringWriter;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class SerializerPoolTest {
+
+    @Test
+    public void saxSerializerReset() throws Exception {
+        final SerializerPool pool = SerializerPool.getInstance();
+        final StringWriter writer = new StringWriter();
+
+        final SAXSerializer serializer = (SAXSerializer) pool.borrowObject(SAXSerializer.class);
+        serializer.setOutput(writer, new Properties());
+        serializer.startDocument();
+        serializer.startElement("", "a", "a", new AttributesImpl());
+        serializer.endElement("", "a", "a");
+        serializer.endDocument();
+        pool.returnObject(serializer);
+
+        final SAXSerializer reused = (SAXSerializer) pool.borrowObject(SAXSerializer.class);
+        try {
+            assertSame(serializer, reused);
+            assertNull(reused.getWriter());
+        } finally {
+            pool.returnObject(reused);
+        }
+    }
+
+    @Test
+    public void domStreamerReused() {
+        final SerializerPool pool = SerializerPool.getInstance();
+
+        final DOMStreamer streamer = (DOMStreamer) pool.borrowObject(DOMStreamer.class);
+        pool.returnObject(streamer);
+
+        final DOMStreamer reused = (DOMStreamer) pool.borrowObject(DOMStreamer.class);
+        try {
+            assertSame(streamer, reused);
+        } finally {
+            pool.returnObject(reused);
+        }
+    }
+}
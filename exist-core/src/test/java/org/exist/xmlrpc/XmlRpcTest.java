@@ -20,6 +20,7 @@
 package org.exist.xmlrpc;
 
 import java.io.IOException;
+import net.jpountz.lz4.LZ4FrameOutputStream;
 import org.apache.xmlrpc.XmlRpcException;
 import org.apache.xmlrpc.client.XmlRpcClient;
 import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
@@ -42,6 +43,8 @@ import org.junit.Test;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Source;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
@@ -358,6 +361,71 @@ public class XmlRpcTest {
         }
     }
 
+    @Test
+    public void streamUploadAndDownload() throws IOException, XmlRpcException {
+        final XmlRpcClient xmlrpc = getClient();
+        final String resURI = XmldbURI.ROOT_COLLECTION_URI.append("test-stream.bin").toString();
+        final byte[] binary = generateBinary((int)(MAX_UPLOAD_CHUNK * 1.5));
+        final String authorization = "Basic " + Base64.getEncoder().encodeToString("admin:".getBytes(UTF_8));
+
+        // 1) upload in a single LZ4 compressed request
+        HttpURLConnection connection = (HttpURLConnection) new URL(getUri() + "/stream").openConnection();
+        connection.setRequestMethod("PUT");
+        connection.setRequestProperty("Authorization", authorization);
+        connection.setRequestProperty("Content-Encoding", "x-lz4");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(65536);
+        try (final OutputStream os = new LZ4FrameOutputStream(connection.getOutputStream())) {
+            os.write(binary);
+        }
+        assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+        final String uploadedFileName;
+        try (final InputStream is = connection.getInputStream()) {
+            uploadedFileName = new String(readAll(is), UTF_8).trim();
+        }
+
+        final List<Object> paramsEx = new ArrayList<>();
+        paramsEx.add(uploadedFileName);
+        paramsEx.add(resURI);
+        paramsEx.add(Boolean.TRUE);
+        paramsEx.add("application/octet-stream");
+        paramsEx.add(Boolean.FALSE);
+        xmlrpc.execute("parseLocalExt", paramsEx);
+
+        // 2) download the first chunk through XML-RPC and the rest as a stream
+        final List<Object> params = new ArrayList<>();
+        params.add(resURI);
+        params.add(Collections.emptyMap());
+        final Map table = (Map) xmlrpc.execute("getDocumentData", params);
+        assertEquals(Boolean.TRUE, table.get("supports-stream"));
+
+        try (final FastByteArrayOutputStream os = new FastByteArrayOutputStream()) {
+            final long offset = (int) table.get("offset");
+            os.write((byte[]) table.get("data"));
+
+            connection = (HttpURLConnection) new URL(getUri() + "/stream/" + table.get("handle") + "?offset=" + offset).openConnection();
+            connection.setRequestProperty("Authorization", authorization);
+            assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+            assertNull(connection.getContentEncoding());
+            try (final InputStream is = connection.getInputStream()) {
+                os.write(readAll(is));
+            }
+            assertArrayEquals(binary, os.toByteArray());
+        }
+
+        // the handle has been released
+        connection = (HttpURLConnection) new URL(getUri() + "/stream/" + table.get("handle")).openConnection();
+        connection.setRequestProperty("Authorization", authorization);
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, connection.getResponseCode());
+    }
+
+    @Test
+    public void streamRequiresAuthentication() throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(getUri() + "/stream/1").openConnection();
+        connection.setRequestProperty("Authorization", "Basic " + Base64.getEncoder().encodeToString("admin:wrong".getBytes(UTF_8)));
+        assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, connection.getResponseCode());
+    }
+
     @Test
     public void testRemoveCollection() throws XmlRpcException, MalformedURLException {
         storeData();
@@ -646,6 +714,13 @@ public class XmlRpcTest {
         return builder.toString();
     }
 
+    private static byte[] readAll(final InputStream is) throws IOException {
+        try (final FastByteArrayOutputStream os = new FastByteArrayOutputStream()) {
+            os.write(is);
+            return os.toByteArray();
+        }
+    }
+
     private byte[] generateBinary(final int minBytes) {
         final byte[] buf = new byte[minBytes];
         new Random().nextBytes(buf);
@@ -0,0 +1,141 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2018 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery;
+
+import org.exist.EXistException;
+import org.exist.security.PermissionDeniedException;
+import org.exist.storage.BrokerPool;
+import org.exist.storage.DBBroker;
+import org.exist.test.ExistEmbeddedServer;
+import org.exist.xmldb.XmldbURI;
+import org.exist.xquery.value.Sequence;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xmldb.api.DatabaseManager;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.Database;
+import org.xmldb.api.base.ResourceSet;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.XPathQueryService;
+
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.exist.util.PropertiesBuilder.propertiesBuilder;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Sorts persistent nodes with a small in-memory limit, so that the
+ * entries are written to sorted runs on disk and merged again.
+ */
+public class OrderBySpillTest {
+
+    private static final int ITEMS = 100;
+
+    @ClassRule
+    public static final ExistEmbeddedServer existEmbeddedServer = new ExistEmbeddedServer(
+            propertiesBuilder()
+                    .put(OrderByClause.PROPERTY_ORDER_BY_MAX_IN_MEMORY, 10)
+                    .build(),
+            true,
+            true);
+
+    private static final String DOC = "doc('/db/order-by-spill.xml')";
+
+    @BeforeClass
+    public static void storeDocument() throws EXistException, PermissionDeniedException, XPathException, ReflectiveOperationException, XMLDBException {
+        query("xmldb:store('/db', 'order-by-spill.xml', " +
+                "<items>{ for $i in 1 to " + ITEMS + " return <item n='{($i * 37) mod " + ITEMS + "}'/> }</items>)");
+
+        final Database database = (Database) Class.forName("org.exist.xmldb.DatabaseImpl").newInstance();
+        database.setProperty("create-database", "true");
+        DatabaseManager.registerDatabase(database);
+    }
+
+    @Test
+    public void orderBy() throws EXistException, PermissionDeniedException, XPathException {
+        final Sequence result = query("(for $item in " + DOC + "//item order by xs:integer($item/@n) return $item) ! string(@n)");
+        assertEquals(expected(), join(result));
+    }
+
+    @Test
+    public void orderByDescendingReturnsSameNodes() throws EXistException, PermissionDeniedException, XPathException {
+        final Sequence result = query("let $sorted := for $item in " + DOC + "//item order by xs:integer($item/@n) descending return $item " +
+                "return (count($sorted), $sorted[1] is " + DOC + "//item[@n = '" + (ITEMS - 1) + "'])");
+        assertEquals(ITEMS, result.itemAt(0).toJavaObject(Integer.class).intValue());
+        assertEquals(true, result.itemAt(1).toJavaObject(Boolean.class));
+    }
+
+    /**
+     * The XML:DB API cleans up the query before the result is read,
+     * so the sorted entries written to disk have to outlive the query.
+     */
+    @Test
+    public void orderByReturnedThroughXmldb() throws XMLDBException {
+        final Collection root = DatabaseManager.getCollection(XmldbURI.LOCAL_DB, "admin", "");
+        final XPathQueryService service = (XPathQueryService) root.getService("XPathQueryService", "1.0");
+        final ResourceSet result = service.query("for $item in " + DOC + "//item order by xs:integer($item/@n) descending return $item");
+        assertEquals(ITEMS, result.getSize());
+        for (int i = 0; i < ITEMS; i++) {
+            assertEquals("<item n=\"" + (ITEMS - 1 - i) + "\"/>", result.getResource(i).getContent());
+        }
+        // read backwards as well
+        for (int i = ITEMS - 1; i >= 0; i--) {
+            assertEquals("<item n=\"" + (ITEMS - 1 - i) + "\"/>", result.getResource(i).getContent());
+        }
+    }
+
+    @Test
+    public void sort() throws EXistException, PermissionDeniedException, XPathException {
+        final Sequence result = query("xquery version '3.1'; sort(" + DOC + "//item, (), function($item) { xs:integer($item/@n) }) ! string(@n)");
+        assertEquals(expected(), join(result));
+    }
+
+    @Test
+    public void sortAtomics() throws EXistException, PermissionDeniedException, XPathException {
+        final Sequence result = query("xquery version '3.1'; sort(" + DOC + "//item/@n ! xs:integer(.)) ! string(.)");
+        assertEquals(expected(), join(result));
+    }
+
+    private static String expected() {
+        return IntStream.range(0, ITEMS).mapToObj(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    private static String join(final Sequence result) throws XPathException {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < result.getItemCount(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(result.itemAt(i).getStringValue());
+        }
+        return builder.toString();
+    }
+
+    private static Sequence query(final String query) throws EXistException, PermissionDeniedException, XPathException {
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        final XQuery xquery = pool.getXQueryService();
+        try (final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+            return xquery.execute(broker, query, null);
+        }
+    }
+}
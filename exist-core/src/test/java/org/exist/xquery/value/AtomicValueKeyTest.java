@@ -0,0 +1,113 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.value;
+
+import com.ibm.icu.text.Collator;
+import org.exist.util.Collations;
+import org.exist.xquery.XPathException;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the hash and equality semantics of {@link AtomicValueKey}.
+ */
+public class AtomicValueKeyTest {
+
+    @Test
+    public void codepointStrings() {
+        assertKeysEqual(new StringValue("abc"), new StringValue("abc"), null);
+        assertKeysEqual(new StringValue("abc"), new UntypedAtomicValue("abc"), null);
+        assertKeysDistinct(new StringValue("abc"), new StringValue("ABC"), null);
+    }
+
+    @Test
+    public void collationStrings() throws XPathException {
+        final Collator collator = Collations.getCollationFromURI(Collations.UCA_COLLATION_URI + "?strength=primary");
+        assertKeysEqual(new StringValue("abc"), new StringValue("ABC"), collator);
+        assertKeysEqual(new StringValue("abc"), new UntypedAtomicValue("Abc"), collator);
+        assertKeysDistinct(new StringValue("abc"), new StringValue("abd"), collator);
+    }
+
+    @Test
+    public void promotedNumerics() throws XPathException {
+        assertKeysEqual(new IntegerValue(1), new DoubleValue(1.0), null);
+        assertKeysEqual(new IntegerValue(1), new DecimalValue(new BigDecimal("1.000")), null);
+        assertKeysEqual(new DecimalValue(new BigDecimal("0.5")), new FloatValue(0.5f), null);
+        assertKeysEqual(new DoubleValue(0.0), new DoubleValue(-0.0), null);
+        assertKeysDistinct(new IntegerValue(1), new IntegerValue(2), null);
+    }
+
+    @Test
+    public void nanEqualsItself() {
+        assertKeysEqual(new DoubleValue(Double.NaN), new DoubleValue(Double.NaN), null);
+        assertKeysEqual(new DoubleValue(Double.NaN), new FloatValue(Float.NaN), null);
+        assertKeysDistinct(new DoubleValue(Double.NaN), new DoubleValue(0.0), null);
+    }
+
+    @Test
+    public void incomparableTypesAreDistinct() {
+        assertKeysDistinct(new StringValue("1"), new IntegerValue(1), null);
+        assertKeysDistinct(BooleanValue.TRUE, new IntegerValue(1), null);
+        assertKeysDistinct(AtomicValue.EMPTY_VALUE, new StringValue(""), null);
+        assertKeysEqual(AtomicValue.EMPTY_VALUE, AtomicValue.EMPTY_VALUE, null);
+    }
+
+    @Test
+    public void dates() throws XPathException {
+        assertKeysEqual(new DateTimeValue("2019-01-01T12:00:00Z"), new DateTimeValue("2019-01-01T13:00:00+01:00"), null);
+        assertKeysDistinct(new DateTimeValue("2019-01-01T12:00:00Z"), new DateTimeValue("2019-01-01T12:00:01Z"), null);
+    }
+
+    @Test
+    public void durations() throws XPathException {
+        assertKeysEqual(new DurationValue("P1Y"), new DurationValue("P12M"), null);
+        assertKeysEqual(new YearMonthDurationValue("P1Y"), new DurationValue("P12M"), null);
+        assertKeysEqual(new DayTimeDurationValue("PT1M"), new DayTimeDurationValue("PT60S"), null);
+        assertKeysDistinct(new DayTimeDurationValue("PT1M"), new DayTimeDurationValue("-PT1M"), null);
+        assertNotEquals(new AtomicValueKey(new DayTimeDurationValue("PT1S"), null).hashCode(),
+                new AtomicValueKey(new DayTimeDurationValue("PT2S"), null).hashCode());
+    }
+
+    @Test
+    public void hashSetDeduplicates() {
+        final Set<AtomicValueKey> set = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            set.add(new AtomicValueKey(new IntegerValue(i % 10), null));
+            set.add(new AtomicValueKey(new DoubleValue(i % 10), null));
+        }
+        assertEquals(10, set.size());
+    }
+
+    private static void assertKeysEqual(final AtomicValue v1, final AtomicValue v2, final Collator collator) {
+        final AtomicValueKey k1 = new AtomicValueKey(v1, collator);
+        final AtomicValueKey k2 = new AtomicValueKey(v2, collator);
+        assertEquals(k1, k2);
+        assertEquals(k1.hashCode(), k2.hashCode());
+    }
+
+    private static void assertKeysDistinct(final AtomicValue v1, final AtomicValue v2, final Collator collator) {
+        assertNotEquals(new AtomicValueKey(v1, collator), new AtomicValueKey(v2, collator));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xquery.value;
+
+import org.exist.xquery.XPathException;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the long and BigInteger representations of {@link IntegerValue}.
+ */
+public class IntegerValueTest {
+
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+
+    @Test
+    public void smallValuesAreLongs() throws XPathException {
+        assertTrue(new IntegerValue(42).isLong());
+        assertTrue(new IntegerValue(BigInteger.valueOf(42)).isLong());
+        assertTrue(new IntegerValue("42").isLong());
+        assertTrue(new IntegerValue("-9223372036854775808").isLong());
+        assertFalse(new IntegerValue("9223372036854775808").isLong());
+    }
+
+    @Test
+    public void addOverflowPromotes() throws XPathException {
+        final IntegerValue result = (IntegerValue) new IntegerValue(Long.MAX_VALUE).plus(new IntegerValue(1));
+        assertFalse(result.isLong());
+        assertEquals(LONG_MAX.add(BigInteger.ONE), result.toBigInteger());
+    }
+
+    @Test
+    public void subtractOverflowPromotes() throws XPathException {
+        final IntegerValue result = (IntegerValue) new IntegerValue(Long.MIN_VALUE).minus(new IntegerValue(1));
+        assertEquals(LONG_MIN.subtract(BigInteger.ONE), result.toBigInteger());
+    }
+
+    @Test
+    public void multiplyOverflowPromotes() throws XPathException {
+        final IntegerValue result = (IntegerValue) new IntegerValue(Long.MAX_VALUE).mult(new IntegerValue(3));
+        assertEquals(LONG_MAX.multiply(BigInteger.valueOf(3)), result.toBigInteger());
+    }
+
+    @Test
+    public void demoteWhenBackInRange() throws XPathException {
+        final IntegerValue big = (IntegerValue) new IntegerValue(Long.MAX_VALUE).plus(new IntegerValue(10));
+        final IntegerValue result = (IntegerValue) big.minus(new IntegerValue(20));
+        assertTrue(result.isLong());
+        assertEquals(Long.MAX_VALUE - 10, result.getLong());
+    }
+
+    @Test
+    public void negateAndAbsOfMinLong() throws XPathException {
+        final IntegerValue min = new IntegerValue(Long.MIN_VALUE);
+        assertEquals(LONG_MIN.negate(), ((IntegerValue) min.negate()).toBigInteger());
+        assertEquals(LONG_MIN.abs(), ((IntegerValue) min.abs()).toBigInteger());
+    }
+
+    @Test
+    public void idiv() throws XPathException {
+        assertEquals(-3, new IntegerValue(-7).idiv(new IntegerValue(2)).getLong());
+        assertEquals(LONG_MIN.negate(), new IntegerValue(Long.MIN_VALUE).idiv(new IntegerValue(-1)).toBigInteger());
+    }
+
+    @Test
+    public void mod() throws XPathException {
+        assertEquals(-1, ((IntegerValue) new IntegerValue(-7).mod(new IntegerValue(2))).getLong());
+        assertEquals(0, ((IntegerValue) new IntegerValue(Long.MIN_VALUE).mod(new IntegerValue(-1))).getLong());
+    }
+
+    @Test
+    public void compareAcrossRepresentations() throws XPathException {
+        final IntegerValue big = new IntegerValue("9223372036854775808");
+        assertTrue(new IntegerValue(Long.MAX_VALUE).compareTo(big) < 0);
+        assertTrue(big.compareTo(new IntegerValue(Long.MIN_VALUE)) > 0);
+        assertEquals(0, new IntegerValue(5).compareTo(new IntegerValue(BigInteger.valueOf(5))));
+        assertEquals(new IntegerValue(5).hashCode(), new IntegerValue(BigInteger.valueOf(5)).hashCode());
+    }
+
+    @Test(expected = XPathException.class)
+    public void subtypeRangeIsChecked() throws XPathException {
+        new IntegerValue(100, Type.BYTE).plus(new IntegerValue(100, Type.BYTE));
+    }
+}
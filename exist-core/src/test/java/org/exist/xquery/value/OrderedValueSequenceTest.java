@@ -20,6 +20,7 @@
 
 package org.exist.xquery.value;
 
+import com.ibm.icu.text.Collator;
 import org.exist.xquery.Expression;
 import org.exist.xquery.OrderSpec;
 import org.exist.xquery.XPathException;
@@ -29,6 +30,9 @@ import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class OrderedValueSequenceTest {
 
@@ -94,6 +98,132 @@ public class OrderedValueSequenceTest {
         assertEquals(69, count);
     }
 
+    @Test
+    public void sort_inMemory() throws XPathException {
+        assertSorted(sortedSequence(1000, 0, -1), 1000);
+    }
+
+    @Test
+    public void sort_spillRuns() throws XPathException {
+        assertSorted(sortedSequence(1000, 64, -1), 1000);
+    }
+
+    @Test
+    public void sort_spillRuns_stable() throws XPathException {
+        final int size = 500;
+        final Expression sortExpr = createMock(Expression.class);
+        for (int i = 0; i < size; i++) {
+            expect(sortExpr.eval(null)).andReturn(new IntegerValue(i % 10));
+        }
+        replay(sortExpr);
+
+        final OrderedValueSequence seq = new OrderedValueSequence(new OrderSpec[] { orderSpec(sortExpr) }, 100, 32, -1);
+        for (int i = 0; i < size; i++) {
+            seq.add(new IntegerValue(i));
+        }
+        seq.sort();
+
+        assertEquals(size, seq.getItemCount());
+        // items with equal keys keep their original order
+        int pos = 0;
+        for (int key = 0; key < 10; key++) {
+            for (int i = key; i < size; i += 10) {
+                assertEquals(i, ((IntegerValue) seq.itemAt(pos++)).getInt());
+            }
+        }
+    }
+
+    @Test
+    public void sort_spillRuns_itemsRestoredFromRuns() throws XPathException {
+        final OrderedValueSequence seq = sortedSequence(1000, 64, -1);
+        try {
+            // the items are read back from the runs, and the merge can be repeated
+            final SequenceIterator it = seq.iterate();
+            assertEquals(1000, it.skippable());
+            int count = 0;
+            while (it.hasNext()) {
+                assertEquals(count++, ((IntegerValue) it.nextItem()).getInt());
+            }
+            assertEquals(1000, count);
+
+            assertEquals(999, ((IntegerValue) seq.itemAt(999)).getInt());
+            assertEquals(3, ((IntegerValue) seq.itemAt(3)).getInt());
+            assertNull(seq.itemAt(1000));
+        } finally {
+            seq.close();
+        }
+        assertTrue(seq.isEmpty());
+    }
+
+    @Test
+    public void sort_spillRuns_unspillableItemsKeptInMemory() throws XPathException {
+        final OrderSpec spec = orderSpec(createMock(Expression.class));
+        final OrderedValueSequence seq = new OrderedValueSequence(new OrderSpec[] { spec }, 100, 16, -1);
+        final DayTimeDurationValue duration = new DayTimeDurationValue("PT1S");
+        for (int i = 99; i >= 0; i--) {
+            // durations can not be restored from the runs
+            final Item item = i == 50 ? duration : new IntegerValue(i);
+            seq.add(item, new AtomicValue[] { new IntegerValue(i) });
+        }
+        seq.sort();
+        try {
+            assertTrue(seq.isSpilled());
+            assertEquals(100, seq.getItemCount());
+            for (int i = 0; i < 100; i++) {
+                if (i == 50) {
+                    assertSame(duration, seq.itemAt(i));
+                } else {
+                    assertEquals(i, ((IntegerValue) seq.itemAt(i)).getInt());
+                }
+            }
+        } finally {
+            seq.close();
+        }
+    }
+
+    @Test
+    public void sort_topN() throws XPathException {
+        assertSorted(sortedSequence(1000, 0, 15), 15);
+    }
+
+    private static OrderedValueSequence sortedSequence(final int size, final int maxInMemory, final int limit) throws XPathException {
+        final IntegerValue[] values = new IntegerValue[size];
+        for (int i = 0; i < size; i++) {
+            // a permutation of 0 .. size - 1
+            values[i] = new IntegerValue((i * 7919L) % size);
+        }
+
+        final Expression sortExpr = createMock(Expression.class);
+        for (final IntegerValue value : values) {
+            expect(sortExpr.eval(null)).andReturn(value);
+        }
+        replay(sortExpr);
+
+        final OrderedValueSequence seq = new OrderedValueSequence(new OrderSpec[] { orderSpec(sortExpr) }, 100, maxInMemory, limit);
+        for (final IntegerValue value : values) {
+            seq.add(value);
+        }
+        seq.sort();
+        return seq;
+    }
+
+    private static void assertSorted(final OrderedValueSequence seq, final int expectedCount) throws XPathException {
+        assertEquals(expectedCount, seq.getItemCount());
+        for (int i = 0; i < expectedCount; i++) {
+            assertEquals(i, ((IntegerValue) seq.itemAt(i)).getInt());
+        }
+    }
+
+    private static OrderSpec orderSpec(final Expression sortExpr) {
+        // compare with the default codepoint collation, without a context
+        return new OrderSpec(null, sortExpr) {
+            @Override
+            public Collator getCollator() {
+                return null;
+            }
+        };
+    }
+
     private static OrderedValueSequence mockOrderedValueSequence(final int size) throws XPathException {
         final Expression mockSortExpr = createMock(Expression.class);
         expect(mockSortExpr.eval(null)).andReturn(Sequence.EMPTY_SEQUENCE).anyTimes();
@@ -0,0 +1,169 @@
+/*
+ * eXist Open Source Native XML Database
+ * Copyright (C) 2001-2019 The eXist Project
+ * http://exist-db.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package org.exist.xslt;
+
+import org.exist.EXistException;
+import org.exist.storage.BrokerPool;
+import org.exist.test.ExistXmldbEmbeddedServer;
+import org.exist.xmldb.XmldbURI;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xmldb.api.DatabaseManager;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.ResourceSet;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.CollectionManagementService;
+import org.xmldb.api.modules.XMLResource;
+import org.xmldb.api.modules.XQueryService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that compiled stylesheets are shared between transformations,
+ * and are discarded when the stylesheet or one of its includes changes.
+ */
+public class TemplatesCacheTest {
+
+    @ClassRule
+    public static final ExistXmldbEmbeddedServer existEmbeddedServer = new ExistXmldbEmbeddedServer(false, true, true);
+
+    private static final String COLLECTION_NAME = "templates-cache-test";
+    private static final String MOVED_COLLECTION_NAME = "templates-cache-test-moved";
+
+    private static final String TRANSFORM = "transform:transform(<a/>, doc('" + XmldbURI.ROOT_COLLECTION + "/" +
+            COLLECTION_NAME + "/main.xsl'), ())/string()";
+
+    private Collection collection;
+
+    @Before
+    public void setup() throws XMLDBException {
+        final CollectionManagementService service =
+                (CollectionManagementService) existEmbeddedServer.getRoot().getService("CollectionManagementService", "1.0");
+        collection = service.createCollection(COLLECTION_NAME);
+        storeStylesheet("main.xsl",
+                "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'>" +
+                "<xsl:include href='inc.xsl'/>" +
+                "<xsl:template match='/'><result><xsl:call-template name='greeting'/></result></xsl:template>" +
+                "</xsl:stylesheet>");
+        storeInclude("first");
+    }
+
+    @After
+    public void tearDown() throws XMLDBException {
+        final CollectionManagementService service =
+                (CollectionManagementService) existEmbeddedServer.getRoot().getService("CollectionManagementService", "1.0");
+        service.removeCollection(COLLECTION_NAME);
+        if (existEmbeddedServer.getRoot().getChildCollection(MOVED_COLLECTION_NAME) != null) {
+            service.removeCollection(MOVED_COLLECTION_NAME);
+        }
+    }
+
+    @Test
+    public void stylesheetIsCompiledOnce() throws XMLDBException, EXistException {
+        final TemplatesCache cache = BrokerPool.getInstance().getTemplatesCache();
+
+        assertEquals("first", query(TRANSFORM));
+        final long compilations = cache.getCompilationCount();
+        final long hits = cache.getHitCount();
+
+        assertEquals("first", query(TRANSFORM));
+        assertEquals("first", query(TRANSFORM));
+        assertEquals(compilations, cache.getCompilationCount());
+        assertEquals(hits + 2, cache.getHitCount());
+    }
+
+    @Test
+    public void modifiedIncludeIsCompiledAgain() throws XMLDBException, EXistException {
+        final TemplatesCache cache = BrokerPool.getInstance().getTemplatesCache();
+
+        assertEquals("first", query(TRANSFORM));
+        assertEquals("first", query(TRANSFORM));
+        final long compilations = cache.getCompilationCount();
+        final long invalidations = cache.getInvalidationCount();
+
+        storeInclude("second");
+
+        assertEquals("second", query(TRANSFORM));
+        assertEquals(compilations + 1, cache.getCompilationCount());
+        assertEquals(invalidations + 1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void movedIncludeIsNotServedFromCache() throws XMLDBException {
+        assertEquals("first", query(TRANSFORM));
+        assertEquals("first", query(TRANSFORM));
+
+        query("(xmldb:create-collection('" + XmldbURI.ROOT_COLLECTION + "', '" + MOVED_COLLECTION_NAME + "'), " +
+                "xmldb:move('" + XmldbURI.ROOT_COLLECTION + "/" + COLLECTION_NAME + "', '" +
+                XmldbURI.ROOT_COLLECTION + "/" + MOVED_COLLECTION_NAME + "', 'inc.xsl'))");
+
+        try {
+            query(TRANSFORM);
+            fail("The stylesheet should not compile without its include");
+        } catch (final XMLDBException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void cachedStylesheetIsCheckedForReadPermission() throws XMLDBException {
+        assertEquals("first", query(TRANSFORM));
+        assertEquals("first", query(TRANSFORM));
+
+        query("(sm:chmod(xs:anyURI('" + XmldbURI.ROOT_COLLECTION + "/" + COLLECTION_NAME + "/inc.xsl'), 'rw-------'), 'done')");
+        assertEquals("first", query(TRANSFORM));
+
+        final Collection guestCollection = DatabaseManager.getCollection(
+                XmldbURI.LOCAL_DB + "/" + COLLECTION_NAME, "guest", "guest");
+        try {
+            query(guestCollection, TRANSFORM);
+            fail("guest should not be able to use a stylesheet which includes a document it may not read");
+        } catch (final XMLDBException e) {
+            // expected
+        }
+    }
+
+    private void storeInclude(final String greeting) throws XMLDBException {
+        storeStylesheet("inc.xsl",
+                "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'>" +
+                "<xsl:template name='greeting'>" + greeting + "</xsl:template>" +
+                "</xsl:stylesheet>");
+    }
+
+    private void storeStylesheet(final String name, final String content) throws XMLDBException {
+        final XMLResource res = (XMLResource) collection.createResource(name, XMLResource.RESOURCE_TYPE);
+        res.setContent(content);
+        collection.storeResource(res);
+    }
+
+    private String query(final String query) throws XMLDBException {
+        return query(collection, query);
+    }
+
+    private static String query(final Collection collection, final String query) throws XMLDBException {
+        final XQueryService service = (XQueryService) collection.getService("XQueryService", "1.0");
+        final ResourceSet result = service.query(query);
+        assertEquals(1, result.getSize());
+        return (String) result.getResource(0).getContent();
+    }
+}
@@ -432,6 +432,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
             final List<QName> definedIndexes = getDefinedIndexes(qnames);
             final NodeSet resultSet = new NewArrayNodeSet();
             final boolean returnAncestor = axis == NodeSet.ANCESTOR;
+            final TopHits topHits = options.getLimit().map(TopHits::new).orElse(null);
             for (QName qname : definedIndexes) {
                 String field = LuceneUtil.encodeQName(qname, index.getBrokerPool().getSymbols());
                 LuceneConfig config = getLuceneConfig(broker, docs);
@@ -449,7 +450,10 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
                     query = drilldown(facets.get(), query, config);
                 }
                 searchAndProcess(contextId, qname, docs, contextSet, resultSet,
-                        returnAncestor, searcher, query, options.getFields(), config);
+                        returnAncestor, searcher, query, options.getFields(), config, topHits);
+            }
+            if (topHits != null) {
+                topHits.materialize(searcher.searcher.getIndexReader());
             }
             return resultSet;
         });
@@ -482,6 +486,7 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
             final List<QName> definedIndexes = getDefinedIndexes(qnames);
             final NodeSet resultSet = new NewArrayNodeSet();
             final boolean returnAncestor = axis == NodeSet.ANCESTOR;
+            final TopHits topHits = options.getLimit().map(TopHits::new).orElse(null);
             for (QName qname : definedIndexes) {
                 String field = LuceneUtil.encodeQName(qname, index.getBrokerPool().getSymbols());
                 LuceneConfig config = getLuceneConfig(broker, docs);
@@ -493,9 +498,12 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
                 }
                 if (query != null) {
                     searchAndProcess(contextId, qname, docs, contextSet, resultSet,
-                            returnAncestor, searcher, query, options.getFields(), config);
+                            returnAncestor, searcher, query, options.getFields(), config, topHits);
                 }
             }
+            if (topHits != null) {
+                topHits.materialize(searcher.searcher.getIndexReader());
+            }
             return resultSet;
         });
     }
@@ -510,8 +518,12 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
             analyzer = getQueryAnalyzer(config, field, null, options);
             final Query query = queryTranslator.parse(field, queryRoot, analyzer, options);
             if (query != null) {
+                final TopHits topHits = options.getLimit().map(TopHits::new).orElse(null);
                 searchAndProcess(contextId, null, docs, contextSet, resultSet,
-                        returnAncestor, searcher, query, null, config);
+                        returnAncestor, searcher, query, null, config, topHits);
+                if (topHits != null) {
+                    topHits.materialize(searcher.searcher.getIndexReader());
+                }
             }
             return resultSet;
         });
@@ -529,11 +541,19 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
     private void searchAndProcess(int contextId, QName qname, DocumentSet docs,
                                   NodeSet contextSet, NodeSet resultSet, boolean returnAncestor,
                                   SearcherTaxonomyManager.SearcherAndTaxonomy searcher, Query query,
-                                  @Nullable Set<String> fields, LuceneConfig config) throws IOException {
+                                  @Nullable Set<String> fields, LuceneConfig config,
+                                  @Nullable TopHits topHits) throws IOException {
         final LuceneFacets facets = new LuceneFacets();
         final FacetsCollector facetsCollector = new FacetsCollector();
-        final LuceneHitCollector collector = new LuceneHitCollector(qname, query, docs, contextSet, resultSet, returnAncestor, contextId, facets, facetsCollector, fields);
-        searcher.searcher.search(query, collector);
+        if (topHits != null) {
+            // only keep the best scoring lucene doc ids for now, nodes are created
+            // by TopHits#materialize once all qnames have been searched
+            final LuceneHitCollector collector = new LuceneHitCollector(qname, query, docs, contextSet, resultSet, returnAncestor, contextId, facets, null, fields);
+            searcher.searcher.search(query, topHits.newCollector(collector, facetsCollector));
+        } else {
+            final LuceneHitCollector collector = new LuceneHitCollector(qname, query, docs, contextSet, resultSet, returnAncestor, contextId, facets, facetsCollector, fields);
+            searcher.searcher.search(query, collector);
+        }
 
         // compute facets
         facets.compute(searcher.taxonomyReader, config.facetsConfig, facetsCollector);
@@ -577,8 +597,12 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
             QueryParserWrapper parser = getQueryParser(field, analyzer, docs);
             options.configureParser(parser.getConfiguration());
             Query query = parser.parse(queryString);
+            final TopHits topHits = options.getLimit().map(TopHits::new).orElse(null);
             searchAndProcess(contextId, null, docs, contextSet, resultSet,
-                    returnAncestor, searcher, query, null, config);
+                    returnAncestor, searcher, query, null, config, topHits);
+            if (topHits != null) {
+                topHits.materialize(searcher.searcher.getIndexReader());
+            }
             return resultSet;
         });
     }
@@ -902,10 +926,10 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
         private final int contextId;
         private final Query query;
         private final LuceneFacets facets;
-        private final FacetsCollector chainedCollector;
+        @Nullable private final FacetsCollector chainedCollector;
         private final Set<String> fields;
 
-        private LuceneHitCollector(QName qname, Query query, DocumentSet docs, NodeSet contextSet, NodeSet resultSet, boolean returnAncestor, int contextId, LuceneFacets facets, FacetsCollector nextCollector, @Nullable Set<String> fields) {
+        private LuceneHitCollector(QName qname, Query query, DocumentSet docs, NodeSet contextSet, NodeSet resultSet, boolean returnAncestor, int contextId, LuceneFacets facets, @Nullable FacetsCollector nextCollector, @Nullable Set<String> fields) {
             this.qname = qname;
             this.docs = docs;
             this.contextSet = contextSet;
@@ -921,7 +945,9 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
         @Override
         public void setScorer(Scorer scorer) throws IOException {
             this.scorer = scorer;
-            chainedCollector.setScorer(scorer);
+            if (chainedCollector != null) {
+                chainedCollector.setScorer(scorer);
+            }
         }
 
         @Override
@@ -929,7 +955,9 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
             this.reader = atomicReaderContext.reader();
             this.docIdValues = this.reader.getNumericDocValues(FIELD_DOC_ID);
             this.nodeIdValues = this.reader.getBinaryDocValues(LuceneUtil.FIELD_NODE_ID);
-            chainedCollector.setNextReader(atomicReaderContext);
+            if (chainedCollector != null) {
+                chainedCollector.setNextReader(atomicReaderContext);
+            }
         }
 
         @Override
@@ -940,51 +968,90 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
         @Override
         public void collect(int doc) {
             try {
-                float score = scorer.score();
-                int docId = (int) this.docIdValues.get(doc);
-                DocumentImpl storedDocument = docs.getDoc(docId);
-                if (storedDocument == null)
-                    return;
-                final BytesRef ref = this.nodeIdValues.get(doc);
-                int units = ByteConversion.byteToShort(ref.bytes, ref.offset);
-                NodeId nodeId = index.getBrokerPool().getNodeFactory().createFromData(units, ref.bytes, ref.offset + 2);
-                //LOG.info("doc: " + docId + "; node: " + nodeId.toString() + "; units: " + units);
-
-                NodeProxy storedNode = new NodeProxy(storedDocument, nodeId);
-                if (qname != null)
-                    storedNode.setNodeType(qname.getNameType() == ElementValue.ATTRIBUTE ? Node.ATTRIBUTE_NODE : Node.ELEMENT_NODE);
-                // if a context set is specified, we can directly check if the
-                // matching node is a descendant of one of the nodes
-                // in the context set.
-                if (contextSet != null) {
-                    int sizeHint = contextSet.getSizeHint(storedDocument);
-                    if (returnAncestor) {
-                        NodeProxy parentNode = contextSet.get(storedNode);
-                        // NodeProxy parentNode = contextSet.parentWithChild(storedNode, false, true, NodeProxy.UNKNOWN_NODE_LEVEL);
-                        if (parentNode != null) {
-                            LuceneMatch match = createMatch(doc, score, nodeId);
-                            parentNode.addMatch(match);
-                            resultSet.add(parentNode, sizeHint);
-                            if (Expression.NO_CONTEXT_ID != contextId) {
-                                parentNode.deepCopyContext(storedNode, contextId);
-                            } else
-                                parentNode.copyContext(storedNode);
-                            chainedCollector.collect(doc);
-                        }
-                    } else {
+                collect(doc, scorer.score());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Resolve the node stored with the given lucene document.
+         *
+         * @param doc the lucene doc id, relative to the current reader
+         * @return the node, or null if its document is not part of the searched document set
+         */
+        @Nullable private NodeProxy getStoredNode(int doc) {
+            int docId = (int) this.docIdValues.get(doc);
+            DocumentImpl storedDocument = docs.getDoc(docId);
+            if (storedDocument == null)
+                return null;
+            final BytesRef ref = this.nodeIdValues.get(doc);
+            int units = ByteConversion.byteToShort(ref.bytes, ref.offset);
+            NodeId nodeId = index.getBrokerPool().getNodeFactory().createFromData(units, ref.bytes, ref.offset + 2);
+            //LOG.info("doc: " + docId + "; node: " + nodeId.toString() + "; units: " + units);
+
+            NodeProxy storedNode = new NodeProxy(storedDocument, nodeId);
+            if (qname != null)
+                storedNode.setNodeType(qname.getNameType() == ElementValue.ATTRIBUTE ? Node.ATTRIBUTE_NODE : Node.ELEMENT_NODE);
+            return storedNode;
+        }
+
+        /**
+         * Check if the given lucene document would be added to the result set
+         * by {@link #collect(int, float)}.
+         *
+         * @param doc the lucene doc id, relative to the current reader
+         * @return true if the hit belongs to the result
+         */
+        boolean accepts(int doc) {
+            final NodeProxy storedNode = getStoredNode(doc);
+            if (storedNode == null) {
+                return false;
+            }
+            return contextSet == null || !returnAncestor || contextSet.get(storedNode) != null;
+        }
+
+        void collect(int doc, float score) throws IOException {
+            final NodeProxy storedNode = getStoredNode(doc);
+            if (storedNode == null)
+                return;
+            final NodeId nodeId = storedNode.getNodeId();
+            final DocumentImpl storedDocument = storedNode.getOwnerDocument();
+            // if a context set is specified, we can directly check if the
+            // matching node is a descendant of one of the nodes
+            // in the context set.
+            if (contextSet != null) {
+                int sizeHint = contextSet.getSizeHint(storedDocument);
+                if (returnAncestor) {
+                    NodeProxy parentNode = contextSet.get(storedNode);
+                    // NodeProxy parentNode = contextSet.parentWithChild(storedNode, false, true, NodeProxy.UNKNOWN_NODE_LEVEL);
+                    if (parentNode != null) {
                         LuceneMatch match = createMatch(doc, score, nodeId);
-                        storedNode.addMatch(match);
-                        resultSet.add(storedNode, sizeHint);
-                        chainedCollector.collect(doc);
+                        parentNode.addMatch(match);
+                        resultSet.add(parentNode, sizeHint);
+                        if (Expression.NO_CONTEXT_ID != contextId) {
+                            parentNode.deepCopyContext(storedNode, contextId);
+                        } else
+                            parentNode.copyContext(storedNode);
+                        collectChained(doc);
                     }
                 } else {
                     LuceneMatch match = createMatch(doc, score, nodeId);
                     storedNode.addMatch(match);
-                    resultSet.add(storedNode);
-                    chainedCollector.collect(doc);
+                    resultSet.add(storedNode, sizeHint);
+                    collectChained(doc);
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
+            } else {
+                LuceneMatch match = createMatch(doc, score, nodeId);
+                storedNode.addMatch(match);
+                resultSet.add(storedNode);
+                collectChained(doc);
+            }
+        }
+
+        private void collectChained(int doc) throws IOException {
+            if (chainedCollector != null) {
+                chainedCollector.collect(doc);
             }
         }
 
@@ -1001,6 +1068,119 @@ public class LuceneIndexWorker implements OrderedValuesIndex, QNamedKeysIndex {
         }
     }
 
+    /**
+     * Collects the k best scoring hits accepted by a {@link LuceneHitCollector}
+     * into a {@link TopScoreDocCollector}, without creating nodes or matches.
+     * Once the search has finished, {@link #materialize(List, List)} passes the
+     * retained hits to the hit collector. All accepted hits are counted
+     * for facets.
+     */
+    private static class TopHitsCollector extends Collector {
+
+        private final LuceneHitCollector hitCollector;
+        private final TopScoreDocCollector topDocsCollector;
+        private final FacetsCollector facetsCollector;
+
+        private TopHitsCollector(LuceneHitCollector hitCollector, int limit, FacetsCollector facetsCollector) {
+            this.hitCollector = hitCollector;
+            this.topDocsCollector = TopScoreDocCollector.create(limit, true);
+            this.facetsCollector = facetsCollector;
+        }
+
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {
+            topDocsCollector.setScorer(scorer);
+            facetsCollector.setScorer(scorer);
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext atomicReaderContext) throws IOException {
+            hitCollector.setNextReader(atomicReaderContext);
+            topDocsCollector.setNextReader(atomicReaderContext);
+            facetsCollector.setNextReader(atomicReaderContext);
+        }
+
+        @Override
+        public boolean acceptsDocsOutOfOrder() {
+            return false;
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (hitCollector.accepts(doc)) {
+                topDocsCollector.collect(doc);
+                facetsCollector.collect(doc);
+            }
+        }
+
+        /**
+         * Create nodes and matches for the given hits.
+         *
+         * @param hits hits retained by this collector
+         * @param leaves the leaves of the index reader which was searched
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        void materialize(List<ScoreDoc> hits, List<AtomicReaderContext> leaves) throws IOException {
+            // visit the hits in index order, so each leaf reader is set up once
+            hits.sort(Comparator.comparingInt(hit -> hit.doc));
+            AtomicReaderContext leaf = null;
+            for (final ScoreDoc hit : hits) {
+                if (leaf == null || hit.doc >= leaf.docBase + leaf.reader().maxDoc()) {
+                    leaf = leaves.get(ReaderUtil.subIndex(hit.doc, leaves));
+                    hitCollector.setNextReader(leaf);
+                }
+                hitCollector.collect(hit.doc - leaf.docBase, hit.score);
+            }
+        }
+    }
+
+    /**
+     * Limits a query to its k best scoring hits. A query on several qnames runs
+     * one search per qname, so the limit is applied across the
+     * {@link TopHitsCollector}s of all those searches.
+     */
+    private static class TopHits {
+
+        private final int limit;
+        private final List<TopHitsCollector> collectors = new ArrayList<>();
+
+        private TopHits(int limit) {
+            this.limit = limit;
+        }
+
+        TopHitsCollector newCollector(LuceneHitCollector hitCollector, FacetsCollector facetsCollector) {
+            final TopHitsCollector collector = new TopHitsCollector(hitCollector, limit, facetsCollector);
+            collectors.add(collector);
+            return collector;
+        }
+
+        /**
+         * Merge the hits of all searches and create nodes for the best scoring ones.
+         *
+         * @param reader the index reader which was searched
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        void materialize(IndexReader reader) throws IOException {
+            final TopDocs[] shardHits = new TopDocs[collectors.size()];
+            for (int i = 0; i < shardHits.length; i++) {
+                shardHits[i] = collectors.get(i).topDocsCollector.topDocs();
+            }
+            final List<List<ScoreDoc>> hits = new ArrayList<>(shardHits.length);
+            for (int i = 0; i < shardHits.length; i++) {
+                hits.add(new ArrayList<>());
+            }
+            for (final ScoreDoc hit : TopDocs.merge(null, limit, shardHits).scoreDocs) {
+                hits.get(hit.shardIndex).add(hit);
+            }
+            final List<AtomicReaderContext> leaves = reader.leaves();
+            for (int i = 0; i < shardHits.length; i++) {
+                collectors.get(i).materialize(hits.get(i), leaves);
+            }
+        }
+    }
+
     /**
      * Check index configurations for all collection in the given DocumentSet and return
      * a list of QNames, which have indexes defined on them.
@@ -37,7 +37,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class Query extends Function implements Optimizable {
+public class Query extends Function implements Optimizable, RankedExpression {
 	
 	protected static final Logger logger = LogManager.getLogger(Query.class);
 
@@ -86,6 +86,7 @@ public class Query extends Function implements Optimizable {
                         "   <phrase-slop>number</phrase-slop>\n" +
                         "   <leading-wildcard>yes|no</leading-wildcard>\n" +
                         "   <filter-rewrite>yes|no</filter-rewrite>\n" +
+                        "   <limit>number</limit>\n" +
                         "</options>")
             },
             new FunctionReturnSequenceType(Type.NODE, Cardinality.ZERO_OR_MORE,
@@ -99,6 +100,7 @@ public class Query extends Function implements Optimizable {
     protected QName contextQName = null;
     protected int axis = Constants.UNKNOWN_AXIS;
     private NodeSet preselectResult = null;
+    private int topN = -1;
     protected boolean optimizeSelf = false;
     protected boolean optimizeChild = false;
 
@@ -210,6 +212,7 @@ public class Query extends Function implements Optimizable {
         List<QName> qnames = new ArrayList<>(1);
         qnames.add(contextQName);
         QueryOptions options = parseOptions(this, contextSequence, null, 3);
+        applyTopN(options);
         try {
             if (key != null && Type.subTypeOf(key.getType(), Type.ELEMENT)) {
                 final Element queryXML = key == null ? null : (Element) ((NodeValue) key).getNode();
@@ -257,6 +260,7 @@ public class Query extends Function implements Optimizable {
                     qnames.add(contextQName);
                 }
                 QueryOptions options = parseOptions(this, contextSequence, contextItem, 3);
+                applyTopN(options);
                 try {
                     if (key != null && Type.subTypeOf(key.getType(), Type.ELEMENT)) {
                         final Element queryXML = (Element) ((NodeValue) key).getNode();
@@ -282,6 +286,35 @@ public class Query extends Function implements Optimizable {
         return result;
     }
 
+    @Override
+    public boolean isScoreOf(final Expression expr, final QName variable) {
+        final Expression score = RankedExpression.unwrap(expr);
+        if (!(score instanceof Score)) {
+            return false;
+        }
+        final Expression arg = RankedExpression.unwrap(((Score) score).getArgument(0));
+        return arg instanceof VariableReference && ((VariableReference) arg).getName().equals(variable);
+    }
+
+    @Override
+    public void setTopN(final int n) {
+        this.topN = n;
+    }
+
+    /**
+     * Limit the query to the best scoring hits, if only these
+     * are used by the caller, see {@link #setTopN(int)}.
+     */
+    protected void applyTopN(final QueryOptions options) {
+        if (topN > 0) {
+            options.restrictLimit(topN);
+            if (context.getProfiler().isEnabled()) {
+                context.getProfiler().message(this, Profiler.OPTIMIZATIONS, "OPTIMIZATION",
+                        "Retaining only the " + topN + " best scoring hits");
+            }
+        }
+    }
+
     protected Item getKey(Sequence contextSequence, Item contextItem) throws XPathException {
         Sequence keySeq = getArgument(1).eval(contextSequence, contextItem);
         if (keySeq.isEmpty()) {
@@ -327,6 +360,7 @@ public class Query extends Function implements Optimizable {
         if (!postOptimization) {
             preselectResult = null;
         }
+        topN = -1;
     }
 }
 
@@ -115,6 +115,7 @@ public class QueryField extends Query implements Optimizable {
         DocumentSet docs = contextSequence.getDocumentSet();
         Item query = getKey(contextSequence, null);
         QueryOptions options = parseOptions(this, contextSequence, null, 3);
+        applyTopN(options);
         try {
             if (Type.subTypeOf(query.getType(), Type.ELEMENT))
                 preselectResult = index.queryField(getExpressionId(), docs, useContext ? contextSequence.toNodeSet() : null,
@@ -157,6 +158,7 @@ public class QueryField extends Query implements Optimizable {
         	LuceneIndexWorker index = (LuceneIndexWorker)
         		context.getBroker().getIndexController().getWorkerByIndexId(LuceneIndex.ID);
         	QueryOptions options = parseOptions(this, contextSequence, contextItem, 3);
+        	applyTopN(options);
         	try {
         		if (Type.subTypeOf(query.getType(), Type.ELEMENT))
         			result = index.queryField(getExpressionId(), docs, contextSet, field,
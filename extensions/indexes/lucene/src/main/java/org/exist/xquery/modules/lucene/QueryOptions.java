@@ -53,6 +53,7 @@ public class QueryOptions {
     public static final String OPTION_FACETS = "facets";
     public static final String OPTION_FIELDS = "fields";
     public static final String OPTION_QUERY_ANALYZER_ID = "query-analyzer-id";
+    public static final String OPTION_LIMIT = "limit";
 
     protected enum DefaultOperator {
         OR,
@@ -63,6 +64,7 @@ public class QueryOptions {
     protected DefaultOperator defaultOperator = DefaultOperator.AND;
     protected boolean allowLeadingWildcard = false;
     protected Optional<Integer> phraseSlop = Optional.empty();
+    protected Optional<Integer> limit = Optional.empty();
 
     protected boolean filterRewrite = false;
     protected boolean lowercaseExpandedTerms = false;
@@ -203,6 +205,28 @@ public class QueryOptions {
         return fields;
     }
 
+    /**
+     * Maximum number of hits to return, ordered by descending score. If set,
+     * only the best scoring hits are turned into nodes.
+     *
+     * @return the maximum number of hits, or empty if all hits should be returned
+     */
+    public Optional<Integer> getLimit() {
+        return limit;
+    }
+
+    /**
+     * Restrict the maximum number of hits to return, see {@link #getLimit()}.
+     * A lower limit which is already set is kept.
+     *
+     * @param max the maximum number of hits
+     */
+    public void restrictLimit(final int max) {
+        if (!limit.isPresent() || limit.get() > max) {
+            limit = Optional.of(max);
+        }
+    }
+
     public boolean filterRewrite() {
         return filterRewrite;
     }
@@ -224,6 +248,17 @@ public class QueryOptions {
                     throw new XPathException(LuceneModule.EXXQDYFT0004, "Option " + OPTION_PHRASE_SLOP + " must be an integer");
                 }
                 break;
+            case OPTION_LIMIT:
+                try {
+                    final int max = Integer.parseInt(value);
+                    if (max < 1) {
+                        throw new NumberFormatException();
+                    }
+                    limit = Optional.of(max);
+                } catch (NumberFormatException e) {
+                    throw new XPathException(LuceneModule.EXXQDYFT0004, "Option " + OPTION_LIMIT + " must be a positive integer");
+                }
+                break;
             case OPTION_FILTER_REWRITE:
                 filterRewrite = value.equalsIgnoreCase("yes");
                 break;
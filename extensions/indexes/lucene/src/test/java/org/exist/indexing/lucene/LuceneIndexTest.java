@@ -580,6 +580,60 @@ public class LuceneIndexTest {
         }
     }
 
+    @Test
+    public void limit() throws EXistException, CollectionConfigurationException, PermissionDeniedException, SAXException, TriggerException, LockException, IOException, XPathException {
+        configureAndStore(COLLECTION_CONFIG6, XML6, "test.xml");
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try(final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+
+            final XQuery xquery = pool.getXQueryService();
+            assertNotNull(xquery);
+            Sequence seq = xquery.execute(broker, "for $a in ft:query((//b|//c), 'AAA', map { 'limit': 1 }) " +
+                    "order by ft:score($a) descending return $a/local-name(.)", null);
+            assertNotNull(seq);
+            assertEquals(1, seq.getItemCount());
+            assertEquals("c", seq.getStringValue());
+
+            seq = xquery.execute(broker, "for $a in ft:query((//b|//c), 'AAA', <options><limit>10</limit></options>) " +
+                    "order by ft:score($a) descending return $a/local-name(.)", null);
+            assertNotNull(seq);
+            assertEquals(3, seq.getItemCount());
+            assertEquals("c", seq.itemAt(0).getStringValue());
+        }
+    }
+
+    @Test
+    public void limitFromSubsequence() throws EXistException, CollectionConfigurationException, PermissionDeniedException, SAXException, TriggerException, LockException, IOException, XPathException {
+        configureAndStore(COLLECTION_CONFIG6, XML6, "test.xml");
+        final BrokerPool pool = existEmbeddedServer.getBrokerPool();
+        try(final DBBroker broker = pool.get(Optional.of(pool.getSecurityManager().getSystemSubject()))) {
+
+            final XQuery xquery = pool.getXQueryService();
+            assertNotNull(xquery);
+            final Sequence all = xquery.execute(broker, "for $a in ft:query((//b|//c), 'AAA') " +
+                    "order by ft:score($a) descending return $a/local-name(.)", null);
+            assertEquals(3, all.getItemCount());
+
+            // the limit of subsequence is passed down to ft:query
+            Sequence seq = xquery.execute(broker, "subsequence(for $a in ft:query((//b|//c), 'AAA') " +
+                    "order by ft:score($a) descending return $a/local-name(.), 1, 1)", null);
+            assertEquals(1, seq.getItemCount());
+            assertEquals("c", seq.getStringValue());
+
+            seq = xquery.execute(broker, "subsequence(for $a in ft:query((//b|//c), 'AAA') " +
+                    "order by ft:score($a) descending return $a/local-name(.), 1, 2)", null);
+            assertEquals(2, seq.getItemCount());
+            assertEquals(all.itemAt(0).getStringValue(), seq.itemAt(0).getStringValue());
+            assertEquals(all.itemAt(1).getStringValue(), seq.itemAt(1).getStringValue());
+
+            // a where clause may drop hits, so the limit must not be passed down
+            seq = xquery.execute(broker, "subsequence(for $a in ft:query((//b|//c), 'AAA') " +
+                    "where local-name($a) = 'b' order by ft:score($a) descending return $a/local-name(.), 1, 1)", null);
+            assertEquals(1, seq.getItemCount());
+            assertEquals("b", seq.getStringValue());
+        }
+    }
+
     @Test
     public void queryTranslation() throws EXistException, CollectionConfigurationException, PermissionDeniedException, SAXException, TriggerException, LockException, IOException, XPathException {
         configureAndStore(COLLECTION_CONFIG1, XML7, "test.xml");